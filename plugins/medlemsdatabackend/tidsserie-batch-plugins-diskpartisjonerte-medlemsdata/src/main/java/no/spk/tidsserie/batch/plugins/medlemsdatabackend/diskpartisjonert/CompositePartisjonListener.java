@@ -0,0 +1,7 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.diskpartisjonert;
+
+import no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer;
+
+interface CompositePartisjonListener {
+    void partisjonInitialisert(Partisjonsnummer nummer, Context meldingar);
+}
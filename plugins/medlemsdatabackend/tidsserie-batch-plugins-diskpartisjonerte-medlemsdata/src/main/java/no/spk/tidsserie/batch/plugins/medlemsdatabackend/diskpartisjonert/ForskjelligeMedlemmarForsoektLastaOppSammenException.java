@@ -0,0 +1,5 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.diskpartisjonert;
+
+public class ForskjelligeMedlemmarForsoektLastaOppSammenException extends RuntimeException {
+    private static final long serialVersionUID = 0L;
+}
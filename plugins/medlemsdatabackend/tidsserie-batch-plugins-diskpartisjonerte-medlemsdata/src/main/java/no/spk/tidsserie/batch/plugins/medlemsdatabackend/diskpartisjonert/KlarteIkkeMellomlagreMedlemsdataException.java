@@ -0,0 +1,22 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.diskpartisjonert;
+
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+
+class KlarteIkkeMellomlagreMedlemsdataException extends RuntimeException {
+    private static final long serialVersionUID = 0L;
+
+    private final String partisjonsfil;
+
+    KlarteIkkeMellomlagreMedlemsdataException(final Partisjonsfil partisjonsfil, final IOException e) {
+        super(e);
+        this.partisjonsfil = requireNonNull(partisjonsfil, "partisjonsfil er påkrevd, men var null").toString();
+    }
+
+    @Override
+    public String getMessage() {
+        return format("Klarte ikkje mellomlagre medlemsdata i %s: %s", partisjonsfil, getCause().getMessage());
+    }
+}
@@ -0,0 +1,5 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.diskpartisjonert;
+
+interface MedlemFeilarListener {
+    void medlemFeila(String medlemsId, final Throwable t);
+}
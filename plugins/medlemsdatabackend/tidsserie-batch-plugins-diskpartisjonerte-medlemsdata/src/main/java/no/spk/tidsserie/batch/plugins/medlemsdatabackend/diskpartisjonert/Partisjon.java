@@ -0,0 +1,97 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.diskpartisjonert;
+
+import static java.util.Objects.requireNonNull;
+import static no.spk.tidsserie.batch.core.medlem.Medlemsdatarader.rader;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer;
+
+/**
+ * {@link Partisjon} held på medlemsdataen til éin partisjon etter at den er lasta inn frå ei {@link Partisjonsfil}.
+ * <p>
+ * Kvart sett med medlemsdata frå fila blir halde på som eit eige segment pr medlem, slik at storleiken til
+ * partisjonen ikkje er avgrensa av kor stort eitt enkelt byte-array kan vere. Medlemsdata for eit medlem som har
+ * blitt lasta opp i fleire omgangar, blir skjøta saman med linjeskift i den rekkefølga dei vart lasta opp, først når
+ * medlemmet skal prosesserast.
+ * <p>
+ * Medlemmane blir prosessert i den rekkefølga dei først vart lasta opp i.
+ */
+class Partisjon {
+    private static final byte DELIMITER_ROW = '\n';
+
+    private final Map<String, Segment> medlemmar = new LinkedHashMap<>();
+
+    private final Partisjonsnummer nummer;
+
+    private long storleik;
+
+    Partisjon(final Partisjonsnummer nummer) {
+        this.nummer = requireNonNull(nummer, "nummer er påkrevd, men var null");
+    }
+
+    void leggTil(final String medlemsId, final byte[] medlemsdata) {
+        medlemmar.computeIfAbsent(medlemsId, id -> new Segment()).leggTil(medlemsdata);
+        storleik += medlemsdata.length;
+    }
+
+    Partisjonsnummer nummer() {
+        return nummer;
+    }
+
+    int size() {
+        return medlemmar.size();
+    }
+
+    void forEach(final BiConsumer<String, List<List<String>>> consumer) {
+        medlemmar.forEach(
+                (medlemsId, segment) -> consumer.accept(medlemsId, rader(segment.medlemsdata()))
+        );
+    }
+
+    @Override
+    public String toString() {
+        return nummer + " (" + medlemmar.size() + " medlemmar, " + storleik + " bytes)";
+    }
+
+    /**
+     * Kvart sett med medlemsdata som er lasta opp for eit medlem, i den rekkefølga dei vart lasta opp.
+     */
+    private static class Segment {
+        private byte[][] segment = new byte[1][];
+
+        private int antall;
+
+        void leggTil(final byte[] medlemsdata) {
+            if (antall == segment.length) {
+                segment = Arrays.copyOf(segment, antall * 2);
+            }
+            segment[antall++] = medlemsdata;
+        }
+
+        byte[] medlemsdata() {
+            if (antall == 1) {
+                return segment[0];
+            }
+            int lengde = antall - 1;
+            for (int i = 0; i < antall; i++) {
+                lengde += segment[i].length;
+            }
+
+            final byte[] medlemsdata = new byte[lengde];
+            int tilIndex = 0;
+            for (int i = 0; i < antall; i++) {
+                if (i > 0) {
+                    medlemsdata[tilIndex++] = DELIMITER_ROW;
+                }
+                System.arraycopy(segment[i], 0, medlemsdata, tilIndex, segment[i].length);
+                tilIndex += segment[i].length;
+            }
+            return medlemsdata;
+        }
+    }
+}
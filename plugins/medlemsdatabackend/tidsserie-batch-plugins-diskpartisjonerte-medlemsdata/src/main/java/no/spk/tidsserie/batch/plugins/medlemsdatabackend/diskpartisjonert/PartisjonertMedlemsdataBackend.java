@@ -0,0 +1,125 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.diskpartisjonert;
+
+import static java.util.Comparator.comparingLong;
+import static java.util.Objects.requireNonNull;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import no.spk.tidsserie.batch.core.TidsserieLivssyklus;
+import no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar;
+import no.spk.tidsserie.batch.core.kommandolinje.AntallProsessorar;
+import no.spk.tidsserie.batch.core.medlem.GenererTidsserieCommand;
+import no.spk.tidsserie.batch.core.medlem.MedlemsdataBackend;
+import no.spk.tidsserie.batch.core.medlem.MedlemsdataUploader;
+import no.spk.tidsserie.tjenesteregister.ServiceRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link PartisjonertMedlemsdataBackend} mellomlagrar medlemsdataen på disk under opplasting, fordelt på éi
+ * {@link Partisjonsfil} pr partisjon, i staden for å halde heile uttrekket i minnet.
+ * <p>
+ * Ved generering av tidsserien hentar kvar node éin og éin partisjon frå ei felles kø, lastar den inn, prosesserer
+ * den og slettar den før neste partisjon blir henta. Dei største partisjonane blir prosessert først, slik at nodene
+ * blir ferdige om lag samtidig. Heapbruken blir dermed avgrensa av dei største partisjonane som blir prosessert
+ * samtidig, i staden for av storleiken på heile uttrekket.
+ */
+class PartisjonertMedlemsdataBackend implements MedlemsdataBackend, TidsserieLivssyklus {
+    private static final Logger LOG = LoggerFactory.getLogger(PartisjonertMedlemsdataBackend.class);
+
+    private static final long MB = 1024 * 1024;
+
+    private final Partisjonsfiler partisjonsfiler;
+
+    private final CompositePartisjonListener partisjonsListeners;
+    private final GenererTidsserieCommand kommando;
+    private final AntallProsessorar antallNoder;
+    private final KommandoKjoerer<Meldingar> kommandoKjører;
+    private final MedlemFeilarListener medlemFeilarListener;
+
+    /**
+     * @param katalog katalogen partisjonsfilene blir mellomlagra under
+     */
+    PartisjonertMedlemsdataBackend(
+            final AntallProsessorar antallNoder,
+            final KommandoKjoerer<Meldingar> kommandoKjører,
+            final CompositePartisjonListener partisjonsListeners,
+            final GenererTidsserieCommand kommando,
+            final MedlemFeilarListener medlemFeilarListener,
+            final AntallPartisjonar antallPartisjonar,
+            final Path katalog
+    ) {
+        this.partisjonsfiler = new Partisjonsfiler(antallPartisjonar, katalog);
+        this.kommandoKjører = requireNonNull(kommandoKjører, "kommandoKjører er påkrevd, men var null");
+        this.antallNoder = requireNonNull(antallNoder, "antallNoder er påkrevd, men var null");
+        this.partisjonsListeners = requireNonNull(partisjonsListeners, "partisjonsListeners er påkrevd, men var null");
+        this.kommando = requireNonNull(kommando, "kommando er påkrevd, men var null");
+        this.medlemFeilarListener = requireNonNull(medlemFeilarListener, "medlemFeilarListener er påkrevd, men var null");
+    }
+
+    @Override
+    public void stop(final ServiceRegistry registry) {
+        partisjonsfiler.slett();
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public MedlemsdataUploader uploader() {
+        return new Uploader(partisjonsfiler);
+    }
+
+    @Override
+    public Map<String, Integer> lagTidsserie() {
+        try (final KommandoKjoerer<Meldingar> kjoerer = this.kommandoKjører) {
+            return lagTidsserie(kjoerer);
+        }
+    }
+
+    Map<String, Integer> lagTidsserie(final KommandoKjoerer<Meldingar> prosessering) {
+        partisjonsfiler.lukk();
+        final List<Partisjonsfil> størsteFørst = partisjonsfiler
+                .partisjonar()
+                .stream()
+                .sorted(comparingLong(Partisjonsfil::storleik).reversed())
+                .toList();
+        loggStorleik(størsteFørst);
+
+        final Queue<Partisjonsfil> kø = new ConcurrentLinkedQueue<>(størsteFørst);
+        return antallNoder
+                .stream()
+                .mapToObj(
+                        node -> new ProsesserNode(
+                                kø,
+                                kommando,
+                                partisjonsListeners,
+                                medlemFeilarListener
+                        )
+                                .start(prosessering)
+                )
+                .toList()
+                .stream()
+                .map(ProsesserNode.AsyncResultat::ventPåResultat)
+                .reduce(
+                        new Meldingar(),
+                        Meldingar::merge
+                )
+                .toMap();
+    }
+
+    private void loggStorleik(final List<Partisjonsfil> størsteFørst) {
+        LOG.info(
+                "Medlemsdata på {} MB er mellomlagra i {} partisjonsfiler, største partisjon er {} MB",
+                størsteFørst.stream().mapToLong(Partisjonsfil::storleik).sum() / MB,
+                størsteFørst.size(),
+                størsteFørst.isEmpty() ? 0 : størsteFørst.get(0).storleik() / MB
+        );
+    }
+}
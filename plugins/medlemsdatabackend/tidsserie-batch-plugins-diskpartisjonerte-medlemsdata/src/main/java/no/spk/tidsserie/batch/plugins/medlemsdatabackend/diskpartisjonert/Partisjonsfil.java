@@ -0,0 +1,207 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.diskpartisjonert;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+import no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer;
+
+/**
+ * {@link Partisjonsfil} mellomlagrar medlemsdataen til éin partisjon på disk under opplasting, og lastar den inn
+ * igjen som ein {@link Partisjon} når partisjonen skal prosesserast.
+ * <p>
+ * Medlemsdataen blir lagt til bakerst i fila etter kvart som den blir lasta opp, kvar gong som medlemsidentifikatoren
+ * og medlemsdataen i UTF-8, begge med lengda først. Fila blir oppretta først når partisjonen får sine første
+ * medlemsdata, partisjonar utan medlemmar har dermed aldri noka fil.
+ * <p>
+ * Skriving er trådsikker, men fila må vere {@link #lukk() lukka} før den kan {@link #les() lesast inn}. Når fila er
+ * lukka eller sletta kan det ikkje skrivast meir til den, slik at medlemsdata som allereie er mellomlagra aldri blir
+ * overskrive.
+ * <p>
+ * Dersom skrivinga feilar, kan fila innehalde ein halvskriven medlem som ikkje let seg lese inn att. Fila blir då
+ * markert som feila, og all vidare skriving til og innlesing frå fila feilar med den opprinnelege feilen.
+ * <p>
+ * Fila blir lest inn straumande, medlem for medlem, slik at partisjonen kan vere større enn det som får plass i
+ * eitt byte-array.
+ */
+class Partisjonsfil {
+    private static final int BUFFERSTORLEIK = 64 * 1024;
+
+    private final Partisjonsnummer nummer;
+
+    private final Supplier<Path> katalog;
+
+    private final Filopnar opnar;
+
+    private Path fil;
+
+    private DataOutputStream skrivar;
+
+    private long storleik;
+
+    private boolean lukka;
+
+    private IOException feil;
+
+    Partisjonsfil(final Partisjonsnummer nummer, final Supplier<Path> katalog) {
+        this(nummer, katalog, fil -> Files.newOutputStream(fil, CREATE_NEW, WRITE));
+    }
+
+    Partisjonsfil(final Partisjonsnummer nummer, final Supplier<Path> katalog, final Filopnar opnar) {
+        this.nummer = requireNonNull(nummer, "nummer er påkrevd, men var null");
+        this.katalog = requireNonNull(katalog, "katalog er påkrevd, men var null");
+        this.opnar = requireNonNull(opnar, "opnar er påkrevd, men var null");
+    }
+
+    Partisjonsnummer nummer() {
+        return nummer;
+    }
+
+    /**
+     * Antall bytes medlemsdata som er mellomlagra i fila.
+     *
+     * @return storleiken til fila
+     */
+    synchronized long storleik() {
+        return storleik;
+    }
+
+    /**
+     * Legg til medlemsdataen for medlemmet bakerst i fila.
+     *
+     * @param medlemsId medlemsidentifikatoren
+     * @param medlemsdata medlemsdatane på lagringsformatet
+     * @throws IllegalStateException dersom fila er lukka eller sletta
+     * @throws KlarteIkkeMellomlagreMedlemsdataException dersom skrivinga feilar eller ei tidligare skriving har feila
+     */
+    synchronized void skriv(final String medlemsId, final byte[] medlemsdata) {
+        sjekkFeil();
+        if (lukka) {
+            throw new IllegalStateException(format("%s er lukka og kan ikkje skrivast til", this));
+        }
+        final byte[] id = medlemsId.getBytes(StandardCharsets.UTF_8);
+        try {
+            if (skrivar == null) {
+                opprett();
+            }
+            skrivar.writeInt(id.length);
+            skrivar.write(id);
+            skrivar.writeInt(medlemsdata.length);
+            skrivar.write(medlemsdata);
+        } catch (final IOException e) {
+            throw feila(e);
+        }
+        storleik += 2 * Integer.BYTES + id.length + medlemsdata.length;
+    }
+
+    /**
+     * Skriv all medlemsdata som er buffra til disk og lukkar fila for vidare skriving.
+     */
+    synchronized void lukk() {
+        lukka = true;
+        if (skrivar == null) {
+            return;
+        }
+        try {
+            skrivar.close();
+        } catch (final IOException e) {
+            throw feila(e);
+        } finally {
+            skrivar = null;
+        }
+    }
+
+    /**
+     * Lastar inn all medlemsdata som er mellomlagra i fila.
+     *
+     * @return partisjonen med all medlemsdataen frå fila
+     * @throws IllegalStateException dersom fila ikkje er lukka for skriving
+     * @throws KlarteIkkeMellomlagreMedlemsdataException dersom innlesinga feilar eller skrivinga til fila har feila
+     */
+    synchronized Partisjon les() {
+        sjekkFeil();
+        if (skrivar != null) {
+            throw new IllegalStateException(format("%s må lukkast før den kan lesast inn", this));
+        }
+        final Partisjon partisjon = new Partisjon(nummer);
+        if (fil == null) {
+            return partisjon;
+        }
+        try (final DataInputStream lesar = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(fil), BUFFERSTORLEIK)
+        )) {
+            for (long lest = 0; lest < storleik; ) {
+                final byte[] id = new byte[lesar.readInt()];
+                lesar.readFully(id);
+                final byte[] medlemsdata = new byte[lesar.readInt()];
+                lesar.readFully(medlemsdata);
+                partisjon.leggTil(new String(id, StandardCharsets.UTF_8), medlemsdata);
+                lest += 2 * Integer.BYTES + id.length + medlemsdata.length;
+            }
+        } catch (final IOException e) {
+            throw new KlarteIkkeMellomlagreMedlemsdataException(this, e);
+        }
+        return partisjon;
+    }
+
+    /**
+     * Lukkar og slettar fila, alle medlemsdata som er mellomlagra i den går tapt og fila kan ikkje skrivast til
+     * igjen.
+     */
+    synchronized void slett() {
+        lukk();
+        if (fil == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(fil);
+        } catch (final IOException e) {
+            throw new KlarteIkkeMellomlagreMedlemsdataException(this, e);
+        } finally {
+            fil = null;
+            storleik = 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "partisjonsfil for " + nummer + (fil != null ? " (" + fil + ")" : "");
+    }
+
+    private void opprett() throws IOException {
+        fil = katalog.get().resolve(format("partisjon-%03d.bin", nummer.partisjonsnummer()));
+        skrivar = new DataOutputStream(new BufferedOutputStream(opnar.opne(fil), BUFFERSTORLEIK));
+    }
+
+    private KlarteIkkeMellomlagreMedlemsdataException feila(final IOException e) {
+        if (feil == null) {
+            feil = e;
+        }
+        return new KlarteIkkeMellomlagreMedlemsdataException(this, e);
+    }
+
+    private void sjekkFeil() {
+        if (feil != null) {
+            throw new KlarteIkkeMellomlagreMedlemsdataException(this, feil);
+        }
+    }
+
+    /**
+     * Opnar straumen som medlemsdataen blir skrive til når fila blir oppretta.
+     */
+    interface Filopnar {
+        OutputStream opne(Path fil) throws IOException;
+    }
+}
@@ -0,0 +1,99 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.diskpartisjonert;
+
+import static java.util.Objects.requireNonNull;
+import static no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer.tilhørendePartisjonsindeksForMedlem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer;
+import no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar;
+import no.spk.tidsserie.batch.core.medlem.Medlemsdatablokk;
+
+/**
+ * {@link Partisjonsfiler} fordeler medlemsdataen som blir lasta opp på éi {@link Partisjonsfil} pr partisjon,
+ * indeksert på {@link Partisjonsnummer#index()}.
+ * <p>
+ * Partisjonsfilene blir lagt i ein eigen katalog for kvar køyring, oppretta under rotkatalogen første gang
+ * nokon av partisjonane får medlemsdata. Katalogen blir sletta saman med filene via {@link #slett()}.
+ */
+class Partisjonsfiler {
+    private final Partisjonsfil[] partisjonar;
+
+    private final AntallPartisjonar antallPartisjonar;
+
+    private final Path rotkatalog;
+
+    private Path katalog;
+
+    Partisjonsfiler(final AntallPartisjonar antallPartisjonar, final Path rotkatalog) {
+        this.antallPartisjonar = requireNonNull(antallPartisjonar, "antallPartisjonar er påkrevd, men var null");
+        this.rotkatalog = requireNonNull(rotkatalog, "rotkatalog er påkrevd, men var null");
+        this.partisjonar =
+                Partisjonsnummer
+                        .stream(antallPartisjonar)
+                        .map(nummer -> new Partisjonsfil(nummer, this::katalog))
+                        .toArray(Partisjonsfil[]::new);
+    }
+
+    List<Partisjonsfil> partisjonar() {
+        return Arrays.asList(partisjonar);
+    }
+
+    void put(final String medlemsId, final byte[] medlemsdata) {
+        partisjonar[tilhørendePartisjonsindeksForMedlem(medlemsId, antallPartisjonar)].skriv(medlemsId, medlemsdata);
+    }
+
+    void put(final Medlemsdatablokk blokk) {
+        for (int gruppe = 0; gruppe < blokk.antallMedlemmar(); gruppe++) {
+            put(blokk.medlem(gruppe).toString(), blokk.medlemsdata(gruppe));
+        }
+    }
+
+    /**
+     * Lukkar alle partisjonsfilene for vidare skriving, slik at dei kan lesast inn.
+     */
+    void lukk() {
+        for (final Partisjonsfil partisjon : partisjonar) {
+            partisjon.lukk();
+        }
+    }
+
+    /**
+     * Slettar alle partisjonsfilene og katalogen dei ligg i.
+     */
+    void slett() {
+        for (final Partisjonsfil partisjon : partisjonar) {
+            partisjon.slett();
+        }
+        slettKatalog();
+    }
+
+    private synchronized void slettKatalog() {
+        if (katalog == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(katalog);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            katalog = null;
+        }
+    }
+
+    private synchronized Path katalog() {
+        if (katalog == null) {
+            try {
+                katalog = Files.createTempDirectory(Files.createDirectories(rotkatalog), "medlemsdata-");
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return katalog;
+    }
+}
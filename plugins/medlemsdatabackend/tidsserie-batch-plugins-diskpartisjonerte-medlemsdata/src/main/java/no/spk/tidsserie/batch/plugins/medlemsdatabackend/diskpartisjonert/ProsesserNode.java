@@ -0,0 +1,103 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.diskpartisjonert;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import no.spk.tidsserie.batch.core.medlem.GenererTidsserieCommand;
+
+/**
+ * {@link ProsesserNode} er ansvarlig for å prosessere partisjonar frå ei kø som blir delt mellom alle nodene, éin
+ * partisjon om gangen.
+ * <p>
+ * Noda hentar neste partisjonsfil frå køa, lastar inn medlemsdataen i fila, prosesserer alle medlemmane i
+ * partisjonen og slettar fila før den hentar neste partisjonsfil. Kvar node held dermed aldri på meir enn
+ * medlemsdataen til éin partisjon om gangen, og medlemsdataen blir frigitt straks partisjonen er ferdig
+ * prosessert.
+ * <p>
+ * Partisjonar som ikkje kan lesast inn blir rapportert som feil, utan å stoppe prosesseringa av dei andre
+ * partisjonane.
+ * <p>
+ * Prosesseringa vil bli skedulert via {@link KommandoKjoerer#start(Callable)} og vil returnere eit (potensielt)
+ * {@link AsyncResultat asynkront resultat} som det kan ta litt tid å få eit ferdig svar frå.
+ *
+ * @see KommandoKjoerer
+ * @see AsyncResultat
+ * @see ProsesserPartisjon
+ */
+class ProsesserNode {
+    private final Queue<Partisjonsfil> partisjonar;
+    private final GenererTidsserieCommand kommando;
+    private final CompositePartisjonListener partisjonsListeners;
+    private final MedlemFeilarListener medlemFeilarListener;
+
+    ProsesserNode(
+            final Queue<Partisjonsfil> partisjonar,
+            final GenererTidsserieCommand kommando,
+            final CompositePartisjonListener partisjonsListeners,
+            final MedlemFeilarListener medlemFeilarListener
+    ) {
+        this.partisjonar = requireNonNull(partisjonar, "partisjonar er påkrevd, men var null");
+        this.kommando = requireNonNull(kommando, "kommando er påkrevd, men var null");
+        this.partisjonsListeners = requireNonNull(partisjonsListeners, "partisjonsListeners er påkrevd, men var null");
+        this.medlemFeilarListener = requireNonNull(medlemFeilarListener, "medlemFeilarListener er påkrevd, men var null");
+    }
+
+    AsyncResultat start(final KommandoKjoerer<Meldingar> executor) {
+        return new AsyncResultat(
+                executor.start(
+                        this::prosesserPartisjonar
+                )
+        );
+    }
+
+    private Meldingar prosesserPartisjonar() {
+        Meldingar meldingar = new Meldingar();
+        Partisjonsfil neste;
+        while ((neste = partisjonar.poll()) != null) {
+            meldingar = meldingar.merge(prosesser(neste));
+        }
+        return meldingar;
+    }
+
+    private Meldingar prosesser(final Partisjonsfil fil) {
+        try {
+            return new ProsesserPartisjon(fil.les()).prosesser(
+                    kommando,
+                    partisjonsListeners,
+                    medlemFeilarListener
+            );
+        } catch (final KlarteIkkeMellomlagreMedlemsdataException e) {
+            final Meldingar feil = new Meldingar();
+            feil.emitError(e);
+            return feil;
+        } finally {
+            fil.slett();
+        }
+    }
+
+    static class AsyncResultat {
+        private final Future<Meldingar> verdi;
+
+        AsyncResultat(final Future<Meldingar> verdi) {
+            this.verdi = requireNonNull(verdi, "verdi er påkrevd, men var null");
+        }
+
+        Meldingar ventPåResultat() {
+            final Meldingar errors = new Meldingar();
+            try {
+                return verdi.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                errors.emitError(e);
+                return errors;
+            } catch (final ExecutionException e) {
+                errors.emitError(e.getCause());
+                return errors;
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.diskpartisjonert;
+
+import static java.util.Objects.requireNonNull;
+
+public class SemikolonSomDelAvVerdiIMedlemsdataStoettesIkkeException extends RuntimeException {
+    private static final long serialVersionUID = 0L;
+
+    private final String verdi;
+
+    public SemikolonSomDelAvVerdiIMedlemsdataStoettesIkkeException(final String verdi) {
+        this.verdi = requireNonNull(verdi, "verdi er påkrevd, men var null");
+    }
+}
\ No newline at end of file
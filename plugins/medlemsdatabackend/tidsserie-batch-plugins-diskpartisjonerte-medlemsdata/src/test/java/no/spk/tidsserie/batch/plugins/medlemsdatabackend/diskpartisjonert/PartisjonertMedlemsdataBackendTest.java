@@ -0,0 +1,120 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.diskpartisjonert;
+
+import static java.util.Arrays.asList;
+import static java.util.Objects.requireNonNull;
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar.standardAntallPartisjonar;
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallProsessorar.antallProsessorar;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import no.spk.tidsserie.batch.core.medlem.GenererTidsserieCommand;
+import no.spk.tidsserie.batch.core.medlem.MedlemsdataUploader;
+import no.spk.tidsserie.batch.core.medlem.Medlemslinje;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PartisjonertMedlemsdataBackendTest {
+    @TempDir
+    Path katalog;
+
+    private final Set<Long> initialisertePartisjonar = new HashSet<>();
+
+    private PartisjonertMedlemsdataBackend backend;
+
+    private GenererTidsserieCommand kommando;
+
+    @BeforeEach
+    void _before() {
+        backend = new PartisjonertMedlemsdataBackend(
+                antallProsessorar(1),
+                new KommandoKjoerer.SynkronKjoerer<>(),
+                (nummer, context) -> initialisertePartisjonar.add(nummer.partisjonsnummer()),
+                (key, medlemsdata, context) ->
+                        requireNonNull(kommando, "kommando er påkrevd, men var null")
+                                .generer(key, medlemsdata, context),
+                (medlemsId, t) -> {
+                },
+                standardAntallPartisjonar(),
+                katalog
+        );
+    }
+
+    @Test
+    void skal_kalle_kommando_en_gang_pr_medlem() {
+        lastOpp("Donald", "ABCD");
+        lastOpp("Dolly", "ÆØÅæøå");
+        lastOpp("Donald", "1234");
+
+        final Map<String, List<List<String>>> actual = klargjerFangingAvMedlemsdata();
+        final Map<String, Integer> meldingar = backend.lagTidsserie();
+
+        assertThat(actual)
+                .hasSize(2)
+                .containsEntry("Donald", asList(asList("ABCD"), asList("1234")))
+                .containsEntry("Dolly", asList(asList("ÆØÅæøå")));
+        assertThat(meldingar).containsEntry("medlem", 2);
+    }
+
+    @Test
+    void skal_initialisere_alle_partisjonar_også_dei_utan_medlemmar() {
+        lastOpp("Donald", "ABCD");
+
+        klargjerFangingAvMedlemsdata();
+        backend.lagTidsserie();
+
+        assertThat(initialisertePartisjonar).hasSize(standardAntallPartisjonar().antall());
+    }
+
+    @Test
+    void skal_slette_partisjonsfilene_etter_prosessering() throws IOException {
+        lastOpp("Donald", "ABCD");
+        lastOpp("Dolly", "1234");
+
+        klargjerFangingAvMedlemsdata();
+        backend.lagTidsserie();
+        backend.stop(null);
+
+        try (final Stream<Path> filer = Files.walk(katalog)) {
+            assertThat(filer).containsOnly(katalog);
+        }
+    }
+
+    @Test
+    void skal_sluke_og_rapportere_alle_runtime_exceptions_frå_kommandoen() {
+        lastOpp("Martha", "Ende");
+
+        kommando = (key, medlemsdata, tidsserieContext) -> {
+            throw new IllegalStateException("Hei");
+        };
+
+        assertThat(backend.lagTidsserie())
+                .hasSize(4)
+                .containsEntry("errors", 1)
+                .containsEntry("errors_message_Hei", 1)
+                .containsEntry("errors_type_IllegalStateException", 1)
+                .containsEntry("medlem", 1);
+    }
+
+    private void lastOpp(final String medlemsId, final String verdi) {
+        final MedlemsdataUploader uploader = backend.uploader();
+        uploader.append(new Medlemslinje(asList(medlemsId, verdi)));
+        uploader.run();
+    }
+
+    private Map<String, List<List<String>>> klargjerFangingAvMedlemsdata() {
+        final Map<String, List<List<String>>> actual = new HashMap<>();
+        kommando = (key, medlemsdata, tidsserieContext) -> actual.put(key, medlemsdata);
+        return actual;
+    }
+}
@@ -0,0 +1,149 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.diskpartisjonert;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer.partisjonsnummer;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PartisjonsfilTest {
+    @TempDir
+    Path katalog;
+
+    private final Partisjonsfil fil = new Partisjonsfil(partisjonsnummer(1), () -> katalog);
+
+    @Test
+    void skal_lese_inn_medlemsdataen_i_den_rekkefølga_medlemmane_vart_lasta_opp() {
+        fil.skriv("Donald", "A;1".getBytes(UTF_8));
+        fil.skriv("Dolly", "B;2\nC;3".getBytes(UTF_8));
+        fil.lukk();
+
+        assertThat(medlemsdata(fil.les()))
+                .containsExactly(
+                        Map.entry("Donald", asList(asList("A", "1"))),
+                        Map.entry("Dolly", asList(asList("B", "2"), asList("C", "3")))
+                );
+    }
+
+    @Test
+    void skal_skjøte_saman_medlemsdata_for_medlemmar_som_blir_lasta_opp_i_fleire_omgangar() {
+        fil.skriv("Donald", "A;1".getBytes(UTF_8));
+        fil.skriv("Dolly", "B;2".getBytes(UTF_8));
+        fil.skriv("Donald", "ÆØÅ;;".getBytes(UTF_8));
+        fil.lukk();
+
+        assertThat(medlemsdata(fil.les()))
+                .containsExactly(
+                        Map.entry("Donald", asList(asList("A", "1"), asList("ÆØÅ", "", ""))),
+                        Map.entry("Dolly", asList(asList("B", "2")))
+                );
+    }
+
+    @Test
+    void skal_ikkje_opprette_fil_for_partisjonar_utan_medlemmar() throws IOException {
+        fil.lukk();
+
+        assertThat(fil.les().size()).isEqualTo(0);
+        assertThat(filer()).isEmpty();
+    }
+
+    @Test
+    void skal_ikkje_kunne_lesast_inn_før_fila_er_lukka() {
+        fil.skriv("Donald", "A;1".getBytes(UTF_8));
+
+        assertThatCode(fil::les).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void skal_ikkje_kunne_skrivast_til_etter_at_fila_er_lukka() {
+        fil.skriv("Donald", "A;1".getBytes(UTF_8));
+        fil.lukk();
+
+        assertThatCode(() -> fil.skriv("Dolly", "B;2".getBytes(UTF_8))).isInstanceOf(IllegalStateException.class);
+        assertThat(medlemsdata(fil.les()))
+                .containsExactly(
+                        Map.entry("Donald", asList(asList("A", "1")))
+                );
+    }
+
+    @Test
+    void skal_ikkje_kunne_skrivast_til_etter_at_fila_er_sletta() {
+        fil.skriv("Donald", "A;1".getBytes(UTF_8));
+        fil.slett();
+
+        assertThatCode(() -> fil.skriv("Dolly", "B;2".getBytes(UTF_8))).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void skal_slette_fila() throws IOException {
+        fil.skriv("Donald", "A;1".getBytes(UTF_8));
+        assertThat(filer()).hasSize(1);
+
+        fil.slett();
+
+        assertThat(filer()).isEmpty();
+        assertThat(fil.storleik()).isEqualTo(0);
+    }
+
+    @Test
+    void skal_feile_ved_vidare_skriving_og_innlesing_etter_at_ei_skriving_har_feila_halvvegs() throws IOException {
+        final Partisjonsfil feilande = new Partisjonsfil(
+                partisjonsnummer(1),
+                () -> katalog,
+                sti -> new FilterOutputStream(Files.newOutputStream(sti)) {
+                    private long skrivne;
+
+                    @Override
+                    public void write(final int b) throws IOException {
+                        if (++skrivne > 100) {
+                            throw new IOException("Disken er full");
+                        }
+                        super.write(b);
+                    }
+                }
+        );
+        feilande.skriv("Donald", "A;1".getBytes(UTF_8));
+
+        assertThatCode(() -> feilande.skriv("Dolly", new byte[128 * 1024]))
+                .isInstanceOf(KlarteIkkeMellomlagreMedlemsdataException.class)
+                .hasRootCauseMessage("Disken er full");
+        assertThat(Files.size(filer().get(0)))
+                .as("storleiken til fila etter at skrivinga feila halvvegs")
+                .isEqualTo(100);
+
+        assertThatCode(() -> feilande.skriv("Doffen", "C;3".getBytes(UTF_8)))
+                .isInstanceOf(KlarteIkkeMellomlagreMedlemsdataException.class)
+                .hasRootCauseMessage("Disken er full");
+        feilande.lukk();
+        assertThatCode(feilande::les)
+                .isInstanceOf(KlarteIkkeMellomlagreMedlemsdataException.class)
+                .hasRootCauseMessage("Disken er full");
+
+        feilande.slett();
+        assertThat(filer()).isEmpty();
+    }
+
+    private List<Path> filer() throws IOException {
+        try (final Stream<Path> filer = Files.list(katalog)) {
+            return filer.toList();
+        }
+    }
+
+    private static Map<String, List<List<String>>> medlemsdata(final Partisjon partisjon) {
+        final Map<String, List<List<String>>> medlemsdata = new LinkedHashMap<>();
+        partisjon.forEach(medlemsdata::put);
+        return medlemsdata;
+    }
+}
@@ -2,10 +2,14 @@ package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar;
 
 import static java.util.Objects.requireNonNull;
 
+import java.nio.file.Path;
 import java.util.List;
 
+import no.spk.tidsserie.batch.core.Katalog;
 import no.spk.tidsserie.batch.core.TidsserieLivssyklus;
+import no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar;
 import no.spk.tidsserie.batch.core.kommandolinje.AntallProsessorar;
+import no.spk.tidsserie.batch.core.kommandolinje.Lastbalansering;
 import no.spk.tidsserie.batch.core.kommandolinje.TidsserieBatchArgumenter;
 import no.spk.tidsserie.batch.core.medlem.GenererTidsserieCommand;
 import no.spk.tidsserie.batch.core.medlem.MedlemsdataBackend;
@@ -37,7 +41,11 @@ public class Activator implements Plugin {
 
         final AntallProsessorar antallNoder = antallProsessorar(locator);
         final DatalagringStrategi datalagringStrategi = new DatalagringStrategiWrapper(locator);
-        final PartisjonertMedlemsdataOpplaster partisjonertOpplaster = new PartisjonertMedlemsdataOpplaster(registry);
+        final AntallPartisjonar antallPartisjonar = antallPartisjonar(locator);
+        final PartisjonertMedlemsdataOpplaster partisjonertOpplaster = new PartisjonertMedlemsdataOpplaster(
+                registry,
+                antallPartisjonar
+        );
 
         final PartisjonertMedlemsdataBackend backend = new PartisjonertMedlemsdataBackend(
                 antallNoder,
@@ -59,7 +67,10 @@ public class Activator implements Plugin {
                                 .invokeAll(listener -> listener.medlemFeila(medlemsId, t))
                                 .orElseRethrowFirstFailure(),
                 datalagringStrategi,
-                partisjonertOpplaster
+                partisjonertOpplaster,
+                antallPartisjonar,
+                locator.firstService(Path.class, Katalog.LOG.egenskap()),
+                lastbalansering(locator)
         );
         registry.registerService(
                 MedlemsdataBackend.class,
@@ -92,6 +103,20 @@ public class Activator implements Plugin {
                 ;
     }
 
+    private AntallPartisjonar antallPartisjonar(final ServiceLocator locator) {
+        return locator
+                .firstMandatory(TidsserieBatchArgumenter.class)
+                .antallPartisjonar()
+                ;
+    }
+
+    private Lastbalansering lastbalansering(final ServiceLocator locator) {
+        return locator
+                .firstMandatory(TidsserieBatchArgumenter.class)
+                .lastbalansering()
+                ;
+    }
+
     static class MedlemFeilarLogger implements MedlemFeilarListener {
         private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -18,12 +18,31 @@ class DatalagringStrategiWrapper implements DatalagringStrategi {
 
     @Override
     public Medlemsdata medlemsdata(final byte[] medlemsdata) {
+        return datalagringStrategi().medlemsdata(medlemsdata);
+    }
+
+    @Override
+    public DatalagringStrategi forPartisjon() {
+        return datalagringStrategi().forPartisjon();
+    }
+
+    @Override
+    public void frigi() {
+        datalagringStrategi().frigi();
+    }
+
+    @Override
+    public Optional<String> statistikk() {
+        return datalagringStrategi().statistikk();
+    }
+
+    private DatalagringStrategi datalagringStrategi() {
         DatalagringStrategi datalagringStrategi = this.datalagringStrategi.orElse(
                 locator.firstService(DatalagringStrategi.class)
                         .orElse(new DefaultDatalagringStrategi())
         );
         this.datalagringStrategi = Optional.of(datalagringStrategi);
 
-        return datalagringStrategi.medlemsdata(medlemsdata);
+        return datalagringStrategi;
     }
 }
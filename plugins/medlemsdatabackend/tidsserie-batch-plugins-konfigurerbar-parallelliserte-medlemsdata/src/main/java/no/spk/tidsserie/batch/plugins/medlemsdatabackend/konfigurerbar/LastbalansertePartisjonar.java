@@ -1,13 +1,21 @@
 package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar;
 
+import static java.util.Comparator.comparingLong;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toSet;
 
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import java.util.stream.Stream;
 
 import no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer;
@@ -17,10 +25,42 @@ import no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.Prosesser
 class LastbalansertePartisjonar {
     private final Map<Nodenummer, Set<Partisjon>> lastbalansering;
 
-    private LastbalansertePartisjonar(final Map<Nodenummer, Set<Partisjon>> lastbalansering) {
+    private final ToLongFunction<Partisjon> kostnad;
+
+    private final boolean arbeidsstjeling;
+
+    private final Optional<Partisjonsprofil> profilering;
+
+    private LastbalansertePartisjonar(
+            final Map<Nodenummer, Set<Partisjon>> lastbalansering,
+            final ToLongFunction<Partisjon> kostnad
+    ) {
+        this(lastbalansering, kostnad, false, Optional.empty());
+    }
+
+    private LastbalansertePartisjonar(
+            final Map<Nodenummer, Set<Partisjon>> lastbalansering,
+            final ToLongFunction<Partisjon> kostnad,
+            final boolean arbeidsstjeling,
+            final Optional<Partisjonsprofil> profilering
+    ) {
         this.lastbalansering = requireNonNull(lastbalansering, "lastbalansering er påkrevd, men var null");
+        this.kostnad = requireNonNull(kostnad, "kostnad er påkrevd, men var null");
+        this.arbeidsstjeling = arbeidsstjeling;
+        this.profilering = requireNonNull(profilering, "profilering er påkrevd, men var null");
     }
 
+    /**
+     * Fordeler partisjonane på nodene basert på partisjonsnummeret, sjå {@link Nodenummer#skalHandtere(Partisjonsnummer)}.
+     * <p>
+     * Fordelinga tar ikkje omsyn til kor mykje medlemsdata kvar partisjon inneheld, ved skeive uttrekk kan derfor
+     * enkelte noder få vesentleg meir arbeid enn andre.
+     *
+     * @param partisjonstabell partisjonane som skal fordelast
+     * @param noder nodene partisjonane skal fordelast på
+     * @return partisjonane fordelt på nodene
+     * @see #lastbalanserEtterStorleik(Partisjonstabell, Stream)
+     */
     static LastbalansertePartisjonar lastbalanser(final Partisjonstabell partisjonstabell, final Stream<Nodenummer> noder) {
         return new LastbalansertePartisjonar(
                 noder
@@ -29,19 +69,119 @@ class LastbalansertePartisjonar {
                                         Function.identity(),
                                         partisjonstabell::partisjonarFor
                                 )
-                        )
+                        ),
+                Partisjon::storleik
         );
     }
 
+    /**
+     * Fordeler partisjonane på nodene slik at alle nodene får omtrent like mykje arbeid.
+     * <p>
+     * Partisjonane blir fordelt grådig etter storleik, største partisjon først, der kvar partisjon blir tildelt noda
+     * som så langt har fått minst medlemsdata å prosessere (longest processing time first). Storleiken blir målt i
+     * antall bytes medlemsdata, deretter antall medlemmar. Ved lik last blir partisjonen tildelt noda med færrast
+     * partisjonar, slik at tomme partisjonar blir spreidd jamt utover.
+     * <p>
+     * Fordelinga er deterministisk for eit gitt sett med partisjonar og noder.
+     *
+     * @param partisjonstabell partisjonane som skal fordelast
+     * @param noder nodene partisjonane skal fordelast på
+     * @return partisjonane fordelt på nodene
+     */
+    static LastbalansertePartisjonar lastbalanserEtterStorleik(final Partisjonstabell partisjonstabell, final Stream<Nodenummer> noder) {
+        return lastbalanserEtterKostnad(partisjonstabell, noder, Partisjon::storleik);
+    }
+
+    /**
+     * Fordeler partisjonane på nodene slik at alle nodene får omtrent like mykje arbeid, basert på kor lang tid
+     * prosesseringa av partisjonane tok ved ei tidligare køyring.
+     * <p>
+     * Fordelinga blir gjort på samme måte som {@link #lastbalanserEtterStorleik(Partisjonstabell, Stream)}, men med
+     * {@link Partisjonsprofil#estimertTidsbruk(Partisjon) estimert tidsbruk} i staden for antall bytes medlemsdata
+     * som mål på storleiken til kvar partisjon. Sidan tidsbruken pr medlem varierer mellom partisjonane, gir dette
+     * ei jamnare fordeling av arbeidet enn fordelinga etter storleik.
+     *
+     * @param partisjonstabell partisjonane som skal fordelast
+     * @param noder nodene partisjonane skal fordelast på
+     * @param profil tidsbruken til partisjonane ved ei tidligare køyring
+     * @return partisjonane fordelt på nodene
+     * @see Partisjonsprofil#forrigeKøyring
+     */
+    static LastbalansertePartisjonar lastbalanserEtterProfil(
+            final Partisjonstabell partisjonstabell,
+            final Stream<Nodenummer> noder,
+            final Partisjonsprofil profil
+    ) {
+        return lastbalanserEtterKostnad(partisjonstabell, noder, profil::estimertTidsbruk);
+    }
+
+    private static LastbalansertePartisjonar lastbalanserEtterKostnad(
+            final Partisjonstabell partisjonstabell,
+            final Stream<Nodenummer> noder,
+            final ToLongFunction<Partisjon> kostnad
+    ) {
+        final Map<Nodenummer, Set<Partisjon>> lastbalansering = new LinkedHashMap<>();
+        final PriorityQueue<Nodelast> minstLast = new PriorityQueue<>();
+        noder.forEach(node -> {
+            final Set<Partisjon> partisjonar = new HashSet<>();
+            lastbalansering.put(node, partisjonar);
+            minstLast.add(new Nodelast(minstLast.size(), partisjonar));
+        });
+
+        partisjonstabell
+                .partisjonar()
+                .stream()
+                .map(partisjon -> new Partisjonslast(partisjon, kostnad))
+                .sorted(Partisjonslast.STØRST_FØRST)
+                .forEach(partisjon -> {
+                    final Nodelast node = minstLast.remove();
+                    node.tildel(partisjon);
+                    minstLast.add(node);
+                });
+
+        return new LastbalansertePartisjonar(lastbalansering, kostnad);
+    }
+
+    /**
+     * Lar nodene stjele partisjonar frå kvarandre under prosesseringa, sjå {@link Partisjonskoe#medArbeidsstjeling(List)}.
+     * <p>
+     * Kvar node startar med partisjonane som lastbalanseringa har tildelt den, største partisjon først, men går vidare
+     * til å stjele partisjonar som andre noder enno ikkje har starta på når den har gått tom for eigne partisjonar.
+     * Ingen node blir dermed ståande ledig så lenge det framleis finst partisjonar som ikkje er starta på.
+     * <p>
+     * I motsetnad til den parallelliserte backenden blir varme partisjonar ikkje delt opp her, kvar partisjon blir
+     * alltid stjelt og prosessert i sin heilskap. Det er eit bevisst val og ikkje ei teknisk avgrensing ved
+     * standard opplasting, der partisjonane held alle medlemsdata før prosesseringa startar. Delane måtte ha delt
+     * lageret til partisjonen og venta med å tømme og frigi det til alle delane var ferdige, og ved partisjonert
+     * opplasting, sjå {@link PartisjonertMedlemsdataOpplaster}, er partisjonen ikkje lasta opp når den blir tildelt.
+     *
+     * @return ei ny lastbalansering med samme fordeling av partisjonar, der nodene kan stjele partisjonar frå kvarandre
+     */
+    LastbalansertePartisjonar medArbeidsstjeling() {
+        return new LastbalansertePartisjonar(lastbalansering, kostnad, true, profilering);
+    }
+
+    /**
+     * Registrerer antall medlemmar og tidsbruk for kvar partisjon som blir prosessert i <code>profil</code>, slik
+     * at seinare køyringar kan {@link #lastbalanserEtterProfil(Partisjonstabell, Stream, Partisjonsprofil)
+     * lastbalansere etter tidsbruken}.
+     *
+     * @param profil profilen tidsbruken skal registrerast i
+     * @return ei ny lastbalansering med samme fordeling av partisjonar, som registrerer tidsbruken i profilen
+     */
+    LastbalansertePartisjonar medProfilering(final Partisjonsprofil profil) {
+        return new LastbalansertePartisjonar(lastbalansering, kostnad, arbeidsstjeling, Optional.of(profil));
+    }
+
     Stream<AsyncResultat> startParallellprosessering(
             final KommandoKjoerer<Meldingar> executor,
             final GenererTidsserieCommand kommando,
             final CompositePartisjonListener partisjonsListeners,
             final MedlemFeilarListener medlemFeilarListener,
             final PartisjonertMedlemsdataOpplaster partisjonertOpplaster) {
-        return
-                lastbalansering
-                        .values()
+        final Stream<ProsesserNode> noder = arbeidsstjeling
+                ? Partisjonskoe
+                        .medArbeidsstjeling(størstFørstPrNode())
                         .stream()
                         .map(
                                 partisjonar -> new ProsesserNode(
@@ -51,6 +191,19 @@ class LastbalansertePartisjonar {
                                         medlemFeilarListener,
                                         partisjonertOpplaster)
                         )
+                        .map(this::profiler)
+                : nodarMedPartisjonar()
+                        .map(
+                                partisjonar -> new ProsesserNode(
+                                        partisjonar,
+                                        kommando,
+                                        partisjonsListeners,
+                                        medlemFeilarListener,
+                                        partisjonertOpplaster)
+                        )
+                        .map(this::profiler);
+        return
+                noder
                         .map(node -> node.start(executor))
                         .toList()
                         .stream()
@@ -71,4 +224,80 @@ class LastbalansertePartisjonar {
         );
         return tmp;
     }
+
+    private ProsesserNode profiler(final ProsesserNode node) {
+        return profilering
+                .map(node::medProfilering)
+                .orElse(node);
+    }
+
+    private Stream<Set<Partisjon>> nodarMedPartisjonar() {
+        return
+                lastbalansering
+                        .values()
+                        .stream()
+                        .filter(partisjonar -> !partisjonar.isEmpty());
+    }
+
+    private List<List<Partisjon>> størstFørstPrNode() {
+        return
+                nodarMedPartisjonar()
+                        .map(
+                                partisjonar -> partisjonar
+                                        .stream()
+                                        .map(partisjon -> new Partisjonslast(partisjon, kostnad))
+                                        .sorted(Partisjonslast.STØRST_FØRST)
+                                        .map(last -> last.partisjon)
+                                        .toList()
+                        )
+                        .toList();
+    }
+
+    private static class Partisjonslast {
+        private static final Comparator<Partisjonslast> STØRST_FØRST =
+                comparingLong((Partisjonslast last) -> last.kostnad)
+                        .thenComparingInt(last -> last.medlemmar)
+                        .reversed()
+                        .thenComparingLong(last -> last.partisjon.nummer().index());
+
+        private final Partisjon partisjon;
+        private final long kostnad;
+        private final int medlemmar;
+
+        Partisjonslast(final Partisjon partisjon, final ToLongFunction<Partisjon> kostnad) {
+            this.partisjon = partisjon;
+            this.kostnad = kostnad.applyAsLong(partisjon);
+            this.medlemmar = partisjon.size();
+        }
+    }
+
+    private static class Nodelast implements Comparable<Nodelast> {
+        private static final Comparator<Nodelast> MINST_LAST_FØRST =
+                comparingLong((Nodelast last) -> last.kostnad)
+                        .thenComparingLong(last -> last.medlemmar)
+                        .thenComparingInt(last -> last.partisjonar.size())
+                        .thenComparingInt(last -> last.rekkefølge);
+
+        private final int rekkefølge;
+        private final Set<Partisjon> partisjonar;
+
+        private long kostnad;
+        private long medlemmar;
+
+        Nodelast(final int rekkefølge, final Set<Partisjon> partisjonar) {
+            this.rekkefølge = rekkefølge;
+            this.partisjonar = partisjonar;
+        }
+
+        void tildel(final Partisjonslast partisjon) {
+            partisjonar.add(partisjon.partisjon);
+            kostnad += partisjon.kostnad;
+            medlemmar += partisjon.medlemmar;
+        }
+
+        @Override
+        public int compareTo(final Nodelast other) {
+            return MINST_LAST_FØRST.compare(this, other);
+        }
+    }
 }
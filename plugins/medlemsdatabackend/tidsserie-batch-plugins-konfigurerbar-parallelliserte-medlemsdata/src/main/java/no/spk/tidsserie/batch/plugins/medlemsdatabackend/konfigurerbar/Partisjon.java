@@ -1,90 +1,123 @@
 package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar;
 
 import static java.lang.String.format;
-import static java.util.Arrays.asList;
-import static java.util.Arrays.stream;
 import static java.util.Objects.requireNonNull;
+import static no.spk.tidsserie.batch.core.medlem.Medlemsdatarader.rader;
 
-import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Semaphore;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.BiConsumer;
 
 import no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer;
 import no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring.DatalagringStrategi;
 import no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring.Medlemsdata;
 
+/**
+ * {@link Partisjon} held på medlemsdataen til alle medlemmane i ein partisjon.
+ * <p>
+ * Medlemsdata som blir lagt til blir først lagt i ei låsefri innboks, som fleire trådar kan legge til i samtidig.
+ * Innboksen blir tømt inn i partisjonen av éin tråd om gangen, anten av ein tråd frå innlastinga som partisjonen
+ * deler med alle dei andre partisjonane, eller av ein tråd som skal lese frå partisjonen og ikkje vil vente på
+ * innlastinga. Kven som får tømme innboksen blir avgjort via compare-and-set på eit flagg, det blir dermed aldri
+ * låst ved opplasting.
+ * <p>
+ * Innboksen er avgrensa til {@value #MAKS_BYTES_I_INNBOKS} bytes medlemsdata. Når innboksen er full, tømmer tråden
+ * som legg til medlemsdata innboksen sjølv før den legg til meir, eller ventar til tråden som held på å tømme den
+ * har fått unna nok. Opplastinga blir dermed bremsa ned til farten innlastinga held, i staden for at medlemsdata
+ * hopar seg opp i innboksane.
+ * <p>
+ * Lesing frå partisjonen ventar til alle medlemsdata som er lagt til før lesinga starta er tømt inn i partisjonen.
+ * Når opplastinga er ferdig og innboksen er tom, skjer lesinga utan nokon form for låsing. Det er ikkje støtta å
+ * legge til medlemsdata samtidig som partisjonen blir lest frå.
+ * <p>
+ * Feil frå datalagringsstrategien under innlasting blir kasta vidare ved neste lesing frå partisjonen.
+ */
 class Partisjon {
-    private static final String DELIMITER_ROW = "\n";
-    private static final String DELIMITER_COLUMN = ";";
+    private static final long VENTETID_NANOSEKUND = 50_000;
 
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private static final long MAKS_BYTES_I_INNBOKS = 4 * 1024 * 1024;
 
-    private final Semaphore lock = new Semaphore(1, true);
+    private final Queue<Innlegg> innboks = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong bytesIInnboks = new AtomicLong();
+
+    private final AtomicBoolean planlagt = new AtomicBoolean();
 
     private final LinkedHashMap<String, Medlemsdata> medlemsdata = new LinkedHashMap<>();
 
     private final Partisjonsnummer nummer;
 
+    private final Executor innlasting;
+
+    private volatile boolean stoppa;
+
+    private volatile RuntimeException feil;
+
+    private long storleik;
+
+    private DatalagringStrategi lager;
+
+    /**
+     * Opprettar ein partisjon der innboksen blir tømt av tråden som legg til medlemsdata, i staden for av ei felles
+     * innlasting.
+     */
     Partisjon(final Partisjonsnummer nummer) {
+        this(nummer, Runnable::run);
+    }
+
+    Partisjon(final Partisjonsnummer nummer, final Executor innlasting) {
         this.nummer = requireNonNull(nummer, "nummer er påkrevd, men var null");
+        this.innlasting = requireNonNull(innlasting, "innlasting er påkrevd, men var null");
     }
 
     void put(final String key, final byte[] medlemsdata, final DatalagringStrategi datalagringStrategi) {
-        try {
-            lock.acquire();
-        } catch (InterruptedException e) {
-            throw new KlarteIkkeBehandleMedlemsdataIPartisjonException(nummer, e);
+        leggIInnboks(
+                new Innlegg(
+                        medlemsdata.length,
+                        () -> leggTil(key, medlemsdata, datalagringStrategi)
+                )
+        );
+    }
+
+    void putAll(final List<Map.Entry<String, byte[]>> medlemsdata, final DatalagringStrategi datalagringStrategi) {
+        long storleik = 0;
+        for (final Map.Entry<String, byte[]> medlem : medlemsdata) {
+            storleik += medlem.getValue().length;
         }
-        executor.submit(() -> {
-            try {
-                this.medlemsdata.merge(
-                        key,
-                        datalagringStrategi.medlemsdata(medlemsdata),
-                        Medlemsdata::put
-                );
-            } finally {
-                lock.release();
-            }
-        });
+        leggIInnboks(
+                new Innlegg(
+                        storleik,
+                        () -> medlemsdata.forEach(
+                                medlem -> leggTil(medlem.getKey(), medlem.getValue(), datalagringStrategi)
+                        )
+                )
+        );
     }
 
     Optional<List<List<String>>> get(final String medlemsId) {
-        try {
-            lock.acquire();
-        } catch (InterruptedException e) {
-            throw new KlarteIkkeLeseMedlemsdataIPartisjonException(nummer, e);
-        }
-        try {
-            Optional<List<List<String>>> resultat = Optional
-                    .ofNullable(medlemsdata.get(medlemsId))
-                    .map(this::somMedlemsdata);
-            return resultat;
-        } finally {
-            lock.release();
-        }
+        ventPåInnlasting();
+        return Optional
+                .ofNullable(medlemsdata.get(medlemsId))
+                .map(this::somMedlemsdata);
     }
 
     void forEach(final BiConsumer<String, List<List<String>>> consumer) {
-        try {
-            lock.acquire();
-        } catch (InterruptedException e) {
-            throw new KlarteIkkeLeseMedlemsdataIPartisjonException(nummer, e);
-        }
-        try {
-            medlemsdata.forEach(
-                    (key, bytes) -> consumer.accept(
-                            key,
-                            somMedlemsdata(bytes)
-                    )
-            );
-        } finally {
-            lock.release();
-        }
+        ventPåInnlasting();
+        medlemsdata.forEach(
+                (key, bytes) -> consumer.accept(
+                        key,
+                        somMedlemsdata(bytes)
+                )
+        );
     }
 
     Partisjonsnummer nummer() {
@@ -92,87 +125,193 @@ class Partisjon {
     }
 
     boolean isEmpty() {
-        try {
-            lock.acquire();
-        } catch (InterruptedException e) {
-            throw new KlarteIkkeLeseMedlemsdataIPartisjonException(nummer, e);
-        }
-        try {
-            return medlemsdata.isEmpty();
-        } finally {
-            lock.release();
-        }
+        ventPåInnlasting();
+        return medlemsdata.isEmpty();
     }
 
     int size() {
-        try {
-            lock.acquire();
-        } catch (InterruptedException e) {
-            throw new KlarteIkkeLeseMedlemsdataIPartisjonException(nummer, e);
-        }
-        try {
-            return medlemsdata.size();
-        } finally {
-            lock.release();
-        }
+        ventPåInnlasting();
+        return medlemsdata.size();
+    }
+
+    /**
+     * Antall bytes ukomprimert medlemsdata som er lagt til i partisjonen, brukt som estimat på kor mykje arbeid det
+     * vil vere å prosessere partisjonen.
+     *
+     * @return antall bytes medlemsdata i partisjonen
+     */
+    long storleik() {
+        ventPåInnlasting();
+        return storleik;
     }
 
     @Override
     public String toString() {
-        try {
-            lock.acquire();
-        } catch (InterruptedException e) {
-            throw new KlarteIkkeLeseMedlemsdataIPartisjonException(nummer, e);
+        ventPåInnlasting();
+        return format(
+                "%s (%d medlemmar)",
+                nummer.toString(),
+                medlemsdata.keySet().size()
+        );
+    }
+
+    void tøm() {
+        ventPåInnlasting();
+        medlemsdata.clear();
+        storleik = 0;
+        frigiLager();
+    }
+
+    /**
+     * Stoppar partisjonen og frigir all medlemsdata i den, medlemsdata som enno ligg i innboksen blir forkasta.
+     * <p>
+     * Dersom innboksen blir tømt av ein annan tråd når partisjonen blir stoppa, blir medlemsdataen frigitt av den
+     * tråden når den er ferdig.
+     */
+    void stop() {
+        stoppa = true;
+        tømUtanÅLeggeTil();
+        if (planlagt.compareAndSet(false, true)) {
+            frigiAlt();
         }
-        try {
-            return format(
-                    "%s (%d medlemmar)",
-                    nummer.toString(),
-                    medlemsdata.keySet().size()
-            );
-        } finally {
-            lock.release();
+    }
+
+    private void leggIInnboks(final Innlegg innlegg) {
+        ventPåPlassIInnboks();
+        bytesIInnboks.addAndGet(innlegg.storleik);
+        innboks.offer(innlegg);
+        planleggTømmingAvInnboks();
+    }
+
+    /**
+     * Ventar til innboksen ikkje lenger er full. Innboksen blir tømt av tråden som ventar dersom ingen andre er i
+     * gang med å tømme den.
+     */
+    private void ventPåPlassIInnboks() {
+        while (!stoppa && bytesIInnboks.get() >= MAKS_BYTES_I_INNBOKS) {
+            if (planlagt.compareAndSet(false, true)) {
+                tømInnboks();
+            } else {
+                LockSupport.parkNanos(VENTETID_NANOSEKUND);
+            }
         }
     }
 
-    private int ikkjeIgnorerTommeKolonnerPåSluttenAvRada() {
-        return -1;
+    private void planleggTømmingAvInnboks() {
+        if (!stoppa && planlagt.compareAndSet(false, true)) {
+            try {
+                innlasting.execute(this::tømInnboks);
+            } catch (final RejectedExecutionException e) {
+                planlagt.set(false);
+                throw new KlarteIkkeBehandleMedlemsdataIPartisjonException(nummer, e);
+            }
+        }
     }
 
-    private List<List<String>> somMedlemsdata(final Medlemsdata medlemsdata) {
-        return stream(
-                new String(
-                        medlemsdata.medlemsdata(),
-                        StandardCharsets.UTF_8
-                )
-                        .split(DELIMITER_ROW)
-        )
-                .map(
-                        row -> asList(
-                                row.split(
-                                        DELIMITER_COLUMN,
-                                        ikkjeIgnorerTommeKolonnerPåSluttenAvRada()
-                                )
-                        )
-                )
-                .toList();
+    /**
+     * Legg til alt som ligg i innboksen i partisjonen. Skal kun kallast av tråden som har satt {@link #planlagt}.
+     */
+    private void tømInnboks() {
+        do {
+            Innlegg innlegg;
+            while (!stoppa && (innlegg = innboks.poll()) != null) {
+                try {
+                    innlegg.handling.run();
+                } catch (final RuntimeException e) {
+                    if (feil == null) {
+                        feil = e;
+                    }
+                } finally {
+                    bytesIInnboks.addAndGet(-innlegg.storleik);
+                }
+            }
+            if (stoppa) {
+                frigiAlt();
+                return;
+            }
+            planlagt.set(false);
+            // Medlemsdata som blir lagt i innboksen etter siste poll, men før flagget blir nullstilt, blir ikkje
+            // planlagt av den som la dei til og må difor plukkast opp her
+        } while (!innboks.isEmpty() && !stoppa && planlagt.compareAndSet(false, true));
     }
 
-    void tøm() {
-        try {
-            lock.acquire();
-        } catch (InterruptedException e) {
+    /**
+     * Ventar til all medlemsdata som ligg i innboksen er lagt til i partisjonen. Innboksen blir tømt av tråden
+     * som ventar dersom ingen andre er i gang med å tømme den.
+     */
+    private void ventPåInnlasting() {
+        while (!stoppa && (!innboks.isEmpty() || planlagt.get())) {
+            if (planlagt.compareAndSet(false, true)) {
+                tømInnboks();
+            } else {
+                LockSupport.parkNanos(VENTETID_NANOSEKUND);
+            }
+        }
+        final RuntimeException e = feil;
+        if (e != null) {
+            feil = null;
             throw new KlarteIkkeBehandleMedlemsdataIPartisjonException(nummer, e);
         }
-        try {
-            medlemsdata.clear();
-        } finally {
-            lock.release();
+    }
+
+    private void leggTil(final String key, final byte[] medlemsdata, final DatalagringStrategi datalagringStrategi) {
+        this.medlemsdata.merge(
+                key,
+                lager(datalagringStrategi).medlemsdata(medlemsdata),
+                Medlemsdata::put
+        );
+        storleik += medlemsdata.length;
+    }
+
+    private List<List<String>> somMedlemsdata(final Medlemsdata medlemsdata) {
+        return rader(medlemsdata.medlemsdata());
+    }
+
+    /**
+     * Lageret partisjonen brukar for medlemsdataen sin, oppretta frå <code>datalagringStrategi</code> første gang det
+     * blir lagt til medlemsdata etter at partisjonen er oppretta eller tømt.
+     */
+    private DatalagringStrategi lager(final DatalagringStrategi datalagringStrategi) {
+        if (lager == null) {
+            lager = datalagringStrategi.forPartisjon();
+        }
+        return lager;
+    }
+
+    private void frigiLager() {
+        if (lager != null) {
+            lager.frigi();
+            lager = null;
+        }
+    }
+
+    private void frigiAlt() {
+        tømUtanÅLeggeTil();
+        medlemsdata.clear();
+        frigiLager();
+    }
+
+    /**
+     * Forkastar all medlemsdata som ligg i innboksen.
+     */
+    private void tømUtanÅLeggeTil() {
+        Innlegg innlegg;
+        while ((innlegg = innboks.poll()) != null) {
+            bytesIInnboks.addAndGet(-innlegg.storleik);
         }
     }
 
-    void stop() {
-        executor.shutdownNow();
-        lock.drainPermits();
+    /**
+     * Medlemsdata som ligg i innboksen og ventar på å bli lagt til i partisjonen.
+     */
+    private static class Innlegg {
+        private final long storleik;
+
+        private final Runnable handling;
+
+        Innlegg(final long storleik, final Runnable handling) {
+            this.storleik = storleik;
+            this.handling = handling;
+        }
     }
 }
@@ -1,19 +1,31 @@
 package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar;
 
 import static java.util.Objects.requireNonNull;
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar.standardAntallPartisjonar;
+import static no.spk.tidsserie.batch.core.kommandolinje.Lastbalansering.standardLastbalansering;
 
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import no.spk.tidsserie.batch.core.TidsserieLivssyklus;
+import no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar;
 import no.spk.tidsserie.batch.core.kommandolinje.AntallProsessorar;
+import no.spk.tidsserie.batch.core.kommandolinje.Lastbalansering;
 import no.spk.tidsserie.batch.core.medlem.GenererTidsserieCommand;
 import no.spk.tidsserie.batch.core.medlem.MedlemsdataBackend;
 import no.spk.tidsserie.batch.core.medlem.MedlemsdataUploader;
 import no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring.DatalagringStrategi;
 import no.spk.tidsserie.tjenesteregister.ServiceRegistry;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 class PartisjonertMedlemsdataBackend implements MedlemsdataBackend, TidsserieLivssyklus {
-    private final Partisjonstabell partisjonar = new Partisjonstabell();
+    private static final Logger LOG = LoggerFactory.getLogger(PartisjonertMedlemsdataBackend.class);
+
+    private final Partisjonstabell partisjonar;
 
     private final CompositePartisjonListener partisjonsListeners;
     private final GenererTidsserieCommand kommando;
@@ -23,6 +35,9 @@ class PartisjonertMedlemsdataBackend implements MedlemsdataBackend, TidsserieLiv
     private final DatalagringStrategi datalagringStrategi;
 
     private final PartisjonertMedlemsdataOpplaster partisjonertOpplaster;
+    private final AntallPartisjonar antallPartisjonar;
+    private final Optional<Path> logkatalog;
+    private final Lastbalansering lastbalansering;
 
     public PartisjonertMedlemsdataBackend(
             final AntallProsessorar antallNoder,
@@ -33,6 +48,90 @@ class PartisjonertMedlemsdataBackend implements MedlemsdataBackend, TidsserieLiv
             final DatalagringStrategi datalagringStrategi,
             final PartisjonertMedlemsdataOpplaster partisjonertOpplaster
     ) {
+        this(
+                antallNoder,
+                kommandoKjører,
+                partisjonsListeners,
+                kommando,
+                medlemFeilarListener,
+                datalagringStrategi,
+                partisjonertOpplaster,
+                standardAntallPartisjonar()
+        );
+    }
+
+    public PartisjonertMedlemsdataBackend(
+            final AntallProsessorar antallNoder,
+            final KommandoKjoerer<Meldingar> kommandoKjører,
+            final CompositePartisjonListener partisjonsListeners,
+            final GenererTidsserieCommand kommando,
+            final MedlemFeilarListener medlemFeilarListener,
+            final DatalagringStrategi datalagringStrategi,
+            final PartisjonertMedlemsdataOpplaster partisjonertOpplaster,
+            final AntallPartisjonar antallPartisjonar
+    ) {
+        this(
+                antallNoder,
+                kommandoKjører,
+                partisjonsListeners,
+                kommando,
+                medlemFeilarListener,
+                datalagringStrategi,
+                partisjonertOpplaster,
+                antallPartisjonar,
+                Optional.empty()
+        );
+    }
+
+    public PartisjonertMedlemsdataBackend(
+            final AntallProsessorar antallNoder,
+            final KommandoKjoerer<Meldingar> kommandoKjører,
+            final CompositePartisjonListener partisjonsListeners,
+            final GenererTidsserieCommand kommando,
+            final MedlemFeilarListener medlemFeilarListener,
+            final DatalagringStrategi datalagringStrategi,
+            final PartisjonertMedlemsdataOpplaster partisjonertOpplaster,
+            final AntallPartisjonar antallPartisjonar,
+            final Optional<Path> logkatalog
+    ) {
+        this(
+                antallNoder,
+                kommandoKjører,
+                partisjonsListeners,
+                kommando,
+                medlemFeilarListener,
+                datalagringStrategi,
+                partisjonertOpplaster,
+                antallPartisjonar,
+                logkatalog,
+                standardLastbalansering()
+        );
+    }
+
+    /**
+     * Når <code>logkatalog</code> er kjent, lagrar backenden ein {@link Partisjonsprofil profil} av tidsbruken til
+     * kvar partisjon i logkatalogen.
+     * <p>
+     * Med {@link Lastbalansering#ARBEIDSMENGDE} blir partisjonane lastbalansert etter profilen frå forrige køyring
+     * dersom den finst, elles etter storleik, og nodene stjeler partisjonar frå kvarandre når dei går tom for eigne.
+     * Med {@link Lastbalansering#PARTISJONSNUMMER} blir partisjonane fordelt etter partisjonsnummeret.
+     */
+    public PartisjonertMedlemsdataBackend(
+            final AntallProsessorar antallNoder,
+            final KommandoKjoerer<Meldingar> kommandoKjører,
+            final CompositePartisjonListener partisjonsListeners,
+            final GenererTidsserieCommand kommando,
+            final MedlemFeilarListener medlemFeilarListener,
+            final DatalagringStrategi datalagringStrategi,
+            final PartisjonertMedlemsdataOpplaster partisjonertOpplaster,
+            final AntallPartisjonar antallPartisjonar,
+            final Optional<Path> logkatalog,
+            final Lastbalansering lastbalansering
+    ) {
+        this.lastbalansering = requireNonNull(lastbalansering, "lastbalansering er påkrevd, men var null");
+        this.partisjonar = new Partisjonstabell(antallPartisjonar);
+        this.antallPartisjonar = requireNonNull(antallPartisjonar, "antallPartisjonar er påkrevd, men var null");
+        this.logkatalog = requireNonNull(logkatalog, "logkatalog er påkrevd, men var null");
         this.kommandoKjører = requireNonNull(kommandoKjører, "kommandoKjører er påkrevd, men var null");
         this.antallNoder = requireNonNull(antallNoder, "antallNoder er påkrevd, men var null");
         this.partisjonsListeners = requireNonNull(partisjonsListeners, "partisjonsListeners er påkrevd, men var null");
@@ -49,6 +148,7 @@ class PartisjonertMedlemsdataBackend implements MedlemsdataBackend, TidsserieLiv
 
     @Override
     public void start() {
+        partisjonertOpplaster.sjekkAntallPartisjonar();
     }
 
     @Override
@@ -64,8 +164,10 @@ class PartisjonertMedlemsdataBackend implements MedlemsdataBackend, TidsserieLiv
     }
 
     Map<String, Integer> lagTidsserie(final KommandoKjoerer<Meldingar> prosessering) {
-        return
+        final Partisjonsprofil profil = new Partisjonsprofil(antallPartisjonar);
+        final Map<String, Integer> meldingar =
                 fordelPartisjonarPåNoder(partisjonar)
+                        .medProfilering(profil)
                         .startParallellprosessering(
                                 prosessering,
                                 kommando,
@@ -78,6 +180,11 @@ class PartisjonertMedlemsdataBackend implements MedlemsdataBackend, TidsserieLiv
                                 Meldingar::merge
                         )
                         .toMap();
+        logkatalog.ifPresent(profil::lagre);
+        datalagringStrategi
+                .statistikk()
+                .ifPresent(statistikk -> LOG.info("Datalagring: {}", statistikk));
+        return meldingar;
     }
 
     void put(final String key, final byte[] data, final DatalagringStrategi datalagringStrategi) {
@@ -90,19 +197,27 @@ class PartisjonertMedlemsdataBackend implements MedlemsdataBackend, TidsserieLiv
     }
 
     private LastbalansertePartisjonar fordelPartisjonarPåNoder(final Partisjonstabell partisjonstabell) {
+        if (lastbalansering == Lastbalansering.PARTISJONSNUMMER) {
+            return LastbalansertePartisjonar.lastbalanser(partisjonstabell, noder());
+        }
+        return logkatalog
+                .flatMap(katalog -> Partisjonsprofil.forrigeKøyring(katalog, antallPartisjonar))
+                .map(profil -> LastbalansertePartisjonar.lastbalanserEtterProfil(partisjonstabell, noder(), profil))
+                .orElseGet(() -> LastbalansertePartisjonar.lastbalanserEtterStorleik(partisjonstabell, noder()))
+                .medArbeidsstjeling();
+    }
+
+    private Stream<Nodenummer> noder() {
         final int antallNoder = Math.toIntExact(
                 antallProsessorar().stream().count()
         );
-        return LastbalansertePartisjonar.lastbalanser(
-                partisjonstabell,
-                antallProsessorar()
-                        .stream()
-                        .mapToObj(
-                                nummer -> new Nodenummer(
-                                        nummer,
-                                        antallNoder
-                                )
+        return antallProsessorar()
+                .stream()
+                .mapToObj(
+                        nummer -> new Nodenummer(
+                                nummer,
+                                antallNoder
                         )
-        );
+                );
     }
 }
@@ -1,10 +1,13 @@
 package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar;
 
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar.standardAntallPartisjonar;
+
 import java.util.Objects;
 
 
 import no.spk.tidsserie.batch.core.grunnlagsdata.LastOppGrunnlagsdataPartisjonertKommando;
 import no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer;
+import no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar;
 import no.spk.tidsserie.batch.core.registry.ServiceLocator;
 import no.spk.tidsserie.tjenesteregister.ServiceRegistry;
 
@@ -12,13 +15,40 @@ class PartisjonertMedlemsdataOpplaster {
 
     private final ServiceRegistry serviceRegistry;
 
+    private final AntallPartisjonar antallPartisjonar;
+
     PartisjonertMedlemsdataOpplaster(final ServiceRegistry serviceRegistry) {
+        this(serviceRegistry, standardAntallPartisjonar());
+    }
+
+    PartisjonertMedlemsdataOpplaster(final ServiceRegistry serviceRegistry, final AntallPartisjonar antallPartisjonar) {
         this.serviceRegistry = Objects.requireNonNull(serviceRegistry, "serviceRegistry er påkrevd, men var null");
+        this.antallPartisjonar = Objects.requireNonNull(antallPartisjonar, "antallPartisjonar er påkrevd, men var null");
+    }
+
+    /**
+     * Feilar dersom det er registrert ein {@link LastOppGrunnlagsdataPartisjonertKommando} som ikkje
+     * {@link LastOppGrunnlagsdataPartisjonertKommando#støttar(AntallPartisjonar) støttar} antall partisjonar
+     * medlemmane blir fordelt på, slik at medlemmar ikkje blir lasta opp til feil partisjon eller blir borte.
+     *
+     * @throws IllegalStateException dersom kommandoen ikkje støttar antall partisjonar
+     */
+    void sjekkAntallPartisjonar() {
+        final ServiceLocator locator = new ServiceLocator(serviceRegistry);
+        locator.firstService(LastOppGrunnlagsdataPartisjonertKommando.class)
+                .filter(kommando -> !kommando.støttar(antallPartisjonar))
+                .ifPresent(kommando -> {
+                    throw new IllegalStateException(
+                            kommando.getClass().getSimpleName() + " støttar ikkje partisjonert opplasting av "
+                                    + "medlemsdata når medlemmane blir fordelt på " + antallPartisjonar.antall()
+                                    + " partisjonar, køyr batchen med standard antall partisjonar"
+                    );
+                });
     }
 
     void lastOppPartisjonertMedlemsdata(Partisjonsnummer partisjonsnummer) {
         final ServiceLocator locator = new ServiceLocator(serviceRegistry);
         locator.firstService(LastOppGrunnlagsdataPartisjonertKommando.class)
-                .ifPresent(kommando -> kommando.lastOpp(serviceRegistry, partisjonsnummer.partisjonsnummer()));
+                .ifPresent(kommando -> kommando.lastOpp(serviceRegistry, partisjonsnummer.partisjonsnummer(), antallPartisjonar));
     }
 }
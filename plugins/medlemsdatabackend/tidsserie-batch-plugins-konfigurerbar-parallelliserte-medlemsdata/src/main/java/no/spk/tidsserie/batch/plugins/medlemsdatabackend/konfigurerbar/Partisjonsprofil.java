@@ -0,0 +1,214 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Comparator.comparing;
+import static java.util.Objects.requireNonNull;
+import static no.spk.tidsserie.batch.core.BatchIdConstants.TIDSSERIE_PATTERN;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import no.spk.tidsserie.batch.core.Katalog;
+import no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer;
+import no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link Partisjonsprofil} held på kor mange medlemmar kvar partisjon inneheldt og kor lang tid prosesseringa av
+ * partisjonen tok.
+ * <p>
+ * Profilen blir {@link #lagre(Path) lagra} i {@link Katalog#LOG logkatalogen} til kvar køyring, slik at neste køyring
+ * kan {@link #forrigeKøyring(Path, AntallPartisjonar) lese den inn igjen} og
+ * {@link LastbalansertePartisjonar#lastbalanserEtterProfil(Partisjonstabell, Stream, Partisjonsprofil) lastbalansere}
+ * partisjonane etter kor lang tid dei faktisk brukar på å bli prosessert, i staden for kor mykje medlemsdata dei
+ * inneheld. Tidsbruken pr medlem i kvar partisjon er svært stabil frå køyring til køyring, medan den varierer mykje
+ * mellom partisjonane avhengig av kor komplekse medlemmane i partisjonen er.
+ * <p>
+ * Registrering av tidsbruk er trådsikker, slik at alle nodene kan registrere tidsbruken sin i samme profil.
+ */
+class Partisjonsprofil {
+    static final String FILNAVN = "partisjonsprofil.csv";
+
+    private static final String HEADER = "partisjon;antall_partisjonar;medlemmar;tidsbruk_nanosekund";
+
+    private static final Logger LOG = LoggerFactory.getLogger(Partisjonsprofil.class);
+
+    private final Map<Long, Maaling> målingar = new ConcurrentHashMap<>();
+
+    private final AntallPartisjonar antallPartisjonar;
+
+    Partisjonsprofil(final AntallPartisjonar antallPartisjonar) {
+        this.antallPartisjonar = requireNonNull(antallPartisjonar, "antallPartisjonar er påkrevd, men var null");
+    }
+
+    /**
+     * Registrerer at prosesseringa av <code>medlemmar</code> medlemmar i partisjonen tok <code>tidsbruk</code>
+     * nanosekund.
+     * <p>
+     * Registreringar for samme partisjon blir summert.
+     *
+     * @param nummer partisjonen som har blitt prosessert
+     * @param medlemmar antall medlemmar som har blitt prosessert
+     * @param tidsbruk tida prosesseringa tok, i nanosekund
+     */
+    void registrer(final Partisjonsnummer nummer, final int medlemmar, final long tidsbruk) {
+        målingar.merge(
+                nummer.partisjonsnummer(),
+                new Maaling(medlemmar, tidsbruk),
+                Maaling::pluss
+        );
+    }
+
+    /**
+     * Estimerer kor lang tid prosesseringa av partisjonen vil ta, basert på tidsbruken pr medlem i partisjonen ved
+     * køyringa profilen er henta frå.
+     * <p>
+     * For partisjonar som ikkje inneheldt nokon medlemmar ved køyringa profilen er henta frå, blir snittet for alle
+     * partisjonane brukt. Dersom partisjonen ikkje inneheld nokon medlemmar enno, fordi
+     * medlemsdatane til partisjonen blir lasta opp først når partisjonen skal prosesserast, blir tidsbruken frå
+     * profilen brukt direkte.
+     *
+     * @param partisjon partisjonen som skal estimerast
+     * @return estimert tidsbruk for prosesseringa av partisjonen, i nanosekund
+     */
+    long estimertTidsbruk(final Partisjon partisjon) {
+        final Maaling måling = målingar.get(partisjon.nummer().partisjonsnummer());
+        final int medlemmar = partisjon.size();
+        if (medlemmar == 0) {
+            return måling != null ? måling.tidsbruk : 0;
+        }
+        final double tidsbrukPrMedlem = måling != null && måling.medlemmar > 0
+                ? måling.tidsbrukPrMedlem()
+                : målingar.values().stream().reduce(new Maaling(0, 0), Maaling::pluss).tidsbrukPrMedlem();
+        return Math.round(tidsbrukPrMedlem * medlemmar);
+    }
+
+    /**
+     * Lagrar profilen til {@value #FILNAVN} i <code>logkatalog</code>.
+     * <p>
+     * Sidan profilen kun blir brukt til å optimalisere lastbalanseringa til neste køyring, blir feil ved lagringa
+     * logga i staden for å feile køyringa.
+     *
+     * @param logkatalog logkatalogen til køyringa
+     */
+    void lagre(final Path logkatalog) {
+        final List<String> linjer = new ArrayList<>();
+        linjer.add(HEADER);
+        new TreeMap<>(målingar).forEach(
+                (nummer, måling) -> linjer.add(
+                        format(
+                                "%d;%d;%d;%d",
+                                nummer,
+                                antallPartisjonar.antall(),
+                                måling.medlemmar,
+                                måling.tidsbruk
+                        )
+                )
+        );
+        try {
+            Files.write(logkatalog.resolve(FILNAVN), linjer, UTF_8);
+        } catch (final IOException e) {
+            LOG.warn("Lagring av partisjonsprofil til {} feila: {}", logkatalog, e.getMessage());
+        }
+    }
+
+    /**
+     * Les inn profilen frå den nyaste av dei tidligare køyringane som har lagra ein profil.
+     * <p>
+     * Tidligare køyringar blir forventa å ligge i katalogar på samme nivå som logkatalogen til denne køyringa.
+     * Profilar frå køyringar med eit anna antall partisjonar blir ignorert, sidan medlemmane då har blitt fordelt
+     * annleis ut over partisjonane.
+     *
+     * @param logkatalog logkatalogen til denne køyringa
+     * @param antallPartisjonar antall partisjonar medlemmane blir fordelt på i denne køyringa
+     * @return profilen frå forrige køyring, eller {@link Optional#empty() ingenting} dersom det ikkje finst
+     * nokon brukbar profil frå ei tidligare køyring
+     */
+    static Optional<Partisjonsprofil> forrigeKøyring(final Path logkatalog, final AntallPartisjonar antallPartisjonar) {
+        final Path denneKøyringa = logkatalog.toAbsolutePath().normalize();
+        final Path tidligareKøyringar = denneKøyringa.getParent();
+        if (tidligareKøyringar == null) {
+            return Optional.empty();
+        }
+        try (final Stream<Path> kandidatar = Files.list(tidligareKøyringar)) {
+            return kandidatar
+                    .filter(kandidat -> !kandidat.equals(denneKøyringa))
+                    .filter(kandidat -> TIDSSERIE_PATTERN.matcher(kandidat.getFileName().toString()).matches())
+                    .map(kandidat -> kandidat.resolve(FILNAVN))
+                    .filter(Files::isRegularFile)
+                    .max(comparing(fil -> fil.getParent().getFileName().toString()))
+                    .flatMap(fil -> les(fil, antallPartisjonar));
+        } catch (final IOException | UncheckedIOException e) {
+            LOG.warn("Leting etter partisjonsprofil frå tidligare køyringar i {} feila: {}", tidligareKøyringar, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    static Optional<Partisjonsprofil> les(final Path fil, final AntallPartisjonar antallPartisjonar) {
+        final Partisjonsprofil profil = new Partisjonsprofil(antallPartisjonar);
+        try (final Stream<String> linjer = Files.lines(fil, UTF_8)) {
+            final boolean gyldig = linjer
+                    .skip(1)
+                    .filter(linje -> !linje.isBlank())
+                    .map(linje -> linje.split(";"))
+                    .allMatch(kolonner -> profil.registrer(kolonner));
+            if (!gyldig) {
+                LOG.info("Ignorerer partisjonsprofil {} sidan den er generert med eit anna antall partisjonar enn {}", fil, antallPartisjonar);
+                return Optional.empty();
+            }
+            return Optional.of(profil).filter(p -> !p.målingar.isEmpty());
+        } catch (final IOException | RuntimeException e) {
+            LOG.warn("Innlesing av partisjonsprofil frå {} feila: {}", fil, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private boolean registrer(final String[] kolonner) {
+        if (kolonner.length != 4) {
+            throw new IllegalArgumentException(format("Forventa 4 kolonner, men fann %d", kolonner.length));
+        }
+        if (Integer.parseInt(kolonner[1]) != antallPartisjonar.antall()) {
+            return false;
+        }
+        final long nummer = Long.parseLong(kolonner[0]);
+        if (nummer < 1 || nummer > antallPartisjonar.antall()) {
+            throw new IllegalArgumentException(format("Ugyldig partisjonsnummer %d", nummer));
+        }
+        registrer(
+                Partisjonsnummer.partisjonsnummer(nummer, antallPartisjonar),
+                Integer.parseInt(kolonner[2]),
+                Long.parseLong(kolonner[3])
+        );
+        return true;
+    }
+
+    private static class Maaling {
+        private final long medlemmar;
+        private final long tidsbruk;
+
+        Maaling(final long medlemmar, final long tidsbruk) {
+            this.medlemmar = medlemmar;
+            this.tidsbruk = tidsbruk;
+        }
+
+        Maaling pluss(final Maaling other) {
+            return new Maaling(medlemmar + other.medlemmar, tidsbruk + other.tidsbruk);
+        }
+
+        double tidsbrukPrMedlem() {
+            return medlemmar == 0 ? 0 : (double) tidsbruk / medlemmar;
+        }
+    }
+}
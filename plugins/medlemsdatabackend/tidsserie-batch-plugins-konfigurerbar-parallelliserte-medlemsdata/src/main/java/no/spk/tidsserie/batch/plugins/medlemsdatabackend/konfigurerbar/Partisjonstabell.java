@@ -1,58 +1,133 @@
 package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar;
 
-import static java.util.stream.Collectors.toMap;
+import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toSet;
-import static no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer.tilhørendePartisjonForMedlem;
+import static no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer.tilhørendePartisjonsindeksForMedlem;
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar.standardAntallPartisjonar;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Function;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer;
+import no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar;
+import no.spk.tidsserie.batch.core.medlem.Medlemsdatablokk;
 import no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring.DatalagringStrategi;
 
+/**
+ * Partisjonstabellen held på alle partisjonane til backenden, indeksert på {@link Partisjonsnummer#index()}.
+ * <br>
+ * Oppslag av partisjonen til eit medlem skjer utan allokering, via
+ * {@link Partisjonsnummer#tilhørendePartisjonsindeksForMedlem(CharSequence, AntallPartisjonar)} direkte inn i tabellen.
+ * <br>
+ * Alle partisjonane deler éi innlasting med like mange trådar som det er prosessorar, som legg medlemsdataen frå
+ * innboksane til partisjonane inn i partisjonane etter kvart som den blir lasta opp. Antall trådar er dermed
+ * uavhengig av antall partisjonar. Trådane blir avslutta når dei har vore ledige ei stund, slik at ein
+ * partisjonstabell som ikkje blir {@link #clear() tømt} ikkje held på trådane sine etter at opplastinga er ferdig.
+ */
 class Partisjonstabell {
-    private final Map<Partisjonsnummer, Partisjon> partisjonar;
+    private static final long LEDIG_TRÅD_SEKUND = 1;
+
+    private final AtomicInteger trådnummer = new AtomicInteger(1);
+
+    private final ExecutorService innlasting = innlasting(Runtime.getRuntime().availableProcessors());
+
+    private final Partisjon[] partisjonar;
+
+    private final AntallPartisjonar antallPartisjonar;
 
     Partisjonstabell() {
+        this(standardAntallPartisjonar());
+    }
+
+    Partisjonstabell(final AntallPartisjonar antallPartisjonar) {
+        this.antallPartisjonar = requireNonNull(antallPartisjonar, "antallPartisjonar er påkrevd, men var null");
         this.partisjonar =
                 Partisjonsnummer
-                        .stream()
-                        .map(Partisjon::new)
-                        .collect(
-                                toMap(
-                                        Partisjon::nummer,
-                                        Function.identity()
-                                )
-                        );
+                        .stream(antallPartisjonar)
+                        .map(nummer -> new Partisjon(nummer, innlasting))
+                        .toArray(Partisjon[]::new);
     }
 
     void clear() {
-        partisjonar.forEach((ignored, partisjon) -> partisjon.stop());
-        partisjonar.clear();
+        Arrays
+                .stream(partisjonar)
+                .filter(Objects::nonNull)
+                .forEach(Partisjon::stop);
+        Arrays.fill(partisjonar, null);
+        innlasting.shutdownNow();
+    }
+
+    List<Partisjon> partisjonar() {
+        return
+                Arrays
+                        .stream(partisjonar)
+                        .filter(Objects::nonNull)
+                        .toList();
     }
 
     Set<Partisjon> partisjonarFor(final Nodenummer node) {
         return
-                partisjonar
-                        .keySet()
-                        .stream()
-                        .filter(node::skalHandtere)
-                        .map(partisjonar::get)
+                Arrays
+                        .stream(partisjonar)
+                        .filter(Objects::nonNull)
+                        .filter(partisjon -> node.skalHandtere(partisjon.nummer()))
                         .collect(toSet());
     }
 
     void put(final String medlemsId, final byte[] data, final DatalagringStrategi datalagringStrategi) {
-        partisjonar
-                .get(tilhørendePartisjonForMedlem(medlemsId))
+        partisjonFor(medlemsId)
                 .put(medlemsId, data, datalagringStrategi);
     }
 
+    /**
+     * Fordeler medlemmane i <code>blokk</code> på partisjonane deira og legg dei til i kvar partisjon samla, med
+     * éi overlevering pr partisjon for heile blokka.
+     */
+    void put(final Medlemsdatablokk blokk, final DatalagringStrategi datalagringStrategi) {
+        final Map<Partisjon, List<Map.Entry<String, byte[]>>> prPartisjon = new LinkedHashMap<>();
+        for (int gruppe = 0; gruppe < blokk.antallMedlemmar(); gruppe++) {
+            final String medlemsId = blokk.medlem(gruppe).toString();
+            prPartisjon
+                    .computeIfAbsent(partisjonFor(medlemsId), p -> new ArrayList<>())
+                    .add(Map.entry(medlemsId, blokk.medlemsdata(gruppe)));
+        }
+        prPartisjon.forEach((partisjon, medlemsdata) -> partisjon.putAll(medlemsdata, datalagringStrategi));
+    }
+
     Optional<List<List<String>>> get(final String medlemsId) {
-        return partisjonar
-                .get(tilhørendePartisjonForMedlem(medlemsId))
+        return partisjonFor(medlemsId)
                 .get(medlemsId);
     }
+
+    private Partisjon partisjonFor(final String medlemsId) {
+        return partisjonar[tilhørendePartisjonsindeksForMedlem(medlemsId, antallPartisjonar)];
+    }
+
+    private ExecutorService innlasting(final int antallTrådar) {
+        final ThreadPoolExecutor innlasting = new ThreadPoolExecutor(
+                antallTrådar,
+                antallTrådar,
+                LEDIG_TRÅD_SEKUND,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    final Thread tråd = new Thread(r, "medlemsdata-innlasting-" + trådnummer.getAndIncrement());
+                    tråd.setDaemon(true);
+                    return tråd;
+                }
+        );
+        innlasting.allowCoreThreadTimeOut(true);
+        return innlasting;
+    }
 }
@@ -1,13 +1,16 @@
 package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar;
 
-import static java.util.Comparator.comparing;
 import static java.util.Objects.requireNonNull;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import no.spk.tidsserie.batch.core.medlem.GenererTidsserieCommand;
 import no.spk.tidsserie.batch.core.medlem.TidsserieContext;
@@ -25,6 +28,10 @@ import no.spk.tidsserie.batch.core.medlem.TidsserieContext;
  * Når prosesseringa er fullført vil {@link AsyncResultat#ventPåResultat()} returnere alle meldingar som har blitt produsert av {@link GenererTidsserieCommand#generer(String, List, TidsserieContext)},
  * {@link MedlemFeilarListener} og {@link CompositePartisjonListener} for dei prosesserte partisjonane og medlemmane.
  * <p>
+ * Dersom noda blir satt opp med ei {@link Partisjonskoe} med arbeidsstjeling, vil noda i tillegg prosessere partisjonar
+ * som lastbalanseringa har tildelt andre noder når den har gått tom for eigne partisjonar. Kvar partisjon blir likevel
+ * alltid prosessert i sin heilskap av éin og samme tråd.
+ * <p>
  * Det blir ikkje gitt nokon garantiar om i kva rekkefølge partisjonane blir behandla, det vil vere ikkje-deterministisk.
  *
  * @see KommandoKjoerer
@@ -34,11 +41,12 @@ import no.spk.tidsserie.batch.core.medlem.TidsserieContext;
  * @see MedlemFeilarListener
  */
 class ProsesserNode {
-    private final Set<Partisjon> partisjonar;
+    private final Supplier<Partisjonskoe> partisjonar;
     private final GenererTidsserieCommand kommando;
     private final CompositePartisjonListener partisjonsListeners;
     private final MedlemFeilarListener medlemFeilarListener;
     private final PartisjonertMedlemsdataOpplaster partisjonertOpplaster;
+    private final Optional<Partisjonsprofil> profilering;
 
     ProsesserNode(
             final Set<Partisjon> partisjonar,
@@ -46,11 +54,77 @@ class ProsesserNode {
             final CompositePartisjonListener partisjonsListeners,
             final MedlemFeilarListener medlemFeilarListener,
             final PartisjonertMedlemsdataOpplaster partisjonertOpplaster) {
-        this.partisjonar = requireNonNull(partisjonar, "partisjonar er påkrevd, men var null");
+        this(
+                kø(partisjonar, Partisjonskoe::utanArbeidsstjeling),
+                kommando,
+                partisjonsListeners,
+                medlemFeilarListener,
+                partisjonertOpplaster
+        );
+    }
+
+    ProsesserNode(
+            final Partisjonskoe partisjonar,
+            final GenererTidsserieCommand kommando,
+            final CompositePartisjonListener partisjonsListeners,
+            final MedlemFeilarListener medlemFeilarListener,
+            final PartisjonertMedlemsdataOpplaster partisjonertOpplaster) {
+        this(
+                kø(partisjonar, Function.identity()),
+                kommando,
+                partisjonsListeners,
+                medlemFeilarListener,
+                partisjonertOpplaster
+        );
+    }
+
+    private ProsesserNode(
+            final Supplier<Partisjonskoe> partisjonar,
+            final GenererTidsserieCommand kommando,
+            final CompositePartisjonListener partisjonsListeners,
+            final MedlemFeilarListener medlemFeilarListener,
+            final PartisjonertMedlemsdataOpplaster partisjonertOpplaster) {
+        this(
+                partisjonar,
+                kommando,
+                partisjonsListeners,
+                medlemFeilarListener,
+                partisjonertOpplaster,
+                Optional.empty()
+        );
+    }
+
+    private ProsesserNode(
+            final Supplier<Partisjonskoe> partisjonar,
+            final GenererTidsserieCommand kommando,
+            final CompositePartisjonListener partisjonsListeners,
+            final MedlemFeilarListener medlemFeilarListener,
+            final PartisjonertMedlemsdataOpplaster partisjonertOpplaster,
+            final Optional<Partisjonsprofil> profilering
+    ) {
+        this.partisjonar = partisjonar;
         this.kommando = requireNonNull(kommando, "kommando er påkrevd, men var null");
         this.partisjonsListeners = requireNonNull(partisjonsListeners, "partisjonsListeners er påkrevd, men var null");
         this.medlemFeilarListener = requireNonNull(medlemFeilarListener, "medlemFeilarListener er påkrevd, men var null");
         this.partisjonertOpplaster = requireNonNull(partisjonertOpplaster, "partisjonertOpplaster er påkrevd, men var null");
+        this.profilering = requireNonNull(profilering, "profilering er påkrevd, men var null");
+    }
+
+    /**
+     * Registrerer antall medlemmar og tidsbruk for kvar partisjon noda prosesserer i <code>profil</code>.
+     *
+     * @param profil profilen tidsbruken skal registrerast i
+     * @return ei ny node som prosesserer dei samme partisjonane og registrerer tidsbruken deira i profilen
+     */
+    ProsesserNode medProfilering(final Partisjonsprofil profil) {
+        return new ProsesserNode(
+                partisjonar,
+                kommando,
+                partisjonsListeners,
+                medlemFeilarListener,
+                partisjonertOpplaster,
+                Optional.of(profil)
+        );
     }
 
     AsyncResultat start(final KommandoKjoerer<Meldingar> executor) {
@@ -65,23 +139,45 @@ class ProsesserNode {
 
     private Meldingar prosesserPartisjonar() {
         return
-                partisjonar
-                        .stream()
-                        .sorted(comparing(partisjon -> partisjon.nummer().index()))
-                        .map(ProsesserPartisjon::new)
-                        .map(
-                                partisjon -> partisjon.prosesser(
-                                        kommando,
-                                        partisjonsListeners,
-                                        medlemFeilarListener,
-                                        partisjonertOpplaster)
-                        )
+                partisjonarFrå(partisjonar.get())
+                        .map(this::prosesser)
                         .reduce(
                                 new Meldingar(),
                                 Meldingar::merge
                         );
     }
 
+    private Meldingar prosesser(final Partisjon partisjon) {
+        final long start = System.nanoTime();
+        final Meldingar meldingar = new ProsesserPartisjon(partisjon).prosesser(
+                kommando,
+                partisjonsListeners,
+                medlemFeilarListener,
+                partisjonertOpplaster
+        );
+        final long tidsbruk = System.nanoTime() - start;
+        profilering.ifPresent(
+                profil -> profil.registrer(
+                        partisjon.nummer(),
+                        meldingar.toMap().getOrDefault("medlem", 0),
+                        tidsbruk
+                )
+        );
+        return meldingar;
+    }
+
+    private static <T> Supplier<Partisjonskoe> kø(final T partisjonar, final Function<T, Partisjonskoe> tilKø) {
+        requireNonNull(partisjonar, "partisjonar er påkrevd, men var null");
+        return () -> tilKø.apply(partisjonar);
+    }
+
+    private static Stream<Partisjon> partisjonarFrå(final Partisjonskoe kø) {
+        return Stream
+                .generate(kø::neste)
+                .takeWhile(Optional::isPresent)
+                .map(Optional::get);
+    }
+
 
     static class AsyncResultat {
         private final HarMeldingar verdi;
@@ -1,6 +1,42 @@
 package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring;
 
+import java.util.Optional;
+
 public interface DatalagringStrategi {
 
     Medlemsdata medlemsdata(byte[] medlemsdata);
+
+    /**
+     * Strategien som skal brukast for lagring av medlemsdata i éin enkelt partisjon.
+     * <p>
+     * Partisjonen brukar strategien som blir returnert for all medlemsdata som blir lagt til i partisjonen, og
+     * {@link #frigi() frigir} den når partisjonen blir tømt eller stoppa. Strategiar som held på minne utanfor dei
+     * enkelte {@link Medlemsdata}-instansane kan dermed frigi minnet til ein partisjon samla.
+     * <p>
+     * Partisjonen brukar strategien kun frå éin tråd om gangen.
+     *
+     * @return strategien partisjonen skal bruke, som standard denne strategien
+     */
+    default DatalagringStrategi forPartisjon() {
+        return this;
+    }
+
+    /**
+     * Frigir minnet som blir brukt av medlemsdata lagra via denne strategien.
+     * <p>
+     * Medlemsdata lagra via strategien kan ikkje lesast etter at minnet er frigitt. Som standard gjer frigiinga
+     * ingenting, minnet blir då frigitt av GC når medlemsdataen ikkje lenger er i bruk.
+     */
+    default void frigi() {
+    }
+
+    /**
+     * Statistikk om lagringa, til dømes kor godt medlemsdataen er komprimert, som backenden loggar etter at
+     * tidsserien er generert.
+     *
+     * @return statistikk om lagringa, eller {@link Optional#empty() ingenting} dersom strategien ikkje har nokon
+     */
+    default Optional<String> statistikk() {
+        return Optional.empty();
+    }
 }
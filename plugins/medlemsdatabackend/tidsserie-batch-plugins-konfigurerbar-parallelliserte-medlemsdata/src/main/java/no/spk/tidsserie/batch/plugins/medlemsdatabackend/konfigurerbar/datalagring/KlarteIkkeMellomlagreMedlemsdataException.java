@@ -0,0 +1,9 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring;
+
+public class KlarteIkkeMellomlagreMedlemsdataException extends RuntimeException {
+    private static final long serialVersionUID = 0L;
+
+    public KlarteIkkeMellomlagreMedlemsdataException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
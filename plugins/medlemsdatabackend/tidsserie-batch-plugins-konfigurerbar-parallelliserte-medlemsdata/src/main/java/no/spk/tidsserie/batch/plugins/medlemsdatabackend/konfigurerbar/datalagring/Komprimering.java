@@ -0,0 +1,113 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * {@link Komprimering} komprimerer og dekomprimerer enkeltståande rammer med medlemsdata, med {@link Deflater} og
+ * {@link Inflater} henta frå eit basseng i staden for å opprette nye, med tilhøyrande native buffer, for kvar ramme.
+ * <p>
+ * Rammene blir komprimert utan zlib-header og sjekksum, sidan kvar ramme ofte kun inneheld nokre hundre bytes. Dersom
+ * komprimeringa har ei ordbok blir den brukt som førehandsdefinert ordbok for alle rammene, slik at også små rammer
+ * kan referere til tekst som går igjen i medlemsdataen.
+ * <p>
+ * Komprimeringa er trådsikker.
+ */
+class Komprimering {
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+
+    private final Optional<byte[]> ordbok;
+
+    Komprimering(final Optional<byte[]> ordbok) {
+        this.ordbok = ordbok.map(byte[]::clone);
+    }
+
+    /**
+     * Komprimerer <code>data</code> til ei ramme som kan dekomprimerast åleine.
+     *
+     * @param data data som skal komprimerast
+     * @return komprimert ramme
+     */
+    byte[] komprimer(final byte[] data) {
+        final Deflater deflater = deflater();
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] resultat = new byte[Math.max(64, data.length / 2)];
+            int lengde = 0;
+            while (!deflater.finished()) {
+                if (lengde == resultat.length) {
+                    resultat = Arrays.copyOf(resultat, resultat.length * 2);
+                }
+                lengde += deflater.deflate(resultat, lengde, resultat.length - lengde);
+            }
+            return Arrays.copyOf(resultat, lengde);
+        } finally {
+            deflater.reset();
+            deflaters.offer(deflater);
+        }
+    }
+
+    /**
+     * Dekomprimerer ei ramme direkte inn i <code>til</code>.
+     *
+     * @param ramme bufferet ramma ligg i
+     * @param posisjon posisjonen til ramma i bufferet
+     * @param lengde antall bytes i den komprimerte ramma
+     * @param til bufferet dei dekomprimerte bytesa skal skrivast til
+     * @param tilIndex posisjonen i <code>til</code> dei dekomprimerte bytesa skal skrivast til
+     * @param ukomprimertLengde antall bytes ramma inneheld dekomprimert
+     * @throws KlarteIkkeDekomprimereMedlemsdataException dersom ramma ikkje kan dekomprimerast
+     */
+    void dekomprimer(
+            final byte[] ramme,
+            final int posisjon,
+            final int lengde,
+            final byte[] til,
+            final int tilIndex,
+            final int ukomprimertLengde
+    ) {
+        final Inflater inflater = inflater();
+        try {
+            inflater.setInput(ramme, posisjon, lengde);
+            int dekomprimert = 0;
+            while (dekomprimert < ukomprimertLengde) {
+                final int antall = inflater.inflate(til, tilIndex + dekomprimert, ukomprimertLengde - dekomprimert);
+                if (antall == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new KlarteIkkeDekomprimereMedlemsdataException(
+                            "Ramma inneheldt " + dekomprimert + " bytes, forventa " + ukomprimertLengde + " bytes"
+                    );
+                }
+                dekomprimert += antall;
+            }
+        } catch (final DataFormatException e) {
+            throw new KlarteIkkeDekomprimereMedlemsdataException(e.getMessage());
+        } finally {
+            inflater.reset();
+            inflaters.offer(inflater);
+        }
+    }
+
+    private Deflater deflater() {
+        final Deflater deflater = Optional
+                .ofNullable(deflaters.poll())
+                .orElseGet(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+        ordbok.ifPresent(deflater::setDictionary);
+        return deflater;
+    }
+
+    private Inflater inflater() {
+        final Inflater inflater = Optional
+                .ofNullable(inflaters.poll())
+                .orElseGet(() -> new Inflater(true));
+        ordbok.ifPresent(inflater::setDictionary);
+        return inflater;
+    }
+}
@@ -1,9 +1,92 @@
 package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring;
 
+import static java.util.Comparator.comparingLong;
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link KomprimertDatalagringStrategi} komprimerer kvart sett med medlemsdata som blir lagt til for eit medlem som
+ * ei eiga ramme, og legg rammene etter kvarandre.
+ * <p>
+ * For å få god komprimering også av små medlemmar kan strategien bli oppretta med ei førehandsdefinert ordbok, typisk
+ * {@link #trenOrdbok(List) trena} på eit utval av medlemsdataen som skal lagrast. Ordboka blir brukt for alle
+ * rammene, og må derfor vere den samme for heile køyringa.
+ */
 public class KomprimertDatalagringStrategi implements DatalagringStrategi {
+    /**
+     * Maksimal storleik på ei ordbok, deflate kan ikkje referere lenger bakover enn dette.
+     */
+    public static final int MAKS_ORDBOKSTORLEIK = 32 * 1024;
+
+    private final Komprimering komprimering;
+
+    public KomprimertDatalagringStrategi() {
+        this.komprimering = new Komprimering(Optional.empty());
+    }
+
+    /**
+     * @param ordbok førehandsdefinert ordbok som alle rammene blir komprimert med
+     * @see #trenOrdbok(List)
+     */
+    public KomprimertDatalagringStrategi(final byte[] ordbok) {
+        requireNonNull(ordbok, "ordbok er påkrevd, men var null");
+        this.komprimering = new Komprimering(Optional.of(ordbok));
+    }
 
     @Override
     public Medlemsdata medlemsdata(final byte[] medlemsdata) {
-        return KomprimertMedlemsdata.medlemsdata(medlemsdata);
+        return KomprimertMedlemsdata.medlemsdata(komprimering, medlemsdata);
+    }
+
+    /**
+     * Trenar opp ei ordbok for komprimering av medlemsdata frå eit utval av medlemsdata.
+     * <p>
+     * Ordboka blir bygd opp av dei kolonneverdiane som totalt utgjer flest bytes i utvalet, der verdiar som kun
+     * førekjem éin gang blir ignorert. Dei mest verdifulle verdiane blir lagt sist i ordboka, sidan deflate kan
+     * referere billigare til tekst som ligg nærme.
+     *
+     * @param utval medlemsdata på lagringsformatet, <code>;</code>-separerte kolonner og <code>\n</code>-separerte
+     * rader i UTF-8
+     * @return ei ordbok på maksimalt {@value #MAKS_ORDBOKSTORLEIK} bytes
+     */
+    public static byte[] trenOrdbok(final List<byte[]> utval) {
+        final Map<String, Long> førekomstar = new HashMap<>();
+        utval.forEach(
+                medlemsdata -> {
+                    for (final String rad : new String(medlemsdata, StandardCharsets.UTF_8).split("\n")) {
+                        for (final String verdi : rad.split(";")) {
+                            if (!verdi.isEmpty()) {
+                                førekomstar.merge(verdi + ";", 1L, Long::sum);
+                            }
+                        }
+                    }
+                }
+        );
+
+        final List<byte[]> verdiar = førekomstar
+                .entrySet()
+                .stream()
+                .filter(førekomst -> førekomst.getValue() > 1)
+                .sorted(comparingLong(førekomst -> -førekomst.getValue() * førekomst.getKey().length()))
+                .map(førekomst -> førekomst.getKey().getBytes(StandardCharsets.UTF_8))
+                .toList();
+
+        int storleik = 0;
+        int antall = 0;
+        while (antall < verdiar.size() && storleik + verdiar.get(antall).length <= MAKS_ORDBOKSTORLEIK) {
+            storleik += verdiar.get(antall++).length;
+        }
+
+        final ByteArrayOutputStream ordbok = new ByteArrayOutputStream(storleik);
+        for (int i = antall - 1; i >= 0; i--) {
+            ordbok.writeBytes(verdiar.get(i));
+        }
+        return ordbok.toByteArray();
     }
 }
@@ -1,61 +1,122 @@
 package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.InflaterOutputStream;
+import java.util.Arrays;
+import java.util.Optional;
 
+/**
+ * {@link KomprimertMedlemsdata} lagrar medlemsdataen som ei rekke med uavhengig komprimerte rammer, éi ramme pr
+ * sett med medlemsdata som har blitt lagt til.
+ * <p>
+ * Nye sett med medlemsdata blir lagt til som nye rammer bak dei eksisterande, utan å dekomprimere og komprimere
+ * dei eksisterande rammene på nytt. Kvar ramme blir lagra med komprimert og ukomprimert lengde først, slik at
+ * rammene kan dekomprimerast direkte inn i eitt ferdig allokert resultat når medlemsdataen blir henta ut.
+ * <p>
+ * Plassen til rammene blir dobla når den er full, slik at det å legge til mange sett med medlemsdata ikkje krev at
+ * alle rammene blir kopiert om kvar gang. Ledig plass blir frigitt igjen når medlemsdataen blir henta ut.
+ */
 class KomprimertMedlemsdata implements Medlemsdata {
-    private static final String DELIMITER_ROW = "\n";
-    private static final byte[] DELIMITER_ROW_BYTES = DELIMITER_ROW.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DELIMITER_ROW_BYTES = "\n".getBytes(StandardCharsets.UTF_8);
 
-    private byte[] medlemsdata;
+    private static final int HEADER = 2 * Integer.BYTES;
 
-    private KomprimertMedlemsdata(final byte[] medlemsdata) {
-        komprimerMedlemsdata(medlemsdata);
+    private static final Komprimering STANDARD = new Komprimering(Optional.empty());
+
+    private final Komprimering komprimering;
+
+    private byte[] rammer = new byte[0];
+
+    private int lengde;
+
+    private KomprimertMedlemsdata(final Komprimering komprimering, final byte[] medlemsdata) {
+        this.komprimering = komprimering;
+        leggTilRamme(medlemsdata);
     }
 
     public static Medlemsdata medlemsdata(final byte[] medlemsdata) {
-        return new KomprimertMedlemsdata(medlemsdata);
+        return medlemsdata(STANDARD, medlemsdata);
+    }
+
+    static Medlemsdata medlemsdata(final Komprimering komprimering, final byte[] medlemsdata) {
+        return new KomprimertMedlemsdata(komprimering, medlemsdata);
     }
 
     public byte[] medlemsdata() {
-        return dekomprimerMedlemsdata();
+        final byte[] rammer = trimma();
+        final ByteBuffer header = ByteBuffer.wrap(rammer);
+        int antallRammer = 0;
+        int ukomprimert = 0;
+        for (int posisjon = 0; posisjon < rammer.length; posisjon += HEADER + header.getInt(posisjon)) {
+            antallRammer++;
+            ukomprimert += header.getInt(posisjon + Integer.BYTES);
+        }
+
+        final byte[] resultat = new byte[ukomprimert + (antallRammer - 1) * DELIMITER_ROW_BYTES.length];
+        int tilIndex = 0;
+        for (int posisjon = 0; posisjon < rammer.length; posisjon += HEADER + header.getInt(posisjon)) {
+            if (posisjon > 0) {
+                System.arraycopy(DELIMITER_ROW_BYTES, 0, resultat, tilIndex, DELIMITER_ROW_BYTES.length);
+                tilIndex += DELIMITER_ROW_BYTES.length;
+            }
+            final int ukomprimertLengde = header.getInt(posisjon + Integer.BYTES);
+            komprimering.dekomprimer(
+                    rammer,
+                    posisjon + HEADER,
+                    header.getInt(posisjon),
+                    resultat,
+                    tilIndex,
+                    ukomprimertLengde
+            );
+            tilIndex += ukomprimertLengde;
+        }
+        return resultat;
     }
 
     public Medlemsdata put(final Medlemsdata innData) {
-        komprimerMedlemsdata(this.medlemsdata(), DELIMITER_ROW_BYTES, innData.medlemsdata());
+        if (innData instanceof KomprimertMedlemsdata && ((KomprimertMedlemsdata) innData).komprimering == komprimering) {
+            final KomprimertMedlemsdata komprimert = (KomprimertMedlemsdata) innData;
+            leggTil(komprimert.rammer, komprimert.lengde);
+        } else {
+            leggTilRamme(innData.medlemsdata());
+        }
         return this;
     }
 
-    private void komprimerMedlemsdata(final byte[]... medlemsdataer) {
-        try {
-            ByteArrayOutputStream resultat = new ByteArrayOutputStream();
-            DeflaterOutputStream deflater = new DeflaterOutputStream(resultat);
-            for (byte[] medlemsdata : medlemsdataer) {
-                deflater.write(medlemsdata);
-            }
-            deflater.flush();
-            deflater.close();
-
-            this.medlemsdata = resultat.toByteArray();
-        } catch (IOException e) {
-            throw new KlarteIkkeKomprimereMedlemsdataException(e.getMessage());
+    private void leggTilRamme(final byte[] medlemsdata) {
+        final byte[] komprimert = komprimering.komprimer(medlemsdata);
+        final byte[] ramme = ByteBuffer
+                .allocate(HEADER + komprimert.length)
+                .putInt(komprimert.length)
+                .putInt(medlemsdata.length)
+                .put(komprimert)
+                .array();
+        if (lengde == 0) {
+            rammer = ramme;
+            lengde = ramme.length;
+        } else {
+            leggTil(ramme, ramme.length);
         }
     }
 
-    private byte[] dekomprimerMedlemsdata() {
-        try {
-            ByteArrayOutputStream resultat = new ByteArrayOutputStream();
-            InflaterOutputStream inflater = new InflaterOutputStream(resultat);
-            inflater.write(this.medlemsdata);
-            inflater.flush();
-            inflater.close();
+    private void leggTil(final byte[] nyeRammer, final int antallBytes) {
+        if (rammer.length - lengde < antallBytes) {
+            rammer = Arrays.copyOf(rammer, Math.max(lengde + antallBytes, rammer.length * 2));
+        }
+        System.arraycopy(nyeRammer, 0, rammer, lengde, antallBytes);
+        lengde += antallBytes;
+    }
 
-            return resultat.toByteArray();
-        } catch (IOException e) {
-            throw new KlarteIkkeDekomprimereMedlemsdataException(e.getMessage());
+    /**
+     * Rammene utan ledig plass på slutten, ledig plass blir frigitt første gang medlemsdataen blir henta ut etter
+     * at det har blitt lagt til nye rammer.
+     */
+    private byte[] trimma() {
+        byte[] trimma = rammer;
+        if (trimma.length != lengde) {
+            trimma = Arrays.copyOf(trimma, lengde);
+            rammer = trimma;
         }
+        return trimma;
     }
 }
@@ -0,0 +1,71 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.file.Path;
+
+/**
+ * {@link MinnetilordnaDatalagringStrategi} mellomlagrar medlemsdataen i midlertidige filer, éi fil pr partisjon, og
+ * les medlemsdataen tilbake via minnetilordna regionar av filene.
+ * <p>
+ * Berre kompakte handles til medlemsdataen blir halde på heapen, sjølve medlemsdataen ligg i page cachen til
+ * operativsystemet og blir skrive til disk ved behov. Dette gjer det mogleg å køyre med ein liten heap og å
+ * behandle uttrekk som er større enn både heapen og det fysiske minnet til maskina.
+ * <p>
+ * Kvar partisjon får si eiga fil via {@link #forPartisjon()}, som blir sletta når partisjonen blir tømt etter
+ * prosessering. Medlemsdata som blir laga direkte via {@link #medlemsdata(byte[])} utan å gå via eit partisjonslager,
+ * blir lagra i ei felles fil som blir sletta via {@link #frigi()}.
+ * <p>
+ * Filene blir oppretta i katalogen strategien blir konfigurert med, som bør ligge på eit lokalt filsystem med plass
+ * til heile uttrekket. Sidan minnetilordningane først blir frigitt av GC, sjå {@link Minnetilordnafil}, kan diskplass
+ * og adresseområde for partisjonar som er tømt bli halde på ei stund etter at partisjonen er ferdig prosessert.
+ */
+public class MinnetilordnaDatalagringStrategi implements DatalagringStrategi {
+    private static final int STANDARD_REGIONSTORLEIK = 64 * 1024 * 1024;
+
+    private final Path katalog;
+
+    private final int regionstorleik;
+
+    private final OffHeapLager felles;
+
+    /**
+     * Mellomlagrar medlemsdataen i katalogen for midlertidige filer, <code>java.io.tmpdir</code>.
+     */
+    public MinnetilordnaDatalagringStrategi() {
+        this(Path.of(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * @param katalog katalogen filene med medlemsdata blir mellomlagra i
+     */
+    public MinnetilordnaDatalagringStrategi(final Path katalog) {
+        this(katalog, STANDARD_REGIONSTORLEIK);
+    }
+
+    /**
+     * @param katalog katalogen filene med medlemsdata blir mellomlagra i
+     * @param regionstorleik antall bytes filene blir utvida og tilordna med om gangen, medlemsdata som er større enn
+     * dette blir lagra i eigne regionar
+     */
+    public MinnetilordnaDatalagringStrategi(final Path katalog, final int regionstorleik) {
+        this.katalog = requireNonNull(katalog, "katalog er påkrevd, men var null");
+        this.regionstorleik = regionstorleik;
+        this.felles = forPartisjon();
+    }
+
+    @Override
+    public Medlemsdata medlemsdata(final byte[] medlemsdata) {
+        return felles.medlemsdata(medlemsdata);
+    }
+
+    @Override
+    public OffHeapLager forPartisjon() {
+        return new OffHeapLager(new Minnetilordnafil(katalog, regionstorleik));
+    }
+
+    @Override
+    public void frigi() {
+        felles.frigi();
+    }
+}
@@ -0,0 +1,105 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring;
+
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * {@link Minnetilordnafil} gir ut slabs i form av minnetilordna regionar av ei midlertidig fil, slik at medlemsdataen
+ * blir lagra i page cachen til operativsystemet i staden for på heapen eller i direkte minne.
+ * <p>
+ * Fila blir oppretta i katalogen først når den første slaben blir henta, og blir utvida med éin region om gangen.
+ * Sidan regionane blir tilordna med {@link FileChannel.MapMode#READ_WRITE} blir medlemsdataen skrive direkte til
+ * fila via minnetilordninga, operativsystemet står sjølv fritt til å skrive sidene til disk og kaste dei ut av minnet
+ * ved behov.
+ * <p>
+ * Fila blir opna med {@link java.nio.file.StandardOpenOption#DELETE_ON_CLOSE}, slik at den blir sletta når den blir
+ * lukka eller JVMen avsluttar. På Linux blir fila fjerna frå katalogen allereie når den blir opna, slik at den ikkje
+ * blir liggande att sjølv om batchen krasjar.
+ * <p>
+ * Når slabane blir levert tilbake blir fila lukka. Java har ikkje noko støtta API for å fjerne ei minnetilordning
+ * eksplisitt, så minnetilordningane blir først frigitt når GC ryddar vekk slabane. Fram til då held kvar region på
+ * sitt adresseområde, og diskplassen til fila blir først frigitt av operativsystemet når den siste tilordninga
+ * forsvinn. Med store regionar og mange partisjonar kan det dermed bli halde på meir disk og adresseområde enn det
+ * partisjonane som er i bruk treng, fram til neste GC.
+ * <p>
+ * Fila er ikkje trådsikker, den blir kun brukt av {@link OffHeapLager} som synkroniserer all tilgang til den.
+ */
+class Minnetilordnafil implements Slabkjelde {
+    private final Path katalog;
+
+    private final int regionstorleik;
+
+    private FileChannel kanal;
+
+    private long storleik;
+
+    private int antallRegionar;
+
+    Minnetilordnafil(final Path katalog, final int regionstorleik) {
+        this.katalog = requireNonNull(katalog, "katalog er påkrevd, men var null");
+        if (regionstorleik < 1) {
+            throw new IllegalArgumentException("regionstorleik må vere minst 1 byte, men var " + regionstorleik);
+        }
+        this.regionstorleik = regionstorleik;
+    }
+
+    @Override
+    public ByteBuffer hent(final int minsteStorleik) {
+        final int regionstorleik = Math.max(minsteStorleik, this.regionstorleik);
+        try {
+            if (kanal == null) {
+                kanal = FileChannel.open(
+                        Files.createTempFile(katalog, "medlemsdata-", ".bin"),
+                        READ,
+                        WRITE,
+                        DELETE_ON_CLOSE
+                );
+            }
+            final ByteBuffer region = kanal.map(FileChannel.MapMode.READ_WRITE, storleik, regionstorleik);
+            storleik += regionstorleik;
+            antallRegionar++;
+            return region;
+        } catch (final IOException e) {
+            throw new KlarteIkkeMellomlagreMedlemsdataException(
+                    "Klarte ikkje å utvide mellomlagringsfila for medlemsdata i " + katalog + " med " + regionstorleik
+                            + " bytes",
+                    e
+            );
+        }
+    }
+
+    @Override
+    public void lever(final List<ByteBuffer> slabs) {
+        if (kanal == null) {
+            return;
+        }
+        try {
+            kanal.close();
+        } catch (final IOException e) {
+            throw new KlarteIkkeMellomlagreMedlemsdataException(
+                    "Klarte ikkje å lukke og slette mellomlagringsfila for medlemsdata i " + katalog,
+                    e
+            );
+        } finally {
+            kanal = null;
+            storleik = 0;
+            antallRegionar = 0;
+        }
+    }
+
+    /**
+     * @return antall regionar som er tilordna frå fila og enno ikkje levert tilbake
+     */
+    int antallRegionar() {
+        return antallRegionar;
+    }
+}
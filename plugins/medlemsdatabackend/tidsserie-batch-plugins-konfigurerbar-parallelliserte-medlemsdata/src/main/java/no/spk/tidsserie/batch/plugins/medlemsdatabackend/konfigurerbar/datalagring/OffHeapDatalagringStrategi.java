@@ -0,0 +1,53 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring;
+
+/**
+ * {@link OffHeapDatalagringStrategi} lagrar medlemsdataen utanfor heapen, i store direkte {@link java.nio.ByteBuffer}
+ * slabs, og held kun på kompakte handles til medlemsdataen på heapen.
+ * <p>
+ * Kvar partisjon får sitt eige lager via {@link #forPartisjon()}, og slabane til partisjonen blir levert tilbake til
+ * eit felles basseng når partisjonen blir tømt etter prosessering. Slabane blir deretter gjenbrukt av partisjonane
+ * som blir lasta opp seinare, utan at GC må involverast verken ved lagring eller frigiing av medlemsdataen.
+ * <p>
+ * Medlemsdata som blir laga direkte via {@link #medlemsdata(byte[])} utan å gå via eit partisjonslager, blir lagra i
+ * eit felles lager som blir frigitt via {@link #frigi()}.
+ * <p>
+ * Minnet som blir brukt blir avgrensa av <code>-XX:MaxDirectMemorySize</code> i staden for heapstorleiken.
+ */
+public class OffHeapDatalagringStrategi implements DatalagringStrategi {
+    private static final int STANDARD_SLABSTORLEIK = 1024 * 1024;
+
+    private final Slabbasseng basseng;
+
+    private final OffHeapLager felles;
+
+    public OffHeapDatalagringStrategi() {
+        this(STANDARD_SLABSTORLEIK);
+    }
+
+    /**
+     * @param slabstorleik antall bytes i kvar slab, medlemsdata som er større enn dette blir lagra i eigne slabs
+     */
+    public OffHeapDatalagringStrategi(final int slabstorleik) {
+        this.basseng = new Slabbasseng(slabstorleik);
+        this.felles = new OffHeapLager(basseng);
+    }
+
+    @Override
+    public Medlemsdata medlemsdata(final byte[] medlemsdata) {
+        return felles.medlemsdata(medlemsdata);
+    }
+
+    @Override
+    public DatalagringStrategi forPartisjon() {
+        return new OffHeapLager(basseng);
+    }
+
+    @Override
+    public void frigi() {
+        felles.frigi();
+    }
+
+    int antallLedigeSlabs() {
+        return basseng.antallLedige();
+    }
+}
@@ -0,0 +1,76 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link OffHeapLager} lagrar medlemsdataen til éin partisjon fortløpande etter kvarandre i off-heap slabs henta frå
+ * ei {@link Slabkjelde}, anten direkte {@link ByteBuffer}s frå eit {@link Slabbasseng} eller minnetilordna regionar
+ * av ei {@link Minnetilordnafil}.
+ * <p>
+ * Kvart sett med medlemsdata blir lagra med lengda først, og blir referert til via eit handle som inneheld indeksen
+ * til slaben i dei 32 øvste bitane og posisjonen i slaben i dei 32 nedste bitane. Slabane blir levert tilbake til
+ * kjelda samla når lageret blir {@link #frigi() frigitt}, medlemsdata i lageret kan ikkje lesast etter det.
+ * <p>
+ * Lageret er trådsikkert, men låsinga er tilnærma gratis sidan kvar partisjon har sitt eige lager som kun blir brukt
+ * frå éin tråd om gangen.
+ */
+class OffHeapLager implements DatalagringStrategi {
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+
+    private final Slabkjelde kjelde;
+
+    private ByteBuffer gjeldande;
+
+    OffHeapLager(final Slabkjelde kjelde) {
+        this.kjelde = requireNonNull(kjelde, "kjelde er påkrevd, men var null");
+    }
+
+    @Override
+    public Medlemsdata medlemsdata(final byte[] medlemsdata) {
+        return new OffHeapMedlemsdata(this, skriv(medlemsdata));
+    }
+
+    @Override
+    public synchronized void frigi() {
+        kjelde.lever(new ArrayList<>(slabs));
+        slabs.clear();
+        gjeldande = null;
+    }
+
+    synchronized long skriv(final byte[] medlemsdata) {
+        final int behov = Integer.BYTES + medlemsdata.length;
+        if (gjeldande == null || gjeldande.remaining() < behov) {
+            gjeldande = kjelde.hent(behov);
+            slabs.add(gjeldande);
+        }
+        final int posisjon = gjeldande.position();
+        gjeldande.putInt(medlemsdata.length).put(medlemsdata);
+        return (long) (slabs.size() - 1) << 32 | posisjon;
+    }
+
+    synchronized int lengde(final long handle) {
+        return slab(handle).getInt(posisjon(handle));
+    }
+
+    synchronized void kopier(final long handle, final byte[] til, final int tilIndex) {
+        final ByteBuffer slab = slab(handle);
+        final int posisjon = posisjon(handle);
+        slab.get(posisjon + Integer.BYTES, til, tilIndex, slab.getInt(posisjon));
+    }
+
+    private ByteBuffer slab(final long handle) {
+        final int slab = (int) (handle >>> 32);
+        if (slab >= slabs.size()) {
+            throw new IllegalStateException("Medlemsdataen er ikkje tilgjengeleg, lageret den låg i er frigitt");
+        }
+        return slabs.get(slab);
+    }
+
+    private static int posisjon(final long handle) {
+        return (int) handle;
+    }
+}
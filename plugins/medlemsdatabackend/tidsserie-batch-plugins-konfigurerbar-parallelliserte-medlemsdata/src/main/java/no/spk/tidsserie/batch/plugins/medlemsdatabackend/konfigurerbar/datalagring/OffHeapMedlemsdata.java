@@ -0,0 +1,57 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+class OffHeapMedlemsdata implements Medlemsdata {
+    private static final byte[] DELIMITER_ROW_BYTES = "\n".getBytes(StandardCharsets.UTF_8);
+
+    private final OffHeapLager lager;
+
+    private long[] handles;
+    private int antallHandles;
+
+    OffHeapMedlemsdata(final OffHeapLager lager, final long handle) {
+        this.lager = lager;
+        this.handles = new long[]{handle};
+        this.antallHandles = 1;
+    }
+
+    public byte[] medlemsdata() {
+        int lengde = (antallHandles - 1) * DELIMITER_ROW_BYTES.length;
+        for (int i = 0; i < antallHandles; i++) {
+            lengde += lager.lengde(handles[i]);
+        }
+
+        final byte[] medlemsdata = new byte[lengde];
+        int tilIndex = 0;
+        for (int i = 0; i < antallHandles; i++) {
+            if (i > 0) {
+                System.arraycopy(DELIMITER_ROW_BYTES, 0, medlemsdata, tilIndex, DELIMITER_ROW_BYTES.length);
+                tilIndex += DELIMITER_ROW_BYTES.length;
+            }
+            lager.kopier(handles[i], medlemsdata, tilIndex);
+            tilIndex += lager.lengde(handles[i]);
+        }
+        return medlemsdata;
+    }
+
+    public Medlemsdata put(final Medlemsdata innData) {
+        if (innData instanceof OffHeapMedlemsdata && ((OffHeapMedlemsdata) innData).lager == lager) {
+            final OffHeapMedlemsdata inn = (OffHeapMedlemsdata) innData;
+            for (int i = 0; i < inn.antallHandles; i++) {
+                leggTil(inn.handles[i]);
+            }
+        } else {
+            leggTil(lager.skriv(innData.medlemsdata()));
+        }
+        return this;
+    }
+
+    private void leggTil(final long handle) {
+        if (antallHandles == handles.length) {
+            handles = Arrays.copyOf(handles, handles.length * 2);
+        }
+        handles[antallHandles++] = handle;
+    }
+}
@@ -0,0 +1,95 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring;
+
+import static java.lang.String.format;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link OrdbokkodaDatalagringStrategi} lagrar kvar kolonneverdi i medlemsdataen som ein varint-koda referanse til
+ * ei ordbok over alle unike kolonneverdiar.
+ * <p>
+ * Kolonneverdiar som typekodar, organisasjonsnummer, avtalenummer og datoar går igjen svært mange gangar på tvers
+ * av medlemmane, og tek då kun 1 til 3 bytes pr kolonne. Koding og dekoding er kun oppslag i ordboka, og er dermed
+ * vesentleg billigare enn deflate. Kolonner med verdiar som er unike for kvart medlem blir ikkje mindre av kodinga.
+ * <p>
+ * Som standard får kvar partisjon si eiga ordbok, som blir frigitt saman med partisjonen. Med {@link #global()} blir
+ * éi ordbok delt av alle partisjonane, noko som gir mindre minnebruk når verdiane går igjen på tvers av partisjonane,
+ * men ordboka blir då ikkje frigitt før køyringa er ferdig.
+ */
+public class OrdbokkodaDatalagringStrategi implements DatalagringStrategi {
+    private final LongAdder ukomprimert = new LongAdder();
+
+    private final LongAdder koda = new LongAdder();
+
+    private final LongAdder ordbøker = new LongAdder();
+
+    private final boolean global;
+
+    private final Lager felles;
+
+    public OrdbokkodaDatalagringStrategi() {
+        this(false);
+    }
+
+    private OrdbokkodaDatalagringStrategi(final boolean global) {
+        this.global = global;
+        this.felles = new Lager();
+    }
+
+    /**
+     * @return ein strategi der alle partisjonane deler den samme ordboka
+     */
+    public static OrdbokkodaDatalagringStrategi global() {
+        return new OrdbokkodaDatalagringStrategi(true);
+    }
+
+    @Override
+    public Medlemsdata medlemsdata(final byte[] medlemsdata) {
+        return felles.medlemsdata(medlemsdata);
+    }
+
+    @Override
+    public DatalagringStrategi forPartisjon() {
+        return global ? felles : new Lager();
+    }
+
+    @Override
+    public Optional<String> statistikk() {
+        return Optional.of(
+                format(
+                        Locale.ROOT,
+                        "%d bytes medlemsdata koda til %d bytes og %d bytes ordbok, komprimeringsgrad %.2f",
+                        ukomprimert.sum(),
+                        koda.sum(),
+                        ordbøker.sum(),
+                        komprimeringsgrad()
+                )
+        );
+    }
+
+    /**
+     * Forholdet mellom antall bytes medlemsdata som har blitt lagra og antall bytes den koda medlemsdataen og
+     * ordbøkene brukar, for alle partisjonane samla. Ordbøkene blir rekna med antall bytes i kolonneverdiane, utan
+     * overheaden til oppslagstabellane.
+     *
+     * @return komprimeringsgraden, eller 1 dersom det ikkje er lagra noko medlemsdata
+     */
+    public double komprimeringsgrad() {
+        final long lagra = koda.sum() + ordbøker.sum();
+        return lagra == 0 ? 1 : (double) ukomprimert.sum() / lagra;
+    }
+
+    private class Lager implements DatalagringStrategi {
+        private final Verdiordbok ordbok = new Verdiordbok(ordbøker);
+
+        @Override
+        public Medlemsdata medlemsdata(final byte[] medlemsdata) {
+            final OrdbokkodaMedlemsdata koda = OrdbokkodaMedlemsdata.medlemsdata(ordbok, medlemsdata);
+            ukomprimert.add(medlemsdata.length);
+            OrdbokkodaDatalagringStrategi.this.koda.add(koda.kodaStorleik());
+            return koda;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring;
+
+import java.util.Arrays;
+
+/**
+ * {@link OrdbokkodaMedlemsdata} lagrar medlemsdataen som ein sekvens med {@link Verdiordbok}-kodar, éin pr
+ * kolonne, koda som varint.
+ * <p>
+ * Koden til kvar kolonneverdi blir lagra som koden i ordboka + 1, og kvar rad blir avslutta med 0. Medlemsdata som
+ * blir lagt til med samme ordbok kan dermed leggast rett bak den eksisterande sekvensen. Plassen til sekvensen blir
+ * dobla når den er full, slik at det å legge til mange sett med medlemsdata ikkje krev at heile sekvensen blir
+ * kopiert om kvar gang.
+ */
+class OrdbokkodaMedlemsdata implements Medlemsdata {
+    private static final byte DELIMITER_ROW = '\n';
+
+    private static final byte DELIMITER_COLUMN = ';';
+
+    private static final int SLUTT_PÅ_RAD = 0;
+
+    private final Verdiordbok ordbok;
+
+    private byte[] kodar;
+
+    private int lengde;
+
+    private OrdbokkodaMedlemsdata(final Verdiordbok ordbok, final byte[] kodar) {
+        this.ordbok = ordbok;
+        this.kodar = kodar;
+        this.lengde = kodar.length;
+    }
+
+    static OrdbokkodaMedlemsdata medlemsdata(final Verdiordbok ordbok, final byte[] medlemsdata) {
+        return new OrdbokkodaMedlemsdata(ordbok, kod(ordbok, medlemsdata));
+    }
+
+    /**
+     * @return antall bytes medlemsdataen brukar koda, eksklusiv ordboka
+     */
+    int kodaStorleik() {
+        return lengde;
+    }
+
+    public byte[] medlemsdata() {
+        int storleik = 0;
+        int antallRader = 0;
+        int antallKolonner = 0;
+        for (int posisjon = 0; posisjon < lengde; ) {
+            final int kode = lesVarint(kodar, posisjon);
+            posisjon += varintLengde(kode);
+            if (kode == SLUTT_PÅ_RAD) {
+                antallRader++;
+                antallKolonner = 0;
+            } else {
+                storleik += (antallRader > 0 || antallKolonner > 0 ? 1 : 0) + ordbok.verdi(kode - 1).length;
+                antallKolonner++;
+            }
+        }
+
+        final byte[] medlemsdata = new byte[storleik];
+        int tilIndex = 0;
+        antallRader = 0;
+        antallKolonner = 0;
+        for (int posisjon = 0; posisjon < lengde; ) {
+            final int kode = lesVarint(kodar, posisjon);
+            posisjon += varintLengde(kode);
+            if (kode == SLUTT_PÅ_RAD) {
+                antallRader++;
+                antallKolonner = 0;
+            } else {
+                if (antallKolonner > 0) {
+                    medlemsdata[tilIndex++] = DELIMITER_COLUMN;
+                } else if (antallRader > 0) {
+                    medlemsdata[tilIndex++] = DELIMITER_ROW;
+                }
+                final byte[] verdi = ordbok.verdi(kode - 1);
+                System.arraycopy(verdi, 0, medlemsdata, tilIndex, verdi.length);
+                tilIndex += verdi.length;
+                antallKolonner++;
+            }
+        }
+        return medlemsdata;
+    }
+
+    public Medlemsdata put(final Medlemsdata innData) {
+        if (innData instanceof OrdbokkodaMedlemsdata && ((OrdbokkodaMedlemsdata) innData).ordbok == ordbok) {
+            final OrdbokkodaMedlemsdata koda = (OrdbokkodaMedlemsdata) innData;
+            leggTil(koda.kodar, koda.lengde);
+        } else {
+            final byte[] nyeKodar = kod(ordbok, innData.medlemsdata());
+            leggTil(nyeKodar, nyeKodar.length);
+        }
+        return this;
+    }
+
+    private void leggTil(final byte[] nyeKodar, final int antallBytes) {
+        if (kodar.length - lengde < antallBytes) {
+            kodar = Arrays.copyOf(kodar, Math.max(lengde + antallBytes, kodar.length * 2));
+        }
+        System.arraycopy(nyeKodar, 0, kodar, lengde, antallBytes);
+        lengde += antallBytes;
+    }
+
+    private static byte[] kod(final Verdiordbok ordbok, final byte[] medlemsdata) {
+        byte[] kodar = new byte[Math.max(8, medlemsdata.length / 4)];
+        int lengde = 0;
+        int start = 0;
+        for (int posisjon = 0; posisjon <= medlemsdata.length; posisjon++) {
+            final boolean sluttPåRad = posisjon == medlemsdata.length || medlemsdata[posisjon] == DELIMITER_ROW;
+            if (sluttPåRad || medlemsdata[posisjon] == DELIMITER_COLUMN) {
+                if (lengde + 2 * 5 > kodar.length) {
+                    kodar = Arrays.copyOf(kodar, kodar.length * 2);
+                }
+                lengde = skrivVarint(kodar, lengde, ordbok.kode(medlemsdata, start, posisjon) + 1);
+                if (sluttPåRad) {
+                    lengde = skrivVarint(kodar, lengde, SLUTT_PÅ_RAD);
+                }
+                start = posisjon + 1;
+            }
+        }
+        return Arrays.copyOf(kodar, lengde);
+    }
+
+    private static int skrivVarint(final byte[] til, final int posisjon, final int verdi) {
+        int gjenståande = verdi;
+        int neste = posisjon;
+        while ((gjenståande & ~0x7f) != 0) {
+            til[neste++] = (byte) ((gjenståande & 0x7f) | 0x80);
+            gjenståande >>>= 7;
+        }
+        til[neste++] = (byte) gjenståande;
+        return neste;
+    }
+
+    private static int lesVarint(final byte[] fra, final int posisjon) {
+        int verdi = 0;
+        int skift = 0;
+        int neste = posisjon;
+        byte b;
+        do {
+            b = fra[neste++];
+            verdi |= (b & 0x7f) << skift;
+            skift += 7;
+        } while ((b & 0x80) != 0);
+        return verdi;
+    }
+
+    private static int varintLengde(final int verdi) {
+        int lengde = 1;
+        for (int gjenståande = verdi >>> 7; gjenståande != 0; gjenståande >>>= 7) {
+            lengde++;
+        }
+        return lengde;
+    }
+}
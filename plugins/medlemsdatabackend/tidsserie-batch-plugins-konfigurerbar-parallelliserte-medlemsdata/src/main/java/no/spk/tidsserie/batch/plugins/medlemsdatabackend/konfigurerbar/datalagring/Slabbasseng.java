@@ -0,0 +1,54 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * {@link Slabbasseng} held på ledige off-heap slabs slik at minnet til partisjonar som er ferdig prosessert kan
+ * gjenbrukast av partisjonane som blir lasta opp etterpå, i staden for å vente på at GC skal frigi det.
+ * <p>
+ * Basseng held på alle slabs som har blitt levert tilbake, slik at minnebruken blir avgrensa av kor mykje
+ * medlemsdata som maksimalt har vore lasta opp samtidig. Slabs som er større enn standardstorleiken, fordi eit enkelt
+ * sett med medlemsdata ikkje fekk plass i ein standard slab, blir ikkje gjenbrukt.
+ * <p>
+ * Basseng er trådsikkert og blir delt mellom alle partisjonane.
+ */
+class Slabbasseng implements Slabkjelde {
+    private final Queue<ByteBuffer> ledige = new ConcurrentLinkedQueue<>();
+
+    private final int slabstorleik;
+
+    Slabbasseng(final int slabstorleik) {
+        if (slabstorleik < 1) {
+            throw new IllegalArgumentException("slabstorleik må vere minst 1 byte, men var " + slabstorleik);
+        }
+        this.slabstorleik = slabstorleik;
+    }
+
+    @Override
+    public ByteBuffer hent(final int minsteStorleik) {
+        if (minsteStorleik > slabstorleik) {
+            return ByteBuffer.allocateDirect(minsteStorleik);
+        }
+        final ByteBuffer ledig = ledige.poll();
+        return ledig != null ? ledig : ByteBuffer.allocateDirect(slabstorleik);
+    }
+
+    @Override
+    public void lever(final List<ByteBuffer> slabs) {
+        slabs.forEach(this::lever);
+    }
+
+    private void lever(final ByteBuffer slab) {
+        if (slab.capacity() == slabstorleik) {
+            slab.clear();
+            ledige.offer(slab);
+        }
+    }
+
+    int antallLedige() {
+        return ledige.size();
+    }
+}
@@ -0,0 +1,25 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * {@link Slabkjelde} gir {@link OffHeapLager} slabs å lagre medlemsdataen i, og tek imot slabane att når lageret blir
+ * frigitt.
+ */
+interface Slabkjelde {
+    /**
+     * Hentar ein tom slab med plass til minst <code>minsteStorleik</code> bytes.
+     *
+     * @param minsteStorleik antall bytes slaben minst må ha plass til
+     * @return ein tom slab
+     */
+    ByteBuffer hent(int minsteStorleik);
+
+    /**
+     * Leverer tilbake alle slabane eit lager har henta, når lageret ikkje lenger er i bruk.
+     *
+     * @param slabs slabane som ikkje lenger er i bruk
+     */
+    void lever(List<ByteBuffer> slabs);
+}
@@ -0,0 +1,101 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link Verdiordbok} tildeler kvar unike kolonneverdi ein fortløpande kode, og slår opp verdien igjen frå koden.
+ * <p>
+ * Verdiane blir samanlikna byte for byte, utan å dekode dei til tekst. Verdiar som ikkje er gyldig UTF-8 får dermed
+ * kvar sin kode så lenge dei er ulike, og oppslag av verdiar som finst frå før krev ikkje kopiering av verdien.
+ * <p>
+ * Ordboka er trådsikker. Oppslag frå kode til verdi skjer utan låsing, nye verdiar blir lagt til under lås.
+ */
+class Verdiordbok {
+    private final Map<Verdi, Integer> kodar = new ConcurrentHashMap<>();
+
+    private volatile byte[][] verdiar = new byte[64][];
+
+    private final LongAdder storleik;
+
+    private int antall;
+
+    /**
+     * @param storleik teljar som blir auka med antall bytes i kvar verdi som blir lagt til i ordboka
+     */
+    Verdiordbok(final LongAdder storleik) {
+        this.storleik = storleik;
+    }
+
+    /**
+     * Koden til verdien i <code>data</code> frå og med <code>fra</code> til <code>til</code>, verdien blir lagt til
+     * i ordboka dersom den ikkje finst frå før.
+     */
+    int kode(final byte[] data, final int fra, final int til) {
+        final Integer kode = kodar.get(new Verdi(data, fra, til));
+        return kode != null ? kode : leggTil(Arrays.copyOfRange(data, fra, til));
+    }
+
+    byte[] verdi(final int kode) {
+        return verdiar[kode];
+    }
+
+    private synchronized int leggTil(final byte[] bytes) {
+        final Verdi verdi = new Verdi(bytes, 0, bytes.length);
+        final Integer eksisterande = kodar.get(verdi);
+        if (eksisterande != null) {
+            return eksisterande;
+        }
+        byte[][] verdiar = this.verdiar;
+        if (antall == verdiar.length) {
+            verdiar = Arrays.copyOf(verdiar, verdiar.length * 2);
+        }
+        final int kode = antall++;
+        verdiar[kode] = bytes;
+        storleik.add(bytes.length);
+        this.verdiar = verdiar;
+        kodar.put(verdi, kode);
+        return kode;
+    }
+
+    /**
+     * Nøkkel for ein kolonneverdi i ordboka, som samanliknar bytesa frå og med <code>fra</code> til <code>til</code>
+     * i <code>data</code>.
+     */
+    private static class Verdi {
+        private final byte[] data;
+        private final int fra;
+        private final int til;
+        private final int hash;
+
+        Verdi(final byte[] data, final int fra, final int til) {
+            this.data = data;
+            this.fra = fra;
+            this.til = til;
+            int hash = 1;
+            for (int i = fra; i < til; i++) {
+                hash = 31 * hash + data[i];
+            }
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Verdi)) {
+                return false;
+            }
+            final Verdi other = (Verdi) obj;
+            return hash == other.hash && Arrays.equals(data, fra, til, other.data, other.fra, other.til);
+        }
+    }
+}
@@ -1,13 +1,20 @@
 package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar;
 
+import static java.util.stream.Collectors.toMap;
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar.standardAntallPartisjonar;
 import static no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.Nodenummer.nodenummer;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer;
+import no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring.DefaultDatalagringStrategi;
 import no.spk.tidsserie.tjenesteregister.support.SimpleServiceRegistry;
 
 import org.assertj.core.api.ListAssert;
@@ -66,6 +73,99 @@ public class LastbalansertePartisjonarIT {
         ;
     }
 
+    @Test
+    void skal_lastbalansere_partisjonar_etter_storleik_slik_at_alle_noder_får_omtrent_like_mykje_arbeid() {
+        IntStream.range(0, 5_000).forEach(medlem -> partisjonstabell.put("medlem" + medlem, new byte[1 + medlem * 31 % 1_000], new DefaultDatalagringStrategi()));
+        final Map<Partisjonsnummer, Long> storleikPrPartisjon = partisjonstabell
+                .partisjonar()
+                .stream()
+                .collect(toMap(Partisjon::nummer, Partisjon::storleik));
+        final long størstePartisjon = Collections.max(storleikPrPartisjon.values());
+
+        final Map<Nodenummer, Set<Partisjonsnummer>> partisjonarPrNode = LastbalansertePartisjonar
+                .lastbalanserEtterStorleik(partisjonstabell, byggNoder(7))
+                .partisjonarPrNode();
+
+        assertThat(partisjonarPrNode.values().stream().flatMap(Set::stream).toList())
+                .as("alle partisjonar skal vere tildelt nøyaktig éi node")
+                .hasSize(271)
+                .doesNotHaveDuplicates();
+
+        final List<Long> lastPrNode = partisjonarPrNode
+                .values()
+                .stream()
+                .map(partisjonar -> partisjonar.stream().mapToLong(storleikPrPartisjon::get).sum())
+                .toList();
+        assertThat(Collections.max(lastPrNode) - Collections.min(lastPrNode))
+                .as("forskjell i last mellom nodene, %s", lastPrNode)
+                .isLessThanOrEqualTo(størstePartisjon);
+    }
+
+    @Test
+    void skal_lastbalansere_etter_tidsbruken_til_partisjonane_ved_forrige_køyring() {
+        IntStream.range(0, 5_000).forEach(medlem -> partisjonstabell.put("medlem" + medlem, new byte[10], new DefaultDatalagringStrategi()));
+        final Partisjonsprofil profil = new Partisjonsprofil(standardAntallPartisjonar());
+        partisjonstabell
+                .partisjonar()
+                .forEach(partisjon -> profil.registrer(partisjon.nummer(), partisjon.size(), partisjon.size()));
+        final Partisjonsnummer treg = partisjonstabell.partisjonar().get(0).nummer();
+        profil.registrer(treg, 0, 1_000_000);
+
+        final Map<Nodenummer, Set<Partisjonsnummer>> partisjonarPrNode = LastbalansertePartisjonar
+                .lastbalanserEtterProfil(partisjonstabell, byggNoder(4), profil)
+                .partisjonarPrNode();
+
+        assertThat(partisjonarPrNode.values())
+                .as("den trege partisjonen skal få ei node for seg sjølv, sjølv om den er like stor som dei andre")
+                .filteredOn(partisjonar -> partisjonar.contains(treg))
+                .containsExactly(Set.of(treg));
+        assertThat(partisjonarPrNode.values().stream().flatMap(Set::stream).toList())
+                .hasSize(271)
+                .doesNotHaveDuplicates();
+    }
+
+    @Test
+    void skal_spreie_tomme_partisjonar_jamt_på_nodene_ved_lastbalansering_etter_storleik() {
+        assertThat(
+                LastbalansertePartisjonar
+                        .lastbalanserEtterStorleik(partisjonstabell, byggNoder(4))
+                        .partisjonarPrNode()
+        )
+                .hasEntrySatisfying(nodenummer(1, 4), partisjonar -> assertThat(partisjonar).hasSize(68))
+                .hasEntrySatisfying(nodenummer(2, 4), partisjonar -> assertThat(partisjonar).hasSize(68))
+                .hasEntrySatisfying(nodenummer(3, 4), partisjonar -> assertThat(partisjonar).hasSize(68))
+                .hasEntrySatisfying(nodenummer(4, 4), partisjonar -> assertThat(partisjonar).hasSize(67));
+    }
+
+    @Test
+    void skal_prosessere_alle_partisjonar_nøyaktig_éin_gong_når_nodene_stjel_partisjonar_frå_kvarandre() {
+        final List<Partisjonsnummer> behandla = new ArrayList<>();
+
+        final Map<String, Integer> meldingar = LastbalansertePartisjonar
+                .lastbalanserEtterStorleik(partisjonstabell, byggNoder(4))
+                .medArbeidsstjeling()
+                .startParallellprosessering(
+                        new KommandoKjoerer.SynkronKjoerer<>(),
+                        (medlemsId, medlemsdata, context) -> {
+                        },
+                        (nummer, context) -> {
+                            behandla.add(nummer);
+                            context.emit("partisjon");
+                        },
+                        (medlemsId, t) -> {
+                        },
+                                partisjonertOpplaster)
+                .map(ProsesserNode.AsyncResultat::ventPåResultat)
+                .reduce(new Meldingar(), Meldingar::merge)
+                .toMap();
+
+        assertThat(behandla)
+                .as("den første noda som blir køyrt skal stjele og prosessere partisjonane til dei andre nodene")
+                .hasSize(271)
+                .doesNotHaveDuplicates();
+        assertThat(meldingar).containsEntry("partisjon", 271);
+    }
+
     @Test
     void skal_starte_prosessering_av_alle_noder_for_å_unngå_at_nodene_blir_behandla_sekvensielt_etterkvart_som_ein_itererer_over_resultata() {
         final LastbalansertePartisjonar lastbalansering = lastbalanser(byggNoder(16));
@@ -4,13 +4,22 @@ import static no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer.partisj
 import static no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.MedlemsdataBuilder.medlemsdata;
 import static no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.MedlemsdataBuilder.rad;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring.DatalagringStrategi;
 import no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring.DefaultDatalagringStrategi;
+import no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring.Medlemsdata;
 
 import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.Test;
@@ -142,9 +151,112 @@ class PartisjonTest {
                 .hasToString("partisjon 1 av 271 (2 medlemmar)");
     }
 
+    @Test
+    void skal_legge_til_medlemsdata_frå_fleire_trådar_samtidig_utan_å_miste_noko() throws Exception {
+        final ExecutorService innlasting = Executors.newFixedThreadPool(2);
+        final ExecutorService opplastarar = Executors.newFixedThreadPool(4);
+        try {
+            final Partisjon delt = new Partisjon(partisjonsnummer(1), innlasting);
+            final List<Future<?>> opplastingar = new ArrayList<>();
+            for (int opplastar = 0; opplastar < 4; opplastar++) {
+                opplastingar.add(
+                        opplastarar.submit(() -> {
+                            for (int i = 0; i < 1_000; i++) {
+                                delt.put(
+                                        "medlem" + i % 10,
+                                        medlemsdata(rad("A", "" + i)).medlemsdata(),
+                                        new DefaultDatalagringStrategi()
+                                );
+                            }
+                        })
+                );
+            }
+            for (final Future<?> opplasting : opplastingar) {
+                opplasting.get();
+            }
+
+            final AtomicInteger antallRader = new AtomicInteger();
+            delt.forEach((medlemsId, medlemsdata) -> antallRader.addAndGet(medlemsdata.size()));
+
+            assertThat(delt.size()).isEqualTo(10);
+            assertThat(antallRader).hasValue(4_000);
+        } finally {
+            opplastarar.shutdownNow();
+            innlasting.shutdownNow();
+        }
+    }
+
+    @Test
+    void skal_kaste_feil_frå_datalagringsstrategien_ved_neste_lesing() {
+        final DatalagringStrategi feilande = medlemsdata -> {
+            throw new IllegalStateException("Klarte ikkje lagre medlemsdata");
+        };
+        partisjon.put("Et medlem", medlemsdata(rad("A", "2")).medlemsdata(), feilande);
+
+        assertThatCode(partisjon::size)
+                .isInstanceOf(KlarteIkkeBehandleMedlemsdataIPartisjonException.class)
+                .hasRootCauseMessage("Klarte ikkje lagre medlemsdata");
+    }
+
+    @Test
+    void skal_frigi_lageret_til_partisjonen_når_partisjonen_blir_tømt() {
+        final Lagerspion lager = new Lagerspion();
+        partisjon.put("Et medlem", medlemsdata(rad("A", "2")).medlemsdata(), lager);
+        partisjon.put("Noen andre", medlemsdata(rad("Z", "Y")).medlemsdata(), lager);
+        assertThat(partisjon.size()).isEqualTo(2);
+        assertThat(lager.iBruk).as("bytes i bruk før tømming").isPositive();
+
+        partisjon.tøm();
+
+        assertThat(lager.iBruk).as("bytes i bruk etter tømming").hasValue(0);
+        assertThat(partisjon.storleik()).isEqualTo(0);
+    }
+
+    @Test
+    void skal_frigi_lageret_til_partisjonen_når_partisjonen_blir_stoppa() {
+        final Lagerspion lager = new Lagerspion();
+        partisjon.put("Et medlem", medlemsdata(rad("A", "2")).medlemsdata(), lager);
+        assertThat(partisjon.size()).isEqualTo(1);
+        assertThat(lager.iBruk).as("bytes i bruk før stopp").isPositive();
+
+        partisjon.stop();
+
+        assertThat(lager.iBruk).as("bytes i bruk etter stopp").hasValue(0);
+    }
+
     private Map<String, List<List<String>>> hentMedlemsdata() {
         final HashMap<String, List<List<String>>> medlemsdata = new HashMap<>();
         partisjon.forEach(medlemsdata::put);
         return medlemsdata;
     }
-}
\ No newline at end of file
+
+    /**
+     * Held oversikt over kor mange bytes medlemsdata som er lagra i partisjonslagera og enno ikkje frigitt.
+     */
+    private static class Lagerspion implements DatalagringStrategi {
+        private final AtomicLong iBruk = new AtomicLong();
+
+        @Override
+        public Medlemsdata medlemsdata(final byte[] medlemsdata) {
+            throw new UnsupportedOperationException("medlemsdata skal lagrast via lageret til partisjonen");
+        }
+
+        @Override
+        public DatalagringStrategi forPartisjon() {
+            final AtomicLong lagra = new AtomicLong();
+            return new DatalagringStrategi() {
+                @Override
+                public Medlemsdata medlemsdata(final byte[] medlemsdata) {
+                    lagra.addAndGet(medlemsdata.length);
+                    iBruk.addAndGet(medlemsdata.length);
+                    return new DefaultDatalagringStrategi().medlemsdata(medlemsdata);
+                }
+
+                @Override
+                public void frigi() {
+                    iBruk.addAndGet(-lagra.getAndSet(0));
+                }
+            };
+        }
+    }
+}
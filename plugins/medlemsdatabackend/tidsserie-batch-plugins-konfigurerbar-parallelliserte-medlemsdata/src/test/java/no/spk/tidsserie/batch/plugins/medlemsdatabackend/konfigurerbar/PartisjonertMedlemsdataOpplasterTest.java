@@ -0,0 +1,101 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar;
+
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar.antallPartisjonar;
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar.standardAntallPartisjonar;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import no.spk.tidsserie.batch.core.grunnlagsdata.LastOppGrunnlagsdataPartisjonertKommando;
+import no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer;
+import no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar;
+import no.spk.tidsserie.tjenesteregister.ServiceRegistry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class PartisjonertMedlemsdataOpplasterTest {
+    @RegisterExtension
+    public final ServiceRegistryExtension registry = new ServiceRegistryExtension();
+
+    @Test
+    void skal_feile_dersom_kommandoen_kun_støttar_standard_antall_partisjonar_og_antallet_er_eit_anna() {
+        registry.registrer(LastOppGrunnlagsdataPartisjonertKommando.class, (serviceRegistry, partisjonsnummer) -> {
+        });
+
+        final PartisjonertMedlemsdataOpplaster opplaster = new PartisjonertMedlemsdataOpplaster(
+                registry.registry(),
+                antallPartisjonar(17)
+        );
+
+        assertThatCode(opplaster::sjekkAntallPartisjonar)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("17 partisjonar");
+        assertThatCode(() -> opplaster.lastOppPartisjonertMedlemsdata(Partisjonsnummer.partisjonsnummer(1, antallPartisjonar(17))))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void skal_godta_standard_antall_partisjonar_for_kommandoar_som_ikkje_kjenner_til_antall_partisjonar() {
+        final List<Long> lasta = new ArrayList<>();
+        registry.registrer(
+                LastOppGrunnlagsdataPartisjonertKommando.class,
+                (serviceRegistry, partisjonsnummer) -> lasta.add(partisjonsnummer)
+        );
+
+        final PartisjonertMedlemsdataOpplaster opplaster = new PartisjonertMedlemsdataOpplaster(
+                registry.registry(),
+                standardAntallPartisjonar()
+        );
+
+        assertThatCode(opplaster::sjekkAntallPartisjonar).doesNotThrowAnyException();
+        opplaster.lastOppPartisjonertMedlemsdata(Partisjonsnummer.partisjonsnummer(271));
+        assertThat(lasta).containsExactly(271L);
+    }
+
+    @Test
+    void skal_sende_antall_partisjonar_vidare_til_kommandoar_som_støttar_det() {
+        final List<String> lasta = new ArrayList<>();
+        registry.registrer(LastOppGrunnlagsdataPartisjonertKommando.class, new LastOppGrunnlagsdataPartisjonertKommando() {
+            @Override
+            public void lastOpp(final ServiceRegistry serviceRegistry, final long partisjonsnummer) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void lastOpp(
+                    final ServiceRegistry serviceRegistry,
+                    final long partisjonsnummer,
+                    final AntallPartisjonar antallPartisjonar
+            ) {
+                lasta.add(partisjonsnummer + "/" + antallPartisjonar.antall());
+            }
+
+            @Override
+            public boolean støttar(final AntallPartisjonar antallPartisjonar) {
+                return true;
+            }
+        });
+
+        final PartisjonertMedlemsdataOpplaster opplaster = new PartisjonertMedlemsdataOpplaster(
+                registry.registry(),
+                antallPartisjonar(17)
+        );
+
+        assertThatCode(opplaster::sjekkAntallPartisjonar).doesNotThrowAnyException();
+        opplaster.lastOppPartisjonertMedlemsdata(Partisjonsnummer.partisjonsnummer(17, antallPartisjonar(17)));
+        assertThat(lasta).containsExactly("17/17");
+    }
+
+    @Test
+    void skal_ikkje_feile_når_ingen_kommando_er_registrert() {
+        final PartisjonertMedlemsdataOpplaster opplaster = new PartisjonertMedlemsdataOpplaster(
+                registry.registry(),
+                antallPartisjonar(17)
+        );
+
+        assertThatCode(opplaster::sjekkAntallPartisjonar).doesNotThrowAnyException();
+    }
+}
@@ -0,0 +1,79 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar;
+
+import static no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer.partisjonsnummer;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer;
+
+import org.junit.jupiter.api.Test;
+
+class PartisjonskoeTest {
+    @Test
+    void skal_prosessere_partisjonane_frå_lavaste_til_høgaste_partisjonsnummer_utan_arbeidsstjeling() {
+        final Partisjonskoe kø = Partisjonskoe.utanArbeidsstjeling(partisjonar(3, 1, 2));
+
+        assertThat(tøm(kø)).containsExactly(partisjonsnummer(1), partisjonsnummer(2), partisjonsnummer(3));
+        assertThat(kø.neste()).isEmpty();
+    }
+
+    @Test
+    void skal_stjele_frå_slutten_av_dei_andre_køane_når_eigen_kø_er_tom() {
+        final List<Partisjonskoe> køar = Partisjonskoe.medArbeidsstjeling(
+                List.of(
+                        partisjonar(1, 2),
+                        partisjonar(3, 4, 5)
+                )
+        );
+
+        assertThat(tøm(køar.get(0)))
+                .containsExactly(partisjonsnummer(1), partisjonsnummer(2), partisjonsnummer(5), partisjonsnummer(4), partisjonsnummer(3));
+        assertThat(køar.get(1).neste()).isEmpty();
+    }
+
+    @Test
+    void skal_kun_hente_ut_kvar_partisjon_éin_gong_sjølv_om_nodene_stjel_frå_kvarandre_samtidig() {
+        final List<Partisjonskoe> køar = Partisjonskoe.medArbeidsstjeling(
+                List.of(
+                        partisjonar(IntStream.rangeClosed(1, 200).toArray()),
+                        partisjonar(IntStream.rangeClosed(201, 250).toArray()),
+                        partisjonar(IntStream.rangeClosed(251, 271).toArray()),
+                        partisjonar()
+                )
+        );
+
+        final List<CompletableFuture<List<Partisjonsnummer>>> noder = køar
+                .stream()
+                .map(kø -> CompletableFuture.supplyAsync(() -> tøm(kø)))
+                .toList();
+
+        assertThat(noder.stream().map(CompletableFuture::join).flatMap(List::stream).toList())
+                .hasSize(271)
+                .doesNotHaveDuplicates();
+    }
+
+    private static List<Partisjon> partisjonar(final int... nummer) {
+        return IntStream
+                .of(nummer)
+                .mapToObj(Partisjonsnummer::partisjonsnummer)
+                .map(Partisjon::new)
+                .toList();
+    }
+
+    private static List<Partisjonsnummer> tøm(final Partisjonskoe kø) {
+        final List<Partisjonsnummer> partisjonar = new ArrayList<>();
+        Stream
+                .generate(kø::neste)
+                .takeWhile(Optional::isPresent)
+                .map(Optional::get)
+                .map(Partisjon::nummer)
+                .forEach(partisjonar::add);
+        return partisjonar;
+    }
+}
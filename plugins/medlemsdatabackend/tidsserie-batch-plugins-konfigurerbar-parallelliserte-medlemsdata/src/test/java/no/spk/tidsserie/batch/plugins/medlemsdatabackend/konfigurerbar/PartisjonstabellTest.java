@@ -2,6 +2,7 @@ package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar;
 
 import static java.util.stream.Collectors.toMap;
 import static no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer.partisjonsnummer;
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar.antallPartisjonar;
 import static no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.MedlemsdataBuilder.medlemsdata;
 import static no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.MedlemsdataBuilder.rad;
 import static no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.Nodenummer.nodenummer;
@@ -30,6 +31,15 @@ class PartisjonstabellTest {
         assertThat(partisjonstabell.partisjonarFor(nodenummer(1, 1))).hasSize(271);
     }
 
+    @Test
+    void skal_fordele_medlemsdata_på_konfigurert_antall_partisjonar() {
+        final Partisjonstabell tabell = new Partisjonstabell(antallPartisjonar(1024));
+
+        assertThat(tabell.partisjonarFor(nodenummer(1, 1))).hasSize(1024);
+        assertThat(tabell.partisjonarFor(nodenummer(1, 3))).hasSize(342);
+        assertThat(tabell.partisjonarFor(nodenummer(3, 3))).hasSize(341);
+    }
+
     @Test
     void skal_fordele_antall_partisjonar_på_noder_basert_på_enkel_modulo_hashing_ikkje_konsistent_hashing() {
         assertThat(partisjonstabell.partisjonarFor(nodenummer(1, 1))).hasSize(271);
@@ -1,5 +1,6 @@
 package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar;
 
+import static no.spk.tidsserie.batch.core.medlem.MedlemsId.medlemsId;
 import static no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.MedlemsdataBuilder.rad;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
@@ -7,6 +8,8 @@ import static org.assertj.core.api.Assertions.assertThatCode;
 import java.util.Collections;
 import java.util.List;
 
+import no.spk.tidsserie.batch.core.grunnlagsdata.CsvRad;
+import no.spk.tidsserie.batch.core.medlem.Medlemsdatablokk;
 import no.spk.tidsserie.batch.core.medlem.Medlemslinje;
 import no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring.DefaultDatalagringStrategi;
 
@@ -85,4 +88,52 @@ class UploaderTest {
         )
                 .isInstanceOf(LinjeskiftSomDelAvVerdiIMedlemsdataStoettesIkkeException.class);
     }
-}
\ No newline at end of file
+
+    @Test
+    void skal_laste_opp_rå_rader_utan_å_splitte_dei_opp() {
+        uploader.append(medlemsId("Adam"), CsvRad.rad(rad("Adam", "Født", "2003")));
+        uploader.append(new Medlemslinje(rad("Adam", "Eksisterer i", "Tidslinje A, Tidslinje B")));
+        uploader.append(medlemsId("Adam"), CsvRad.rad(rad("Adam", "", "")));
+
+        assertMedlemsdata("Adam").isEmpty();
+
+        uploader.run();
+
+        assertMedlemsdata("Adam")
+                .contains(
+                        Lists.newArrayList(
+                                rad("Født", "2003"),
+                                rad("Eksisterer i", "Tidslinje A, Tidslinje B"),
+                                rad("", "")
+                        )
+                );
+    }
+
+    @Test
+    void skal_eksplodere_om_rå_rader_inneheld_forskjellige_medlemsidar() {
+        uploader.append(medlemsId("Adam"), CsvRad.rad(rad("Adam", "Født", "2003")));
+        uploader.append(medlemsId("Eva"), CsvRad.rad(rad("Eva", "Født", "2003")));
+        assertThatCode(uploader::run).isInstanceOf(ForskjelligeMedlemmarForsoektLastaOppSammenException.class);
+    }
+
+    @Test
+    void skal_laste_opp_alle_medlemmane_i_ei_medlemsdatablokk() {
+        final Medlemsdatablokk blokk = new Medlemsdatablokk();
+        blokk.leggTil(medlemsId("Adam"), CsvRad.rad(rad("Adam", "Født", "2003")));
+        blokk.leggTil(medlemsId("Adam"), CsvRad.rad(rad("Adam", "Eksisterer i", "Tidslinje A, Tidslinje B")));
+        blokk.leggTil(medlemsId("Eva"), CsvRad.rad(rad("Eva", "Født", "2004")));
+        blokk.leggTil(medlemsId("Agnes Nielsen"), CsvRad.rad(rad("Agnes Nielsen", "Født", "1910")));
+
+        uploader.run(blokk);
+
+        assertMedlemsdata("Adam")
+                .contains(
+                        Lists.newArrayList(
+                                rad("Født", "2003"),
+                                rad("Eksisterer i", "Tidslinje A, Tidslinje B")
+                        )
+                );
+        assertMedlemsdata("Eva").contains(Collections.singletonList(rad("Født", "2004")));
+        assertMedlemsdata("Agnes Nielsen").contains(Collections.singletonList(rad("Født", "1910")));
+    }
+}
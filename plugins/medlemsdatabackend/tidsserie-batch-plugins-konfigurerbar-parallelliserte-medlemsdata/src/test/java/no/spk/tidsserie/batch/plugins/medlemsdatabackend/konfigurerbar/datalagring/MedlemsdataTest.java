@@ -1,10 +1,20 @@
 package no.spk.tidsserie.batch.plugins.medlemsdatabackend.konfigurerbar.datalagring;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class MedlemsdataTest {
+    @TempDir
+    Path katalog;
 
     @Test
     void put_data_default() {
@@ -38,4 +48,128 @@ class MedlemsdataTest {
 
         assertEquals("heisann\ntest", new String(medlemsdata.medlemsdata()));
     }
-}
\ No newline at end of file
+
+    @Test
+    void put_data_komprimert_med_ordbok() {
+        DatalagringStrategi strategi = new KomprimertDatalagringStrategi(
+                KomprimertDatalagringStrategi.trenOrdbok(
+                        List.of("heisann;test".getBytes(), "heisann;igjen\ntest".getBytes())
+                )
+        );
+        Medlemsdata medlemsdata = strategi.medlemsdata("heisann".getBytes());
+
+        assertEquals("heisann", new String(medlemsdata.medlemsdata()));
+
+        medlemsdata.put(strategi.medlemsdata("test".getBytes()));
+        medlemsdata.put(DefaultMedlemsdata.medlemsdata("heap".getBytes()));
+
+        assertEquals("heisann\ntest\nheap", new String(medlemsdata.medlemsdata()));
+    }
+
+    @Test
+    void ordbok_skal_innehalde_verdiar_som_går_igjen_og_ikkje_bli_større_enn_maks_ordbokstorleik() {
+        List<byte[]> utval = IntStream
+                .range(0, 10_000)
+                .mapToObj(medlem -> ("felles;" + medlem + ";" + "x".repeat(medlem % 100)).getBytes())
+                .toList();
+
+        byte[] ordbok = KomprimertDatalagringStrategi.trenOrdbok(utval);
+
+        assertTrue(ordbok.length <= KomprimertDatalagringStrategi.MAKS_ORDBOKSTORLEIK);
+        assertTrue(new String(ordbok).contains("felles;"));
+    }
+
+    @Test
+    void put_data_ordbokkoda() {
+        DatalagringStrategi lager = new OrdbokkodaDatalagringStrategi().forPartisjon();
+        Medlemsdata medlemsdata = lager.medlemsdata("heisann;;test".getBytes());
+
+        assertEquals("heisann;;test", new String(medlemsdata.medlemsdata()));
+
+        medlemsdata.put(lager.medlemsdata("test\n".getBytes()));
+        medlemsdata.put(DefaultMedlemsdata.medlemsdata("heap;heisann".getBytes()));
+
+        assertEquals("heisann;;test\ntest\n\nheap;heisann", new String(medlemsdata.medlemsdata()));
+    }
+
+    @Test
+    void ordbokkoda_skal_skilje_mellom_verdiar_som_ikkje_er_gyldig_utf8() {
+        DatalagringStrategi lager = new OrdbokkodaDatalagringStrategi().forPartisjon();
+        byte[] ugyldig = {(byte) 0xff, ';', (byte) 0xfe, ';', (byte) 0xff};
+        Medlemsdata medlemsdata = lager.medlemsdata(ugyldig);
+
+        assertArrayEquals(ugyldig, medlemsdata.medlemsdata());
+    }
+
+    @Test
+    void ordbokkoda_skal_rapportere_komprimeringsgrad_for_verdiar_som_går_igjen() {
+        OrdbokkodaDatalagringStrategi strategi = OrdbokkodaDatalagringStrategi.global();
+        IntStream
+                .range(0, 1_000)
+                .forEach(medlem -> strategi.forPartisjon().medlemsdata("2020.01.01;ORDINÆR;1;2".getBytes()));
+
+        assertTrue(strategi.komprimeringsgrad() > 4);
+        assertTrue(strategi.statistikk().isPresent());
+    }
+
+    @Test
+    void put_data_off_heap() {
+        DatalagringStrategi lager = new OffHeapDatalagringStrategi(16).forPartisjon();
+        Medlemsdata medlemsdata = lager.medlemsdata("heisann".getBytes());
+
+        assertEquals("heisann", new String(medlemsdata.medlemsdata()));
+
+        medlemsdata.put(lager.medlemsdata("test".getBytes()));
+        medlemsdata.put(lager.medlemsdata("meir enn ein heil slab".getBytes()));
+        medlemsdata.put(DefaultMedlemsdata.medlemsdata("heap".getBytes()));
+
+        assertEquals("heisann\ntest\nmeir enn ein heil slab\nheap", new String(medlemsdata.medlemsdata()));
+    }
+
+    @Test
+    void off_heap_skal_gjenbruke_slabs_frå_partisjonar_som_er_frigitt() {
+        OffHeapDatalagringStrategi strategi = new OffHeapDatalagringStrategi(16);
+        DatalagringStrategi første = strategi.forPartisjon();
+        første.medlemsdata("heisann".getBytes());
+        første.medlemsdata("test".getBytes());
+
+        første.frigi();
+
+        assertEquals(2, strategi.antallLedigeSlabs());
+
+        DatalagringStrategi andre = strategi.forPartisjon();
+        Medlemsdata medlemsdata = andre.medlemsdata("igjen".getBytes());
+
+        assertEquals(1, strategi.antallLedigeSlabs());
+        assertEquals("igjen", new String(medlemsdata.medlemsdata()));
+    }
+
+    @Test
+    void put_data_minnetilordna() {
+        DatalagringStrategi lager = new MinnetilordnaDatalagringStrategi(katalog, 16).forPartisjon();
+        Medlemsdata medlemsdata = lager.medlemsdata("heisann".getBytes());
+
+        assertEquals("heisann", new String(medlemsdata.medlemsdata()));
+
+        medlemsdata.put(lager.medlemsdata("test".getBytes()));
+        medlemsdata.put(lager.medlemsdata("meir enn ein heil region".getBytes()));
+        medlemsdata.put(DefaultMedlemsdata.medlemsdata("heap".getBytes()));
+
+        assertEquals("heisann\ntest\nmeir enn ein heil region\nheap", new String(medlemsdata.medlemsdata()));
+    }
+
+    @Test
+    void minnetilordna_skal_levere_tilbake_alle_regionar_når_partisjonen_blir_frigitt() {
+        Minnetilordnafil fil = new Minnetilordnafil(katalog, 16);
+        OffHeapLager lager = new OffHeapLager(fil);
+        Medlemsdata medlemsdata = lager.medlemsdata("heisann".getBytes());
+        lager.medlemsdata("meir enn ein heil region".getBytes());
+
+        assertEquals(2, fil.antallRegionar());
+
+        lager.frigi();
+
+        assertEquals(0, fil.antallRegionar());
+        assertThrows(IllegalStateException.class, medlemsdata::medlemsdata);
+    }
+}
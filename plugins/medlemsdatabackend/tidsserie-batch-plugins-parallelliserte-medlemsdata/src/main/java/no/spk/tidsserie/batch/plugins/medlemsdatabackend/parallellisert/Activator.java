@@ -2,10 +2,14 @@ package no.spk.tidsserie.batch.plugins.medlemsdatabackend.parallellisert;
 
 import static java.util.Objects.requireNonNull;
 
+import java.nio.file.Path;
 import java.util.List;
 
+import no.spk.tidsserie.batch.core.Katalog;
 import no.spk.tidsserie.batch.core.TidsserieLivssyklus;
+import no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar;
 import no.spk.tidsserie.batch.core.kommandolinje.AntallProsessorar;
+import no.spk.tidsserie.batch.core.kommandolinje.Lastbalansering;
 import no.spk.tidsserie.batch.core.kommandolinje.TidsserieBatchArgumenter;
 import no.spk.tidsserie.batch.core.medlem.GenererTidsserieCommand;
 import no.spk.tidsserie.batch.core.medlem.MedlemsdataBackend;
@@ -53,7 +57,10 @@ public class Activator implements Plugin {
                 (medlemsId, t) ->
                         medlemFeilarListeners
                                 .invokeAll(listener -> listener.medlemFeila(medlemsId, t))
-                                .orElseRethrowFirstFailure()
+                                .orElseRethrowFirstFailure(),
+                antallPartisjonar(locator),
+                locator.firstService(Path.class, Katalog.LOG.egenskap()),
+                lastbalansering(locator)
         );
         registry.registerService(
                 MedlemsdataBackend.class,
@@ -86,6 +93,20 @@ public class Activator implements Plugin {
                 ;
     }
 
+    private AntallPartisjonar antallPartisjonar(final ServiceLocator locator) {
+        return locator
+                .firstMandatory(TidsserieBatchArgumenter.class)
+                .antallPartisjonar()
+                ;
+    }
+
+    private Lastbalansering lastbalansering(final ServiceLocator locator) {
+        return locator
+                .firstMandatory(TidsserieBatchArgumenter.class)
+                .lastbalansering()
+                ;
+    }
+
     static class MedlemFeilarLogger implements MedlemFeilarListener {
         private final Logger log = LoggerFactory.getLogger(getClass());
 
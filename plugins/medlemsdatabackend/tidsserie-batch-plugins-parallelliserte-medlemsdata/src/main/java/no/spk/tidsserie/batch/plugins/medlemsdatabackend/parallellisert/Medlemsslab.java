@@ -0,0 +1,322 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.parallellisert;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * {@link Medlemsslab} lagrar medlemsidentifikatoren og medlemsdataen til alle medlemmane i ein partisjon fortløpande
+ * etter kvarandre i nokre få store byte-array, i staden for som eigne objekt pr medlem.
+ * <p>
+ * Medlemmane blir nummerert fortløpande i rekkefølga dei blir lagt til i, og blir slått opp via ein
+ * open-addressing-indeks med lineær probing frå medlemsidentifikatoren til medlemsnummeret. Pr medlem blir det kun
+ * halde på nokre få <code>int</code>ar og <code>long</code>ar med posisjonen til medlemsidentifikatoren og
+ * medlemsdataen i slaben.
+ * <p>
+ * Kvar gang det blir lagt til medlemsdata for eit medlem blir medlemsdataen lagt til som eit nytt segment på slutten av
+ * slaben, og lenka til forrige segment for medlemmet. Segmenta blir slått saman med linjeskift mellom når
+ * medlemsdataen blir henta ut igjen.
+ * <p>
+ * Slaben består av blokker på opptil {@value #MAKS_BLOKKSTORLEIK} bytes som aldri blir kopiert om når slaben
+ * veks, slik at det ikkje trengs plass til både gammal og ny slab samtidig. Posisjonar i slaben er lagra som ein
+ * <code>long</code> med blokknummeret i dei øvste 32 bitane og posisjonen i blokka i dei nedste 32 bitane, slik at
+ * storleiken til partisjonen i praksis kun er avgrensa av heapen.
+ * <p>
+ * Slaben er ikkje trådsikker for endringar, men kan lesast frå fleire trådar samtidig så lenge den ikkje blir endra.
+ */
+class Medlemsslab {
+    private static final int TOM = -1;
+
+    private static final int BITS_POSISJON = Integer.SIZE;
+
+    private static final int MAKS_BLOKKSTORLEIK = 1 << 20;
+
+    private static final int FØRSTE_BLOKKSTORLEIK = 4 * 1024;
+
+    private static final byte[] DELIMITER_ROW_BYTES = "\n".getBytes(StandardCharsets.UTF_8);
+
+    private byte[][] blokker = new byte[0][];
+    private int antallBlokker;
+    private int bruktIGjeldandeBlokk;
+
+    private long[] nøkkel = new long[0];
+    private int[] førsteSegment = new int[0];
+    private int[] sisteSegment = new int[0];
+    private int antallMedlemmar;
+
+    private long[] segment = new long[0];
+    private int[] nesteSegment = new int[0];
+    private int antallSegment;
+
+    private int[] indeks = new int[16];
+
+    /**
+     * Legg til medlemsdata for medlemmet, enten som eit nytt medlem sist i slaben eller som eit nytt segment på
+     * slutten av medlemsdataen til eit medlem som allereie ligg i slaben.
+     *
+     * @param medlemsId medlemsidentifikatoren
+     * @param medlemsdata medlemsdatane på lagringsformatet
+     */
+    void put(final String medlemsId, final byte[] medlemsdata) {
+        final byte[] id = medlemsId.getBytes(StandardCharsets.UTF_8);
+        final int hash = hash(id, 0, id.length);
+        int medlem = finn(id, hash);
+        if (medlem == TOM) {
+            medlem = leggTilMedlem(id, hash);
+        }
+
+        final int nytt = leggTilSegment(skriv(medlemsdata));
+        if (førsteSegment[medlem] == TOM) {
+            førsteSegment[medlem] = nytt;
+        } else {
+            nesteSegment[sisteSegment[medlem]] = nytt;
+        }
+        sisteSegment[medlem] = nytt;
+    }
+
+    /**
+     * @param medlemsId medlemsidentifikatoren
+     * @return medlemsnummeret til medlemmet, eller <code>-1</code> dersom medlemmet ikkje ligg i slaben
+     */
+    int finn(final String medlemsId) {
+        final byte[] id = medlemsId.getBytes(StandardCharsets.UTF_8);
+        return finn(id, hash(id, 0, id.length));
+    }
+
+    int antallMedlemmar() {
+        return antallMedlemmar;
+    }
+
+    String medlemsId(final int medlem) {
+        final long posisjon = nøkkel[medlem];
+        return new String(blokk(posisjon), offset(posisjon) + Integer.BYTES, lengde(posisjon), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Medlemsdataen til medlemmet, med linjeskift mellom kvart sett med medlemsdata som har blitt lagt til.
+     *
+     * @param medlem medlemsnummeret
+     * @return ein kopi av medlemsdataen til medlemmet
+     */
+    byte[] medlemsdata(final int medlem) {
+        final int første = førsteSegment[medlem];
+        if (nesteSegment[første] == TOM) {
+            return kopier(segment[første]);
+        }
+
+        int antall = 0;
+        int lengde = 0;
+        for (int s = første; s != TOM; s = nesteSegment[s]) {
+            antall++;
+            lengde += lengde(segment[s]);
+        }
+
+        final byte[] medlemsdata = new byte[lengde + (antall - 1) * DELIMITER_ROW_BYTES.length];
+        int tilIndex = 0;
+        for (int s = første; s != TOM; s = nesteSegment[s]) {
+            if (s != første) {
+                System.arraycopy(DELIMITER_ROW_BYTES, 0, medlemsdata, tilIndex, DELIMITER_ROW_BYTES.length);
+                tilIndex += DELIMITER_ROW_BYTES.length;
+            }
+            final long posisjon = segment[s];
+            System.arraycopy(blokk(posisjon), offset(posisjon) + Integer.BYTES, medlemsdata, tilIndex, lengde(posisjon));
+            tilIndex += lengde(posisjon);
+        }
+        return medlemsdata;
+    }
+
+    /**
+     * Antall bytes medlemsdata som er lagt til for medlemmet, eksklusiv linjeskifta mellom kvart sett med
+     * medlemsdata.
+     *
+     * @param medlem medlemsnummeret
+     * @return antall bytes medlemsdata for medlemmet
+     */
+    long storleik(final int medlem) {
+        long storleik = 0;
+        for (int s = førsteSegment[medlem]; s != TOM; s = nesteSegment[s]) {
+            storleik += lengde(segment[s]);
+        }
+        return storleik;
+    }
+
+    /**
+     * Estimert antall bytes heap slaben brukar, inklusiv ledig plass i blokkene og indeksane.
+     *
+     * @return estimert heapbruk i bytes
+     */
+    long heapbruk() {
+        long heapbruk = Heap.array(blokker.length * (long) Heap.REFERANSE);
+        for (int blokk = 0; blokk < antallBlokker; blokk++) {
+            heapbruk += Heap.array(blokker[blokk].length);
+        }
+        for (final int[] tabell : new int[][]{førsteSegment, sisteSegment, nesteSegment, indeks}) {
+            heapbruk += Heap.array(tabell.length * (long) Integer.BYTES);
+        }
+        for (final long[] tabell : new long[][]{nøkkel, segment}) {
+            heapbruk += Heap.array(tabell.length * (long) Long.BYTES);
+        }
+        return heapbruk;
+    }
+
+    /**
+     * Estimert antall bytes heap medlemmane i slaben ville ha brukt dersom kvart medlem vart lagra som ein eigen
+     * oppføring i ein {@link java.util.LinkedHashMap} frå medlemsidentifikator til medlemsdata.
+     *
+     * @return estimert heapbruk i bytes med eitt objekt pr medlem
+     */
+    long heapbrukMedEittObjektPrMedlem() {
+        long heapbruk = Heap.array(Integer.highestOneBit(Math.max(1, antallMedlemmar * 4 / 3)) * 2L * Heap.REFERANSE);
+        for (int medlem = 0; medlem < antallMedlemmar; medlem++) {
+            int antall = 0;
+            for (int s = førsteSegment[medlem]; s != TOM; s = nesteSegment[s]) {
+                antall++;
+            }
+            heapbruk += Heap.LINKED_HASH_MAP_ENTRY
+                    + Heap.STRING
+                    + Heap.array(lengde(nøkkel[medlem]))
+                    + Heap.array(storleik(medlem) + (antall - 1) * (long) DELIMITER_ROW_BYTES.length);
+        }
+        return heapbruk;
+    }
+
+    private int finn(final byte[] id, final int hash) {
+        final int maske = indeks.length - 1;
+        for (int slot = hash & maske; indeks[slot] != 0; slot = (slot + 1) & maske) {
+            final int medlem = indeks[slot] - 1;
+            if (erLik(nøkkel[medlem], id)) {
+                return medlem;
+            }
+        }
+        return TOM;
+    }
+
+    private int leggTilMedlem(final byte[] id, final int hash) {
+        if (antallMedlemmar == nøkkel.length) {
+            nøkkel = Arrays.copyOf(nøkkel, vekst(nøkkel.length));
+            førsteSegment = Arrays.copyOf(førsteSegment, vekst(førsteSegment.length));
+            sisteSegment = Arrays.copyOf(sisteSegment, vekst(sisteSegment.length));
+        }
+        final int medlem = antallMedlemmar++;
+        nøkkel[medlem] = skriv(id);
+        førsteSegment[medlem] = TOM;
+        sisteSegment[medlem] = TOM;
+
+        if (antallMedlemmar * 2 > indeks.length) {
+            byggIndeks(indeks.length * 2);
+        } else {
+            indekser(medlem, hash);
+        }
+        return medlem;
+    }
+
+    private void byggIndeks(final int storleik) {
+        indeks = new int[storleik];
+        for (int medlem = 0; medlem < antallMedlemmar; medlem++) {
+            final long posisjon = nøkkel[medlem];
+            indekser(medlem, hash(blokk(posisjon), offset(posisjon) + Integer.BYTES, lengde(posisjon)));
+        }
+    }
+
+    private void indekser(final int medlem, final int hash) {
+        final int maske = indeks.length - 1;
+        int slot = hash & maske;
+        while (indeks[slot] != 0) {
+            slot = (slot + 1) & maske;
+        }
+        indeks[slot] = medlem + 1;
+    }
+
+    private int leggTilSegment(final long posisjon) {
+        if (antallSegment == segment.length) {
+            segment = Arrays.copyOf(segment, vekst(segment.length));
+            nesteSegment = Arrays.copyOf(nesteSegment, vekst(nesteSegment.length));
+        }
+        segment[antallSegment] = posisjon;
+        nesteSegment[antallSegment] = TOM;
+        return antallSegment++;
+    }
+
+    /**
+     * Skriv <code>data</code> med lengda først, sist i slaben.
+     *
+     * @return posisjonen data vart skrive til
+     */
+    private long skriv(final byte[] data) {
+        final int behov = Integer.BYTES + data.length;
+        if (antallBlokker == 0 || blokker[antallBlokker - 1].length - bruktIGjeldandeBlokk < behov) {
+            nyBlokk(behov);
+        }
+        final byte[] blokk = blokker[antallBlokker - 1];
+        final int offset = bruktIGjeldandeBlokk;
+        blokk[offset] = (byte) (data.length >>> 24);
+        blokk[offset + 1] = (byte) (data.length >>> 16);
+        blokk[offset + 2] = (byte) (data.length >>> 8);
+        blokk[offset + 3] = (byte) data.length;
+        System.arraycopy(data, 0, blokk, offset + Integer.BYTES, data.length);
+        bruktIGjeldandeBlokk += behov;
+        return ((long) (antallBlokker - 1) << BITS_POSISJON) | offset;
+    }
+
+    private void nyBlokk(final int behov) {
+        if (antallBlokker == blokker.length) {
+            blokker = Arrays.copyOf(blokker, vekst(blokker.length));
+        }
+        final int forrige = antallBlokker == 0 ? FØRSTE_BLOKKSTORLEIK / 2 : blokker[antallBlokker - 1].length;
+        blokker[antallBlokker++] = new byte[Math.max(behov, (int) Math.min(MAKS_BLOKKSTORLEIK, forrige * 2L))];
+        bruktIGjeldandeBlokk = 0;
+    }
+
+    private static int vekst(final int lengde) {
+        return Math.max(8, lengde * 2);
+    }
+
+    private byte[] kopier(final long posisjon) {
+        final int offset = offset(posisjon) + Integer.BYTES;
+        return Arrays.copyOfRange(blokk(posisjon), offset, offset + lengde(posisjon));
+    }
+
+    private boolean erLik(final long posisjon, final byte[] id) {
+        final int offset = offset(posisjon) + Integer.BYTES;
+        return Arrays.equals(blokk(posisjon), offset, offset + lengde(posisjon), id, 0, id.length);
+    }
+
+    private int lengde(final long posisjon) {
+        final byte[] blokk = blokk(posisjon);
+        final int offset = offset(posisjon);
+        return ((blokk[offset] & 0xff) << 24)
+                | ((blokk[offset + 1] & 0xff) << 16)
+                | ((blokk[offset + 2] & 0xff) << 8)
+                | (blokk[offset + 3] & 0xff);
+    }
+
+    private byte[] blokk(final long posisjon) {
+        return blokker[(int) (posisjon >>> BITS_POSISJON)];
+    }
+
+    private static int offset(final long posisjon) {
+        return (int) posisjon;
+    }
+
+    private static int hash(final byte[] data, final int fra, final int lengde) {
+        int hash = 1;
+        for (int i = fra; i < fra + lengde; i++) {
+            hash = 31 * hash + data[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Estimat av heapbruken til objekt med komprimerte objektreferansar, brukt for å rapportere kor mykje heap
+     * slaben sparar.
+     */
+    private static class Heap {
+        private static final int ARRAY = 16;
+        private static final int REFERANSE = 4;
+        private static final int STRING = 24;
+        private static final int LINKED_HASH_MAP_ENTRY = 40;
+
+        private static long array(final long bytes) {
+            return ARRAY + ((bytes + 7) & ~7L);
+        }
+    }
+}
@@ -2,13 +2,12 @@ package no.spk.tidsserie.batch.plugins.medlemsdatabackend.parallellisert;
 
 import static java.lang.String.format;
 import static java.lang.String.join;
-import static java.util.Arrays.asList;
-import static java.util.Arrays.stream;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.joining;
+import static no.spk.tidsserie.batch.core.medlem.Medlemsdatarader.rader;
 
 import java.nio.charset.StandardCharsets;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.BiConsumer;
@@ -20,42 +19,81 @@ class Partisjon {
 
     private static final String DELIMITER_ROW = "\n";
 
-    private static final byte[] DELIMITER_ROW_BYTES = "\n".getBytes(StandardCharsets.UTF_8);
-
-    private final LinkedHashMap<String, byte[]> medlemsdata = new LinkedHashMap<>();
+    private final Medlemsslab medlemsdata;
 
     private final Partisjonsnummer nummer;
 
+    private final boolean del;
+
+    private final int fra;
+
+    private final int til;
+
+    private long storleik;
+
     Partisjon(final Partisjonsnummer nummer) {
+        this(nummer, new Medlemsslab(), false, 0, 0, 0);
+    }
+
+    private Partisjon(
+            final Partisjonsnummer nummer,
+            final Medlemsslab medlemsdata,
+            final boolean del,
+            final int fra,
+            final int til,
+            final long storleik
+    ) {
         this.nummer = requireNonNull(nummer, "nummer er påkrevd, men var null");
+        this.medlemsdata = requireNonNull(medlemsdata, "medlemsdata er påkrevd, men var null");
+        this.del = del;
+        this.fra = fra;
+        this.til = til;
+        this.storleik = storleik;
     }
 
     void put(final String key, final List<List<String>> value) {
-        this.medlemsdata.merge(
+        put(
                 key,
                 value
                         .stream()
                         .peek(this::valider)
                         .map(row -> join(DELIMITER_COLUMN, row))
                         .collect(joining(DELIMITER_ROW))
-                        .getBytes(StandardCharsets.UTF_8),
-                this::append
+                        .getBytes(StandardCharsets.UTF_8)
         );
     }
 
+    /**
+     * Legger til medlemsdata som allereie er på lagringsformatet, <code>;</code>-separerte kolonner og
+     * <code>\n</code>-separerte rader i UTF-8, utan å validere eller kopiere dei på nytt.
+     *
+     * @param key medlemsidentifikatoren
+     * @param medlemsdata medlemsdatane på lagringsformatet
+     */
+    void put(final String key, final byte[] medlemsdata) {
+        if (del) {
+            throw new IllegalStateException(format("%s er ein del av ein større partisjon og kan ikkje endrast", this));
+        }
+        this.medlemsdata.put(key, medlemsdata);
+        this.storleik += medlemsdata.length;
+    }
+
     Optional<List<List<String>>> get(final String medlemsId) {
-        return Optional
-                .ofNullable(medlemsdata.get(medlemsId))
-                .map(this::somMedlemsdata);
+        final int medlem = medlemsdata.finn(medlemsId);
+        if (medlem < fra || medlem >= til()) {
+            return Optional.empty();
+        }
+        return Optional.of(rader(medlemsdata.medlemsdata(medlem)));
     }
 
     void forEach(final BiConsumer<String, List<List<String>>> consumer) {
-        medlemsdata.forEach(
-                (key, bytes) -> consumer.accept(
-                        key,
-                        somMedlemsdata(bytes)
-                )
-        );
+        final int til = til();
+        for (int medlem = fra; medlem < til; medlem++) {
+            consumer.accept(
+                    medlemsdata.medlemsId(medlem),
+                    rader(medlemsdata.medlemsdata(medlem))
+            );
+        }
     }
 
     Partisjonsnummer nummer() {
@@ -63,57 +101,96 @@ class Partisjon {
     }
 
     boolean isEmpty() {
-        return medlemsdata.isEmpty();
+        return size() == 0;
     }
 
     int size() {
-        return medlemsdata.size();
+        return til() - fra;
     }
 
-    @Override
-    public String toString() {
-        return format(
-                "%s (%d medlemmar)",
-                nummer.toString(),
-                medlemsdata.keySet().size()
-        );
+    /**
+     * Antall bytes medlemsdata som er lagt til i partisjonen, brukt som estimat på kor mykje arbeid det vil vere å
+     * prosessere partisjonen.
+     *
+     * @return antall bytes medlemsdata i partisjonen
+     */
+    long storleik() {
+        return storleik;
     }
 
-    private int ikkjeIgnorerTommeKolonnerPåSluttenAvRada() {
-        return -1;
+    /**
+     * Er partisjonen ein {@link #del(long) del} av ein større partisjon?
+     *
+     * @return <code>true</code> dersom partisjonen er ein del av ein større partisjon, <code>false</code> ellers
+     */
+    boolean erDel() {
+        return del;
     }
 
-    private List<List<String>> somMedlemsdata(final byte[] bytes) {
-        return stream(
-                new String(
-                        bytes,
-                        StandardCharsets.UTF_8
-                )
-                        .split("\n")
-        )
-                .map(
-                        row -> asList(
-                                row.split(
-                                        DELIMITER_COLUMN,
-                                        ikkjeIgnorerTommeKolonnerPåSluttenAvRada()
-                                )
-                        )
-                )
-                .toList();
+    /**
+     * Estimert antall bytes heap som medlemsdataen i partisjonen brukar.
+     *
+     * @return estimert heapbruk i bytes
+     * @see Medlemsslab#heapbruk()
+     */
+    long heapbruk() {
+        return medlemsdata.heapbruk();
     }
 
-    private byte[] append(final byte[] forrige, final byte[] neste) {
-        final byte[] til = new byte[forrige.length + DELIMITER_ROW_BYTES.length + neste.length];
+    /**
+     * Estimert antall bytes heap som blir spart ved å lagre medlemsdataen i partisjonen i ein {@link Medlemsslab}
+     * i staden for med eitt objekt pr medlem.
+     *
+     * @return estimert spart heap i bytes
+     * @see Medlemsslab#heapbrukMedEittObjektPrMedlem()
+     */
+    long spartHeap() {
+        return medlemsdata.heapbrukMedEittObjektPrMedlem() - medlemsdata.heapbruk();
+    }
 
-        kopier(forrige, /*       */ til, 0);
-        kopier(DELIMITER_ROW_BYTES, til, forrige.length);
-        kopier(neste, /*         */ til, forrige.length + DELIMITER_ROW_BYTES.length);
+    /**
+     * Deler opp medlemmane i partisjonen i delar på omtrent <code>maksStorleik</code> bytes medlemsdata kvar, slik at
+     * delane kan prosesserast parallelt.
+     * <p>
+     * Delane har samme partisjonsnummer, og dermed samme serienummer, som partisjonen. Kvar del inneheld eit
+     * samanhengande utsnitt av medlemmane, i samme rekkefølge som i partisjonen, og deler medlemsdatane med
+     * partisjonen utan å kopiere dei. Kvart medlem inngår i nøyaktig éin del. Partisjonen må ikkje endrast etter
+     * at den er delt opp.
+     *
+     * @param maksStorleik maksimalt antall bytes medlemsdata pr del, med unntak av medlemmar som åleine er større
+     * @return delane til partisjonen, i samme rekkefølge som medlemmane deira i partisjonen
+     */
+    List<Partisjon> del(final long maksStorleik) {
+        final List<Partisjon> delar = new ArrayList<>();
+        final int til = til();
+        int første = fra;
+        long storleik = 0;
+        for (int medlem = fra; medlem < til; medlem++) {
+            final long medlemsstorleik = medlemsdata.storleik(medlem);
+            if (medlem > første && storleik + medlemsstorleik > maksStorleik) {
+                delar.add(new Partisjon(nummer, medlemsdata, true, første, medlem, storleik));
+                første = medlem;
+                storleik = 0;
+            }
+            storleik += medlemsstorleik;
+        }
+        if (første < til) {
+            delar.add(new Partisjon(nummer, medlemsdata, true, første, til, storleik));
+        }
+        return delar;
+    }
 
-        return til;
+    @Override
+    public String toString() {
+        return format(
+                "%s (%d medlemmar)",
+                nummer.toString(),
+                size()
+        );
     }
 
-    private void kopier(final byte[] fra, final byte[] til, final int tilIndex) {
-        System.arraycopy(fra, 0, til, tilIndex, fra.length);
+    private int til() {
+        return del ? til : medlemsdata.antallMedlemmar();
     }
 
     private void valider(final List<String> rad) {
@@ -1,25 +1,42 @@
 package no.spk.tidsserie.batch.plugins.medlemsdatabackend.parallellisert;
 
 import static java.util.Objects.requireNonNull;
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar.standardAntallPartisjonar;
+import static no.spk.tidsserie.batch.core.kommandolinje.Lastbalansering.standardLastbalansering;
 
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import no.spk.tidsserie.batch.core.TidsserieLivssyklus;
+import no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar;
 import no.spk.tidsserie.batch.core.kommandolinje.AntallProsessorar;
+import no.spk.tidsserie.batch.core.kommandolinje.Lastbalansering;
 import no.spk.tidsserie.batch.core.medlem.GenererTidsserieCommand;
 import no.spk.tidsserie.batch.core.medlem.MedlemsdataBackend;
 import no.spk.tidsserie.batch.core.medlem.MedlemsdataUploader;
 import no.spk.tidsserie.tjenesteregister.ServiceRegistry;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 class PartisjonertMedlemsdataBackend implements MedlemsdataBackend, TidsserieLivssyklus {
-    private final Partisjonstabell partisjonar = new Partisjonstabell();
+    private static final Logger LOG = LoggerFactory.getLogger(PartisjonertMedlemsdataBackend.class);
+
+    private static final long MB = 1024 * 1024;
+
+    private final Partisjonstabell partisjonar;
 
     private final CompositePartisjonListener partisjonsListeners;
     private final GenererTidsserieCommand kommando;
     private final AntallProsessorar antallNoder;
     private final KommandoKjoerer<Meldingar> kommandoKjører;
     private final MedlemFeilarListener medlemFeilarListener;
+    private final AntallPartisjonar antallPartisjonar;
+    private final Optional<Path> logkatalog;
+    private final Lastbalansering lastbalansering;
 
     public PartisjonertMedlemsdataBackend(
             final AntallProsessorar antallNoder,
@@ -28,6 +45,78 @@ class PartisjonertMedlemsdataBackend implements MedlemsdataBackend, TidsserieLiv
             final GenererTidsserieCommand kommando,
             final MedlemFeilarListener medlemFeilarListener
     ) {
+        this(
+                antallNoder,
+                kommandoKjører,
+                partisjonsListeners,
+                kommando,
+                medlemFeilarListener,
+                standardAntallPartisjonar()
+        );
+    }
+
+    public PartisjonertMedlemsdataBackend(
+            final AntallProsessorar antallNoder,
+            final KommandoKjoerer<Meldingar> kommandoKjører,
+            final CompositePartisjonListener partisjonsListeners,
+            final GenererTidsserieCommand kommando,
+            final MedlemFeilarListener medlemFeilarListener,
+            final AntallPartisjonar antallPartisjonar
+    ) {
+        this(
+                antallNoder,
+                kommandoKjører,
+                partisjonsListeners,
+                kommando,
+                medlemFeilarListener,
+                antallPartisjonar,
+                Optional.empty()
+        );
+    }
+
+    public PartisjonertMedlemsdataBackend(
+            final AntallProsessorar antallNoder,
+            final KommandoKjoerer<Meldingar> kommandoKjører,
+            final CompositePartisjonListener partisjonsListeners,
+            final GenererTidsserieCommand kommando,
+            final MedlemFeilarListener medlemFeilarListener,
+            final AntallPartisjonar antallPartisjonar,
+            final Optional<Path> logkatalog
+    ) {
+        this(
+                antallNoder,
+                kommandoKjører,
+                partisjonsListeners,
+                kommando,
+                medlemFeilarListener,
+                antallPartisjonar,
+                logkatalog,
+                standardLastbalansering()
+        );
+    }
+
+    /**
+     * Når <code>logkatalog</code> er kjent, lagrar backenden ein {@link Partisjonsprofil profil} av tidsbruken til
+     * kvar partisjon i logkatalogen.
+     * <p>
+     * Med {@link Lastbalansering#ARBEIDSMENGDE} blir partisjonane lastbalansert etter profilen frå forrige køyring
+     * dersom den finst, elles etter storleik, og nodene stjeler partisjonar frå kvarandre når dei går tom for eigne.
+     * Med {@link Lastbalansering#PARTISJONSNUMMER} blir partisjonane fordelt etter partisjonsnummeret.
+     */
+    public PartisjonertMedlemsdataBackend(
+            final AntallProsessorar antallNoder,
+            final KommandoKjoerer<Meldingar> kommandoKjører,
+            final CompositePartisjonListener partisjonsListeners,
+            final GenererTidsserieCommand kommando,
+            final MedlemFeilarListener medlemFeilarListener,
+            final AntallPartisjonar antallPartisjonar,
+            final Optional<Path> logkatalog,
+            final Lastbalansering lastbalansering
+    ) {
+        this.lastbalansering = requireNonNull(lastbalansering, "lastbalansering er påkrevd, men var null");
+        this.partisjonar = new Partisjonstabell(antallPartisjonar);
+        this.antallPartisjonar = requireNonNull(antallPartisjonar, "antallPartisjonar er påkrevd, men var null");
+        this.logkatalog = requireNonNull(logkatalog, "logkatalog er påkrevd, men var null");
         this.kommandoKjører = requireNonNull(kommandoKjører, "kommandoKjører er påkrevd, men var null");
         this.antallNoder = requireNonNull(antallNoder, "antallNoder er påkrevd, men var null");
         this.partisjonsListeners = requireNonNull(partisjonsListeners, "partisjonsListeners er påkrevd, men var null");
@@ -57,8 +146,11 @@ class PartisjonertMedlemsdataBackend implements MedlemsdataBackend, TidsserieLiv
     }
 
     Map<String, Integer> lagTidsserie(final KommandoKjoerer<Meldingar> prosessering) {
-        return
+        loggHeapbruk();
+        final Partisjonsprofil profil = new Partisjonsprofil(antallPartisjonar);
+        final Map<String, Integer> meldingar =
                 fordelPartisjonarPåNoder(partisjonar)
+                        .medProfilering(profil)
                         .startParallellprosessering(
                                 prosessering,
                                 kommando,
@@ -71,6 +163,8 @@ class PartisjonertMedlemsdataBackend implements MedlemsdataBackend, TidsserieLiv
                                 Meldingar::merge
                         )
                         .toMap();
+        logkatalog.ifPresent(profil::lagre);
+        return meldingar;
     }
 
     void put(final String key, final List<List<String>> data) {
@@ -82,20 +176,38 @@ class PartisjonertMedlemsdataBackend implements MedlemsdataBackend, TidsserieLiv
         return antallNoder;
     }
 
+    private void loggHeapbruk() {
+        final List<Partisjon> alle = partisjonar.partisjonar();
+        LOG.info(
+                "Medlemsdata for {} medlemmar brukar estimert {} MB heap, {} MB mindre enn med eitt objekt pr medlem",
+                alle.stream().mapToInt(Partisjon::size).sum(),
+                alle.stream().mapToLong(Partisjon::heapbruk).sum() / MB,
+                alle.stream().mapToLong(Partisjon::spartHeap).sum() / MB
+        );
+    }
+
     private LastbalansertePartisjonar fordelPartisjonarPåNoder(final Partisjonstabell partisjonstabell) {
+        if (lastbalansering == Lastbalansering.PARTISJONSNUMMER) {
+            return LastbalansertePartisjonar.lastbalanser(partisjonstabell, noder());
+        }
+        return logkatalog
+                .flatMap(katalog -> Partisjonsprofil.forrigeKøyring(katalog, antallPartisjonar))
+                .map(profil -> LastbalansertePartisjonar.lastbalanserEtterProfil(partisjonstabell, noder(), profil))
+                .orElseGet(() -> LastbalansertePartisjonar.lastbalanserEtterStorleik(partisjonstabell, noder()))
+                .medArbeidsstjeling();
+    }
+
+    private Stream<Nodenummer> noder() {
         final int antallNoder = Math.toIntExact(
                 antallProsessorar().stream().count()
         );
-        return LastbalansertePartisjonar.lastbalanser(
-                partisjonstabell,
-                antallProsessorar()
-                        .stream()
-                        .mapToObj(
-                                nummer -> new Nodenummer(
-                                        nummer,
-                                        antallNoder
-                                )
+        return antallProsessorar()
+                .stream()
+                .mapToObj(
+                        nummer -> new Nodenummer(
+                                nummer,
+                                antallNoder
                         )
-        );
+                );
     }
 }
@@ -0,0 +1,89 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.parallellisert;
+
+import static java.util.Comparator.comparing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * {@link Partisjonskoe} held på partisjonane som ei node skal prosessere, i den rekkefølga noda skal prosessere dei.
+ * <p>
+ * Køar sett opp {@link #medArbeidsstjeling(List) med arbeidsstjeling} lar ei node som har gått tom for eigne
+ * partisjonar stjele partisjonar som enno ikkje er starta på frå køane til dei andre nodene, i staden for å bli
+ * ståande ledig medan resten av nodene framleis har arbeid i kø. Det blir stole frå slutten av køane, slik at
+ * eigaren av køa framleis får prosessert dei største partisjonane sine først.
+ * <p>
+ * Kvar partisjon blir henta ut frå ei kø nøyaktig éin gong, og blir dermed prosessert i sin heilskap av éin og samme
+ * tråd. Ein varm partisjon som har blitt {@link Partisjon#del(long) delt opp} ligg i køane som fleire separate delar,
+ * og delane av samme partisjon kan derfor bli prosessert samtidig av forskjellige trådar.
+ */
+class Partisjonskoe {
+    private final Deque<Partisjon> partisjonar;
+
+    private final List<Partisjonskoe> alle;
+
+    private final int posisjon;
+
+    private Partisjonskoe(final List<Partisjon> partisjonar, final List<Partisjonskoe> alle, final int posisjon) {
+        this.partisjonar = new ConcurrentLinkedDeque<>(partisjonar);
+        this.alle = alle;
+        this.posisjon = posisjon;
+    }
+
+    /**
+     * Opprettar ei kø som prosesserer partisjonane frå lavaste til høgaste partisjonsnummer, utan å stjele
+     * partisjonar frå andre noder.
+     *
+     * @param partisjonar partisjonane som noda skal prosessere
+     * @return ei ny kø med partisjonane sortert på partisjonsnummer
+     */
+    static Partisjonskoe utanArbeidsstjeling(final Collection<Partisjon> partisjonar) {
+        return new Partisjonskoe(
+                partisjonar
+                        .stream()
+                        .sorted(comparing(partisjon -> partisjon.nummer().index()))
+                        .toList(),
+                Collections.emptyList(),
+                0
+        );
+    }
+
+    /**
+     * Opprettar éi kø pr node der nodene kan stjele partisjonar frå kvarandre når dei har gått tom for eigne
+     * partisjonar.
+     *
+     * @param partisjonarPrNode partisjonane kvar node skal prosessere, i den rekkefølga dei skal prosesserast
+     * @return éi kø pr node, i samme rekkefølge som <code>partisjonarPrNode</code>
+     */
+    static List<Partisjonskoe> medArbeidsstjeling(final List<List<Partisjon>> partisjonarPrNode) {
+        final List<Partisjonskoe> alle = new ArrayList<>(partisjonarPrNode.size());
+        partisjonarPrNode.forEach(partisjonar -> alle.add(new Partisjonskoe(partisjonar, alle, alle.size())));
+        return Collections.unmodifiableList(alle);
+    }
+
+    /**
+     * Hentar ut neste partisjon som skal prosesserast.
+     * <p>
+     * Når køa er tom blir det forsøkt å stjele ein partisjon frå dei andre køane, med start i køa etter denne.
+     *
+     * @return neste partisjon som skal prosesserast, eller ingenting dersom både denne og alle andre køar er tomme
+     */
+    Optional<Partisjon> neste() {
+        final Partisjon eigen = partisjonar.pollFirst();
+        if (eigen != null) {
+            return Optional.of(eigen);
+        }
+        for (int i = 1; i < alle.size(); i++) {
+            final Partisjon stolen = alle.get((posisjon + i) % alle.size()).partisjonar.pollLast();
+            if (stolen != null) {
+                return Optional.of(stolen);
+            }
+        }
+        return Optional.empty();
+    }
+}
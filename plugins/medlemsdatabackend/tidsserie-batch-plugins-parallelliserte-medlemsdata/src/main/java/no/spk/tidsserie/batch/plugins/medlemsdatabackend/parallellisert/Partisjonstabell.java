@@ -1,56 +1,87 @@
 package no.spk.tidsserie.batch.plugins.medlemsdatabackend.parallellisert;
 
-import static java.util.stream.Collectors.toMap;
+import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toSet;
-import static no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer.tilhørendePartisjonForMedlem;
+import static no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer.tilhørendePartisjonsindeksForMedlem;
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar.standardAntallPartisjonar;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Function;
 
 import no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer;
+import no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar;
+import no.spk.tidsserie.batch.core.medlem.Medlemsdatablokk;
 
+/**
+ * Partisjonstabellen held på alle partisjonane til backenden, indeksert på {@link Partisjonsnummer#index()}.
+ * <br>
+ * Oppslag av partisjonen til eit medlem skjer utan allokering, via
+ * {@link Partisjonsnummer#tilhørendePartisjonsindeksForMedlem(CharSequence, AntallPartisjonar)} direkte inn i tabellen.
+ */
 class Partisjonstabell {
-    private final Map<Partisjonsnummer, Partisjon> partisjonar;
+    private final Partisjon[] partisjonar;
+
+    private final AntallPartisjonar antallPartisjonar;
 
     Partisjonstabell() {
+        this(standardAntallPartisjonar());
+    }
+
+    Partisjonstabell(final AntallPartisjonar antallPartisjonar) {
+        this.antallPartisjonar = requireNonNull(antallPartisjonar, "antallPartisjonar er påkrevd, men var null");
         this.partisjonar =
                 Partisjonsnummer
-                        .stream()
+                        .stream(antallPartisjonar)
                         .map(Partisjon::new)
-                        .collect(
-                                toMap(
-                                        Partisjon::nummer,
-                                        Function.identity()
-                                )
-                        );
+                        .toArray(Partisjon[]::new);
     }
 
     void clear() {
-        partisjonar.clear();
+        Arrays.fill(partisjonar, null);
+    }
+
+    List<Partisjon> partisjonar() {
+        return
+                Arrays
+                        .stream(partisjonar)
+                        .filter(Objects::nonNull)
+                        .toList();
     }
 
     Set<Partisjon> partisjonarFor(final Nodenummer node) {
         return
-                partisjonar
-                        .keySet()
-                        .stream()
-                        .filter(node::skalHandtere)
-                        .map(partisjonar::get)
+                Arrays
+                        .stream(partisjonar)
+                        .filter(Objects::nonNull)
+                        .filter(partisjon -> node.skalHandtere(partisjon.nummer()))
                         .collect(toSet());
     }
 
     void put(final String medlemsId, final List<List<String>> data) {
-        partisjonar
-                .get(tilhørendePartisjonForMedlem(medlemsId))
+        partisjonFor(medlemsId)
                 .put(medlemsId, data);
     }
 
+    void put(final String medlemsId, final byte[] data) {
+        partisjonFor(medlemsId)
+                .put(medlemsId, data);
+    }
+
+    void put(final Medlemsdatablokk blokk) {
+        for (int gruppe = 0; gruppe < blokk.antallMedlemmar(); gruppe++) {
+            put(blokk.medlem(gruppe).toString(), blokk.medlemsdata(gruppe));
+        }
+    }
+
     Optional<List<List<String>>> get(final String medlemsId) {
-        return partisjonar
-                .get(tilhørendePartisjonForMedlem(medlemsId))
+        return partisjonFor(medlemsId)
                 .get(medlemsId);
     }
+
+    private Partisjon partisjonFor(final String medlemsId) {
+        return partisjonar[tilhørendePartisjonsindeksForMedlem(medlemsId, antallPartisjonar)];
+    }
 }
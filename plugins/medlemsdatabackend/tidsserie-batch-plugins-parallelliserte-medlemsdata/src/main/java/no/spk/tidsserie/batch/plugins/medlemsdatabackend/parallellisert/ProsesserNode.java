@@ -1,13 +1,16 @@
 package no.spk.tidsserie.batch.plugins.medlemsdatabackend.parallellisert;
 
-import static java.util.Comparator.comparing;
 import static java.util.Objects.requireNonNull;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import no.spk.tidsserie.batch.core.medlem.GenererTidsserieCommand;
 import no.spk.tidsserie.batch.core.medlem.TidsserieContext;
@@ -25,6 +28,11 @@ import no.spk.tidsserie.batch.core.medlem.TidsserieContext;
  * Når prosesseringa er fullført vil {@link AsyncResultat#ventPåResultat()} returnere alle meldingar som har blitt produsert av {@link GenererTidsserieCommand#generer(String, List, TidsserieContext)},
  * {@link MedlemFeilarListener} og {@link CompositePartisjonListener} for dei prosesserte partisjonane og medlemmane.
  * <p>
+ * Dersom noda blir satt opp med ei {@link Partisjonskoe} med arbeidsstjeling, vil noda i tillegg prosessere partisjonar
+ * som lastbalanseringa har tildelt andre noder når den har gått tom for eigne partisjonar. Kvar partisjon i køa blir
+ * prosessert i sin heilskap av éin og samme tråd, men varme partisjonar som lastbalanseringa har
+ * {@link Partisjon#del(long) delt opp} kan få delane sine prosessert samtidig av fleire noder.
+ * <p>
  * Det blir ikkje gitt nokon garantiar om i kva rekkefølge partisjonane blir behandla, det vil vere ikkje-deterministisk.
  *
  * @see KommandoKjoerer
@@ -34,10 +42,11 @@ import no.spk.tidsserie.batch.core.medlem.TidsserieContext;
  * @see MedlemFeilarListener
  */
 class ProsesserNode {
-    private final Set<Partisjon> partisjonar;
+    private final Supplier<Partisjonskoe> partisjonar;
     private final GenererTidsserieCommand kommando;
     private final CompositePartisjonListener partisjonsListeners;
     private final MedlemFeilarListener medlemFeilarListener;
+    private final Optional<Partisjonsprofil> profilering;
 
     ProsesserNode(
             final Set<Partisjon> partisjonar,
@@ -45,10 +54,71 @@ class ProsesserNode {
             final CompositePartisjonListener partisjonsListeners,
             final MedlemFeilarListener medlemFeilarListener
     ) {
-        this.partisjonar = requireNonNull(partisjonar, "partisjonar er påkrevd, men var null");
+        this(
+                kø(partisjonar, Partisjonskoe::utanArbeidsstjeling),
+                kommando,
+                partisjonsListeners,
+                medlemFeilarListener
+        );
+    }
+
+    ProsesserNode(
+            final Partisjonskoe partisjonar,
+            final GenererTidsserieCommand kommando,
+            final CompositePartisjonListener partisjonsListeners,
+            final MedlemFeilarListener medlemFeilarListener
+    ) {
+        this(
+                kø(partisjonar, Function.identity()),
+                kommando,
+                partisjonsListeners,
+                medlemFeilarListener
+        );
+    }
+
+    private ProsesserNode(
+            final Supplier<Partisjonskoe> partisjonar,
+            final GenererTidsserieCommand kommando,
+            final CompositePartisjonListener partisjonsListeners,
+            final MedlemFeilarListener medlemFeilarListener
+    ) {
+        this(
+                partisjonar,
+                kommando,
+                partisjonsListeners,
+                medlemFeilarListener,
+                Optional.empty()
+        );
+    }
+
+    private ProsesserNode(
+            final Supplier<Partisjonskoe> partisjonar,
+            final GenererTidsserieCommand kommando,
+            final CompositePartisjonListener partisjonsListeners,
+            final MedlemFeilarListener medlemFeilarListener,
+            final Optional<Partisjonsprofil> profilering
+    ) {
+        this.partisjonar = partisjonar;
         this.kommando = requireNonNull(kommando, "kommando er påkrevd, men var null");
         this.partisjonsListeners = requireNonNull(partisjonsListeners, "partisjonsListeners er påkrevd, men var null");
         this.medlemFeilarListener = requireNonNull(medlemFeilarListener, "medlemFeilarListener er påkrevd, men var null");
+        this.profilering = requireNonNull(profilering, "profilering er påkrevd, men var null");
+    }
+
+    /**
+     * Registrerer antall medlemmar og tidsbruk for kvar partisjon noda prosesserer i <code>profil</code>.
+     *
+     * @param profil profilen tidsbruken skal registrerast i
+     * @return ei ny node som prosesserer dei samme partisjonane og registrerer tidsbruken deira i profilen
+     */
+    ProsesserNode medProfilering(final Partisjonsprofil profil) {
+        return new ProsesserNode(
+                partisjonar,
+                kommando,
+                partisjonsListeners,
+                medlemFeilarListener,
+                Optional.of(profil)
+        );
     }
 
     AsyncResultat start(final KommandoKjoerer<Meldingar> executor) {
@@ -63,23 +133,44 @@ class ProsesserNode {
 
     private Meldingar prosesserPartisjonar() {
         return
-                partisjonar
-                        .stream()
-                        .sorted(comparing(partisjon -> partisjon.nummer().index()))
-                        .map(ProsesserPartisjon::new)
-                        .map(
-                                partisjon -> partisjon.prosesser(
-                                        kommando,
-                                        partisjonsListeners,
-                                        medlemFeilarListener
-                                )
-                        )
+                partisjonarFrå(partisjonar.get())
+                        .map(this::prosesser)
                         .reduce(
                                 new Meldingar(),
                                 Meldingar::merge
                         );
     }
 
+    private Meldingar prosesser(final Partisjon partisjon) {
+        final long start = System.nanoTime();
+        final Meldingar meldingar = new ProsesserPartisjon(partisjon).prosesser(
+                kommando,
+                partisjonsListeners,
+                medlemFeilarListener
+        );
+        final long tidsbruk = System.nanoTime() - start;
+        profilering.ifPresent(
+                profil -> profil.registrer(
+                        partisjon.nummer(),
+                        meldingar.toMap().getOrDefault("medlem", 0),
+                        tidsbruk
+                )
+        );
+        return meldingar;
+    }
+
+    private static <T> Supplier<Partisjonskoe> kø(final T partisjonar, final Function<T, Partisjonskoe> tilKø) {
+        requireNonNull(partisjonar, "partisjonar er påkrevd, men var null");
+        return () -> tilKø.apply(partisjonar);
+    }
+
+    private static Stream<Partisjon> partisjonarFrå(final Partisjonskoe kø) {
+        return Stream
+                .generate(kø::neste)
+                .takeWhile(Optional::isPresent)
+                .map(Optional::get);
+    }
+
 
     static class AsyncResultat {
         private final HarMeldingar verdi;
@@ -14,6 +14,8 @@ import no.spk.tidsserie.batch.core.medlem.GenererTidsserieCommand;
  * <p>
  * I tillegg er klassa ansvarlig for å notifisere {@link CompositePartisjonListener lyttarar} om at behandling av
  * partisjonen blir {@link CompositePartisjonListener#partisjonInitialisert(Partisjonsnummer, Context) starta}.
+ * For {@link Partisjon#erDel() delar av partisjonar} er det den som delte opp partisjonen sitt ansvar å notifisere
+ * lyttarane, éin gong for heile partisjonen, før nokon av delane blir prosessert.
  * <p>
  * Alle feil som blir kasta, enten frå kommandoen eller ein eller fleire av lyttarane, vil bli delegert til
  * {@link Context#emitError(Throwable)}. I tillegg vil feil frå kommandoen bli delegert til {@link MedlemFeilarListener}
@@ -36,13 +38,15 @@ class ProsesserPartisjon {
             final CompositePartisjonListener partisjonListener,
             final MedlemFeilarListener medlemFeilarListener
     ) {
-        context.inkluderFeilmeldingarFrå(
-                () ->
-                        partisjonListener.partisjonInitialisert(
-                                partisjon.nummer(),
-                                context
-                        )
-        );
+        if (!partisjon.erDel()) {
+            context.inkluderFeilmeldingarFrå(
+                    () ->
+                            partisjonListener.partisjonInitialisert(
+                                    partisjon.nummer(),
+                                    context
+                            )
+            );
+        }
         partisjon
                 .forEach(
                         (medlemsId, medlemsdata) ->
@@ -1,54 +1,105 @@
 package no.spk.tidsserie.batch.plugins.medlemsdatabackend.parallellisert;
 
+import static java.lang.String.join;
 import static java.util.Objects.requireNonNull;
-import static java.util.stream.Collectors.toSet;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 
+import no.spk.tidsserie.batch.core.grunnlagsdata.CsvRad;
+import no.spk.tidsserie.batch.core.medlem.MedlemsId;
+import no.spk.tidsserie.batch.core.medlem.Medlemsdatablokk;
 import no.spk.tidsserie.batch.core.medlem.MedlemsdataUploader;
 import no.spk.tidsserie.batch.core.medlem.Medlemslinje;
 
+/**
+ * {@link Uploader} akkumulerer medlemsdatane for eit medlem direkte som <code>;</code>- og
+ * <code>\n</code>-separerte UTF-8-bytes, i det formatet {@link Partisjon} lagrar dei i.
+ * <br>
+ * Rå rader lagt til via {@link #append(MedlemsId, CsvRad)} blir kopiert rett inn i bufferen utan å bli splitta opp,
+ * validert og skjøta saman igjen. Rader lagt til via {@link #append(Medlemslinje)} blir skjøta saman og validert,
+ * eventuelle ugyldige verdiar blir først rapportert når {@link #run()} blir kalla.
+ * <br>
+ * Blokker med mange medlemmar blir overført direkte til {@link Partisjonstabell} via {@link #run(Medlemsdatablokk)},
+ * uavhengig av medlemsdatane som er akkumulert via dei andre metodene.
+ */
 class Uploader implements MedlemsdataUploader {
-    private final List<Medlemslinje> medlemsdata = new ArrayList<>();
+    private static final String DELIMITER_COLUMN = ";";
+    private static final String DELIMITER_ROW = "\n";
+
+    private final ByteArrayOutputStream medlemsdata = new ByteArrayOutputStream(1024);
 
     private final Partisjonstabell partisjonstabell;
 
+    private int antallLinjer;
+    private MedlemsId medlem;
+    private boolean fleireMedlemmar;
+    private RuntimeException ugyldigVerdi;
+
     Uploader(final Partisjonstabell partisjonstabell) {
         this.partisjonstabell = requireNonNull(partisjonstabell, "partisjonstabell er påkrevd, men var null");
     }
 
     @Override
     public void append(final Medlemslinje linje) {
-        medlemsdata.add(linje);
+        linje.data().forEach(this::valider);
+        leggTil(
+                linje.medlem(),
+                join(DELIMITER_COLUMN, linje.data()).getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    @Override
+    public void append(final MedlemsId medlem, final CsvRad rad) {
+        leggTil(medlem, rad.somBytes(1));
     }
 
     @Override
     public void run() {
-        if (medlemsdata.isEmpty()) {
+        if (antallLinjer == 0) {
             throw new OpplastingAvMedlemsdataKreverMinst1RadException();
         }
-        if (inneheldMeirEnn1Medlem()) {
+        if (fleireMedlemmar) {
             throw new ForskjelligeMedlemmarForsoektLastaOppSammenException();
         }
+        if (ugyldigVerdi != null) {
+            throw ugyldigVerdi;
+        }
         partisjonstabell.put(
-                medlemsdata
-                        .get(0)
-                        .medlem()
-                        .toString(),
-                this.medlemsdata
-                        .stream()
-                        .map(Medlemslinje::data)
-                        .toList()
+                medlem.toString(),
+                medlemsdata.toByteArray()
         );
-        this.medlemsdata.clear();
+        medlemsdata.reset();
+        antallLinjer = 0;
+        medlem = null;
     }
 
-    private boolean inneheldMeirEnn1Medlem() {
-        return medlemsdata
-                .stream()
-                .map(Medlemslinje::medlem)
-                .collect(toSet())
-                .size() > 1;
+    @Override
+    public void run(final Medlemsdatablokk blokk) {
+        partisjonstabell.put(blokk);
+    }
+
+    private void leggTil(final MedlemsId medlem, final byte[] linje) {
+        if (this.medlem == null) {
+            this.medlem = medlem;
+        } else if (!this.medlem.equals(medlem)) {
+            fleireMedlemmar = true;
+        }
+        if (antallLinjer++ > 0) {
+            medlemsdata.write('\n');
+        }
+        medlemsdata.writeBytes(linje);
+    }
+
+    private void valider(final String verdi) {
+        if (ugyldigVerdi != null) {
+            return;
+        }
+
+        if (verdi.contains(DELIMITER_COLUMN)) {
+            ugyldigVerdi = new SemikolonSomDelAvVerdiIMedlemsdataStoettesIkkeException(verdi);
+        } else if (verdi.contains(DELIMITER_ROW)) {
+            ugyldigVerdi = new LinjeskiftSomDelAvVerdiIMedlemsdataStoettesIkkeException(verdi);
+        }
     }
 }
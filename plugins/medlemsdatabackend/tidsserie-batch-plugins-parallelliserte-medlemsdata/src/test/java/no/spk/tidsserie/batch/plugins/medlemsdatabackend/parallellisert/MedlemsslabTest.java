@@ -0,0 +1,56 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.parallellisert;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class MedlemsslabTest {
+    private final Medlemsslab slab = new Medlemsslab();
+
+    @Test
+    void skal_finne_igjen_alle_medlemmane_i_rekkefølga_dei_vart_lagt_til_i() {
+        IntStream.range(0, 10_000).forEach(medlem -> slab.put("medlem" + medlem, ("data" + medlem).getBytes(UTF_8)));
+
+        assertThat(slab.antallMedlemmar()).isEqualTo(10_000);
+        IntStream.range(0, 10_000).forEach(medlem -> {
+            assertThat(slab.finn("medlem" + medlem)).isEqualTo(medlem);
+            assertThat(slab.medlemsId(medlem)).isEqualTo("medlem" + medlem);
+            assertThat(new String(slab.medlemsdata(medlem), UTF_8)).isEqualTo("data" + medlem);
+        });
+        assertThat(slab.finn("ukjent")).isEqualTo(-1);
+    }
+
+    @Test
+    void skal_slå_saman_medlemsdata_lagt_til_for_samme_medlem_med_linjeskift_mellom() {
+        slab.put("æøå", "A;1".getBytes(UTF_8));
+        slab.put("anna medlem", "X".getBytes(UTF_8));
+        slab.put("æøå", "B;2".getBytes(UTF_8));
+
+        assertThat(slab.antallMedlemmar()).isEqualTo(2);
+        assertThat(new String(slab.medlemsdata(slab.finn("æøå")), UTF_8)).isEqualTo("A;1\nB;2");
+        assertThat(slab.storleik(slab.finn("æøå"))).isEqualTo(6);
+    }
+
+    @Test
+    void skal_lagre_medlemsdata_som_er_større_enn_ei_blokk() {
+        final byte[] stor = new byte[3 * 1024 * 1024];
+        stor[stor.length - 1] = 1;
+
+        slab.put("lite", new byte[10]);
+        slab.put("stort", stor);
+        slab.put("lite igjen", new byte[10]);
+
+        assertThat(slab.medlemsdata(slab.finn("stort"))).isEqualTo(stor);
+        assertThat(slab.medlemsdata(slab.finn("lite igjen"))).hasSize(10);
+    }
+
+    @Test
+    void skal_bruke_mindre_heap_enn_med_eitt_objekt_pr_medlem() {
+        IntStream.range(0, 10_000).forEach(medlem -> slab.put("medlem" + medlem, new byte[200]));
+
+        assertThat(slab.heapbruk()).isLessThan(slab.heapbrukMedEittObjektPrMedlem());
+    }
+}
@@ -6,9 +6,11 @@ import static no.spk.tidsserie.batch.plugins.medlemsdatabackend.parallellisert.M
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.Test;
 
@@ -151,6 +153,68 @@ class PartisjonTest {
                 .hasToString("partisjon 1 av 271 (2 medlemmar)");
     }
 
+    @Test
+    void skal_dele_opp_medlemmane_i_delar_med_samme_partisjonsnummer_utan_å_miste_eller_duplisere_medlemmar() {
+        IntStream.range(0, 100).forEach(medlem -> partisjon.put("medlem" + medlem, new byte[10]));
+
+        final List<Partisjon> delar = partisjon.del(95);
+
+        assertThat(delar)
+                .hasSize(12)
+                .allSatisfy(del -> assertThat(del.nummer()).isEqualTo(partisjon.nummer()))
+                .allSatisfy(del -> assertThat(del.erDel()).isTrue())
+                .allSatisfy(del -> assertThat(del.storleik()).isLessThanOrEqualTo(95));
+        assertThat(delar.stream().mapToLong(Partisjon::storleik).sum()).isEqualTo(partisjon.storleik());
+        assertThat(
+                delar
+                        .stream()
+                        .flatMap(del -> {
+                            final List<String> medlemmar = new ArrayList<>();
+                            del.forEach((medlemsId, medlemsdata) -> medlemmar.add(medlemsId));
+                            return medlemmar.stream();
+                        })
+                        .toList()
+        )
+                .containsExactlyElementsOf(
+                        IntStream.range(0, 100).mapToObj(medlem -> "medlem" + medlem).toList()
+                );
+        assertThat(partisjon.erDel()).isFalse();
+    }
+
+    @Test
+    void skal_legge_medlemmar_som_åleine_er_større_enn_maksimal_storleik_i_ein_eigen_del() {
+        partisjon.put("lite", new byte[10]);
+        partisjon.put("stort", new byte[1_000]);
+        partisjon.put("lite igjen", new byte[10]);
+
+        assertThat(partisjon.del(100))
+                .extracting(Partisjon::storleik)
+                .containsExactly(10L, 1_000L, 10L);
+    }
+
+    @Test
+    void skal_kun_slå_opp_medlemmar_som_inngår_i_delen() {
+        partisjon.put("første", new byte[10]);
+        partisjon.put("andre", new byte[10]);
+
+        final List<Partisjon> delar = partisjon.del(10);
+
+        assertThat(delar.get(0).get("første")).isPresent();
+        assertThat(delar.get(0).get("andre")).isEmpty();
+        assertThat(delar.get(1).get("første")).isEmpty();
+        assertThat(delar.get(1).get("andre")).isPresent();
+    }
+
+    @Test
+    void skal_ikkje_godta_endringar_av_delar_av_ein_partisjon() {
+        partisjon.put("første", new byte[10]);
+
+        assertThatCode(
+                () -> partisjon.del(10).get(0).put("andre", new byte[10])
+        )
+                .isInstanceOf(IllegalStateException.class);
+    }
+
     private Map<String, List<List<String>>> hentMedlemsdata() {
         final HashMap<String, List<List<String>>> medlemsdata = new HashMap<>();
         partisjon.forEach(medlemsdata::put);
@@ -0,0 +1,123 @@
+package no.spk.tidsserie.batch.plugins.medlemsdatabackend.parallellisert;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer.partisjonsnummer;
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar.antallPartisjonar;
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar.standardAntallPartisjonar;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PartisjonsprofilTest {
+    @TempDir
+    Path logkatalog;
+
+    private final Partisjonsprofil profil = new Partisjonsprofil(standardAntallPartisjonar());
+
+    @Test
+    void skal_estimere_tidsbruk_ut_frå_tidsbruken_pr_medlem_i_partisjonen() {
+        profil.registrer(partisjonsnummer(1), 10, 1_000);
+        profil.registrer(partisjonsnummer(2), 10, 100);
+
+        assertThat(profil.estimertTidsbruk(partisjon(1, 20))).isEqualTo(2_000);
+        assertThat(profil.estimertTidsbruk(partisjon(2, 20))).isEqualTo(200);
+    }
+
+    @Test
+    void skal_bruke_snittet_for_alle_partisjonane_for_partisjonar_som_manglar_i_profilen() {
+        profil.registrer(partisjonsnummer(1), 10, 1_000);
+        profil.registrer(partisjonsnummer(2), 30, 1_000);
+
+        assertThat(profil.estimertTidsbruk(partisjon(3, 4))).isEqualTo(200);
+    }
+
+    @Test
+    void skal_bruke_tidsbruken_frå_profilen_direkte_for_partisjonar_utan_medlemmar() {
+        profil.registrer(partisjonsnummer(1), 10, 1_000);
+
+        assertThat(profil.estimertTidsbruk(partisjon(1, 0))).isEqualTo(1_000);
+        assertThat(profil.estimertTidsbruk(partisjon(2, 0))).isEqualTo(0);
+    }
+
+    @Test
+    void skal_summere_registreringar_for_samme_partisjon() {
+        profil.registrer(partisjonsnummer(1), 10, 1_000);
+        profil.registrer(partisjonsnummer(1), 30, 3_000);
+
+        assertThat(profil.estimertTidsbruk(partisjon(1, 40))).isEqualTo(4_000);
+    }
+
+    @Test
+    void skal_lese_inn_profilen_frå_nyaste_tidligare_køyring() {
+        profil.registrer(partisjonsnummer(1), 10, 1_000);
+        profil.lagre(køyring("tidsserie_2026-01-01_01-00-00-00"));
+
+        final Partisjonsprofil nyaste = new Partisjonsprofil(standardAntallPartisjonar());
+        nyaste.registrer(partisjonsnummer(1), 10, 5_000);
+        nyaste.lagre(køyring("tidsserie_2026-01-02_01-00-00-00"));
+
+        assertThat(forrigeKøyring(køyring("tidsserie_2026-01-03_01-00-00-00")))
+                .hasValueSatisfying(
+                        forrige -> assertThat(forrige.estimertTidsbruk(partisjon(1, 10))).isEqualTo(5_000)
+                );
+    }
+
+    @Test
+    void skal_ikkje_lese_inn_profilen_til_denne_køyringa() {
+        final Path denneKøyringa = køyring("tidsserie_2026-01-01_01-00-00-00");
+        profil.registrer(partisjonsnummer(1), 10, 1_000);
+        profil.lagre(denneKøyringa);
+
+        assertThat(forrigeKøyring(denneKøyringa)).isEmpty();
+    }
+
+    @Test
+    void skal_ignorere_profilar_frå_køyringar_med_anna_antall_partisjonar() {
+        final Partisjonsprofil annaAntall = new Partisjonsprofil(antallPartisjonar(1024));
+        annaAntall.registrer(partisjonsnummer(1, antallPartisjonar(1024)), 10, 1_000);
+        annaAntall.lagre(køyring("tidsserie_2026-01-01_01-00-00-00"));
+
+        assertThat(forrigeKøyring(køyring("tidsserie_2026-01-02_01-00-00-00"))).isEmpty();
+    }
+
+    @Test
+    void skal_ignorere_profilar_som_ikkje_kan_lesast_inn() throws IOException {
+        Files.write(
+                køyring("tidsserie_2026-01-01_01-00-00-00").resolve(Partisjonsprofil.FILNAVN),
+                "partisjon;antall_partisjonar;medlemmar;tidsbruk_nanosekund\n1;271;ti;1000\n".getBytes(UTF_8)
+        );
+
+        assertThat(forrigeKøyring(køyring("tidsserie_2026-01-02_01-00-00-00"))).isEmpty();
+    }
+
+    @Test
+    void skal_ikkje_feile_når_det_ikkje_finst_nokon_tidligare_køyringar() {
+        assertThat(forrigeKøyring(køyring("tidsserie_2026-01-01_01-00-00-00"))).isEmpty();
+    }
+
+    private Optional<Partisjonsprofil> forrigeKøyring(final Path denneKøyringa) {
+        return Partisjonsprofil.forrigeKøyring(denneKøyringa, standardAntallPartisjonar());
+    }
+
+    private Path køyring(final String batchId) {
+        try {
+            return Files.createDirectories(logkatalog.resolve(batchId));
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Partisjon partisjon(final long nummer, final int antallMedlemmar) {
+        final Partisjon partisjon = new Partisjon(partisjonsnummer(nummer));
+        for (int medlem = 0; medlem < antallMedlemmar; medlem++) {
+            partisjon.put("medlem" + medlem, new byte[1]);
+        }
+        return partisjon;
+    }
+}
@@ -0,0 +1,120 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@link CsvRad} er ei lesevisning av ei rad frå ei CSV-fil, der kvar kolonne kan hentast ut enkeltvis.
+ * <br>
+ * Visninga er tiltenkt brukt ved {@link GrunnlagsdataRepository#medlemsdata(Consumer) straumbasert innlesing} av
+ * store datamengder der ein ønskjer å unngå å allokere nye objekt for kvar rad og kvar kolonne. Implementasjonane
+ * står fritt til å gjenbruke ein og samme instans for alle rader, innholdet er dermed kun gyldig fram til
+ * konsumenten returnerer. Konsumentar som har behov for å ta vare på innholdet må hente det ut via
+ * {@link #verdi(int)} eller {@link #somListe()}.
+ *
+ * @see GrunnlagsdataRepository#medlemsdata(Consumer)
+ */
+public interface CsvRad {
+    /**
+     * Antall kolonner i rada.
+     * <br>
+     * Tomme kolonner på slutten av rada blir ikkje ignorert, ei tom rad har dermed alltid 1 tom kolonne.
+     *
+     * @return antall kolonner i rada
+     */
+    int antallKolonner();
+
+    /**
+     * Hentar ut verdien til den angitte kolonna.
+     * <br>
+     * Verdien blir materialisert ved kvart kall, konsumentar som kun les nokre få kolonner pr rad treng dermed
+     * ikkje betale for dei andre kolonnene.
+     *
+     * @param kolonne indeksen til kolonna, 0-basert
+     * @return verdien til kolonna
+     * @throws IndexOutOfBoundsException dersom rada ikkje har ei kolonne med den angitte indeksen
+     */
+    String verdi(int kolonne);
+
+    /**
+     * Inneheld den angitte kolonna nøyaktig den angitte verdien?
+     * <br>
+     * Samanlikninga skal ikkje kreve at kolonnas verdi blir materialisert.
+     *
+     * @param kolonne indeksen til kolonna, 0-basert
+     * @param verdi verdien kolonna skal samanliknast med
+     * @return <code>true</code> dersom kolonna inneheld <code>verdi</code>, <code>false</code> ellers
+     * @throws IndexOutOfBoundsException dersom rada ikkje har ei kolonne med den angitte indeksen
+     */
+    default boolean erLik(final int kolonne, final String verdi) {
+        return verdi(kolonne).equals(verdi);
+    }
+
+    /**
+     * Materialiserer alle kolonnene i rada til ei ny liste som konsumenten kan ta vare på.
+     *
+     * @return ei ny liste med verdien til alle kolonnene i rada
+     */
+    default List<String> somListe() {
+        final List<String> verdiar = new ArrayList<>(antallKolonner());
+        for (int kolonne = 0; kolonne < antallKolonner(); kolonne++) {
+            verdiar.add(verdi(kolonne));
+        }
+        return verdiar;
+    }
+
+    /**
+     * Hentar ut kolonnene frå og med <code>fraKolonne</code> og ut rada som UTF-8-koda bytes, separert med
+     * <code>;</code>, slik dei stod i CSV-fila.
+     * <br>
+     * Implementasjonar som tokeniserer rada direkte på bytenivå kan kopiere ut bytane utan å materialisere
+     * kolonneverdiane som {@link String} først og utan å måtte skjøte dei saman igjen etterpå.
+     *
+     * @param fraKolonne indeksen til første kolonne som skal vere med, 0-basert
+     * @return kolonnene frå og med <code>fraKolonne</code>, ein tom array dersom <code>fraKolonne</code> er lik
+     * antall kolonner i rada
+     * @throws IndexOutOfBoundsException dersom <code>fraKolonne</code> er negativ eller større enn antall kolonner
+     * i rada
+     */
+    default byte[] somBytes(final int fraKolonne) {
+        if (fraKolonne < 0 || fraKolonne > antallKolonner()) {
+            throw new IndexOutOfBoundsException(
+                    "Rada har " + antallKolonner() + " kolonner, kolonne " + fraKolonne + " eksisterer ikkje"
+            );
+        }
+        return String
+                .join(";", somListe().subList(fraKolonne, antallKolonner()))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Lagar ei visning av ei allereie materialisert rad.
+     *
+     * @param verdiar kolonneverdiane til rada
+     * @return ei ny visning av rada
+     * @throws NullPointerException dersom <code>verdiar</code> er <code>null</code>
+     */
+    static CsvRad rad(final List<String> verdiar) {
+        requireNonNull(verdiar, "verdiar er påkrevd, men var null");
+        return new CsvRad() {
+            @Override
+            public int antallKolonner() {
+                return verdiar.size();
+            }
+
+            @Override
+            public String verdi(final int kolonne) {
+                return verdiar.get(kolonne);
+            }
+
+            @Override
+            public List<String> somListe() {
+                return new ArrayList<>(verdiar);
+            }
+        };
+    }
+}
@@ -2,6 +2,7 @@ package no.spk.tidsserie.batch.core.grunnlagsdata;
 
 import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import no.spk.tidsserie.tidsperiode.Tidsperiode;
@@ -29,6 +30,29 @@ public interface GrunnlagsdataRepository {
      */
     Stream<List<String>> medlemsdata();
 
+    /**
+     * Leser inn linje for linje frå medlemsdatafila og overleverer kvar linje til <code>konsument</code> som ei
+     * {@link CsvRad radvisning}.
+     * <br>
+     * Alternativ til {@link #medlemsdata()} for konsumentar som ønskjer å unngå at kvar linje og kvar kolonne blir
+     * materialisert som nye objekt før konsumenten har bestemt seg for kva kolonner den treng. Radvisninga kan bli
+     * gjenbrukt for alle linjer og er kun gyldig fram til <code>konsument</code> returnerer.
+     * <br>
+     * Alle medlemsdatafiler er lukka når metoda returnerer, også dersom konsumenten kastar ein feil.
+     * <br>
+     * Eventuelle kommentarlinjer blir filtrert bort og vil ikkje bli overlevert til konsumenten.
+     *
+     * @param konsument mottar ei radvisning pr linje med medlemsdata
+     * @throws UncheckedIOException viss ein I/O-relatert feil oppstår
+     */
+    default void medlemsdata(final Consumer<? super CsvRad> konsument) {
+        try (final Stream<List<String>> linjer = medlemsdata()) {
+            linjer
+                    .map(CsvRad::rad)
+                    .forEach(konsument);
+        }
+    }
+
     /**
      * Åpnar ein straum som leser inn linje for linje frå alle referansedatafiler og konverterer linjas innhold til
      * ei tidsperiode.
@@ -3,6 +3,7 @@ package no.spk.tidsserie.batch.core.grunnlagsdata;
 import java.io.UncheckedIOException;
 
 import no.spk.tidsserie.batch.core.TidsserieLivssyklus;
+import no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar;
 import no.spk.tidsserie.batch.core.medlem.MedlemsdataBackend;
 import no.spk.tidsserie.tjenesteregister.ServiceRegistry;
 
@@ -11,6 +12,11 @@ import no.spk.tidsserie.tjenesteregister.ServiceRegistry;
  * behov for å lese inn grunnlagsdata, typisk via {@link GrunnlagsdataRepository}
  * ved oppstart av batchen, før nokon av {@link TidsserieLivssyklus} blir kalla og
  * tidsseriegenereringa blir initiert.
+ * <br>
+ * Tenester som kun implementerer {@link #lastOpp(ServiceRegistry, long)} er forventa å fordele medlemmane på
+ * {@link AntallPartisjonar#standardAntallPartisjonar() standard antall partisjonar}. Tenester som støttar eit anna
+ * antall partisjonar må i tillegg implementere {@link #støttar(AntallPartisjonar)} og
+ * {@link #lastOpp(ServiceRegistry, long, AntallPartisjonar)}.
  *
  * @author Tarjei Skorgenes
  * @see GrunnlagsdataRepository
@@ -25,4 +31,45 @@ public interface LastOppGrunnlagsdataPartisjonertKommando {
      * @throws UncheckedIOException dersom det oppstår eit problem med lesinga frå disk
      */
     void lastOpp(final ServiceRegistry serviceRegistry, final long partisjonsnummer) throws UncheckedIOException;
+
+    /**
+     * Notifiserer tenesta om at batchen er klar for opplasting av medlemsdata for partisjonen med
+     * <code>partisjonsnummer</code>, når medlemmane blir fordelt på <code>antallPartisjonar</code> partisjonar.
+     * <br>
+     * Standardimplementasjonen delegerer til {@link #lastOpp(ServiceRegistry, long)} dersom tenesta
+     * {@link #støttar(AntallPartisjonar) støttar} antall partisjonar.
+     *
+     * @param serviceRegistry tjenesteregisteret som {@link GrunnlagsdataRepository} og eventuelle andre samarbeidande tenester
+     * kan hentast frå
+     * @param partisjonsnummer nummeret til partisjonen som skal lastast opp
+     * @param antallPartisjonar antall partisjonar medlemmane blir fordelt på
+     * @throws UncheckedIOException dersom det oppstår eit problem med lesinga frå disk
+     * @throws IllegalStateException dersom tenesta ikkje støttar <code>antallPartisjonar</code>
+     */
+    default void lastOpp(
+            final ServiceRegistry serviceRegistry,
+            final long partisjonsnummer,
+            final AntallPartisjonar antallPartisjonar
+    ) throws UncheckedIOException {
+        if (!støttar(antallPartisjonar)) {
+            throw new IllegalStateException(
+                    getClass().getSimpleName() + " støttar kun " + AntallPartisjonar.STANDARD_ANTALL_PARTISJONAR
+                            + " partisjonar, men medlemmane blir fordelt på " + antallPartisjonar.antall() + " partisjonar"
+            );
+        }
+        lastOpp(serviceRegistry, partisjonsnummer);
+    }
+
+    /**
+     * Kan tenesta laste opp medlemsdata når medlemmane blir fordelt på <code>antallPartisjonar</code> partisjonar?
+     * <br>
+     * Som standard blir kun {@link AntallPartisjonar#standardAntallPartisjonar() standard antall partisjonar}
+     * støtta.
+     *
+     * @param antallPartisjonar antall partisjonar medlemmane blir fordelt på
+     * @return <code>true</code> dersom tenesta støttar antall partisjonar, <code>false</code> ellers
+     */
+    default boolean støttar(final AntallPartisjonar antallPartisjonar) {
+        return antallPartisjonar.erStandard();
+    }
 }
@@ -196,4 +196,117 @@ public final class MurmurHash {
     public static long hash64(final String text, int from, int length) {
         return hash64(text.substring(from, from + length));
     }
+
+
+    /**
+     * Generates 64 bit hash from the UTF-8 encoding of a char sequence with default seed value.
+     * <br />
+     * Gives the same result as <code>hash64(text.toString().getBytes(UTF_8), length)</code>, but encodes the
+     * characters on the fly without allocating an intermediate byte array.
+     *
+     * @param text char sequence to hash
+     * @return 64 bit hash of the UTF-8 encoding of the given char sequence
+     */
+    public static long hash64Utf8(final CharSequence text) {
+        return hash64Utf8(text, 0xe17a1465);
+    }
+
+
+    /**
+     * Generates 64 bit hash from the UTF-8 encoding of a char sequence and seed.
+     * <br />
+     * Unpaired surrogates are encoded as <code>'?'</code>, like {@link String#getBytes(java.nio.charset.Charset)} does.
+     *
+     * @param text char sequence to hash
+     * @param seed initial seed value
+     * @return 64 bit hash of the UTF-8 encoding of the given char sequence
+     */
+    public static long hash64Utf8(final CharSequence text, int seed) {
+        final long m = 0xc6a4a7935bd1e995L;
+        final int r = 47;
+
+        long h = (seed & 0xffffffffL) ^ (utf8Length(text) * m);
+
+        long k = 0;
+        int filled = 0;
+
+        final int chars = text.length();
+        for (int i = 0; i < chars; i++) {
+            final char c = text.charAt(i);
+
+            final int encoded;
+            final int count;
+            if (c < 0x80) {
+                encoded = c;
+                count = 1;
+            } else if (c < 0x800) {
+                encoded = (0xc0 | c >>> 6)
+                        | (0x80 | c & 0x3f) << 8;
+                count = 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(text.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                encoded = (0xf0 | codePoint >>> 18)
+                        | (0x80 | codePoint >>> 12 & 0x3f) << 8
+                        | (0x80 | codePoint >>> 6 & 0x3f) << 16
+                        | (0x80 | codePoint & 0x3f) << 24;
+                count = 4;
+            } else if (Character.isSurrogate(c)) {
+                encoded = '?';
+                count = 1;
+            } else {
+                encoded = (0xe0 | c >>> 12)
+                        | (0x80 | c >>> 6 & 0x3f) << 8
+                        | (0x80 | c & 0x3f) << 16;
+                count = 3;
+            }
+
+            for (int j = 0; j < count; j++) {
+                k |= ((long) (encoded >>> (j * 8)) & 0xff) << (filled * 8);
+                if (++filled == 8) {
+                    k *= m;
+                    k ^= k >>> r;
+                    k *= m;
+
+                    h ^= k;
+                    h *= m;
+
+                    k = 0;
+                    filled = 0;
+                }
+            }
+        }
+
+        if (filled > 0) {
+            h ^= k;
+            h *= m;
+        }
+
+        h ^= h >>> r;
+        h *= m;
+        h ^= h >>> r;
+
+        return h;
+    }
+
+
+    private static int utf8Length(final CharSequence text) {
+        final int chars = text.length();
+        int length = 0;
+        for (int i = 0; i < chars; i++) {
+            final char c = text.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
 }
@@ -2,31 +2,59 @@ package no.spk.tidsserie.batch.core.grunnlagsdata;
 
 import static java.lang.Math.abs;
 import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar.standardAntallPartisjonar;
 
-import java.nio.charset.StandardCharsets;
-import java.util.stream.IntStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
+import no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar;
+
 public class Partisjonsnummer {
-    private static final int ANTALL_PARTISJONAR = 271;
+    private static final long JUMP_MULTIPLIKATOR = 2862933555777941757L;
+
+    private static final Map<AntallPartisjonar, Partisjonsnummer[]> PARTISJONAR = new ConcurrentHashMap<>();
 
     private final long partisjonsnummer;
 
-    private Partisjonsnummer(final long partisjonsnummer) {
+    private final int antallPartisjonar;
+
+    private Partisjonsnummer(final long partisjonsnummer, final int antallPartisjonar) {
         assert partisjonsnummer > 0;
-        assert partisjonsnummer <= ANTALL_PARTISJONAR;
+        assert partisjonsnummer <= antallPartisjonar;
         this.partisjonsnummer = partisjonsnummer;
+        this.antallPartisjonar = antallPartisjonar;
     }
 
     public static Partisjonsnummer partisjonsnummer(final long partisjonsnummer) {
-        return new Partisjonsnummer(partisjonsnummer);
+        return partisjonsnummer(partisjonsnummer, standardAntallPartisjonar());
+    }
+
+    public static Partisjonsnummer partisjonsnummer(final long partisjonsnummer, final AntallPartisjonar antallPartisjonar) {
+        if (partisjonsnummer < 1 || partisjonsnummer > antallPartisjonar.antall()) {
+            throw new IllegalArgumentException(
+                    format(
+                            "partisjonsnummer må vere mellom 1 og %d, var %d",
+                            antallPartisjonar.antall(),
+                            partisjonsnummer
+                    )
+            );
+        }
+        return alle(antallPartisjonar)[(int) partisjonsnummer - 1];
     }
 
     public static Stream<Partisjonsnummer> stream() {
-        return
-                IntStream
-                        .rangeClosed(1, ANTALL_PARTISJONAR)
-                        .mapToObj(Partisjonsnummer::new);
+        return stream(standardAntallPartisjonar());
+    }
+
+    public static Stream<Partisjonsnummer> stream(final AntallPartisjonar antallPartisjonar) {
+        return Arrays.stream(
+                alle(
+                        requireNonNull(antallPartisjonar, "antallPartisjonar er påkrevd, men var null")
+                )
+        );
     }
 
     public long index() {
@@ -47,21 +75,85 @@ public class Partisjonsnummer {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         final Partisjonsnummer that = (Partisjonsnummer) o;
-        return this.partisjonsnummer == that.partisjonsnummer;
+        return this.partisjonsnummer == that.partisjonsnummer
+                && this.antallPartisjonar == that.antallPartisjonar;
     }
 
     @Override
     public String toString() {
-        return format("partisjon %d av %d", partisjonsnummer, ANTALL_PARTISJONAR);
+        return format("partisjon %d av %d", partisjonsnummer, antallPartisjonar);
     }
 
     public static Partisjonsnummer tilhørendePartisjonForMedlem(final String medlemsId) {
-        final byte[] bytes = medlemsId.getBytes(StandardCharsets.UTF_8);
-        final long hash = MurmurHash.hash64(
-                bytes,
-                bytes.length
-        );
-        final long index = abs(hash) % ANTALL_PARTISJONAR;
-        return partisjonsnummer(1 + index);
+        return tilhørendePartisjonForMedlem(medlemsId, standardAntallPartisjonar());
+    }
+
+    /**
+     * Finn partisjonen som medlemmet tilhøyrer når medlemmane blir fordelt på <code>antallPartisjonar</code>
+     * partisjonar.
+     * <br>
+     * Med {@link AntallPartisjonar#standardAntallPartisjonar() standard antall partisjonar} blir medlemmet fordelt
+     * på samme måte som før antallet vart konfigurerbart, slik at fordelinga av medlemmar på partisjonar og dermed
+     * utfilene er uendra. For alle andre antall blir medlemmet fordelt med konsistent hashing
+     * (jump consistent hash), der ei endring av antall partisjonar frå <code>n</code> til <code>n + 1</code> kun flyttar
+     * omtrent <code>1 / (n + 1)</code> av medlemmane til den nye partisjonen og lar resten bli ståande der dei var.
+     *
+     * @param medlemsId medlemsidentifikatoren
+     * @param antallPartisjonar antall partisjonar medlemmane skal fordelast på
+     * @return partisjonen medlemmet tilhøyrer
+     */
+    public static Partisjonsnummer tilhørendePartisjonForMedlem(final String medlemsId, final AntallPartisjonar antallPartisjonar) {
+        return alle(antallPartisjonar)[tilhørendePartisjonsindeksForMedlem(medlemsId, antallPartisjonar)];
+    }
+
+    /**
+     * Finn {@link #index() indeksen} til partisjonen som medlemmet tilhøyrer, sjå
+     * {@link #tilhørendePartisjonForMedlem(String, AntallPartisjonar)}.
+     * <br>
+     * Fordelinga er identisk med {@link #tilhørendePartisjonForMedlem(String, AntallPartisjonar)}, men
+     * medlemsidentifikatoren blir hasha direkte frå teikna utan mellomliggande UTF-8-kodane byte-array og utan å
+     * slå opp partisjonsnummeret, slik at kall frå innlesinga av medlemsdata ikkje allokerer noko. Indeksen kan
+     * brukast direkte som oppslag i ein tabell med ein partisjon pr indeks.
+     *
+     * @param medlemsId medlemsidentifikatoren
+     * @param antallPartisjonar antall partisjonar medlemmane skal fordelast på
+     * @return indeksen, frå og med 0 til antall partisjonar, til partisjonen medlemmet tilhøyrer
+     */
+    public static int tilhørendePartisjonsindeksForMedlem(final CharSequence medlemsId, final AntallPartisjonar antallPartisjonar) {
+        final long hash = MurmurHash.hash64Utf8(medlemsId);
+        final int antall = antallPartisjonar.antall();
+        return (int) (antallPartisjonar.erStandard() ? abs(hash) % antall : jumpConsistentHash(hash, antall));
+    }
+
+    /**
+     * Jump consistent hash, jf. Lamping og Veach, "A Fast, Minimal Memory, Consistent Hash Algorithm".
+     */
+    static long jumpConsistentHash(final long hash, final int antall) {
+        long nøkkel = hash;
+        long bøtte = -1;
+        long neste = 0;
+        while (neste < antall) {
+            bøtte = neste;
+            nøkkel = nøkkel * JUMP_MULTIPLIKATOR + 1;
+            neste = (long) ((bøtte + 1) * ((double) (1L << 31) / (double) ((nøkkel >>> 33) + 1)));
+        }
+        return bøtte;
+    }
+
+    private static Partisjonsnummer[] alle(final AntallPartisjonar antallPartisjonar) {
+        final Partisjonsnummer[] alle = PARTISJONAR.get(antallPartisjonar);
+        if (alle != null) {
+            return alle;
+        }
+        return PARTISJONAR.computeIfAbsent(antallPartisjonar, Partisjonsnummer::opprett);
+    }
+
+    private static Partisjonsnummer[] opprett(final AntallPartisjonar antallPartisjonar) {
+        final int antall = antallPartisjonar.antall();
+        final Partisjonsnummer[] alle = new Partisjonsnummer[antall];
+        for (int index = 0; index < antall; index++) {
+            alle[index] = new Partisjonsnummer(index + 1, antall);
+        }
+        return alle;
     }
 }
@@ -0,0 +1,206 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import no.spk.tidsserie.batch.core.grunnlagsdata.GrunnlagsdataRepository;
+import no.spk.tidsserie.tidsperiode.Tidsperiode;
+
+/**
+ * {@link BinaerInput} les inn medlemsdata og referansedata frå eit uttrekk som {@link BinaerKonverterer} har
+ * konvertert til binært format.
+ * <br>
+ * Medlemsdataene ligg ferdig gruppert pr medlem og referansedataene ligg ferdig tokenisert, innlesinga slepp dermed
+ * å dekomprimere og parse CSV-filene. Referansedataene blir oversatt til tidsperioder via dei samme
+ * {@link CsvOversetter oversetterane} som {@link CSVInput} brukar.
+ *
+ * @see BinaerKonverterer
+ * @see Binaerformat
+ */
+public class BinaerInput implements GrunnlagsdataRepository {
+    private static final int BUFFERSTORLEIK = 1024 * 1024;
+
+    private final List<CsvOversetter<? extends Tidsperiode<?>>> oversettere = new ArrayList<>();
+
+    private final Map<CsvOversetter<?>, LongAdder> antallOversettingar = new IdentityHashMap<>();
+
+    private final Path katalog;
+
+    /**
+     * Konstruerer ei ny teneste som les inn det binære uttrekket i den angitte katalogen.
+     *
+     * @param katalog katalogen som inneheld det binære uttrekket
+     * @throws NullPointerException dersom <code>katalog</code> er <code>null</code>
+     * @see BinaerKonverterer#konverterVedBehov()
+     */
+    public BinaerInput(final Path katalog) {
+        this.katalog = requireNonNull(katalog, "katalog er påkrevd, men var null");
+    }
+
+    /**
+     * Konverterer uttrekket i <code>innkatalog</code> til binært format dersom det ikkje allereie er konvertert, og
+     * konstruerer ei ny teneste som les inn det binære uttrekket.
+     *
+     * @param innkatalog katalogen som inneheld uttrekkets CSV-filer og <code>md5-checksums.txt</code>
+     * @param cachekatalog katalogen dei binære uttrekka skal lagrast i
+     * @return ei ny teneste som les inn det binære uttrekket
+     * @see BinaerKonverterer#konverterVedBehov()
+     */
+    public static BinaerInput fraUttrekk(final Path innkatalog, final Path cachekatalog) {
+        return new BinaerInput(new BinaerKonverterer(innkatalog, cachekatalog).konverterVedBehov());
+    }
+
+    /**
+     * Legger til ein <code>oversetter</code> som blir forsøkt brukt ved konvertering av referansedata til
+     * tidsperioder.
+     *
+     * @param oversetter ein oversetter som tenesta skal kunne benytte seg av
+     * @return <code>this</code>
+     * @see #referansedata()
+     */
+    public BinaerInput addOversettere(final CsvOversetter<?> oversetter) {
+        this.oversettere.add(oversetter);
+        this.antallOversettingar.computeIfAbsent(oversetter, o -> new LongAdder());
+        return this;
+    }
+
+    /**
+     * Legger til eit sett med <code>oversettere</code> som blir forsøkt brukt ved konvertering av referansedata til
+     * tidsperioder.
+     *
+     * @param oversettere ein samling oversettere som tenesta skal kunne benytte seg av
+     * @return <code>this</code>
+     * @see #referansedata()
+     */
+    public BinaerInput addOversettere(final Stream<CsvOversetter<?>> oversettere) {
+        oversettere.forEach(this::addOversettere);
+        return this;
+    }
+
+    /**
+     * Antall linjer med referansedata som kvar av oversetterane har oversatt til tidsperioder, sidan tenesta vart
+     * oppretta.
+     *
+     * @return antall oversatte linjer pr oversetter, i samme rekkefølge som oversetterane vart lagt til
+     * @see CSVInput#antallOversettingar()
+     */
+    public Map<CsvOversetter<?>, Long> antallOversettingar() {
+        final Map<CsvOversetter<?>, Long> statistikk = new LinkedHashMap<>();
+        oversettere.forEach(oversetter -> statistikk.put(oversetter, antallOversettingar.get(oversetter).sum()));
+        return statistikk;
+    }
+
+    @Override
+    public Stream<List<String>> medlemsdata() {
+        final InputStream input = åpne(Binaerformat.MEDLEMSDATA);
+        return straum(input, new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private Iterator<List<String>> blokk = Collections.emptyIterator();
+
+            private boolean ferdig;
+
+            @Override
+            public boolean tryAdvance(final Consumer<? super List<String>> action) {
+                while (!blokk.hasNext()) {
+                    if (ferdig) {
+                        return false;
+                    }
+                    blokk = lesBlokk();
+                }
+                action.accept(blokk.next());
+                return true;
+            }
+
+            private Iterator<List<String>> lesBlokk() {
+                try {
+                    final int antallRader = Binaerformat.lesVarint(input);
+                    if (antallRader == 0) {
+                        ferdig = true;
+                        return Collections.emptyIterator();
+                    }
+                    final String medlem = Binaerformat.lesVerdi(input);
+                    final List<List<String>> rader = new ArrayList<>(antallRader);
+                    for (int i = 0; i < antallRader; i++) {
+                        rader.add(Binaerformat.lesRad(input, Binaerformat.lesVarint(input), medlem));
+                    }
+                    return rader.iterator();
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public Stream<Tidsperiode<?>> referansedata() {
+        final Oversettartabell tabell = new Oversettartabell(oversettere, antallOversettingar::get);
+        final InputStream input = åpne(Binaerformat.REFERANSEDATA);
+        return straum(input, new Spliterators.AbstractSpliterator<List<String>>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private boolean ferdig;
+
+            @Override
+            public boolean tryAdvance(final Consumer<? super List<String>> action) {
+                if (ferdig) {
+                    return false;
+                }
+                try {
+                    final int antallKolonner = Binaerformat.lesVarint(input);
+                    if (antallKolonner == 0) {
+                        ferdig = true;
+                        return false;
+                    }
+                    action.accept(Binaerformat.lesRad(input, antallKolonner));
+                    return true;
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        })
+                .flatMap(tabell::oversett);
+    }
+
+    private InputStream åpne(final String filnavn) {
+        try {
+            final InputStream input = new BufferedInputStream(Files.newInputStream(katalog.resolve(filnavn)), BUFFERSTORLEIK);
+            try {
+                Binaerformat.lesHovud(input);
+            } catch (final IOException e) {
+                input.close();
+                throw e;
+            }
+            return input;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static <T> Stream<T> straum(final InputStream input, final Spliterator<T> rader) {
+        return StreamSupport
+                .stream(rader, false)
+                .onClose(() -> {
+                    try {
+                        input.close();
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+}
@@ -0,0 +1,220 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+import no.spk.tidsserie.batch.core.grunnlagsdata.UgyldigUttrekkException;
+
+/**
+ * {@link BinaerKonverterer} konverterer eit uttrekk med CSV-filer til eit kompakt, binært format som
+ * {@link BinaerInput} kan lese inn utan å måtte dekomprimere og parse CSV-filene på nytt.
+ * <br>
+ * Det binære uttrekket blir lagra i ein underkatalog av cachekatalogen, med ein nøkkel utleda frå sjekksummane i
+ * uttrekkets <code>md5-checksums.txt</code> som navn. Konverteringa blir dermed kun gjort på nytt når innholdet i
+ * uttrekket endrar seg, sjølv om fleire køyringar med forskjellige modusar les inn samme uttrekk.
+ * <br>
+ * Konverteringa blir skrive til ein midlertidig katalog som først blir flytta på plass når alle filene er ferdig
+ * skrivne. Ei konvertering som blir avbroten undervegs, blir dermed aldri tatt i bruk.
+ *
+ * @see Binaerformat
+ */
+public class BinaerKonverterer {
+    static final String MD5_CHECKSUMS_FILENAME = "md5-checksums.txt";
+
+    private final Path innkatalog;
+
+    private final Path cachekatalog;
+
+    /**
+     * Konstruerer ein ny konverterer for uttrekket i <code>innkatalog</code>.
+     *
+     * @param innkatalog katalogen som inneheld uttrekkets CSV-filer og <code>md5-checksums.txt</code>
+     * @param cachekatalog katalogen dei binære uttrekka skal lagrast i
+     * @throws NullPointerException dersom nokon av argumenta er <code>null</code>
+     */
+    public BinaerKonverterer(final Path innkatalog, final Path cachekatalog) {
+        this.innkatalog = requireNonNull(innkatalog, "innkatalog er påkrevd, men var null");
+        this.cachekatalog = requireNonNull(cachekatalog, "cachekatalog er påkrevd, men var null");
+    }
+
+    /**
+     * Konverterer uttrekket til binært format dersom det ikkje allereie finnast ei konvertering av uttrekket med
+     * samme sjekksummar i cachekatalogen.
+     *
+     * @return katalogen som inneheld det binære uttrekket
+     * @throws UgyldigUttrekkException dersom uttrekket manglar <code>md5-checksums.txt</code>
+     * @throws UncheckedIOException dersom lesinga av uttrekket eller skrivinga av det binære uttrekket feilar
+     */
+    public Path konverterVedBehov() {
+        final Path katalog = cachekatalog.resolve(nøkkel());
+        if (Files.exists(katalog.resolve(Binaerformat.NØKKEL))) {
+            return katalog;
+        }
+        try {
+            Files.createDirectories(cachekatalog);
+            final Path midlertidig = Files.createTempDirectory(cachekatalog, "konvertering-");
+            try {
+                konverter(midlertidig);
+                Files.writeString(midlertidig.resolve(Binaerformat.NØKKEL), nøkkel(), StandardCharsets.UTF_8);
+                flyttPåPlass(midlertidig, katalog);
+            } finally {
+                slett(midlertidig);
+            }
+            return katalog;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Nøkkelen det binære uttrekket blir lagra under.
+     * <br>
+     * Nøkkelen er ein SHA-256-sjekksum av filnavna og MD5-sjekksummane i <code>md5-checksums.txt</code>, sortert på
+     * filnavn, og versjonen til det binære formatet. Rekkefølga på linjene i sjekksumfila påverkar dermed ikkje
+     * nøkkelen.
+     *
+     * @return nøkkelen til uttrekket
+     * @throws UgyldigUttrekkException dersom uttrekket manglar <code>md5-checksums.txt</code>
+     */
+    String nøkkel() {
+        final Path sjekksumfil = innkatalog.resolve(MD5_CHECKSUMS_FILENAME);
+        if (!Files.exists(sjekksumfil)) {
+            throw new UgyldigUttrekkException(
+                    MD5_CHECKSUMS_FILENAME + " mangler i katalogen " + innkatalog.toAbsolutePath()
+            );
+        }
+        try (final Stream<String> linjer = Files.lines(sjekksumfil, StandardCharsets.UTF_8)) {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(("binaerformat-" + Binaerformat.VERSJON + "\n").getBytes(StandardCharsets.UTF_8));
+            linjer
+                    .map(String::trim)
+                    .filter(linje -> !linje.isEmpty())
+                    .sorted(Comparator.comparing(BinaerKonverterer::filnavn))
+                    .forEach(linje -> digest.update((linje + "\n").getBytes(StandardCharsets.UTF_8)));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void konverter(final Path målkatalog) throws IOException {
+        final CSVInput input = new CSVInput(innkatalog);
+        try (final OutputStream output = åpne(målkatalog.resolve(Binaerformat.MEDLEMSDATA))) {
+            final Medlemsblokker blokker = new Medlemsblokker(output);
+            input.medlemsdata(rad -> blokker.leggTil(rad.somListe()));
+            blokker.avslutt();
+        }
+        try (final OutputStream output = åpne(målkatalog.resolve(Binaerformat.REFERANSEDATA));
+             final Stream<List<String>> rader = input.referanserader()) {
+            rader.forEach(rad -> skriv(() -> Binaerformat.skrivRad(output, rad, 0)));
+            Binaerformat.skrivVarint(output, 0);
+        }
+    }
+
+    private static OutputStream åpne(final Path fil) throws IOException {
+        final OutputStream output = new BufferedOutputStream(Files.newOutputStream(fil), 1024 * 1024);
+        Binaerformat.skrivHovud(output);
+        return output;
+    }
+
+    private static void flyttPåPlass(final Path midlertidig, final Path katalog) throws IOException {
+        try {
+            Files.move(midlertidig, katalog, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(midlertidig, katalog);
+        } catch (final FileAlreadyExistsException e) {
+            // Ei anna køyring har konvertert samme uttrekk i mellomtida
+        } catch (final IOException e) {
+            if (!Files.exists(katalog.resolve(Binaerformat.NØKKEL))) {
+                throw e;
+            }
+        }
+    }
+
+    private static void slett(final Path katalog) throws IOException {
+        if (!Files.exists(katalog)) {
+            return;
+        }
+        try (final Stream<Path> filer = Files.walk(katalog)) {
+            for (final Path fil : filer.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(fil);
+            }
+        }
+    }
+
+    private static String filnavn(final String linje) {
+        final int skilje = linje.indexOf(" *");
+        return skilje < 0 ? linje : linje.substring(skilje + 2);
+    }
+
+    private static void skriv(final Skriving skriving) {
+        try {
+            skriving.skriv();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private interface Skriving {
+        void skriv() throws IOException;
+    }
+
+    /**
+     * Grupperer medlemsdataradene pr medlem og skriv ut ei blokk pr medlem når neste medlem startar.
+     */
+    private static class Medlemsblokker {
+        private final List<List<String>> rader = new ArrayList<>();
+        private final OutputStream output;
+        private String medlem;
+
+        Medlemsblokker(final OutputStream output) {
+            this.output = output;
+        }
+
+        void leggTil(final List<String> rad) {
+            if (!rad.get(0).equals(medlem)) {
+                skrivBlokk();
+                medlem = rad.get(0);
+            }
+            rader.add(rad);
+        }
+
+        void avslutt() throws IOException {
+            skrivBlokk();
+            Binaerformat.skrivVarint(output, 0);
+        }
+
+        private void skrivBlokk() {
+            if (rader.isEmpty()) {
+                return;
+            }
+            skriv(() -> {
+                Binaerformat.skrivVarint(output, rader.size());
+                Binaerformat.skrivVerdi(output, medlem);
+                for (final List<String> rad : rader) {
+                    Binaerformat.skrivRad(output, rad, 1);
+                }
+            });
+            rader.clear();
+        }
+    }
+}
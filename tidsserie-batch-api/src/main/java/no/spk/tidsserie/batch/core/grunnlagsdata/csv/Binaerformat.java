@@ -0,0 +1,126 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link Binaerformat} definerer det binære formatet som {@link BinaerKonverterer} skriv og {@link BinaerInput}
+ * les.
+ * <br>
+ * Begge filene startar med eit magisk tal og ein formatversjon. Alle lengder og antall er koda som
+ * variabel-lengde heiltal (7 bit pr byte, minst signifikante bit først), og alle tekstverdiar er UTF-8-koda og
+ * prefiksa med lengda si i bytes.
+ * <br>
+ * Medlemsdatafila består av ei blokk pr medlem, der medlemmets ID kun er lagra ein gong pr blokk:
+ * <pre>
+ * blokk     = antallRader id rad{antallRader}
+ * rad       = antallKolonner verdi{antallKolonner}
+ * </pre>
+ * der raden sine kolonner ikkje inkluderer medlemmets ID. Fila blir avslutta med ei blokk med 0 rader.
+ * <br>
+ * Referansedatafila består av ferdig tokeniserte rader på samme format som over, der alle kolonnene er med. Fila
+ * blir avslutta med ei rad med 0 kolonner.
+ */
+class Binaerformat {
+    static final String MEDLEMSDATA = "medlemsdata.bin";
+
+    static final String REFERANSEDATA = "referansedata.bin";
+
+    static final String NØKKEL = "nokkel.txt";
+
+    static final int VERSJON = 1;
+
+    private static final int MAGISK_TAL = 0x54534231;
+
+    private Binaerformat() {
+    }
+
+    static void skrivHovud(final OutputStream output) throws IOException {
+        skrivInt(output, MAGISK_TAL);
+        skrivInt(output, VERSJON);
+    }
+
+    static void lesHovud(final InputStream input) throws IOException {
+        final DataInputStream data = new DataInputStream(input);
+        final int magiskTal = data.readInt();
+        final int versjon = data.readInt();
+        if (magiskTal != MAGISK_TAL || versjon != VERSJON) {
+            throw new IOException(
+                    "Ukjent binærformat, forventa versjon " + VERSJON + ", var magisk tal "
+                            + Integer.toHexString(magiskTal) + " og versjon " + versjon
+            );
+        }
+    }
+
+    static void skrivVarint(final OutputStream output, final int verdi) throws IOException {
+        int gjenståande = verdi;
+        while ((gjenståande & ~0x7f) != 0) {
+            output.write((gjenståande & 0x7f) | 0x80);
+            gjenståande >>>= 7;
+        }
+        output.write(gjenståande);
+    }
+
+    static int lesVarint(final InputStream input) throws IOException {
+        int verdi = 0;
+        for (int skift = 0; skift < 32; skift += 7) {
+            final int b = input.read();
+            if (b < 0) {
+                throw new EOFException("Uventa slutt på binærfila");
+            }
+            verdi |= (b & 0x7f) << skift;
+            if ((b & 0x80) == 0) {
+                return verdi;
+            }
+        }
+        throw new IOException("Ugyldig variabel-lengde heiltal i binærfila");
+    }
+
+    static void skrivVerdi(final OutputStream output, final String verdi) throws IOException {
+        final byte[] bytes = verdi.getBytes(StandardCharsets.UTF_8);
+        skrivVarint(output, bytes.length);
+        output.write(bytes);
+    }
+
+    static void skrivRad(final OutputStream output, final List<String> kolonner, final int fraKolonne) throws IOException {
+        skrivVarint(output, kolonner.size() - fraKolonne);
+        for (int i = fraKolonne; i < kolonner.size(); i++) {
+            skrivVerdi(output, kolonner.get(i));
+        }
+    }
+
+    /**
+     * Les ei rad med <code>antallKolonner</code> kolonner og legg eventuelle <code>prefiks</code>-kolonner først.
+     */
+    static List<String> lesRad(final InputStream input, final int antallKolonner, final String... prefiks) throws IOException {
+        final List<String> rad = new ArrayList<>(prefiks.length + antallKolonner);
+        rad.addAll(Arrays.asList(prefiks));
+        for (int i = 0; i < antallKolonner; i++) {
+            rad.add(lesVerdi(input));
+        }
+        return rad;
+    }
+
+    static String lesVerdi(final InputStream input) throws IOException {
+        final int lengde = lesVarint(input);
+        final byte[] bytes = input.readNBytes(lengde);
+        if (bytes.length != lengde) {
+            throw new EOFException("Uventa slutt på binærfila");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void skrivInt(final OutputStream output, final int verdi) throws IOException {
+        output.write(verdi >>> 24);
+        output.write(verdi >>> 16);
+        output.write(verdi >>> 8);
+        output.write(verdi);
+    }
+}
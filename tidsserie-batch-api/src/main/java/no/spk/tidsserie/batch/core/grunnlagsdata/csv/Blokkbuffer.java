@@ -0,0 +1,211 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link Blokkbuffer} overfører bytes frå ein produsent-tråd til ein konsument-tråd via eit fast sett med
+ * gjenbrukbare blokker.
+ * <br>
+ * Produsenten fyller ledige blokker frå ei kjelde via {@link #skrivFrå(InputStream)}, mens konsumenten les dei
+ * fulle blokkene via straumen frå {@link #input()}. Når konsumenten har lest ut ei blokk, går den tilbake til
+ * produsenten. Med to blokker fungerer bufferen dermed som ein klassisk dobbelbuffer, der produsenten fyller den eine
+ * blokka medan konsumenten les den andre.
+ * <br>
+ * Feil som oppstår hos produsenten blir registrert via {@link #feil(Throwable)} og kasta vidare frå straumen når
+ * konsumenten har lest alle blokkene som vart fylt før feilen oppstod.
+ * <br>
+ * Dersom konsumenten lukkar straumen før alt er lest, sluttar produsenten å fylle blokker.
+ */
+class Blokkbuffer {
+    private static final Blokk SLUTT = new Blokk(new byte[0]);
+
+    private final BlockingQueue<Blokk> ledige;
+
+    private final BlockingQueue<Blokk> fulle;
+
+    private volatile boolean lukka;
+
+    Blokkbuffer(final int antallBlokker, final int blokkstorleik) {
+        if (antallBlokker < 1) {
+            throw new IllegalArgumentException("antall blokker må vere eit positivt heiltall større enn 0, var " + antallBlokker);
+        }
+        this.ledige = new ArrayBlockingQueue<>(antallBlokker);
+        this.fulle = new ArrayBlockingQueue<>(antallBlokker + 1);
+        for (int i = 0; i < antallBlokker; i++) {
+            ledige.add(new Blokk(new byte[blokkstorleik]));
+        }
+    }
+
+    /**
+     * Les alle bytes frå <code>kjelde</code> inn i bufferen og markerer deretter bufferen som ferdig skriven.
+     * <br>
+     * Metoda blokkerer så lenge det ikkje er nokon ledige blokker, og returnerer utan å lese resten av kjelda
+     * dersom konsumenten har lukka straumen sin.
+     *
+     * @param kjelde straumen bytane skal lesast frå
+     * @throws IOException dersom lesinga frå <code>kjelde</code> feilar
+     * @throws InterruptedException dersom tråden blir avbroten mens den ventar på ei ledig blokk
+     */
+    void skrivFrå(final InputStream kjelde) throws IOException, InterruptedException {
+        while (true) {
+            final Blokk blokk = ledige.take();
+            if (lukka) {
+                return;
+            }
+            blokk.lengde = kjelde.readNBytes(blokk.data, 0, blokk.data.length);
+            blokk.posisjon = 0;
+            if (blokk.lengde == 0) {
+                ledige.put(blokk);
+                break;
+            }
+            fulle.put(blokk);
+            if (blokk.lengde < blokk.data.length) {
+                break;
+            }
+        }
+        fulle.put(SLUTT);
+    }
+
+    /**
+     * Registrerer at produsenten har feila, konsumenten vil få feilen kasta vidare etter at den har lest ut
+     * alle blokkene som produsenten allereie har fylt.
+     *
+     * @param feil feilen som førte til at produsenten ikkje kunne fullføre
+     */
+    void feil(final Throwable feil) {
+        final Blokk blokk = new Blokk(new byte[0]);
+        blokk.feil = feil;
+        fulle.offer(blokk);
+    }
+
+    /**
+     * Straumen konsumenten les dei fylte blokkene frå.
+     * <br>
+     * Straumen er ikkje trådsikker og er forventa konsumert av ein og samme tråd.
+     *
+     * @return ein straum som les ut innholdet i bufferen
+     */
+    InputStream input() {
+        return new Lesar();
+    }
+
+    private static class Blokk {
+        private final byte[] data;
+        private int lengde;
+        private int posisjon;
+        private Throwable feil;
+
+        Blokk(final byte[] data) {
+            this.data = data;
+        }
+
+        int gjenståande() {
+            return lengde - posisjon;
+        }
+    }
+
+    private class Lesar extends InputStream {
+        private Blokk gjeldande;
+
+        private boolean ferdig;
+
+        @Override
+        public int read() throws IOException {
+            final byte[] enkeltbyte = new byte[1];
+            return read(enkeltbyte, 0, 1) < 0 ? -1 : enkeltbyte[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!nesteBlokk()) {
+                return -1;
+            }
+            final int antall = Math.min(len, gjeldande.gjenståande());
+            System.arraycopy(gjeldande.data, gjeldande.posisjon, b, off, antall);
+            gjeldande.posisjon += antall;
+            return antall;
+        }
+
+        /**
+         * Antall bytes som kan lesast frå gjeldande blokk.
+         * <br>
+         * Dersom gjeldande blokk er lest ut, ventar metoda på at neste blokk blir fylt. Det sikrar at
+         * {@link GZIPInputStream} ikkje tolkar ei blokkgrense som slutten på straumen når fila består av fleire
+         * samankjeda GZIP-medlemmar.
+         */
+        @Override
+        public int available() throws IOException {
+            return nesteBlokk() ? gjeldande.gjenståande() : 0;
+        }
+
+        @Override
+        public void close() {
+            lukka = true;
+            frigi();
+            Blokk blokk;
+            while ((blokk = fulle.poll()) != null) {
+                if (blokk != SLUTT && blokk.feil == null) {
+                    ledige.offer(blokk);
+                }
+            }
+        }
+
+        private boolean nesteBlokk() throws IOException {
+            if (gjeldande != null && gjeldande.gjenståande() > 0) {
+                return true;
+            }
+            frigi();
+            if (ferdig || lukka) {
+                return false;
+            }
+            final Blokk blokk = ta();
+            if (blokk == SLUTT) {
+                ferdig = true;
+                return false;
+            }
+            if (blokk.feil != null) {
+                ferdig = true;
+                kast(blokk.feil);
+            }
+            gjeldande = blokk;
+            return true;
+        }
+
+        private void frigi() {
+            if (gjeldande != null) {
+                ledige.offer(gjeldande);
+                gjeldande = null;
+            }
+        }
+
+        private Blokk ta() throws IOException {
+            try {
+                return fulle.take();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Innlesinga vart avbroten", e);
+            }
+        }
+
+        private void kast(final Throwable feil) throws IOException {
+            if (feil instanceof IOException) {
+                throw (IOException) feil;
+            }
+            if (feil instanceof RuntimeException) {
+                throw (RuntimeException) feil;
+            }
+            if (feil instanceof Error) {
+                throw (Error) feil;
+            }
+            throw new UncheckedIOException(new IOException(feil));
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+
+import no.spk.tidsserie.batch.core.grunnlagsdata.UgyldigUttrekkException;
+
+/**
+ * {@link BlokkgzipCsvfil} les ei GZIP-komprimert CSV-fil som består av mange sjølvstendige GZIP-blokker etter
+ * kvarandre, slik som filer komprimert med <code>bgzip</code>, og som har ein blokkindeks liggande ved sida av seg.
+ * <br>
+ * Blokkindeksen har samme namn som fila med endinga <code>.gzi</code> i tillegg, og samme format som indeksane
+ * <code>bgzip --index</code> lagar: antall oppføringar etterfølgt av komprimert og ukomprimert startposisjon for
+ * alle blokker bortsett frå den første, alle som 64-bits heiltal i little endian. Sidan kvar blokk er ein
+ * komplett GZIP-straum, kan dekomprimeringa starte på ein vilkårlig blokk.
+ * <br>
+ * Fila kan dermed delast opp i fleire {@link Del delar} via {@link #del(int)}, som kvar kan dekomprimerast og
+ * parsast av ein eigen tråd. Delane startar og sluttar som standard alltid på ei linjegrense der første kolonne
+ * endrar verdi, slik at alle linjer som tilhøyrer eit og samme medlem hamnar i samme del, så lenge medlemmets linjer
+ * ligg etter kvarandre i fila. Referansedata kan i staden delast opp på vilkårlige linjegrenser via
+ * {@link #del(int, Delingsgrense)}.
+ * <br>
+ * Fila er framleis ei gyldig GZIP-fil og kan lesast sekvensielt som før, utan blokkindeksen.
+ * <br>
+ * Linjer som startar med <code>#</code> blir behandla som kommentarar og hoppa over. Linjer kan avsluttast med
+ * <code>\n</code> eller <code>\r\n</code>.
+ */
+class BlokkgzipCsvfil {
+    static final String INDEKSENDING = ".gzi";
+
+    private static final long STANDARD_MINSTE_DELSTORLEIK = 4 * 1024 * 1024;
+
+    private static final int KOLONNESEPARATOR = ';';
+    private static final int LINJESKIFT = '\n';
+    private static final int VOGNRETUR = '\r';
+
+    private static final int BUFFERSTORLEIK = 64 * 1024;
+
+    private final Path fil;
+
+    private final long minsteDelstorleik;
+
+    BlokkgzipCsvfil(final Path fil) {
+        this(fil, STANDARD_MINSTE_DELSTORLEIK);
+    }
+
+    BlokkgzipCsvfil(final Path fil, final long minsteDelstorleik) {
+        this.fil = requireNonNull(fil, "fil er påkrevd, men var null");
+        this.minsteDelstorleik = minsteDelstorleik;
+    }
+
+    /**
+     * Har <code>fil</code> ein blokkindeks slik at den kan delast opp i fleire delar?
+     *
+     * @param fil fila som skal sjekkast
+     * @return <code>true</code> dersom fila er GZIP-komprimert og har ein blokkindeks ved sida av seg,
+     * <code>false</code> ellers
+     */
+    static boolean harIndeks(final Path fil) {
+        return fil.getFileName().toString().endsWith(".gz") && Files.isRegularFile(indeksfil(fil));
+    }
+
+    private static Path indeksfil(final Path fil) {
+        return fil.resolveSibling(fil.getFileName() + INDEKSENDING);
+    }
+
+    /**
+     * Deler opp fila i inntil <code>ønskaAntallDelar</code> delar av omtrent lik komprimert storleik, der grensene
+     * mellom delane går mellom to medlemmar.
+     *
+     * @param ønskaAntallDelar ønska antall delar, typisk lik antall trådar som skal lese inn fila
+     * @return delane fila består av, i samme rekkefølge som i fila
+     * @throws UncheckedIOException dersom lesinga av fila feilar
+     * @throws UgyldigUttrekkException dersom blokkindeksen er ugyldig
+     * @see #del(int, Delingsgrense)
+     */
+    List<Del> del(final int ønskaAntallDelar) {
+        return del(ønskaAntallDelar, Delingsgrense.MEDLEM);
+    }
+
+    /**
+     * Deler opp fila i inntil <code>ønskaAntallDelar</code> delar av omtrent lik komprimert storleik.
+     * <br>
+     * Fila blir ikkje delt opp i delar som er mindre enn 4MB komprimert som standard. Kandidatgrensene blir lagt
+     * på starten av ei blokk, og deretter flytta fram til første gyldige <code>grense</code>, ved å dekomprimere
+     * fila rundt kandidatgrensa.
+     *
+     * @param ønskaAntallDelar ønska antall delar, typisk lik antall trådar som skal lese inn fila
+     * @param grense kva slags linjegrenser delane kan starte og slutte på
+     * @return delane fila består av, i samme rekkefølge som i fila
+     * @throws UncheckedIOException dersom lesinga av fila feilar
+     * @throws UgyldigUttrekkException dersom blokkindeksen er ugyldig
+     */
+    List<Del> del(final int ønskaAntallDelar, final Delingsgrense grense) {
+        requireNonNull(grense, "grense er påkrevd, men var null");
+        try {
+            final long storleik = Files.size(fil);
+            final Blokkindeks indeks = Blokkindeks.les(indeksfil(fil), storleik);
+            final long antallDelar = Math.max(1, Math.min(ønskaAntallDelar, storleik / minsteDelstorleik));
+
+            final List<Long> grenser = new ArrayList<>();
+            grenser.add(0L);
+            for (long del = 1; del < antallDelar; del++) {
+                final long kandidat = indeks.ukomprimertStart(indeks.førsteBlokkFrå(storleik * del / antallDelar));
+                if (kandidat <= grenser.get(grenser.size() - 1)) {
+                    continue;
+                }
+                final long neste = nesteGrense(indeks, kandidat, grense);
+                if (neste < 0) {
+                    break;
+                }
+                if (neste > grenser.get(grenser.size() - 1)) {
+                    grenser.add(neste);
+                }
+            }
+
+            final List<Del> delar = new ArrayList<>();
+            for (int i = 0; i < grenser.size(); i++) {
+                final long start = grenser.get(i);
+                final long lengde = i + 1 < grenser.size() ? grenser.get(i + 1) - start : Long.MAX_VALUE;
+                delar.add(new Del(fil, indeks, start, lengde));
+            }
+            return delar;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Finn starten på den første linja ved eller etter <code>posisjon</code> som er ei gyldig <code>grense</code>,
+     * eller <code>-1</code> dersom fila sluttar før det.
+     * <br>
+     * For {@link Delingsgrense#MEDLEM} er det første linja der første kolonne er forskjellig frå første kolonne på
+     * linja før, for {@link Delingsgrense#LINJE} er det første linja som startar ved eller etter posisjonen.
+     */
+    private long nesteGrense(final Blokkindeks indeks, final long posisjon, final Delingsgrense grense) throws IOException {
+        try (final Posisjonslesar lesar = new Posisjonslesar(åpne(fil, indeks, posisjon - 1), posisjon - 1)) {
+            if (!lesar.hoppOverLinje()) {
+                return -1;
+            }
+            if (grense == Delingsgrense.LINJE) {
+                return lesar.posisjon();
+            }
+            final byte[] forrige = lesar.førsteKolonne();
+            while (true) {
+                if (!lesar.hoppOverLinje()) {
+                    return -1;
+                }
+                final long linjestart = lesar.posisjon();
+                if (!Arrays.equals(forrige, lesar.førsteKolonne())) {
+                    return linjestart;
+                }
+            }
+        }
+    }
+
+    /**
+     * Åpnar ein straum med dei dekomprimerte dataene frå og med den ukomprimerte <code>posisjon</code>, ved å
+     * starte dekomprimeringa på blokka som inneheld posisjonen.
+     */
+    private static InputStream åpne(final Path fil, final Blokkindeks indeks, final long posisjon) throws IOException {
+        final int blokk = indeks.blokkMed(posisjon);
+        final InputStream komprimert = Files.newInputStream(fil);
+        try {
+            komprimert.skipNBytes(indeks.komprimertStart(blokk));
+            final InputStream input = new GZIPInputStream(
+                    new BufferedInputStream(komprimert, BUFFERSTORLEIK),
+                    BUFFERSTORLEIK
+            );
+            input.skipNBytes(posisjon - indeks.ukomprimertStart(blokk));
+            return input;
+        } catch (final IOException e) {
+            komprimert.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Ein sammenhengande del av ei blokkvis komprimert CSV-fil, som startar og sluttar på ei linjegrense.
+     * <br>
+     * Delen blir først dekomprimert når radene blir lest.
+     */
+    static class Del {
+        private final Path fil;
+        private final Blokkindeks indeks;
+        private final long start;
+        private final long lengde;
+
+        Del(final Path fil, final Blokkindeks indeks, final long start, final long lengde) {
+            this.fil = fil;
+            this.indeks = indeks;
+            this.start = start;
+            this.lengde = lengde;
+        }
+
+        /**
+         * Dekomprimerer og parsar linjene i delen etter kvart som straumen blir konsumert.
+         *
+         * @return ein straum med kolonneverdiane til kvar linje i delen
+         * @throws UncheckedIOException dersom lesinga av fila feilar
+         */
+        Stream<List<String>> rader() {
+            final CsvTokenizer tokenizer;
+            try {
+                tokenizer = new CsvTokenizer(new Avgrensa(åpne(fil, indeks, start), lengde));
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return StreamSupport
+                    .stream(
+                            new Spliterators.AbstractSpliterator<List<String>>(
+                                    Long.MAX_VALUE,
+                                    Spliterator.ORDERED | Spliterator.NONNULL
+                            ) {
+                                @Override
+                                public boolean tryAdvance(final Consumer<? super List<String>> action) {
+                                    try {
+                                        if (!tokenizer.neste()) {
+                                            return false;
+                                        }
+                                    } catch (final IOException e) {
+                                        throw new UncheckedIOException(e);
+                                    }
+                                    action.accept(tokenizer.rad().somListe());
+                                    return true;
+                                }
+                            },
+                            false
+                    )
+                    .onClose(() -> {
+                        try {
+                            tokenizer.close();
+                        } catch (final IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        }
+
+        @Override
+        public String toString() {
+            return fil + "[" + start + ", " + (lengde == Long.MAX_VALUE ? "slutt" : start + lengde) + ")";
+        }
+    }
+
+    /**
+     * Komprimert og ukomprimert startposisjon for alle blokkene i fila, inkludert den første.
+     */
+    static class Blokkindeks {
+        private final long[] komprimert;
+        private final long[] ukomprimert;
+
+        private Blokkindeks(final long[] komprimert, final long[] ukomprimert) {
+            this.komprimert = komprimert;
+            this.ukomprimert = ukomprimert;
+        }
+
+        static Blokkindeks les(final Path indeksfil, final long storleik) throws IOException {
+            final ByteBuffer data = ByteBuffer
+                    .wrap(Files.readAllBytes(indeksfil))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            final long antall = data.remaining() >= Long.BYTES ? data.getLong() : -1;
+            if (antall < 0 || antall != data.remaining() / (2L * Long.BYTES) || data.remaining() % (2 * Long.BYTES) != 0) {
+                throw new UgyldigUttrekkException(
+                        "Blokkindeksen " + indeksfil + " er ugyldig, storleiken stemmer ikkje med antall oppføringar"
+                );
+            }
+            final long[] komprimert = new long[(int) antall + 1];
+            final long[] ukomprimert = new long[(int) antall + 1];
+            for (int i = 1; i <= antall; i++) {
+                komprimert[i] = data.getLong();
+                ukomprimert[i] = data.getLong();
+                if (komprimert[i] <= komprimert[i - 1] || komprimert[i] >= storleik || ukomprimert[i] < ukomprimert[i - 1]) {
+                    throw new UgyldigUttrekkException(
+                            "Blokkindeksen " + indeksfil + " er ugyldig, oppføring " + i
+                                    + " peikar ikkje til ei blokk etter forrige oppføring"
+                    );
+                }
+            }
+            return new Blokkindeks(komprimert, ukomprimert);
+        }
+
+        int førsteBlokkFrå(final long komprimertPosisjon) {
+            final int indeks = Arrays.binarySearch(komprimert, komprimertPosisjon);
+            return Math.min(indeks >= 0 ? indeks : -indeks - 1, komprimert.length - 1);
+        }
+
+        int blokkMed(final long ukomprimertPosisjon) {
+            int blokk = 0;
+            int fra = 1;
+            int til = ukomprimert.length - 1;
+            while (fra <= til) {
+                final int midt = (fra + til) >>> 1;
+                if (ukomprimert[midt] <= ukomprimertPosisjon) {
+                    blokk = midt;
+                    fra = midt + 1;
+                } else {
+                    til = midt - 1;
+                }
+            }
+            return blokk;
+        }
+
+        long komprimertStart(final int blokk) {
+            return komprimert[blokk];
+        }
+
+        long ukomprimertStart(final int blokk) {
+            return ukomprimert[blokk];
+        }
+    }
+
+    /**
+     * Les dei dekomprimerte dataene byte for byte rundt ei kandidatgrense og held styr på posisjonen.
+     */
+    private static class Posisjonslesar implements AutoCloseable {
+        private final InputStream input;
+        private long posisjon;
+        private int neste;
+
+        Posisjonslesar(final InputStream input, final long posisjon) throws IOException {
+            this.input = new BufferedInputStream(input, BUFFERSTORLEIK);
+            this.posisjon = posisjon;
+            this.neste = this.input.read();
+        }
+
+        long posisjon() {
+            return posisjon;
+        }
+
+        /**
+         * Hoppar fram til starten på neste linje.
+         *
+         * @return <code>false</code> dersom fila sluttar før neste linje startar
+         */
+        boolean hoppOverLinje() throws IOException {
+            while (neste >= 0) {
+                final int b = les();
+                if (b == LINJESKIFT) {
+                    return neste >= 0;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Les første kolonne på linja som startar på gjeldande posisjon, utan å gå forbi slutten av linja.
+         */
+        byte[] førsteKolonne() throws IOException {
+            final ByteArrayOutputStream kolonne = new ByteArrayOutputStream();
+            while (neste >= 0 && neste != KOLONNESEPARATOR && neste != LINJESKIFT && neste != VOGNRETUR) {
+                kolonne.write(les());
+            }
+            return kolonne.toByteArray();
+        }
+
+        private int les() throws IOException {
+            final int b = neste;
+            neste = input.read();
+            posisjon++;
+            return b;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+
+    /**
+     * Avgrensar ein straum til eit gitt antall bytes.
+     */
+    private static class Avgrensa extends FilterInputStream {
+        private long gjenståande;
+
+        Avgrensa(final InputStream input, final long lengde) {
+            super(input);
+            this.gjenståande = lengde;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (gjenståande <= 0) {
+                return -1;
+            }
+            final int b = super.read();
+            if (b >= 0) {
+                gjenståande--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (gjenståande <= 0) {
+                return -1;
+            }
+            final int antallLest = super.read(b, off, (int) Math.min(len, gjenståande));
+            if (antallLest > 0) {
+                gjenståande -= antallLest;
+            }
+            return antallLest;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            final long hoppaOver = super.skip(Math.min(n, gjenståande));
+            gjenståande -= hoppaOver;
+            return hoppaOver;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), gjenståande);
+        }
+    }
+}
@@ -18,12 +18,18 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.function.Function;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 import java.util.zip.GZIPInputStream;
 
+import no.spk.tidsserie.batch.core.grunnlagsdata.CsvRad;
 import no.spk.tidsserie.batch.core.grunnlagsdata.GrunnlagsdataRepository;
 import no.spk.tidsserie.tidsperiode.Tidsperiode;
 
@@ -45,6 +51,8 @@ import no.spk.tidsserie.tidsperiode.Tidsperiode;
  * Medlemsdata kan lesast frå fila medlemsdata.csv.gz i tenestas innkatalog. Det er støtte for at medlemsdata.csv.gz er
  * partisjonert på fleire filer så lenge dei startar med medlemsdata. Når ein jobbar med partisjonerte medlemsdata vil ein
  * kunne gruppere desse ved å leggje dei i ein eigjen katalog med namnet medlemsdata i tenestas innkatalog.
+ * Ei stor medlemsdatafil kan også vere komprimert blokkvis med <code>bgzip</code>, med blokkindeksen
+ * medlemsdata.csv.gz.gzi ved sida av seg, slik at den kan lesast inn parallelt.
  * Alle andre filer av type csv.gz forventast å tilhøyre {@link #referansedata() referansedata}-kategorien og blir
  * forventa å inneholde {@link Tidsperiode tidsperioder} av forskjelliger typer.
  */
@@ -53,10 +61,20 @@ public class CSVInput implements GrunnlagsdataRepository {
 
     private final List<CsvOversetter<? extends Tidsperiode<?>>> oversettere = new ArrayList<>();
 
+    private final Map<CsvOversetter<?>, LongAdder> antallOversettingar = new IdentityHashMap<>();
+
     private final Charset dataencoding = Charset.forName("UTF-8");
 
     private final Path directory;
 
+    private int antallTrådarForMedlemsdata = 1;
+
+    private int antallTrådarForReferansedata = 1;
+
+    private boolean pipelinertInnlesing;
+
+    private boolean minnekartaInnlesing;
+
     /**
      * Konstruerer ei ny teneste som forventar å finne referanse- og medlemsdata i csv.gz-filer lagra direkte under den
      * angitte katalogen.
@@ -78,6 +96,7 @@ public class CSVInput implements GrunnlagsdataRepository {
      */
     public CSVInput addOversettere(final CsvOversetter<?> oversetter) {
         this.oversettere.add(oversetter);
+        this.antallOversettingar.computeIfAbsent(oversetter, o -> new LongAdder());
         return this;
     }
 
@@ -94,18 +113,164 @@ public class CSVInput implements GrunnlagsdataRepository {
         return this;
     }
 
+    /**
+     * Antall linjer med referansedata som kvar av oversetterane har oversatt til tidsperioder, sidan tenesta vart
+     * oppretta.
+     * <br>
+     * Statistikken gir oversikt over samansetjinga av referansedataene og kan hentast ut både undervegs og etter at
+     * {@link #referansedata()} er ferdig konsumert.
+     *
+     * @return antall oversatte linjer pr oversetter, i samme rekkefølge som oversetterane vart lagt til
+     */
+    public Map<CsvOversetter<?>, Long> antallOversettingar() {
+        final Map<CsvOversetter<?>, Long> statistikk = new LinkedHashMap<>();
+        oversettere.forEach(oversetter -> statistikk.put(oversetter, antallOversettingar.get(oversetter).sum()));
+        return statistikk;
+    }
+
+    /**
+     * Aktiverer parallell innlesing av medlemsdata der kvar medlemsdatafil blir lest inn og dekomprimert på
+     * ein eigen tråd.
+     * <br>
+     * Radene frå dei forskjellige filene blir fletta saman i ikkje-deterministisk rekkefølge, men alle rader som
+     * tilhøyrer eit medlem i ei og samme fil vil alltid kome etter kvarandre i straumen frå {@link #medlemsdata()}.
+     * <br>
+     * Parallell innlesing gir kun gevinst når uttrekket er partisjonert på fleire medlemsdatafiler, eller når ei
+     * stor medlemsdatafil er blokkvis komprimert med ein blokkindeks ved sida av seg, sjå {@link BlokkgzipCsvfil}.
+     * Slike filer blir delt opp i fleire delar som blir dekomprimert på kvar sin tråd. Delane blir alltid delt på
+     * ei grense mellom to medlemmar, slik at alle radene til eit medlem framleis kjem etter kvarandre.
+     *
+     * @param antallTrådar maksimalt antall trådar som skal benyttast til innlesing av medlemsdatafilene
+     * @return <code>this</code>
+     * @throws IllegalArgumentException dersom <code>antallTrådar</code> er mindre enn 1
+     * @see #medlemsdata()
+     */
+    public CSVInput parallelliserInnlesingAvMedlemsdata(final int antallTrådar) {
+        if (antallTrådar < 1) {
+            throw new IllegalArgumentException("antall trådar må vere eit positivt heiltall større enn 0, var " + antallTrådar);
+        }
+        this.antallTrådarForMedlemsdata = antallTrådar;
+        return this;
+    }
+
+    /**
+     * Aktiverer parallell innlesing av referansedata der kvar referansedatafil blir lest inn, dekomprimert og
+     * oversatt til tidsperioder på ein eigen tråd.
+     * <br>
+     * Tidsperiodene i straumen frå {@link #referansedata()} kjem i samme rekkefølge som ved sekvensiell innlesing.
+     * Alle {@link CsvOversetter oversettere} må vere trådsikre når parallell innlesing er aktivert.
+     * <br>
+     * Parallell innlesing gir kun gevinst når referansedataene er fordelt på fleire filer.
+     *
+     * @param antallTrådar maksimalt antall trådar som skal benyttast til innlesing av referansedatafilene
+     * @return <code>this</code>
+     * @throws IllegalArgumentException dersom <code>antallTrådar</code> er mindre enn 1
+     * @see #referansedata()
+     */
+    public CSVInput parallelliserInnlesingAvReferansedata(final int antallTrådar) {
+        if (antallTrådar < 1) {
+            throw new IllegalArgumentException("antall trådar må vere eit positivt heiltall større enn 0, var " + antallTrådar);
+        }
+        this.antallTrådarForReferansedata = antallTrådar;
+        return this;
+    }
+
+    /**
+     * Aktiverer pipelina innlesing av filene, der disklesing og dekomprimering skjer på eigne bakgrunnstrådar mens
+     * tråden som konsumerer straumane frå {@link #medlemsdata()} og {@link #referansedata()} parsar radene.
+     * <br>
+     * Neste fil blir forhandslest mens den gjeldande blir parsa, og dei dekomprimerte dataene blir overlevert til
+     * parseren via ein avgrensa dobbelbuffer. Rekkefølga på radene blir ikkje påverka.
+     * <br>
+     * Pipelina innlesing blir ikkje brukt når {@link #parallelliserInnlesingAvMedlemsdata(int) parallell innlesing
+     * av medlemsdata} eller {@link #parallelliserInnlesingAvReferansedata(int) parallell innlesing av referansedata}
+     * er aktivert, der blir kvar fil allereie lest inn på ein eigen tråd.
+     *
+     * @return <code>this</code>
+     */
+    public CSVInput pipelinerInnlesing() {
+        this.pipelinertInnlesing = true;
+        return this;
+    }
+
+    /**
+     * Aktiverer minnekarta innlesing av ukomprimerte CSV-filer via {@link java.nio.channels.FileChannel#map}.
+     * <br>
+     * Innholdet i filene blir då lest direkte frå operativsystemets sidebuffer utan å bli kopiert gjennom
+     * {@link InputStream}/{@link java.io.Reader} først, og linjene blir splitta opp i kolonner direkte frå bytane.
+     * <br>
+     * Ved {@link #parallelliserInnlesingAvMedlemsdata(int) parallell innlesing av medlemsdata} eller
+     * {@link #parallelliserInnlesingAvReferansedata(int) referansedata} blir store ukomprimerte filer i tillegg delt
+     * opp i fleire delar som blir parsa på kvar sin tråd. Delane blir alltid delt på ei grense mellom to medlemmar,
+     * slik at alle radene til eit medlem framleis kjem etter kvarandre.
+     * <br>
+     * Komprimerte filer blir lest inn som før.
+     *
+     * @return <code>this</code>
+     */
+    public CSVInput minnekartUkomprimerteFiler() {
+        this.minnekartaInnlesing = true;
+        return this;
+    }
+
     @Override
     public Stream<List<String>> medlemsdata() {
-        return medlemsdataFiler()
-                .flatMap(this::readLinesFrom);
+        if (antallTrådarForMedlemsdata > 1) {
+            return new ParallellMedlemsdatainnlesing(
+                    kjelder(medlemsdataFiler(), Delingsgrense.MEDLEM, antallTrådarForMedlemsdata),
+                    antallTrådarForMedlemsdata
+            )
+                    .medlemsdata();
+        }
+        return lesLinjer(medlemsdataFiler(), Delingsgrense.MEDLEM);
+    }
+
+    /**
+     * Leser inn alle medlemsdatafilene via {@link CsvTokenizer}, som splittar linjene opp i kolonner direkte frå
+     * dei dekomprimerte bytane utan å materialisere linjene som {@link String} eller {@link List}.
+     * <br>
+     * Dersom {@link #parallelliserInnlesingAvMedlemsdata(int) parallell innlesing} er aktivert, blir radene
+     * materialisert på arbeidstrådane og deretter overlevert til <code>konsument</code> via
+     * {@link CsvRad#rad(List)}.
+     *
+     * @param konsument mottar ei radvisning pr linje med medlemsdata
+     * @throws UncheckedIOException {@inheritDoc}
+     */
+    @Override
+    public void medlemsdata(final Consumer<? super CsvRad> konsument) {
+        if (antallTrådarForMedlemsdata > 1) {
+            GrunnlagsdataRepository.super.medlemsdata(konsument);
+            return;
+        }
+        if (minnekartaInnlesing) {
+            medlemsdataFiler().forEach(fil -> {
+                if (erUkomprimert(fil)) {
+                    new MinnekartaCsvfil(fil).del(1).forEach(del -> del.tokeniser(konsument));
+                } else {
+                    tokeniser(openUnchecked(fil), konsument);
+                }
+            });
+            return;
+        }
+        try (final Stream<InputStream> filer = åpne(medlemsdataFiler())) {
+            filer.forEach(fil -> tokeniser(fil, konsument));
+        }
     }
 
     @Override
     public Stream<Tidsperiode<?>> referansedata() {
         try {
-            return referansedataFiler()
-                    .flatMap(this::readLinesFrom)
-                    .flatMap(this::oversettLinje);
+            final Oversettartabell tabell = new Oversettartabell(oversettere, antallOversettingar::get);
+            if (antallTrådarForReferansedata > 1) {
+                return new ParallellReferansedatainnlesing(
+                        kjelder(referansedataFiler(), Delingsgrense.LINJE, antallTrådarForReferansedata),
+                        tabell::oversett,
+                        antallTrådarForReferansedata
+                )
+                        .referansedata();
+            }
+            return lesLinjer(referansedataFiler(), Delingsgrense.LINJE)
+                    .flatMap(tabell::oversett);
         } catch (final IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -117,6 +282,8 @@ public class CSVInput implements GrunnlagsdataRepository {
      * Referansedatafiler blir plukka basert på at dei har filending <code>csv.gz</code> og ikkje har filnavn
      * medlemsdata.csv.gz.
      * <br>
+     * Filene blir returnert sortert på filnavn, slik at rekkefølga på referansedataene blir den samme uavhengig av
+     * filsystemet.
      *
      * @return ein straum med stien til alle referansedatafiler generert av faktura-grunnlagsdata-batch
      * @throws IOException dersom ein uvent I/O-feil oppstår under utlisting av filene
@@ -126,7 +293,8 @@ public class CSVInput implements GrunnlagsdataRepository {
                 .list(directory)
                 .filter(path -> path.toString().endsWith("csv.gz") || path.toString().endsWith(".csv"))
                 .filter(path -> !path.toFile().getName().startsWith("medlemsdata.csv"))
-                .peek(DuplisertCSVFilException::sjekkForDuplikat)) {
+                .peek(DuplisertCSVFilException::sjekkForDuplikat)
+                .sorted()) {
             return filer.toList().stream();
         }
     }
@@ -153,30 +321,98 @@ public class CSVInput implements GrunnlagsdataRepository {
         }
     }
 
+    /**
+     * Åpnar ein straum som leser inn alle rader frå alle referansedatafilene, utan å oversette dei til tidsperioder.
+     *
+     * @return ein straum med radene frå alle referansedatafilene, i samme rekkefølge som {@link #referansedata()}
+     * @throws UncheckedIOException dersom ein uvent I/O-feil oppstår under utlisting av filene
+     */
+    Stream<List<String>> referanserader() {
+        try {
+            return lesLinjer(referansedataFiler(), Delingsgrense.LINJE);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private static boolean erMedlemsdataFil(final File fil) {
         final Pattern regex = Pattern.compile("^medlemsdata(\\d+(-.+)?)?\\.csv(\\.gz)?$");
         return regex.matcher(fil.getName()).find();
     }
 
-    private Stream<? extends Tidsperiode<?>> oversettLinje(final List<String> linje) {
-        // Kan ikkje inlinast i 1.8.0_11 på grunn av type-inference feil ved kompilering
-        final Function<CsvOversetter<? extends Tidsperiode<?>>, ? extends Tidsperiode<?>> mapper =
-                oversetter -> oversetter.oversett(linje);
-        return oversettere
-                .stream()
-                .filter(oversetter -> oversetter.supports(linje))
-                .map(mapper);
+    private Stream<List<String>> lesLinjer(final Stream<Path> filer, final Delingsgrense grense) {
+        if (minnekartaInnlesing) {
+            return filer.flatMap(fil -> {
+                if (erUkomprimert(fil)) {
+                    return new MinnekartaCsvfil(fil)
+                            .del(1, grense)
+                            .stream()
+                            .flatMap(MinnekartaCsvfil.Del::rader);
+                }
+                return lesLinjerUtanMinnekartlegging(Stream.of(fil));
+            });
+        }
+        return lesLinjerUtanMinnekartlegging(filer);
+    }
+
+    private Stream<List<String>> lesLinjerUtanMinnekartlegging(final Stream<Path> filer) {
+        return åpne(filer).flatMap(this::readLinesFrom);
+    }
+
+    private List<Supplier<Stream<List<String>>>> kjelder(
+            final Stream<Path> filer,
+            final Delingsgrense grense,
+            final int antallTrådar
+    ) {
+        return filer
+                .flatMap(fil -> {
+                    if (minnekartaInnlesing && erUkomprimert(fil)) {
+                        return new MinnekartaCsvfil(fil)
+                                .del(antallTrådar, grense)
+                                .stream()
+                                .map(del -> (Supplier<Stream<List<String>>>) del::rader);
+                    }
+                    if (BlokkgzipCsvfil.harIndeks(fil)) {
+                        return new BlokkgzipCsvfil(fil)
+                                .del(antallTrådar, grense)
+                                .stream()
+                                .map(del -> (Supplier<Stream<List<String>>>) del::rader);
+                    }
+                    return Stream.of((Supplier<Stream<List<String>>>) () -> readLinesFrom(fil));
+                })
+                .toList();
+    }
+
+    private static boolean erUkomprimert(final Path fil) {
+        return fil.getFileName().toString().endsWith(".csv");
+    }
+
+    private Stream<InputStream> åpne(final Stream<Path> filer) {
+        if (pipelinertInnlesing) {
+            return new PipelinetInnlesing(filer.toList()).filer();
+        }
+        return filer.map(CSVInput::openUnchecked);
     }
 
     private Stream<List<String>> readLinesFrom(final Path fil) {
-        try {
-            final BufferedReader reader = openReader(fil);
-            return reader
-                    .lines()
-                    .onClose(closeOnCompletion(reader))
-                    .filter(this::erGrunnlagsdatalinje)
-                    .map(line -> line.split(";", DO_NOT_STRIP_TRAILING_SEPARATORS))
-                    .map(Arrays::asList);
+        return readLinesFrom(openUnchecked(fil));
+    }
+
+    private Stream<List<String>> readLinesFrom(final InputStream input) {
+        final BufferedReader reader = openReader(input);
+        return reader
+                .lines()
+                .onClose(closeOnCompletion(reader))
+                .filter(this::erGrunnlagsdatalinje)
+                .map(line -> line.split(";", DO_NOT_STRIP_TRAILING_SEPARATORS))
+                .map(Arrays::asList);
+    }
+
+    private static void tokeniser(final InputStream input, final Consumer<? super CsvRad> konsument) {
+        try (final CsvTokenizer tokenizer = new CsvTokenizer(input)) {
+            while (tokenizer.neste()) {
+                konsument.accept(tokenizer.rad());
+            }
         } catch (final IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -190,10 +426,10 @@ public class CSVInput implements GrunnlagsdataRepository {
         return line.startsWith("#");
     }
 
-    private BufferedReader openReader(final Path path) throws IOException {
+    private BufferedReader openReader(final InputStream input) {
         return new BufferedReader(
                 new InputStreamReader(
-                        open(path),
+                        input,
                         dataencoding
                 )
         );
@@ -209,6 +445,14 @@ public class CSVInput implements GrunnlagsdataRepository {
         };
     }
 
+    private static InputStream openUnchecked(final Path path) {
+        try {
+            return open(path);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private static InputStream open(final Path path) throws IOException {
         final File file = sjekkForDuplikat(path).toFile();
         final BufferedInputStream input = new BufferedInputStream(
@@ -1,6 +1,7 @@
 package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
 
 import java.util.List;
+import java.util.Optional;
 
 import no.spk.tidsserie.tidsperiode.Tidsperiode;
 
@@ -43,4 +44,20 @@ public interface CsvOversetter<T extends Tidsperiode<?>> {
      * med tilhøyrande verdiar henta ut frå <code>rad</code>
      */
     T oversett(List<String> rad);
+
+    /**
+     * Typeindikatoren som alle rader oversetteren støttar, har i første kolonne.
+     * <br>
+     * Oversetterar som deklarerer ein typeindikator, vil kun bli spurt om dei {@link #supports(List) støttar}
+     * rader der første kolonne inneheld typeindikatoren. {@link CSVInput} kan dermed rute kvar rad direkte til
+     * oversetterane for radas type, i staden for å spørje alle oversetterane etter tur.
+     * <br>
+     * Oversetterar som ikkje deklarerer nokon typeindikator, blir spurt om alle rader.
+     *
+     * @return typeindikatoren til radene oversetteren støttar, eller {@link Optional#empty()} dersom oversetteren
+     * ikkje kan avgjere kva rader den støttar basert på første kolonne
+     */
+    default Optional<String> typeindikator() {
+        return Optional.empty();
+    }
 }
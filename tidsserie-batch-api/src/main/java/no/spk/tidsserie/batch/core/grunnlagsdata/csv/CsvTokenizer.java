@@ -0,0 +1,139 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import no.spk.tidsserie.batch.core.grunnlagsdata.CsvRad;
+
+/**
+ * {@link CsvTokenizer} splittar UTF-8-koda CSV-data opp i rader og kolonner direkte på bytenivå, utan å dekode
+ * innholdet til {@link String} først.
+ * <br>
+ * Tokenizeren leser blokkvis frå straumen inn i ein intern buffer og finn linjeskift og kolonneseparatorar ved å
+ * skanne bufferen. Kvar rad blir presentert via ei og samme {@link CsvRad radvisning}, som kun held på start- og
+ * sluttposisjonen til kvar kolonne i bufferen. Kolonneverdiane blir først materialisert når konsumenten ber om dei.
+ * Ingen objekt blir dermed allokert pr rad eller pr kolonne, med mindre konsumenten sjølv ber om det.
+ * <br>
+ * Linjer som startar med <code>#</code> blir behandla som kommentarar og hoppa over. Linjer kan avsluttast med
+ * <code>\n</code> eller <code>\r\n</code>.
+ * <br>
+ * Radvisninga som {@link #rad()} returnerer er kun gyldig fram til neste kall til {@link #neste()}.
+ */
+class CsvTokenizer implements Closeable {
+    private static final byte LINJESKIFT = '\n';
+    private static final byte VOGNRETUR = '\r';
+    private static final byte KOMMENTAR = '#';
+
+    private static final int STANDARD_BUFFERSTORLEIK = 64 * 1024;
+
+    private final Radvisning rad = new Radvisning();
+
+    private final InputStream input;
+
+    private byte[] buffer;
+
+    private ByteBuffer data;
+
+    private int posisjon;
+
+    private int slutt;
+
+    private int skannaTil;
+
+    private boolean ferdigLest;
+
+    CsvTokenizer(final InputStream input) {
+        this(input, STANDARD_BUFFERSTORLEIK);
+    }
+
+    CsvTokenizer(final InputStream input, final int bufferstorleik) {
+        this.input = requireNonNull(input, "input er påkrevd, men var null");
+        this.buffer = new byte[bufferstorleik];
+        this.data = ByteBuffer.wrap(buffer);
+    }
+
+    /**
+     * Les inn neste rad som ikkje er ein kommentar og gjer den tilgjengelig via {@link #rad()}.
+     *
+     * @return <code>true</code> dersom ei ny rad vart lest inn, <code>false</code> dersom det ikkje er fleire rader igjen
+     * @throws IOException dersom lesinga frå straumen feilar
+     */
+    boolean neste() throws IOException {
+        while (true) {
+            final int linjeskift = finnLinjeskift();
+            final int linjeslutt;
+            if (linjeskift >= 0) {
+                linjeslutt = linjeskift;
+            } else if (!ferdigLest) {
+                fyllBuffer();
+                continue;
+            } else if (posisjon < slutt) {
+                linjeslutt = slutt;
+            } else {
+                return false;
+            }
+
+            final int start = posisjon;
+            final int ende = linjeslutt > start && buffer[linjeslutt - 1] == VOGNRETUR ? linjeslutt - 1 : linjeslutt;
+            posisjon = Math.min(linjeslutt + 1, slutt);
+            skannaTil = posisjon;
+
+            if (ende > start && buffer[start] == KOMMENTAR) {
+                continue;
+            }
+            rad.tokeniser(data, start, ende);
+            return true;
+        }
+    }
+
+    /**
+     * Visninga av rada som sist vart lest inn av {@link #neste()}.
+     * <br>
+     * Den samme instansen blir returnert for alle rader.
+     *
+     * @return visninga av gjeldande rad
+     */
+    CsvRad rad() {
+        return rad;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private int finnLinjeskift() {
+        for (int i = skannaTil; i < slutt; i++) {
+            if (buffer[i] == LINJESKIFT) {
+                return i;
+            }
+        }
+        skannaTil = slutt;
+        return -1;
+    }
+
+    private void fyllBuffer() throws IOException {
+        if (posisjon > 0) {
+            final int gjenståande = slutt - posisjon;
+            System.arraycopy(buffer, posisjon, buffer, 0, gjenståande);
+            skannaTil -= posisjon;
+            slutt = gjenståande;
+            posisjon = 0;
+        }
+        if (slutt == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            data = ByteBuffer.wrap(buffer);
+        }
+        final int antallLest = input.read(buffer, slutt, buffer.length - slutt);
+        if (antallLest < 0) {
+            ferdigLest = true;
+        } else {
+            slutt += antallLest;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+/**
+ * {@link Delingsgrense} styrer kvar {@link MinnekartaCsvfil} og {@link BlokkgzipCsvfil} kan legge grensene mellom
+ * delane når ei fil blir delt opp for parallell innlesing.
+ */
+enum Delingsgrense {
+    /**
+     * Delane startar og sluttar på ei linjegrense der første kolonne endrar verdi, slik at alle linjer som tilhøyrer
+     * eit og samme medlem hamnar i samme del.
+     * <br>
+     * Skal kun brukast for medlemsdata, der første kolonne er medlemsidentifikatoren.
+     */
+    MEDLEM,
+
+    /**
+     * Delane startar og sluttar på ei vilkårlig linjegrense.
+     * <br>
+     * Skal brukast for referansedata, der første kolonne er typeindikatoren og ofte er lik for alle linjene i fila.
+     */
+    LINJE
+}
@@ -0,0 +1,320 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import no.spk.tidsserie.batch.core.grunnlagsdata.CsvRad;
+
+/**
+ * {@link MinnekartaCsvfil} les ei ukomprimert CSV-fil via {@link FileChannel#map(FileChannel.MapMode, long, long)},
+ * slik at innholdet blir lest direkte frå operativsystemets sidebuffer utan å bli kopiert gjennom ein
+ * {@link java.io.InputStream} og inn i Java-heapen først.
+ * <br>
+ * Fila kan delast opp i fleire {@link Del delar} via {@link #del(int)}, som kvar kan parsast av ein eigen tråd.
+ * Delane startar og sluttar som standard alltid på ei linjegrense der første kolonne endrar verdi. Alle linjer som
+ * tilhøyrer eit og samme medlem hamnar dermed alltid i samme del, så lenge medlemmets linjer ligg etter kvarandre i
+ * fila. Referansedata kan i staden delast opp på vilkårlige linjegrenser via {@link #del(int, Delingsgrense)}.
+ * <br>
+ * Sidan ein minnekarta region er avgrensa til {@link Integer#MAX_VALUE} bytes, blir store filer alltid delt opp i
+ * minst så mange delar at ingen del er større enn {@link #MAKSIMAL_DELSTORLEIK}.
+ * <br>
+ * Linjer som startar med <code>#</code> blir behandla som kommentarar og hoppa over. Linjer kan avsluttast med
+ * <code>\n</code> eller <code>\r\n</code>.
+ */
+class MinnekartaCsvfil {
+    static final long MAKSIMAL_DELSTORLEIK = 1L << 30;
+
+    private static final long STANDARD_MINSTE_DELSTORLEIK = 16 * 1024 * 1024;
+
+    private static final byte KOLONNESEPARATOR = ';';
+    private static final byte LINJESKIFT = '\n';
+    private static final byte VOGNRETUR = '\r';
+    private static final byte KOMMENTAR = '#';
+
+    private static final int LESEVINDU = 64 * 1024;
+
+    private final Path fil;
+
+    private final long minsteDelstorleik;
+
+    private final long maksimalDelstorleik;
+
+    MinnekartaCsvfil(final Path fil) {
+        this(fil, STANDARD_MINSTE_DELSTORLEIK);
+    }
+
+    MinnekartaCsvfil(final Path fil, final long minsteDelstorleik) {
+        this(fil, minsteDelstorleik, MAKSIMAL_DELSTORLEIK);
+    }
+
+    MinnekartaCsvfil(final Path fil, final long minsteDelstorleik, final long maksimalDelstorleik) {
+        this.fil = requireNonNull(fil, "fil er påkrevd, men var null");
+        this.minsteDelstorleik = minsteDelstorleik;
+        this.maksimalDelstorleik = maksimalDelstorleik;
+    }
+
+    /**
+     * Deler opp fila i inntil <code>ønskaAntallDelar</code> delar av omtrent lik storleik, der grensene mellom delane
+     * går mellom to medlemmar.
+     *
+     * @param ønskaAntallDelar ønska antall delar, typisk lik antall trådar som skal parse fila
+     * @return delane fila består av, i samme rekkefølge som i fila
+     * @throws UncheckedIOException dersom lesinga av fila feilar
+     * @throws IllegalStateException dersom eit medlem har fleire linjer enn det som får plass i ein del
+     * @see #del(int, Delingsgrense)
+     */
+    List<Del> del(final int ønskaAntallDelar) {
+        return del(ønskaAntallDelar, Delingsgrense.MEDLEM);
+    }
+
+    /**
+     * Deler opp fila i inntil <code>ønskaAntallDelar</code> delar av omtrent lik storleik.
+     * <br>
+     * Fila blir ikkje delt opp i delar som er mindre enn 16MB som standard, men blir alltid delt opp i så mange delar at ingen
+     * del er større enn maksimal delstorleik, {@link #MAKSIMAL_DELSTORLEIK} som standard. Tomme delar blir ikkje
+     * returnert.
+     *
+     * @param ønskaAntallDelar ønska antall delar, typisk lik antall trådar som skal parse fila
+     * @param grense kva slags linjegrenser delane kan starte og slutte på
+     * @return delane fila består av, i samme rekkefølge som i fila
+     * @throws UncheckedIOException dersom lesinga av fila feilar
+     * @throws IllegalStateException dersom fila ikkje kan delast opp i delar som er mindre enn maksimal
+     * delstorleik på gyldige grenser
+     */
+    List<Del> del(final int ønskaAntallDelar, final Delingsgrense grense) {
+        requireNonNull(grense, "grense er påkrevd, men var null");
+        try (final FileChannel kanal = FileChannel.open(fil, StandardOpenOption.READ)) {
+            final long storleik = kanal.size();
+            // Siktar mot delar på maksimalt halvparten av maksimal delstorleik, slik at delane har plass til å bli
+            // flytta fram til neste gyldige grense utan å bli større enn maksimal delstorleik
+            final long halvDelstorleik = Math.max(1, maksimalDelstorleik / 2);
+            final long antallDelar = Math.max(
+                    Math.min(ønskaAntallDelar, storleik / minsteDelstorleik),
+                    (storleik + halvDelstorleik - 1) / halvDelstorleik
+            );
+            final Posisjonslesar lesar = new Posisjonslesar(kanal, storleik);
+            final List<Del> delar = new ArrayList<>();
+            long start = 0;
+            for (long del = 1; del < antallDelar && start < storleik; del++) {
+                final long kandidat = Math.max(start, storleik * del / antallDelar);
+                final long slutt = grense == Delingsgrense.MEDLEM
+                        ? lesar.nesteMedlemsgrense(kandidat)
+                        : lesar.nesteLinjestart(kandidat);
+                if (slutt > start) {
+                    delar.add(new Del(fil, start, slutt - start));
+                    start = slutt;
+                }
+            }
+            if (start < storleik) {
+                delar.add(new Del(fil, start, storleik - start));
+            }
+            for (final Del del : delar) {
+                if (del.lengde > maksimalDelstorleik) {
+                    throw new IllegalStateException(
+                            "Klarte ikkje dele opp " + fil + " i delar på maksimalt " + maksimalDelstorleik
+                                    + " bytes, "
+                                    + (grense == Delingsgrense.MEDLEM
+                                    ? "eit medlem har fleire linjer enn det som får plass i ein del"
+                                    : "ei linje er lengre enn det som får plass i ein del")
+                    );
+                }
+            }
+            return delar;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Ein sammenhengande del av ei minnekarta CSV-fil, som startar og sluttar på ei linjegrense.
+     * <br>
+     * Delen blir først minnekarta når radene blir lest.
+     */
+    static class Del {
+        private final Path fil;
+        private final long start;
+        private final long lengde;
+
+        Del(final Path fil, final long start, final long lengde) {
+            this.fil = fil;
+            this.start = start;
+            this.lengde = lengde;
+        }
+
+        /**
+         * Parsar alle linjene i delen og sender kvar av dei til <code>konsument</code>.
+         * <br>
+         * Radvisninga blir gjenbrukt for alle linjene og er kun gyldig fram til konsumenten returnerer.
+         *
+         * @param konsument mottar ei radvisning pr linje
+         * @throws UncheckedIOException dersom minnekartlegginga av delen feilar
+         */
+        void tokeniser(final Consumer<? super CsvRad> konsument) {
+            final Linjelesar linjer = new Linjelesar(kart());
+            while (linjer.neste()) {
+                konsument.accept(linjer.rad);
+            }
+        }
+
+        /**
+         * Parsar linjene i delen etter kvart som straumen blir konsumert.
+         *
+         * @return ein straum med kolonneverdiane til kvar linje i delen
+         * @throws UncheckedIOException dersom minnekartlegginga av delen feilar
+         */
+        Stream<List<String>> rader() {
+            final Linjelesar linjer = new Linjelesar(kart());
+            return StreamSupport.stream(
+                    new Spliterators.AbstractSpliterator<List<String>>(
+                            Long.MAX_VALUE,
+                            Spliterator.ORDERED | Spliterator.NONNULL
+                    ) {
+                        @Override
+                        public boolean tryAdvance(final Consumer<? super List<String>> action) {
+                            if (!linjer.neste()) {
+                                return false;
+                            }
+                            action.accept(linjer.rad.somListe());
+                            return true;
+                        }
+                    },
+                    false
+            );
+        }
+
+        private ByteBuffer kart() {
+            try (final FileChannel kanal = FileChannel.open(fil, StandardOpenOption.READ)) {
+                return kanal.map(FileChannel.MapMode.READ_ONLY, start, lengde);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return fil + "[" + start + ", " + (start + lengde) + ")";
+        }
+    }
+
+    /**
+     * Finn grensene mellom delane ved å lese små vindu av fila rundt kandidatposisjonane.
+     */
+    private static class Posisjonslesar {
+        private final ByteBuffer vindu = ByteBuffer.allocate(LESEVINDU);
+        private final FileChannel kanal;
+        private final long storleik;
+        private long vindustart = -1;
+
+        Posisjonslesar(final FileChannel kanal, final long storleik) {
+            this.kanal = kanal;
+            this.storleik = storleik;
+        }
+
+        /**
+         * Finn starten på den første linja ved eller etter <code>posisjon</code> der første kolonne er forskjellig
+         * frå første kolonne på linja før.
+         */
+        long nesteMedlemsgrense(final long posisjon) throws IOException {
+            long linjestart = nesteLinjestart(posisjon);
+            if (linjestart >= storleik) {
+                return storleik;
+            }
+            final byte[] forrige = førsteKolonne(linjestart);
+            while (true) {
+                linjestart = nesteLinjestart(linjestart + 1);
+                if (linjestart >= storleik || !Arrays.equals(forrige, førsteKolonne(linjestart))) {
+                    return linjestart;
+                }
+            }
+        }
+
+        /**
+         * Finn starten på den første linja ved eller etter <code>posisjon</code>.
+         */
+        long nesteLinjestart(final long posisjon) throws IOException {
+            if (posisjon == 0) {
+                return 0;
+            }
+            for (long i = posisjon - 1; i < storleik; i++) {
+                if (byteVed(i) == LINJESKIFT) {
+                    return i + 1;
+                }
+            }
+            return storleik;
+        }
+
+        private byte[] førsteKolonne(final long linjestart) throws IOException {
+            long i = linjestart;
+            while (i < storleik) {
+                final byte b = byteVed(i);
+                if (b == KOLONNESEPARATOR || b == LINJESKIFT || b == VOGNRETUR) {
+                    break;
+                }
+                i++;
+            }
+            final byte[] kolonne = new byte[(int) (i - linjestart)];
+            for (int j = 0; j < kolonne.length; j++) {
+                kolonne[j] = byteVed(linjestart + j);
+            }
+            return kolonne;
+        }
+
+        private byte byteVed(final long posisjon) throws IOException {
+            if (vindustart < 0 || posisjon < vindustart || posisjon >= vindustart + vindu.limit()) {
+                vindu.clear();
+                vindustart = posisjon;
+                while (vindu.hasRemaining() && kanal.read(vindu, vindustart + vindu.position()) > 0) {
+                    // Fyll vinduet så langt fila rekk
+                }
+                vindu.flip();
+            }
+            return vindu.get((int) (posisjon - vindustart));
+        }
+    }
+
+    /**
+     * Itererer over linjene i ein minnekarta del og presenterer kvar av dei via ei og samme radvisning.
+     */
+    private static class Linjelesar {
+        private final ByteBuffer data;
+        private final Radvisning rad = new Radvisning();
+        private int posisjon;
+
+        Linjelesar(final ByteBuffer data) {
+            this.data = data;
+        }
+
+        boolean neste() {
+            final int slutt = data.limit();
+            while (posisjon < slutt) {
+                final int start = posisjon;
+                int linjeslutt = start;
+                while (linjeslutt < slutt && data.get(linjeslutt) != LINJESKIFT) {
+                    linjeslutt++;
+                }
+                posisjon = linjeslutt + 1;
+                final int ende = linjeslutt > start && data.get(linjeslutt - 1) == VOGNRETUR ? linjeslutt - 1 : linjeslutt;
+                if (ende > start && data.get(start) == KOMMENTAR) {
+                    continue;
+                }
+                rad.tokeniser(data, start, ende);
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import no.spk.tidsserie.tidsperiode.Tidsperiode;
+
+/**
+ * {@link Oversettartabell} rutar linjer med referansedata til {@link CsvOversetter oversetterane} som kan
+ * oversette dei.
+ * <br>
+ * Oversetterar som deklarerer ein {@link CsvOversetter#typeindikator() typeindikator} blir indeksert på
+ * typeindikatoren, slik at kvar linje kun blir sendt til oversetterane med samme typeindikator som linjas første
+ * kolonne, i tillegg til oversetterane som ikkje har deklarert nokon typeindikator. Oppslaget kostar dermed det
+ * samme uavhengig av kor mange oversetterar som er registrert.
+ * <br>
+ * {@link CsvOversetter#supports(List)} blir framleis kalla for kvar kandidat, og kandidatane blir forsøkt i samme
+ * rekkefølge som dei vart registrert i. Resultatet blir dermed det samme som ved eit lineært søk gjennom alle
+ * oversetterane.
+ * <br>
+ * For kvar linje ein oversetter oversett, blir telljaren til oversetteren auka med 1.
+ */
+class Oversettartabell {
+    private final Map<String, List<Kandidat>> indeksert = new HashMap<>();
+
+    private final List<Kandidat> udeklarerte;
+
+    Oversettartabell(
+            final List<CsvOversetter<? extends Tidsperiode<?>>> oversettere,
+            final Function<CsvOversetter<?>, LongAdder> teljarar
+    ) {
+        requireNonNull(oversettere, "oversettere er påkrevd, men var null");
+        requireNonNull(teljarar, "teljarar er påkrevd, men var null");
+
+        final List<Kandidat> alle = new ArrayList<>(oversettere.size());
+        final Set<String> typeindikatorar = new HashSet<>();
+        for (final CsvOversetter<? extends Tidsperiode<?>> oversetter : oversettere) {
+            final Kandidat kandidat = new Kandidat(oversetter, teljarar.apply(oversetter));
+            alle.add(kandidat);
+            kandidat.typeindikator.ifPresent(typeindikatorar::add);
+        }
+
+        this.udeklarerte = alle
+                .stream()
+                .filter(kandidat -> kandidat.typeindikator.isEmpty())
+                .toList();
+        for (final String typeindikator : typeindikatorar) {
+            indeksert.put(
+                    typeindikator,
+                    alle
+                            .stream()
+                            .filter(kandidat -> kandidat.typeindikator.map(typeindikator::equals).orElse(true))
+                            .toList()
+            );
+        }
+    }
+
+    /**
+     * Oversett linja via alle kandidatane for linjas typeindikator som støttar linja.
+     *
+     * @param linje linja som skal oversettast
+     * @return tidsperiodene som linja vart oversatt til, ein pr oversetter som støttar linja
+     */
+    Stream<? extends Tidsperiode<?>> oversett(final List<String> linje) {
+        return indeksert
+                .getOrDefault(linje.get(0), udeklarerte)
+                .stream()
+                .filter(kandidat -> kandidat.oversetter.supports(linje))
+                .map(kandidat -> kandidat.oversett(linje));
+    }
+
+    private static class Kandidat {
+        private final CsvOversetter<? extends Tidsperiode<?>> oversetter;
+        private final Optional<String> typeindikator;
+        private final LongAdder teljar;
+
+        Kandidat(final CsvOversetter<? extends Tidsperiode<?>> oversetter, final LongAdder teljar) {
+            this.oversetter = oversetter;
+            this.typeindikator = requireNonNull(oversetter.typeindikator(), "typeindikator er påkrevd, men var null");
+            this.teljar = teljar;
+        }
+
+        Tidsperiode<?> oversett(final List<String> linje) {
+            teljar.increment();
+            return oversetter.oversett(linje);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link ParallellMedlemsdatainnlesing} leser inn medlemsdata frå fleire kjelder samtidig, ei kjelde pr tråd.
+ * <br>
+ * Ei kjelde er typisk ei medlemsdatafil, eller ein del av ei stor ukomprimert medlemsdatafil som er delt opp på ei
+ * grense mellom to medlemmar. Kvar kjelde blir dekomprimert og splitta opp i kolonner på ein eigen arbeidstråd. Radene blir overlevert til
+ * straumen som {@link #medlemsdata()} returnerer, via ein avgrensa kø. Køa inneheld blokker som kvar består av
+ * ei eller fleire komplette medlemsgrupper. Alle rader som tilhøyrer samme medlem i ei kjelde, vil dermed alltid
+ * kome etter kvarandre i straumen, sjølv om radene frå forskjellige kjelder blir fletta i ikkje-deterministisk
+ * rekkefølge.
+ * <br>
+ * Straumen som blir returnert er ikkje trådsikker og er forventa konsumert sekvensielt av ein og samme tråd, typisk
+ * av {@link no.spk.tidsserie.batch.core.medlem.MedlemsdataOpplaster}. Når straumen blir lukka, blir alle
+ * arbeidstrådane avbrutt og filene dei har åpne lukka.
+ * <br>
+ * Dersom innlesinga av ei kjelde feilar, blir feilen kasta vidare frå straumen når konsumenten kjem fram til den.
+ */
+class ParallellMedlemsdatainnlesing {
+    private static final int KAPASITET = 256;
+
+    private static final int ANTALL_RADER_PR_BLOKK = 1024;
+
+    private final BlockingQueue<Radblokk<List<String>>> kø = new ArrayBlockingQueue<>(KAPASITET);
+
+    private final AtomicInteger trådnummer = new AtomicInteger(1);
+
+    private final List<Supplier<Stream<List<String>>>> kjelder;
+
+    private final int antallTrådar;
+
+    ParallellMedlemsdatainnlesing(
+            final List<Supplier<Stream<List<String>>>> kjelder,
+            final int antallTrådar
+    ) {
+        this.kjelder = requireNonNull(kjelder, "kjelder er påkrevd, men var null");
+        this.antallTrådar = antallTrådar;
+    }
+
+    /**
+     * Startar innlesing av alle medlemsdatafilene og returnerer ein straum med radene frå filene.
+     *
+     * @return ein straum som inneheld alle rader frå alle medlemsdatafilene, gruppert pr medlem innanfor kvar kjelde
+     */
+    Stream<List<String>> medlemsdata() {
+        if (kjelder.isEmpty()) {
+            return Stream.empty();
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(antallTrådar, kjelder.size()),
+                r -> {
+                    final Thread thread = new Thread(r, "medlemsdata-innlesing-" + trådnummer.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+        kjelder.forEach(kjelde -> executor.submit(() -> lesInn(kjelde)));
+        executor.shutdown();
+
+        return StreamSupport
+                .stream(new Konsument(kjelder.size()), false)
+                .onClose(executor::shutdownNow);
+    }
+
+    private void lesInn(final Supplier<Stream<List<String>>> kjelde) {
+        try {
+            try (final Stream<List<String>> rader = kjelde.get()) {
+                final Iterator<List<String>> iterator = rader.iterator();
+                List<List<String>> blokk = new ArrayList<>(ANTALL_RADER_PR_BLOKK);
+                String forrigeMedlem = null;
+                while (iterator.hasNext()) {
+                    final List<String> rad = iterator.next();
+                    final String medlem = rad.get(0);
+                    if (blokk.size() >= ANTALL_RADER_PR_BLOKK && !medlem.equals(forrigeMedlem)) {
+                        kø.put(Radblokk.rader(blokk));
+                        blokk = new ArrayList<>(ANTALL_RADER_PR_BLOKK);
+                    }
+                    blokk.add(rad);
+                    forrigeMedlem = medlem;
+                }
+                if (!blokk.isEmpty()) {
+                    kø.put(Radblokk.rader(blokk));
+                }
+            } catch (final RuntimeException | Error e) {
+                kø.put(Radblokk.feil(e));
+            }
+            kø.put(Radblokk.ferdig());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class Konsument extends Spliterators.AbstractSpliterator<List<String>> {
+        private Iterator<List<String>> gjeldande = Collections.emptyIterator();
+
+        private int antallFilerIgjen;
+
+        Konsument(final int antallFiler) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.antallFilerIgjen = antallFiler;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super List<String>> action) {
+            while (!gjeldande.hasNext()) {
+                if (antallFilerIgjen == 0) {
+                    return false;
+                }
+                final Radblokk<List<String>> blokk = neste();
+                blokk.kastEventuellFeil();
+                if (blokk.erFerdig()) {
+                    antallFilerIgjen--;
+                }
+                gjeldande = blokk.iterator();
+            }
+            action.accept(gjeldande.next());
+            return true;
+        }
+
+        private Radblokk<List<String>> neste() {
+            try {
+                return kø.take();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Innlesing av medlemsdata vart avbrote", e);
+            }
+        }
+    }
+}
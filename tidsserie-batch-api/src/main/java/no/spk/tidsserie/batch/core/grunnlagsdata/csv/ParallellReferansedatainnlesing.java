@@ -0,0 +1,165 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import no.spk.tidsserie.tidsperiode.Tidsperiode;
+
+/**
+ * {@link ParallellReferansedatainnlesing} leser inn og oversett referansedata frå fleire kjelder samtidig, ei kjelde
+ * pr tråd.
+ * <br>
+ * Ei kjelde er typisk ei referansedatafil, eller ein del av ei stor ukomprimert referansedatafil. Kvar kjelde blir
+ * dekomprimert, splitta opp i kolonner og oversatt til tidsperioder på ein arbeidstråd. Dei oversatte
+ * tidsperiodene blir overlevert til straumen som {@link #referansedata()} returnerer, via ei avgrensa kø pr kjelde.
+ * Straumen tømmer køane kjelde for kjelde, i samme rekkefølge som kjeldene vart angitt. Rekkefølga på tidsperiodene i
+ * straumen er dermed den samme som ved sekvensiell innlesing, uavhengig av kor mange trådar som blir brukt.
+ * <br>
+ * Kjeldene blir tildelt arbeidstrådane i samme rekkefølge som straumen tømmer dei. Den første kjelda som ikkje er
+ * ferdig tømt, har dermed alltid ein arbeidstråd, sjølv om arbeidstrådane for seinare kjelder står og ventar på plass
+ * i køa si.
+ * <br>
+ * Oversetterane må vere trådsikre, dei blir brukt frå fleire arbeidstrådar samtidig.
+ * <br>
+ * Straumen som blir returnert er ikkje trådsikker og er forventa konsumert sekvensielt av ein og samme tråd. Når
+ * straumen blir lukka, blir alle arbeidstrådane avbrutt og filene dei har åpne lukka.
+ * <br>
+ * Dersom innlesinga av ei kjelde feilar, blir feilen kasta vidare frå straumen når konsumenten kjem fram til den.
+ */
+class ParallellReferansedatainnlesing {
+    private static final int KAPASITET_PR_KJELDE = 64;
+
+    private static final int ANTALL_TIDSPERIODAR_PR_BLOKK = 1024;
+
+    private final AtomicInteger trådnummer = new AtomicInteger(1);
+
+    private final List<Supplier<Stream<List<String>>>> kjelder;
+
+    private final Function<List<String>, Stream<? extends Tidsperiode<?>>> oversettar;
+
+    private final int antallTrådar;
+
+    ParallellReferansedatainnlesing(
+            final List<Supplier<Stream<List<String>>>> kjelder,
+            final Function<List<String>, Stream<? extends Tidsperiode<?>>> oversettar,
+            final int antallTrådar
+    ) {
+        this.kjelder = requireNonNull(kjelder, "kjelder er påkrevd, men var null");
+        this.oversettar = requireNonNull(oversettar, "oversettar er påkrevd, men var null");
+        this.antallTrådar = antallTrådar;
+    }
+
+    /**
+     * Startar innlesing og oversetting av alle referansedatafilene og returnerer ein straum med tidsperiodene.
+     *
+     * @return ein straum som inneheld alle tidsperiodene frå alle referansedatafilene, i samme rekkefølge som kjeldene
+     */
+    Stream<Tidsperiode<?>> referansedata() {
+        if (kjelder.isEmpty()) {
+            return Stream.empty();
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(antallTrådar, kjelder.size()),
+                r -> {
+                    final Thread thread = new Thread(r, "referansedata-innlesing-" + trådnummer.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+        final List<BlockingQueue<Radblokk<Tidsperiode<?>>>> køar = new ArrayList<>(kjelder.size());
+        for (final Supplier<Stream<List<String>>> kjelde : kjelder) {
+            final BlockingQueue<Radblokk<Tidsperiode<?>>> kø = new ArrayBlockingQueue<>(KAPASITET_PR_KJELDE);
+            køar.add(kø);
+            executor.submit(() -> lesInn(kjelde, kø));
+        }
+        executor.shutdown();
+
+        return StreamSupport
+                .stream(new Konsument(køar), false)
+                .onClose(executor::shutdownNow);
+    }
+
+    private void lesInn(final Supplier<Stream<List<String>>> kjelde, final BlockingQueue<Radblokk<Tidsperiode<?>>> kø) {
+        try {
+            try (final Stream<List<String>> rader = kjelde.get()) {
+                final Iterator<List<String>> iterator = rader.iterator();
+                List<Tidsperiode<?>> blokk = new ArrayList<>(ANTALL_TIDSPERIODAR_PR_BLOKK);
+                while (iterator.hasNext()) {
+                    try (final Stream<? extends Tidsperiode<?>> tidsperioder = oversettar.apply(iterator.next())) {
+                        tidsperioder.forEach(blokk::add);
+                    }
+                    if (blokk.size() >= ANTALL_TIDSPERIODAR_PR_BLOKK) {
+                        kø.put(Radblokk.rader(blokk));
+                        blokk = new ArrayList<>(ANTALL_TIDSPERIODAR_PR_BLOKK);
+                    }
+                }
+                if (!blokk.isEmpty()) {
+                    kø.put(Radblokk.rader(blokk));
+                }
+            } catch (final RuntimeException | Error e) {
+                kø.put(Radblokk.feil(e));
+            }
+            kø.put(Radblokk.ferdig());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Konsument extends Spliterators.AbstractSpliterator<Tidsperiode<?>> {
+        private final Iterator<BlockingQueue<Radblokk<Tidsperiode<?>>>> køar;
+
+        private BlockingQueue<Radblokk<Tidsperiode<?>>> kø;
+
+        private Iterator<Tidsperiode<?>> gjeldande = Collections.emptyIterator();
+
+        Konsument(final List<BlockingQueue<Radblokk<Tidsperiode<?>>>> køar) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.køar = køar.iterator();
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super Tidsperiode<?>> action) {
+            while (!gjeldande.hasNext()) {
+                if (kø == null) {
+                    if (!køar.hasNext()) {
+                        return false;
+                    }
+                    kø = køar.next();
+                }
+                final Radblokk<Tidsperiode<?>> blokk = neste();
+                blokk.kastEventuellFeil();
+                if (blokk.erFerdig()) {
+                    kø = null;
+                }
+                gjeldande = blokk.iterator();
+            }
+            action.accept(gjeldande.next());
+            return true;
+        }
+
+        private Radblokk<Tidsperiode<?>> neste() {
+            try {
+                return kø.take();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Innlesing av referansedata vart avbrote", e);
+            }
+        }
+    }
+}
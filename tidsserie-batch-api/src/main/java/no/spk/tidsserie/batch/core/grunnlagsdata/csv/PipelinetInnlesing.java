@@ -0,0 +1,139 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link PipelinetInnlesing} les inn og dekomprimerer ei rekke CSV-filer i bakgrunnen, slik at disklesing,
+ * dekomprimering og parsing av filene kan skje samtidig i staden for etter tur på ein og samme tråd.
+ * <br>
+ * Innlesinga er delt opp i to steg som køyrer på kvar sin tråd:
+ * <ol>
+ * <li>Forhandslesing, som les dei rå bytane frå disk inn i ein {@link Blokkbuffer} pr fil. Stega er kopla saman via
+ * ei kø som gir plass til ei fil, forhandslesinga kan dermed starte på neste fil mens den gjeldande blir
+ * dekomprimert og parsa.</li>
+ * <li>Dekomprimering, som pakkar ut GZIP-komprimerte filer inn i ein dobbelbuffer som parseren les frå. Ukomprimerte
+ * filer blir overlevert direkte til parseren.</li>
+ * </ol>
+ * <br>
+ * Straumen frå {@link #filer()} inneheld ein {@link InputStream} pr fil i samme rekkefølge som filene vart angitt.
+ * Straumane må lesast etter tur, og straumen må lukkast for å stoppe bakgrunnstrådane dersom den ikkje blir
+ * konsumert heilt.
+ */
+class PipelinetInnlesing {
+    private static final int ANTALL_RÅBLOKKER = 8;
+
+    private static final int ANTALL_DEKOMPRIMERTE_BLOKKER = 2;
+
+    private static final int BLOKKSTORLEIK = 256 * 1024;
+
+    private final BlockingQueue<Fil> forhandslest = new ArrayBlockingQueue<>(1);
+
+    private final BlockingQueue<Blokkbuffer> dekomprimert = new ArrayBlockingQueue<>(1);
+
+    private final AtomicInteger trådnummer = new AtomicInteger(1);
+
+    private final List<Path> filer;
+
+    PipelinetInnlesing(final List<Path> filer) {
+        this.filer = requireNonNull(filer, "filer er påkrevd, men var null");
+    }
+
+    /**
+     * Startar innlesinga av filene i bakgrunnen.
+     *
+     * @return ein straum med ein {@link InputStream} pr fil, med det dekomprimerte innholdet til fila
+     */
+    Stream<InputStream> filer() {
+        if (filer.isEmpty()) {
+            return Stream.empty();
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(2, r -> {
+            final Thread thread = new Thread(r, "csv-innlesing-" + trådnummer.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.submit(this::forhandslesAlle);
+        executor.submit(this::dekomprimerAlle);
+        executor.shutdown();
+
+        return IntStream
+                .range(0, filer.size())
+                .mapToObj(i -> nesteFil())
+                .onClose(executor::shutdownNow);
+    }
+
+    private void forhandslesAlle() {
+        try {
+            for (final Path fil : filer) {
+                final Blokkbuffer buffer = new Blokkbuffer(ANTALL_RÅBLOKKER, BLOKKSTORLEIK);
+                forhandslest.put(new Fil(fil, buffer));
+                try (final InputStream input = new FileInputStream(fil.toFile())) {
+                    buffer.skrivFrå(input);
+                } catch (final IOException | RuntimeException e) {
+                    buffer.feil(e);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dekomprimerAlle() {
+        try {
+            for (int i = 0; i < filer.size(); i++) {
+                final Fil fil = forhandslest.take();
+                if (!fil.erKomprimert()) {
+                    dekomprimert.put(fil.buffer);
+                    continue;
+                }
+                final Blokkbuffer buffer = new Blokkbuffer(ANTALL_DEKOMPRIMERTE_BLOKKER, BLOKKSTORLEIK);
+                dekomprimert.put(buffer);
+                try (final InputStream input = new GZIPInputStream(fil.buffer.input(), BLOKKSTORLEIK)) {
+                    buffer.skrivFrå(input);
+                } catch (final IOException | RuntimeException e) {
+                    buffer.feil(e);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private InputStream nesteFil() {
+        try {
+            return dekomprimert.take().input();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new IOException("Innlesinga vart avbroten", e));
+        }
+    }
+
+    private static class Fil {
+        private final Path sti;
+        private final Blokkbuffer buffer;
+
+        Fil(final Path sti, final Blokkbuffer buffer) {
+            this.sti = sti;
+            this.buffer = buffer;
+        }
+
+        boolean erKomprimert() {
+            return sti.getFileName().toString().endsWith(".gz");
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * {@link Radblokk} er ei blokk med ferdig innleste rader som blir overlevert frå ein arbeidstråd til tråden som
+ * konsumerer radene.
+ * <br>
+ * I tillegg til blokker med rader, kan arbeidstråden signalisere at den er ferdig med ei fil via
+ * {@link #ferdig()}, eller at innlesinga har feila via {@link #feil(Throwable)}.
+ *
+ * @param <T> typen til radene i blokka
+ */
+class Radblokk<T> {
+    private final List<T> rader;
+    private final Throwable feil;
+    private final boolean ferdig;
+
+    private Radblokk(final List<T> rader, final Throwable feil, final boolean ferdig) {
+        this.rader = rader;
+        this.feil = feil;
+        this.ferdig = ferdig;
+    }
+
+    static <T> Radblokk<T> rader(final List<T> rader) {
+        return new Radblokk<>(rader, null, false);
+    }
+
+    static <T> Radblokk<T> feil(final Throwable feil) {
+        return new Radblokk<>(Collections.emptyList(), feil, false);
+    }
+
+    static <T> Radblokk<T> ferdig() {
+        return new Radblokk<>(Collections.emptyList(), null, true);
+    }
+
+    Iterator<T> iterator() {
+        return rader.iterator();
+    }
+
+    boolean erFerdig() {
+        return ferdig;
+    }
+
+    void kastEventuellFeil() {
+        if (feil instanceof RuntimeException) {
+            throw (RuntimeException) feil;
+        }
+        if (feil instanceof Error) {
+            throw (Error) feil;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import no.spk.tidsserie.batch.core.grunnlagsdata.CsvRad;
+
+/**
+ * {@link Radvisning} er ei gjenbrukbar {@link CsvRad visning} av éi UTF-8-koda linje i ein {@link ByteBuffer}.
+ * <br>
+ * Visninga held kun på start- og sluttposisjonen til kvar kolonne i bufferen, kolonneverdiane blir først
+ * materialisert når konsumenten ber om dei. Visninga er dermed kun gyldig så lenge innholdet i bufferen mellom
+ * posisjonane som vart sendt til {@link #tokeniser(ByteBuffer, int, int)} er uendra.
+ */
+class Radvisning implements CsvRad {
+    private static final byte KOLONNESEPARATOR = ';';
+
+    private int[] start = new int[16];
+    private int[] slutt = new int[16];
+    private byte[] kolonnebuffer = new byte[256];
+    private int antallKolonner;
+    private ByteBuffer data;
+
+    /**
+     * Splittar linja mellom <code>fra</code> og <code>til</code> i <code>data</code> opp i kolonner.
+     *
+     * @param data bufferen som linja ligg i
+     * @param fra posisjonen til første byte på linja
+     * @param til posisjonen etter siste byte på linja, utan linjeskift
+     */
+    void tokeniser(final ByteBuffer data, final int fra, final int til) {
+        this.data = data;
+        this.antallKolonner = 0;
+        int kolonnestart = fra;
+        for (int i = fra; i < til; i++) {
+            if (data.get(i) == KOLONNESEPARATOR) {
+                leggTil(kolonnestart, i);
+                kolonnestart = i + 1;
+            }
+        }
+        leggTil(kolonnestart, til);
+    }
+
+    private void leggTil(final int fra, final int til) {
+        if (antallKolonner == start.length) {
+            start = Arrays.copyOf(start, start.length * 2);
+            slutt = Arrays.copyOf(slutt, slutt.length * 2);
+        }
+        start[antallKolonner] = fra;
+        slutt[antallKolonner] = til;
+        antallKolonner++;
+    }
+
+    @Override
+    public int antallKolonner() {
+        return antallKolonner;
+    }
+
+    @Override
+    public String verdi(final int kolonne) {
+        sjekkIndeks(kolonne);
+        final int lengde = slutt[kolonne] - start[kolonne];
+        if (data.hasArray()) {
+            return new String(data.array(), data.arrayOffset() + start[kolonne], lengde, StandardCharsets.UTF_8);
+        }
+        if (lengde > kolonnebuffer.length) {
+            kolonnebuffer = new byte[Math.max(lengde, kolonnebuffer.length * 2)];
+        }
+        data.get(start[kolonne], kolonnebuffer, 0, lengde);
+        return new String(kolonnebuffer, 0, lengde, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean erLik(final int kolonne, final String verdi) {
+        sjekkIndeks(kolonne);
+        final int lengde = slutt[kolonne] - start[kolonne];
+        if (lengde != verdi.length()) {
+            // Ein verdi med teikn utanfor ASCII er lengre i UTF-8 enn i antall teikn, aldri kortare
+            return verdi.length() < lengde && verdi(kolonne).equals(verdi);
+        }
+        for (int i = 0; i < lengde; i++) {
+            final byte b = data.get(start[kolonne] + i);
+            if (b < 0) {
+                return verdi(kolonne).equals(verdi);
+            }
+            if (b != verdi.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public byte[] somBytes(final int fraKolonne) {
+        if (fraKolonne == antallKolonner) {
+            return new byte[0];
+        }
+        sjekkIndeks(fraKolonne);
+        final byte[] bytes = new byte[slutt[antallKolonner - 1] - start[fraKolonne]];
+        data.get(start[fraKolonne], bytes);
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return somListe().toString();
+    }
+
+    private void sjekkIndeks(final int kolonne) {
+        if (kolonne < 0 || kolonne >= antallKolonner) {
+            throw new IndexOutOfBoundsException(
+                    "Rada har " + antallKolonner + " kolonner, kolonne " + kolonne + " eksisterer ikkje"
+            );
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package no.spk.tidsserie.batch.core.kommandolinje;
+
+import no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer;
+
+/**
+ * {@link AntallPartisjonar} representerer antall partisjonar som medlemsdatabackendane skal fordele medlemmane på.
+ * <p>
+ * Kvart medlem tilhøyrer alltid nøyaktig ein partisjon, sjå
+ * {@link Partisjonsnummer#tilhørendePartisjonForMedlem(String, AntallPartisjonar)}, og partisjonane blir fordelt
+ * vidare på prosessorane som skal generere tidsseriar. Fleire partisjonar gir finare granularitet og jamnare
+ * lastbalansering mellom prosessorane, på bekostning av litt meir overhead pr partisjon.
+ * <p>
+ * Standardverdien er {@value #STANDARD_ANTALL_PARTISJONAR} partisjonar.
+ *
+ * @since 1.1.0
+ */
+public class AntallPartisjonar {
+    /**
+     * Antall partisjonar batchen har brukt sidan før antallet vart konfigurerbart.
+     */
+    public static final int STANDARD_ANTALL_PARTISJONAR = 271;
+
+    private static final AntallPartisjonar STANDARD = new AntallPartisjonar(STANDARD_ANTALL_PARTISJONAR);
+
+    private final int verdi;
+
+    private AntallPartisjonar(final int verdi) {
+        if (verdi < 1) {
+            throw new IllegalArgumentException("antall partisjonar må vere eit positivt heiltall større enn 0, var " + verdi);
+        }
+        this.verdi = verdi;
+    }
+
+    /**
+     * Opprettar ein ny instans med <code>antall</code> som antall partisjonar medlemmane skal fordelast på.
+     *
+     * @param antall antall partisjonar
+     * @return ein instans med det angitte antall partisjonar
+     * @throws IllegalArgumentException dersom <code>antall</code> er mindre enn 1
+     */
+    public static AntallPartisjonar antallPartisjonar(final int antall) {
+        if (antall == STANDARD_ANTALL_PARTISJONAR) {
+            return STANDARD;
+        }
+        return new AntallPartisjonar(antall);
+    }
+
+    public static AntallPartisjonar standardAntallPartisjonar() {
+        return STANDARD;
+    }
+
+    public static boolean erGyldig(final int antall) {
+        return antall > 0;
+    }
+
+    public int antall() {
+        return verdi;
+    }
+
+    /**
+     * Er dette standard antall partisjonar?
+     *
+     * @return <code>true</code> dersom antallet er {@value #STANDARD_ANTALL_PARTISJONAR}, <code>false</code> ellers
+     */
+    public boolean erStandard() {
+        return verdi == STANDARD_ANTALL_PARTISJONAR;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(verdi);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final AntallPartisjonar that = (AntallPartisjonar) obj;
+        return this.verdi == that.verdi;
+    }
+
+    @Override
+    public String toString() {
+        return "antall partisjonar " + verdi;
+    }
+}
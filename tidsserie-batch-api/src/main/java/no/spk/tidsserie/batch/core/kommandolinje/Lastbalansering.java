@@ -0,0 +1,58 @@
+package no.spk.tidsserie.batch.core.kommandolinje;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * {@link Lastbalansering} styrer korleis medlemsdatabackendane fordeler partisjonane på prosessorane som skal
+ * generere tidsseriar.
+ * <p>
+ * Standardverdien er {@link #PARTISJONSNUMMER}, som gir same fordeling som batchen har brukt sidan før
+ * lastbalanseringa vart konfigurerbar.
+ *
+ * @since 1.1.0
+ */
+public enum Lastbalansering {
+    /**
+     * Partisjonane blir fordelt på prosessorane etter partisjonsnummeret, utan omsyn til kor mykje medlemsdata
+     * kvar partisjon inneheld.
+     * <br>
+     * Kvar prosessor prosesserer kun partisjonane den har fått tildelt.
+     */
+    PARTISJONSNUMMER("partisjonsnummer"),
+
+    /**
+     * Partisjonane blir fordelt på prosessorane etter kor mykje arbeid dei er estimert å utgjere, basert på
+     * tidsbruken frå forrige køyring dersom den er kjent, elles basert på storleiken til partisjonane.
+     * <br>
+     * Prosessorar som går tom for eigne partisjonar stjeler partisjonar som andre prosessorar enno ikkje har
+     * starta på.
+     */
+    ARBEIDSMENGDE("arbeidsmengde");
+
+    private final String kode;
+
+    Lastbalansering(final String kode) {
+        this.kode = kode;
+    }
+
+    /**
+     * Slår opp lastbalanseringa med den angitte koda.
+     *
+     * @param kode koda til lastbalanseringa, skil ikkje mellom store og små bokstavar
+     * @return lastbalanseringa med den angitte koda, eller ingenting dersom koda er ukjent
+     */
+    public static Optional<Lastbalansering> parse(final String kode) {
+        return Stream.of(values())
+                .filter(lastbalansering -> lastbalansering.kode.equalsIgnoreCase(kode))
+                .findFirst();
+    }
+
+    public static Lastbalansering standardLastbalansering() {
+        return PARTISJONSNUMMER;
+    }
+
+    public String kode() {
+        return kode;
+    }
+}
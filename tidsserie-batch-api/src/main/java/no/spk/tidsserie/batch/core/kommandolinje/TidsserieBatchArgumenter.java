@@ -77,6 +77,34 @@ public interface TidsserieBatchArgumenter{
         return AntallProsessorar.standardAntallProsessorar();
     }
 
+    /**
+     * Antall partisjonar medlemsdatabackenden skal fordele medlemmane på ved generering av tidsseriar.
+     * <p>
+     * Partisjonane blir fordelt vidare på dei {@link #antallProsessorar() prosessorane} som skal generere
+     * tidsseriane, fleire partisjonar gir derfor jamnare lastbalansering mellom prosessorane.
+     * <p>
+     * Returnerer {@link AntallPartisjonar#standardAntallPartisjonar() standard antall partisjonar} dersom
+     * metoden er uimplementert.
+     *
+     * @return antall partisjonar medlemmane skal fordelast på
+     */
+    default AntallPartisjonar antallPartisjonar() {
+        return AntallPartisjonar.standardAntallPartisjonar();
+    }
+
+    /**
+     * Korleis medlemsdatabackenden skal fordele {@link #antallPartisjonar() partisjonane} på
+     * {@link #antallProsessorar() prosessorane} som skal generere tidsseriane.
+     * <p>
+     * Returnerer {@link Lastbalansering#standardLastbalansering() standard lastbalansering} dersom
+     * metoden er uimplementert.
+     *
+     * @return lastbalanseringa partisjonane skal fordelast etter
+     */
+    default Lastbalansering lastbalansering() {
+        return Lastbalansering.standardLastbalansering();
+    }
+
     /**
      * Aldersgrense som regulerer kva loggkatalogar som skal bli automatisk sletta i
      * oppryddingsfasen av oppstarten.
@@ -1,9 +1,12 @@
 package no.spk.tidsserie.batch.core.medlem;
 
+import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.util.List;
-import java.util.stream.Stream;
+import java.nio.file.Path;
+import java.util.function.Consumer;
 
+import no.spk.tidsserie.batch.core.Katalog;
+import no.spk.tidsserie.batch.core.grunnlagsdata.CsvRad;
 import no.spk.tidsserie.batch.core.grunnlagsdata.GrunnlagsdataRepository;
 import no.spk.tidsserie.batch.core.grunnlagsdata.LastOppGrunnlagsdataKommando;
 import no.spk.tidsserie.batch.core.registry.ServiceLocator;
@@ -16,10 +19,53 @@ import no.spk.tidsserie.tjenesteregister.ServiceRegistry;
  * Via denne tenesta kan medlemsdata generert av ei eller anna form for
  * medlemsdata-uttrekk bli lest inn og lasta opp til medlemsdatabackenden under oppstart
  * av batchen.
+ * <br>
+ * Medlemsdatane blir lest inn via {@link GrunnlagsdataRepository#medlemsdata(Consumer)} og samla opp som rå rader i
+ * ei {@link Medlemsdatablokk}, som blir overført til {@link MedlemsdataUploader} med
+ * {@link MedlemsdataUploader#run(Medlemsdatablokk)} for tusenvis av medlemmar om gangen. Kun medlemsidentifikatoren
+ * blir henta ut og validert, og kun når rada tilhøyrer eit anna medlem enn forrige rad.
+ * <br>
+ * Medlemsdatane kan bli lest inn frå fleire filer på fleire trådar samtidig, sjå
+ * {@link no.spk.tidsserie.batch.core.grunnlagsdata.csv.CSVInput#parallelliserInnlesingAvMedlemsdata(int)}.
+ * Overleveringa til {@link MedlemsdataUploader} skjer likevel alltid sekvensielt frå tråden som køyrer
+ * {@link #lastOpp(ServiceRegistry)}, {@link MedlemsdataUploader} treng dermed ikkje vere trådsikker.
+ * <br>
+ * Som standard er medlemsdatane forventa å vere sortert slik at alle rader for eit medlem kjem etter kvarandre.
+ * Uttrekk som ikkje er sortert pr medlem kan lastast opp etter at {@link #sorterMedlemsdata()} er aktivert.
  *
  * @author Tarjei Skorgenes
  */
 public class MedlemsdataOpplaster implements LastOppGrunnlagsdataKommando {
+    private static final int ANTALL_MEDLEMMAR_PR_BLOKK = 4096;
+
+    private static final long STANDARD_MINNEGRENSE_FOR_SORTERING = 256L * 1024 * 1024;
+
+    private long minnegrenseForSortering;
+
+    private boolean sorterMedlemsdata;
+
+    /**
+     * Aktiverer støtte for medlemsdata som ikkje er sortert pr medlem.
+     * <br>
+     * Radene blir gruppert pr medlem via ekstern sortering før dei blir lasta opp. Rader som ikkje får plass innanfor
+     * ei øvre grense på 256MB i minnet, blir sortert og skrive til midlertidige filer i ein eigen katalog under
+     * {@link Katalog#LOG logkatalogen}, og fletta saman igjen når alle medlemsdatane er lest inn. Medlemmane blir
+     * då lasta opp sortert på medlemsidentifikator, radene for kvart medlem kjem i samme rekkefølge som i uttrekket.
+     * <br>
+     * Utan sortering blir kvart medlem som dukkar opp igjen seinare i uttrekket, lasta opp på nytt og lagt til
+     * medlemsdatane som allereie er lasta opp for medlemmet, noko som er kostbart for store, usorterte uttrekk.
+     *
+     * @return <code>this</code>
+     */
+    public MedlemsdataOpplaster sorterMedlemsdata() {
+        return sorterMedlemsdata(STANDARD_MINNEGRENSE_FOR_SORTERING);
+    }
+
+    MedlemsdataOpplaster sorterMedlemsdata(final long minnegrense) {
+        this.sorterMedlemsdata = true;
+        this.minnegrenseForSortering = minnegrense;
+        return this;
+    }
 
     /**
      * Leser inn alle medlemsdata og lastar dei opp til medlemsdatabackenden.
@@ -34,21 +80,70 @@ public class MedlemsdataOpplaster implements LastOppGrunnlagsdataKommando {
                 .firstMandatory(MedlemsdataBackend.class)
                 .uploader();
         final GrunnlagsdataRepository repository = services.firstMandatory(GrunnlagsdataRepository.class);
-        try (final Stream<List<String>> lines = repository.medlemsdata()) {
-            lines
-                    .map(Medlemslinje::new)
-                    .reduce((first, second) -> {
-                        upload.append(first);
-
-                        if (!first.tilhoeyrer(second.medlem())) {
-                            upload.run();
-                        }
-                        return second;
-                    })
-                    .ifPresent(cells -> {
-                        upload.append(cells);
-                        upload.run();
-                    });
+
+        final Opplasting opplasting = new Opplasting(upload);
+        if (sorterMedlemsdata) {
+            final Path logkatalog = services.firstMandatory(Path.class, Katalog.LOG.egenskap());
+            try (final Medlemsdatasortering sortering = new Medlemsdatasortering(logkatalog, minnegrenseForSortering)) {
+                repository.medlemsdata(rad -> sortering.leggTil(opplasting.medlem(rad), rad.somBytes(1)));
+                sortering.flett(opplasting::leggTil);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            repository.medlemsdata(rad -> opplasting.leggTil(opplasting.medlem(rad), rad.somBytes(1)));
+        }
+        opplasting.avslutt();
+    }
+
+    /**
+     * Samlar opp radene i ei {@link Medlemsdatablokk} og overfører blokka til uploaderen kvar gang den inneheld
+     * {@link #ANTALL_MEDLEMMAR_PR_BLOKK} medlemmar og neste rad tilhøyrer eit nytt medlem.
+     */
+    private static class Opplasting {
+        private final Medlemsdatablokk blokk = new Medlemsdatablokk();
+
+        private final MedlemsdataUploader upload;
+
+        private String forrigeVerdi;
+
+        private MedlemsId forrigeMedlem;
+
+        private MedlemsId sisteMedlemIBlokka;
+
+        Opplasting(final MedlemsdataUploader upload) {
+            this.upload = upload;
+        }
+
+        /**
+         * Hentar ut og validerer medlemsidentifikatoren frå første kolonne på rada, kun dersom den er ulik
+         * medlemsidentifikatoren på forrige rad.
+         */
+        MedlemsId medlem(final CsvRad rad) {
+            if (forrigeVerdi == null || rad.antallKolonner() == 0 || !rad.erLik(0, forrigeVerdi)) {
+                forrigeMedlem = new Medlemslinje(rad.somListe()).medlem();
+                forrigeVerdi = rad.verdi(0);
+            }
+            return forrigeMedlem;
+        }
+
+        void leggTil(final MedlemsId medlem, final byte[] linje) {
+            if (!medlem.equals(sisteMedlemIBlokka) && blokk.antallMedlemmar() >= ANTALL_MEDLEMMAR_PR_BLOKK) {
+                overfør();
+            }
+            blokk.leggTil(medlem, linje);
+            sisteMedlemIBlokka = medlem;
+        }
+
+        void avslutt() {
+            if (!blokk.erTom()) {
+                overfør();
+            }
+        }
+
+        private void overfør() {
+            upload.run(blokk);
+            blokk.tøm();
         }
     }
 }
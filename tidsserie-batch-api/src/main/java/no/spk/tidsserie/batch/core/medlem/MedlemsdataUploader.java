@@ -1,8 +1,14 @@
 package no.spk.tidsserie.batch.core.medlem;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
+import no.spk.tidsserie.batch.core.grunnlagsdata.CsvRad;
+import no.spk.tidsserie.batch.core.grunnlagsdata.GrunnlagsdataRepository;
+
 /**
  * {@link MedlemsdataUploader} representerer ein akkumulator som lar klienten styre når og kva medlemslinjer som
  * skal overførast til tidsseriebackenden.
@@ -11,6 +17,12 @@ import java.util.stream.Stream;
  * data for eit enkeltmedlem straks straumen beveger seg frå ei linje som tilhøyrer eit medlem til ei linje som
  * tilhøyrer eit anna medlem. Dette baserer seg på ei forutsetning om at straumen er sortert pr medlem.
  * <p>
+ * Ved {@link GrunnlagsdataRepository#medlemsdata(Consumer) straumbasert innlesing} blir radene lagt til via
+ * {@link #append(MedlemsId, CsvRad)}, slik at dei kan overførast utan å bli splitta opp og skjøta saman igjen.
+ * <p>
+ * Klientar som overfører mange medlemmar kan samle dei i ei {@link Medlemsdatablokk} og overføre alle med eitt kall
+ * til {@link #run(Medlemsdatablokk)}.
+ * <p>
  *
  * @author Tarjei Skorgenes
  * @see MedlemsdataBackend#uploader()
@@ -24,8 +36,50 @@ public interface MedlemsdataUploader {
      */
     void append(Medlemslinje linje);
 
+    /**
+     * Legger til ei rå medlemslinje i datasettet som akkumulatoren vil overføre til tidsseriebackenden neste gang
+     * {@link #run()} blir kalla.
+     * <br>
+     * I motsetning til {@link #append(Medlemslinje)} blir ikkje rada splitta opp og validert kolonne for kolonne,
+     * backendar som lagrar medlemsdatane som <code>;</code>-separerte bytes kan dermed lagre
+     * {@link CsvRad#somBytes(int) bytane etter medlemsidentifikatoren} direkte.
+     * <br>
+     * Rada er kun gyldig fram til metoda returnerer, akkumulatoren må sjølv kopiere ut det den treng å ta vare på.
+     *
+     * @param medlem den validerte medlemsidentifikatoren frå første kolonne på rada
+     * @param rad ei rad med medlemsdata for <code>medlem</code>
+     */
+    default void append(final MedlemsId medlem, final CsvRad rad) {
+        append(new Medlemslinje(rad.somListe()));
+    }
+
     /**
      * Overfører alle medlemslinjer frå akkumulatoren til tidsseriebackenden.
      */
     void run();
+
+    /**
+     * Overfører alle medlemsgruppene i <code>blokk</code> til tidsseriebackenden.
+     * <br>
+     * Alternativ til {@link #append(Medlemslinje)} og {@link #run()} for klientar som overfører mange medlemmar
+     * samtidig. Kvar medlemsgruppe i blokka tilhøyrer nøyaktig eitt medlem, backendane kan dermed overføre
+     * medlemsdatane utan å validere dei på nytt og fordele dei på partisjonar for heile blokka samla.
+     * <br>
+     * Blokka blir ikkje endra, og kan gjenbrukast av klienten etter at metoda har returnert. Medlemslinjer som er lagt
+     * til via {@link #append(Medlemslinje)}, men som enno ikkje er overført, blir ikkje påverka.
+     *
+     * @param blokk medlemsdata for eit eller fleire medlemmar
+     */
+    default void run(final Medlemsdatablokk blokk) {
+        for (int gruppe = 0; gruppe < blokk.antallMedlemmar(); gruppe++) {
+            final String medlem = blokk.medlem(gruppe).toString();
+            for (final List<String> rad : blokk.rader(gruppe)) {
+                final List<String> linje = new ArrayList<>(rad.size() + 1);
+                linje.add(medlem);
+                linje.addAll(rad);
+                append(new Medlemslinje(linje));
+            }
+            run();
+        }
+    }
 }
@@ -0,0 +1,183 @@
+package no.spk.tidsserie.batch.core.medlem;
+
+import static java.util.Arrays.asList;
+import static java.util.Objects.requireNonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import no.spk.tidsserie.batch.core.grunnlagsdata.CsvRad;
+
+/**
+ * {@link Medlemsdatablokk} samlar opp komplette medlemsdata for mange medlemmar, slik at dei kan overførast til
+ * tidsseriebackenden med eitt kall til {@link MedlemsdataUploader#run(Medlemsdatablokk)}.
+ * <br>
+ * Medlemsdatane blir lagra fortløpande i ein felles buffer, pr medlem som <code>;</code>-separerte kolonner og
+ * <code>\n</code>-separerte rader i UTF-8, utan medlemsidentifikatoren. Kvar medlemsgruppe i blokka tilhøyrer
+ * dermed alltid nøyaktig eitt medlem, backendane treng ikkje validere det på nytt.
+ * <br>
+ * Blokka er ikkje trådsikker og er tiltenkt gjenbrukt via {@link #tøm()} etter at den er overført.
+ *
+ * @see MedlemsdataUploader#run(Medlemsdatablokk)
+ */
+public class Medlemsdatablokk {
+    private static final byte DELIMITER_ROW = '\n';
+
+    private byte[] medlemsdata = new byte[64 * 1024];
+
+    private int lengde;
+
+    private MedlemsId[] medlemmar = new MedlemsId[256];
+
+    private int[] slutt = new int[256];
+
+    private int antallMedlemmar;
+
+    /**
+     * Legger til <code>rad</code> i blokka.
+     * <br>
+     * Dersom <code>medlem</code> er det samme medlemmet som forrige rad tilhøyrer, blir rada lagt til i
+     * medlemsgruppa til forrige rad, ellers blir det starta ei ny medlemsgruppe.
+     *
+     * @param medlem den validerte medlemsidentifikatoren frå første kolonne på rada
+     * @param rad ei rad med medlemsdata for <code>medlem</code>, inkludert medlemsidentifikatoren i første kolonne
+     * @throws NullPointerException dersom nokon av argumenta er <code>null</code>
+     */
+    public void leggTil(final MedlemsId medlem, final CsvRad rad) {
+        leggTil(medlem, rad.somBytes(1));
+    }
+
+    /**
+     * Legger til ei rad i blokka.
+     * <br>
+     * Dersom <code>medlem</code> er det samme medlemmet som forrige rad tilhøyrer, blir rada lagt til i
+     * medlemsgruppa til forrige rad, ellers blir det starta ei ny medlemsgruppe.
+     *
+     * @param medlem den validerte medlemsidentifikatoren til rada
+     * @param linje kolonnene etter medlemsidentifikatoren, <code>;</code>-separert i UTF-8
+     * @throws NullPointerException dersom nokon av argumenta er <code>null</code>
+     * @see CsvRad#somBytes(int)
+     */
+    public void leggTil(final MedlemsId medlem, final byte[] linje) {
+        requireNonNull(medlem, "medlem er påkrevd, men var null");
+        requireNonNull(linje, "linje er påkrevd, men var null");
+        if (antallMedlemmar > 0 && medlemmar[antallMedlemmar - 1].equals(medlem)) {
+            skriv(DELIMITER_ROW);
+        } else {
+            nyGruppe(medlem);
+        }
+        skriv(linje);
+        slutt[antallMedlemmar - 1] = lengde;
+    }
+
+    /**
+     * Antall medlemsgrupper i blokka.
+     *
+     * @return antall medlemsgrupper
+     */
+    public int antallMedlemmar() {
+        return antallMedlemmar;
+    }
+
+    /**
+     * Er blokka tom?
+     *
+     * @return <code>true</code> dersom blokka ikkje inneheld nokon medlemsgrupper, <code>false</code> ellers
+     */
+    public boolean erTom() {
+        return antallMedlemmar == 0;
+    }
+
+    /**
+     * Medlemmet som den angitte medlemsgruppa tilhøyrer.
+     *
+     * @param gruppe indeksen til medlemsgruppa, 0-basert
+     * @return medlemsidentifikatoren til medlemsgruppa
+     * @throws IndexOutOfBoundsException dersom blokka ikkje inneheld ei medlemsgruppe med den angitte indeksen
+     */
+    public MedlemsId medlem(final int gruppe) {
+        return medlemmar[sjekkIndeks(gruppe)];
+    }
+
+    /**
+     * Medlemsdatane til den angitte medlemsgruppa som <code>;</code>-separerte kolonner og
+     * <code>\n</code>-separerte rader i UTF-8, utan medlemsidentifikatoren.
+     *
+     * @param gruppe indeksen til medlemsgruppa, 0-basert
+     * @return ein ny kopi av medlemsdatane til medlemsgruppa
+     * @throws IndexOutOfBoundsException dersom blokka ikkje inneheld ei medlemsgruppe med den angitte indeksen
+     */
+    public byte[] medlemsdata(final int gruppe) {
+        sjekkIndeks(gruppe);
+        return Arrays.copyOfRange(medlemsdata, start(gruppe), slutt[gruppe]);
+    }
+
+    /**
+     * Medlemsdatane til den angitte medlemsgruppa splitta opp i rader og kolonner, utan medlemsidentifikatoren.
+     *
+     * @param gruppe indeksen til medlemsgruppa, 0-basert
+     * @return radene til medlemsgruppa
+     * @throws IndexOutOfBoundsException dersom blokka ikkje inneheld ei medlemsgruppe med den angitte indeksen
+     */
+    public List<List<String>> rader(final int gruppe) {
+        return Arrays
+                .stream(new String(medlemsdata(gruppe), StandardCharsets.UTF_8).split("\n", -1))
+                .map(rad -> asList(rad.split(";", -1)))
+                .toList();
+    }
+
+    /**
+     * Fjernar alle medlemsgruppene frå blokka slik at den kan gjenbrukast.
+     */
+    public void tøm() {
+        Arrays.fill(medlemmar, 0, antallMedlemmar, null);
+        antallMedlemmar = 0;
+        lengde = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "medlemsdatablokk med " + antallMedlemmar + " medlemmar, " + lengde + " bytes";
+    }
+
+    private int start(final int gruppe) {
+        return gruppe == 0 ? 0 : slutt[gruppe - 1];
+    }
+
+    private void nyGruppe(final MedlemsId medlem) {
+        if (antallMedlemmar == medlemmar.length) {
+            medlemmar = Arrays.copyOf(medlemmar, medlemmar.length * 2);
+            slutt = Arrays.copyOf(slutt, slutt.length * 2);
+        }
+        medlemmar[antallMedlemmar] = medlem;
+        slutt[antallMedlemmar] = lengde;
+        antallMedlemmar++;
+    }
+
+    private void skriv(final byte verdi) {
+        sikreKapasitet(1);
+        medlemsdata[lengde++] = verdi;
+    }
+
+    private void skriv(final byte[] verdiar) {
+        sikreKapasitet(verdiar.length);
+        System.arraycopy(verdiar, 0, medlemsdata, lengde, verdiar.length);
+        lengde += verdiar.length;
+    }
+
+    private void sikreKapasitet(final int antallBytes) {
+        if (lengde + antallBytes > medlemsdata.length) {
+            medlemsdata = Arrays.copyOf(medlemsdata, Math.max(medlemsdata.length * 2, lengde + antallBytes));
+        }
+    }
+
+    private int sjekkIndeks(final int gruppe) {
+        if (gruppe < 0 || gruppe >= antallMedlemmar) {
+            throw new IndexOutOfBoundsException(
+                    "Blokka har " + antallMedlemmar + " medlemmar, medlemsgruppe " + gruppe + " eksisterer ikkje"
+            );
+        }
+        return gruppe;
+    }
+}
@@ -0,0 +1,143 @@
+package no.spk.tidsserie.batch.core.medlem;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * {@link Medlemsdatarader} gir tilgang til radene og kolonnene i medlemsdata på lagringsformatet,
+ * <code>;</code>-separerte kolonner og <code>\n</code>-separerte rader i UTF-8, utan å splitte opp medlemsdataen på
+ * førehand.
+ * <br>
+ * Ved oppretting blir medlemsdataen scanna éin gang for å finne posisjonen til kvar rad og kolonne. Verdiane i
+ * kolonnene blir først konvertert til {@link String} når dei blir henta ut via {@link List#get(int)}, og blir ikkje
+ * tatt vare på, slik at modusar som kun les nokre få av kolonnene på kvar rad slepp å allokere dei andre.
+ * <br>
+ * Radene og kolonnene er ikkje modifiserbare, og er gyldige så lenge medlemsdataen dei blir henta frå ikkje blir
+ * endra.
+ * <br>
+ * Oppdelinga i rader og kolonner er den samme som for {@code String.split("\n")} og {@code String.split(";", -1)}:
+ * tomme rader på slutten av medlemsdataen blir fjerna, medan tomme kolonner blir bevart. Ein rad utan kolonner
+ * blir dermed ei rad med 1 tom kolonne.
+ */
+public class Medlemsdatarader extends AbstractList<List<String>> implements RandomAccess {
+    private static final byte DELIMITER_ROW = '\n';
+
+    private static final byte DELIMITER_COLUMN = ';';
+
+    private final byte[] medlemsdata;
+
+    /**
+     * Posisjonen til skiljeteiknet etter kvar kolonne, for alle radene etter kvarandre. Kolonna startar rett etter
+     * skiljeteiknet til forrige kolonne.
+     */
+    private final int[] slutt;
+
+    /**
+     * Indeksen i {@link #slutt} til første kolonne på kvar rad, med ein ekstra indeks for slutten av siste rad.
+     */
+    private final int[] førsteKolonne;
+
+    private final int antallRader;
+
+    private Medlemsdatarader(final byte[] medlemsdata) {
+        this.medlemsdata = requireNonNull(medlemsdata, "medlemsdata er påkrevd, men var null");
+
+        int antallRadskift = 0;
+        int antallKolonneskift = 0;
+        for (final byte verdi : medlemsdata) {
+            if (verdi == DELIMITER_ROW) {
+                antallRadskift++;
+            } else if (verdi == DELIMITER_COLUMN) {
+                antallKolonneskift++;
+            }
+        }
+
+        this.slutt = new int[antallRadskift + antallKolonneskift + 1];
+        this.førsteKolonne = new int[antallRadskift + 2];
+        int kolonne = 0;
+        int rad = 1;
+        for (int posisjon = 0; posisjon < medlemsdata.length; posisjon++) {
+            final byte verdi = medlemsdata[posisjon];
+            if (verdi == DELIMITER_ROW || verdi == DELIMITER_COLUMN) {
+                slutt[kolonne++] = posisjon;
+                if (verdi == DELIMITER_ROW) {
+                    førsteKolonne[rad++] = kolonne;
+                }
+            }
+        }
+        slutt[kolonne++] = medlemsdata.length;
+        førsteKolonne[rad] = kolonne;
+
+        int rader = rad;
+        if (antallRadskift > 0) {
+            while (rader > 0 && erTom(rader - 1)) {
+                rader--;
+            }
+        }
+        this.antallRader = rader;
+    }
+
+    /**
+     * Radene og kolonnene i <code>medlemsdata</code>.
+     *
+     * @param medlemsdata medlemsdata på lagringsformatet
+     * @return radene i medlemsdataen
+     * @throws NullPointerException dersom <code>medlemsdata</code> er <code>null</code>
+     */
+    public static List<List<String>> rader(final byte[] medlemsdata) {
+        return new Medlemsdatarader(medlemsdata);
+    }
+
+    @Override
+    public List<String> get(final int rad) {
+        return new Rad(sjekk(rad, antallRader));
+    }
+
+    @Override
+    public int size() {
+        return antallRader;
+    }
+
+    private boolean erTom(final int rad) {
+        return antallKolonner(rad) == 1 && start(førsteKolonne[rad]) == slutt[førsteKolonne[rad]];
+    }
+
+    private int antallKolonner(final int rad) {
+        return førsteKolonne[rad + 1] - førsteKolonne[rad];
+    }
+
+    private int start(final int kolonne) {
+        return kolonne == 0 ? 0 : slutt[kolonne - 1] + 1;
+    }
+
+    private static int sjekk(final int indeks, final int antall) {
+        if (indeks < 0 || indeks >= antall) {
+            throw new IndexOutOfBoundsException("Indeks " + indeks + " er utanfor, antall er " + antall);
+        }
+        return indeks;
+    }
+
+    private class Rad extends AbstractList<String> implements RandomAccess {
+        private final int rad;
+
+        private Rad(final int rad) {
+            this.rad = rad;
+        }
+
+        @Override
+        public String get(final int kolonne) {
+            final int indeks = førsteKolonne[rad] + sjekk(kolonne, size());
+            final int start = start(indeks);
+            return new String(medlemsdata, start, slutt[indeks] - start, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int size() {
+            return antallKolonner(rad);
+        }
+    }
+}
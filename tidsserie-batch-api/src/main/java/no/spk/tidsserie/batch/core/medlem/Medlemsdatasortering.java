@@ -0,0 +1,266 @@
+package no.spk.tidsserie.batch.core.medlem;
+
+import static java.util.Objects.requireNonNull;
+import static no.spk.tidsserie.batch.core.medlem.MedlemsId.medlemsId;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link Medlemsdatasortering} grupperer medlemsdata som ikkje er sortert pr medlem, ved hjelp av ekstern sortering.
+ * <br>
+ * Radene blir samla opp i minnet fram til den estimerte storleiken deira overstig ei øvre grense. Då blir radene
+ * sortert på medlemsidentifikator og skrive ut til ei midlertidig fil, eit såkalla løp, i ein eigen katalog under
+ * logkatalogen. Når alle radene er lagt til, blir løpa fletta saman igjen slik at alle rader for eit medlem blir
+ * overlevert samla, sortert på medlemsidentifikator. Dersom alle radene får plass i minnet, blir ingenting skrive
+ * til disk.
+ * <br>
+ * Sorteringa er stabil, rader som tilhøyrer samme medlem blir overlevert i samme rekkefølge som dei vart lagt til.
+ * <br>
+ * Dei midlertidige filene blir sletta når sorteringa blir lukka.
+ */
+class Medlemsdatasortering implements Closeable {
+    private static final int OVERHEAD_PR_RAD = 64;
+
+    private static final int BUFFERSTORLEIK = 256 * 1024;
+
+    private final List<Rad> rader = new ArrayList<>();
+
+    private final List<Path> løp = new ArrayList<>();
+
+    private final Path logkatalog;
+
+    private final long maksStorleik;
+
+    private Path katalog;
+
+    private long storleik;
+
+    /**
+     * Konstruerer ei ny sortering.
+     *
+     * @param logkatalog katalogen som dei midlertidige filene skal leggast under
+     * @param maksStorleik øvre grense for estimert antall bytes med rader som blir halde i minnet før dei blir
+     * skrive til disk
+     * @throws NullPointerException dersom <code>logkatalog</code> er <code>null</code>
+     */
+    Medlemsdatasortering(final Path logkatalog, final long maksStorleik) {
+        this.logkatalog = requireNonNull(logkatalog, "logkatalog er påkrevd, men var null");
+        this.maksStorleik = maksStorleik;
+    }
+
+    /**
+     * Legger til ei rad for <code>medlem</code>.
+     *
+     * @param medlem medlemmet rada tilhøyrer
+     * @param linje kolonnene etter medlemsidentifikatoren, <code>;</code>-separert i UTF-8
+     * @throws UncheckedIOException dersom radene ikkje kan skrivast til disk
+     */
+    void leggTil(final MedlemsId medlem, final byte[] linje) {
+        final String id = medlem.toString();
+        rader.add(new Rad(id, linje));
+        storleik += OVERHEAD_PR_RAD + 2L * id.length() + linje.length;
+        if (storleik >= maksStorleik) {
+            skrivLøp();
+        }
+    }
+
+    /**
+     * Antall løp som har blitt skrive til disk så langt.
+     *
+     * @return antall midlertidige filer
+     */
+    int antallLøp() {
+        return løp.size();
+    }
+
+    /**
+     * Flettar saman alle radene som er lagt til og overleverer dei til <code>konsument</code>, gruppert og
+     * sortert pr medlem.
+     *
+     * @param konsument mottar medlemmet og kolonnene etter medlemsidentifikatoren for kvar rad
+     * @throws UncheckedIOException dersom lesinga av dei midlertidige filene feilar
+     */
+    void flett(final BiConsumer<MedlemsId, byte[]> konsument) {
+        final Overlevering overlevering = new Overlevering(konsument);
+        if (løp.isEmpty()) {
+            rader.sort(Comparator.comparing(Rad::medlem));
+            rader.forEach(rad -> overlevering.overlever(rad.medlem(), rad.linje()));
+            rader.clear();
+            return;
+        }
+        if (!rader.isEmpty()) {
+            skrivLøp();
+        }
+        final List<Flettekjelde> lesarar = new ArrayList<>();
+        try {
+            final PriorityQueue<Flettekjelde> kø = new PriorityQueue<>(
+                    Comparator
+                            .comparing(Flettekjelde::medlem)
+                            .thenComparingInt(Flettekjelde::nummer)
+            );
+            for (int nummer = 0; nummer < løp.size(); nummer++) {
+                final Flettekjelde lesar = new Flettekjelde(løp.get(nummer), nummer);
+                lesarar.add(lesar);
+                if (lesar.neste()) {
+                    kø.add(lesar);
+                }
+            }
+            while (!kø.isEmpty()) {
+                final Flettekjelde lesar = kø.poll();
+                overlevering.overlever(lesar.medlem(), lesar.linje());
+                if (lesar.neste()) {
+                    kø.add(lesar);
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lesarar.forEach(Flettekjelde::lukk);
+        }
+    }
+
+    /**
+     * Slettar alle midlertidige filer og katalogen dei ligg i.
+     *
+     * @throws IOException dersom slettinga feilar
+     */
+    @Override
+    public void close() throws IOException {
+        for (final Path fil : løp) {
+            Files.deleteIfExists(fil);
+        }
+        løp.clear();
+        if (katalog != null) {
+            Files.deleteIfExists(katalog);
+            katalog = null;
+        }
+    }
+
+    private void skrivLøp() {
+        rader.sort(Comparator.comparing(Rad::medlem));
+        try {
+            if (katalog == null) {
+                katalog = Files.createTempDirectory(logkatalog, "medlemsdatasortering-");
+            }
+            final Path fil = katalog.resolve("lop-" + løp.size() + ".bin");
+            løp.add(fil);
+            try (final DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(fil), BUFFERSTORLEIK)
+            )) {
+                output.writeInt(rader.size());
+                for (final Rad rad : rader) {
+                    output.writeUTF(rad.medlem());
+                    output.writeInt(rad.linje().length);
+                    output.write(rad.linje());
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        rader.clear();
+        storleik = 0;
+    }
+
+    private static class Rad {
+        private final String medlem;
+        private final byte[] linje;
+
+        Rad(final String medlem, final byte[] linje) {
+            this.medlem = medlem;
+            this.linje = linje;
+        }
+
+        String medlem() {
+            return medlem;
+        }
+
+        byte[] linje() {
+            return linje;
+        }
+    }
+
+    /**
+     * Gjenbrukar medlemsidentifikatoren så lenge etterfølgjande rader tilhøyrer samme medlem.
+     */
+    private static class Overlevering {
+        private final BiConsumer<MedlemsId, byte[]> konsument;
+
+        private String forrigeId;
+
+        private MedlemsId forrigeMedlem;
+
+        Overlevering(final BiConsumer<MedlemsId, byte[]> konsument) {
+            this.konsument = konsument;
+        }
+
+        void overlever(final String id, final byte[] linje) {
+            if (!id.equals(forrigeId)) {
+                forrigeId = id;
+                forrigeMedlem = medlemsId(id);
+            }
+            konsument.accept(forrigeMedlem, linje);
+        }
+    }
+
+    private static class Flettekjelde {
+        private final DataInputStream input;
+
+        private final int nummer;
+
+        private int gjenståande;
+
+        private String medlem;
+
+        private byte[] linje;
+
+        Flettekjelde(final Path fil, final int nummer) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(fil), BUFFERSTORLEIK));
+            this.nummer = nummer;
+            this.gjenståande = input.readInt();
+        }
+
+        boolean neste() throws IOException {
+            if (gjenståande == 0) {
+                return false;
+            }
+            gjenståande--;
+            medlem = input.readUTF();
+            linje = new byte[input.readInt()];
+            input.readFully(linje);
+            return true;
+        }
+
+        String medlem() {
+            return medlem;
+        }
+
+        byte[] linje() {
+            return linje;
+        }
+
+        int nummer() {
+            return nummer;
+        }
+
+        void lukk() {
+            try {
+                input.close();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package no.spk.tidsserie.batch.core;
+
+import static no.spk.tidsserie.batch.core.medlem.MedlemsId.medlemsId;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import no.spk.tidsserie.batch.core.grunnlagsdata.CsvRad;
+import no.spk.tidsserie.batch.core.medlem.Medlemsdatablokk;
+import no.spk.tidsserie.batch.core.medlem.MedlemsdataUploader;
+import no.spk.tidsserie.batch.core.medlem.Medlemslinje;
+
+import org.junit.jupiter.api.Test;
+
+class MedlemsdatablokkTest {
+    private final Medlemsdatablokk blokk = new Medlemsdatablokk();
+
+    @Test
+    void skal_gruppere_etterfølgjande_rader_for_samme_medlem() {
+        blokk.leggTil(medlemsId("Adam"), rad("Adam", "Født", "2003"));
+        blokk.leggTil(medlemsId("Adam"), rad("Adam", "Eksisterer i", "Tidslinje A"));
+        blokk.leggTil(medlemsId("Eva"), rad("Eva", "Født", ""));
+        blokk.leggTil(medlemsId("Adam"), rad("Adam"));
+
+        assertThat(blokk.antallMedlemmar()).isEqualTo(3);
+        assertThat(blokk.medlem(0)).isEqualTo(medlemsId("Adam"));
+        assertThat(blokk.medlem(1)).isEqualTo(medlemsId("Eva"));
+        assertThat(blokk.medlem(2)).isEqualTo(medlemsId("Adam"));
+
+        assertThat(new String(blokk.medlemsdata(0), StandardCharsets.UTF_8)).isEqualTo("Født;2003\nEksisterer i;Tidslinje A");
+        assertThat(new String(blokk.medlemsdata(1), StandardCharsets.UTF_8)).isEqualTo("Født;");
+        assertThat(blokk.medlemsdata(2)).isEmpty();
+
+        assertThat(blokk.rader(0)).containsExactly(List.of("Født", "2003"), List.of("Eksisterer i", "Tidslinje A"));
+    }
+
+    @Test
+    void skal_kunne_gjenbrukast_etter_tømming() {
+        IntStream.range(0, 10_000).forEach(i -> blokk.leggTil(medlemsId("" + i), rad("" + i, "A".repeat(i % 100))));
+        assertThat(blokk.antallMedlemmar()).isEqualTo(10_000);
+        assertThat(new String(blokk.medlemsdata(9_999), StandardCharsets.UTF_8)).isEqualTo("A".repeat(99));
+
+        blokk.tøm();
+        assertThat(blokk.erTom()).isTrue();
+
+        blokk.leggTil(medlemsId("Eva"), rad("Eva", "Født"));
+        assertThat(blokk.antallMedlemmar()).isEqualTo(1);
+        assertThat(new String(blokk.medlemsdata(0), StandardCharsets.UTF_8)).isEqualTo("Født");
+    }
+
+    @Test
+    void skal_feile_ved_oppslag_på_medlemsgruppe_som_ikkje_eksisterer() {
+        blokk.leggTil(medlemsId("Adam"), rad("Adam", "Født"));
+
+        assertThatCode(() -> blokk.medlem(1))
+                .isInstanceOf(IndexOutOfBoundsException.class)
+                .hasMessageContaining("medlemsgruppe 1");
+    }
+
+    @Test
+    void skal_overføre_blokka_medlem_for_medlem_som_standard() {
+        blokk.leggTil(medlemsId("Adam"), rad("Adam", "Født", "2003"));
+        blokk.leggTil(medlemsId("Adam"), rad("Adam", "Død", "2090"));
+        blokk.leggTil(medlemsId("Eva"), rad("Eva", "Født", "2004"));
+
+        final List<String> kall = new ArrayList<>();
+        new MedlemsdataUploader() {
+            @Override
+            public void append(final Medlemslinje linje) {
+                kall.add(linje.medlem() + " " + linje.data());
+            }
+
+            @Override
+            public void run() {
+                kall.add("run");
+            }
+        }
+                .run(blokk);
+
+        assertThat(kall).containsExactly(
+                "Adam [Født, 2003]",
+                "Adam [Død, 2090]",
+                "run",
+                "Eva [Født, 2004]",
+                "run"
+        );
+    }
+
+    private static CsvRad rad(final String... kolonner) {
+        return CsvRad.rad(List.of(kolonner));
+    }
+}
@@ -3,6 +3,8 @@ package no.spk.tidsserie.batch.core.grunnlagsdata;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.nio.charset.StandardCharsets;
+
 import org.junit.jupiter.api.Test;
 
 /**
@@ -187,4 +189,17 @@ class MurmurHashTest {
         long hash = MurmurHash.hash64(text, 2, text.length() - 4);
         assertEquals(0xa8b33145194985a2L, hash);
     }
+
+    @Test
+    void hash64Utf8CharSequence() {
+        final String[] texts = {
+                "", "A", "Adam", "Eva", "1950010112345", text, "blåbær og æøå",
+                "€ࠀ߿\u0080\u007f", "😀 emoji", "\ud83d alone", "alone \ude00", "\ud83d"
+        };
+        for (final String t : texts) {
+            final byte[] bytes = t.getBytes(StandardCharsets.UTF_8);
+            assertEquals(MurmurHash.hash64(bytes, bytes.length), MurmurHash.hash64Utf8(t), t);
+            assertEquals(MurmurHash.hash64(bytes, bytes.length, 0x344d1f5c), MurmurHash.hash64Utf8(new StringBuilder(t), 0x344d1f5c), t);
+        }
+    }
 }
@@ -0,0 +1,111 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata;
+
+import static java.lang.Math.abs;
+import static no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer.partisjonsnummer;
+import static no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer.tilhørendePartisjonsindeksForMedlem;
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar.antallPartisjonar;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Samanliknar rutinga av medlemmar til partisjonen sin slik partisjonstabellane gjorde det tidlegare, via ein
+ * UTF-8-kodane byte-array, eit nytt {@link Partisjonsnummer} og oppslag i eit {@link HashMap}, mot rutinga via
+ * {@link Partisjonsnummer#tilhørendePartisjonsindeksForMedlem(CharSequence, AntallPartisjonar)} direkte inn i ein
+ * tabell indeksert på partisjonsindeksen.
+ * <br>
+ * Både innlesinga og oppslaga av medlemsdata i partisjonstabellane går via denne rutinga for kvart medlem.
+ * Køyrast manuelt via {@link #main(String[])}, anbefalt med <code>-prof gc</code> for å samanlikne allokeringsraten.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PartisjonsnummerBenchmark {
+    @Param({ "100000" })
+    int antallMedlemmar;
+
+    @Param({ "271", "1024" })
+    int antall;
+
+    private String[] medlemsIdar;
+
+    private AntallPartisjonar antallPartisjonar;
+
+    private Map<Partisjonsnummer, Object> partisjonarPrNummer;
+
+    private Object[] partisjonarPrIndeks;
+
+    @Setup
+    public void setup() {
+        antallPartisjonar = antallPartisjonar(antall);
+
+        medlemsIdar = new String[antallMedlemmar];
+        for (int medlem = 0; medlem < antallMedlemmar; medlem++) {
+            medlemsIdar[medlem] = "1950010" + medlem;
+        }
+
+        partisjonarPrNummer = new HashMap<>();
+        partisjonarPrIndeks = new Object[antall];
+        Partisjonsnummer.stream(antallPartisjonar).forEach(nummer -> {
+            final Object partisjon = new Object();
+            partisjonarPrNummer.put(nummer, partisjon);
+            partisjonarPrIndeks[(int) nummer.index()] = partisjon;
+        });
+    }
+
+    @Benchmark
+    public void bytearrayOgHashMap(final Blackhole blackhole) {
+        for (final String medlemsId : medlemsIdar) {
+            final byte[] bytes = medlemsId.getBytes(StandardCharsets.UTF_8);
+            final long hash = MurmurHash.hash64(bytes, bytes.length);
+            final long index = antallPartisjonar.erStandard()
+                    ? abs(hash) % antall
+                    : Partisjonsnummer.jumpConsistentHash(hash, antall);
+            blackhole.consume(
+                    partisjonarPrNummer.get(
+                            partisjonsnummer(1 + index, antallPartisjonar)
+                    )
+            );
+        }
+    }
+
+    @Benchmark
+    public void partisjonsindeksOgTabell(final Blackhole blackhole) {
+        for (final String medlemsId : medlemsIdar) {
+            blackhole.consume(
+                    partisjonarPrIndeks[tilhørendePartisjonsindeksForMedlem(medlemsId, antallPartisjonar)]
+            );
+        }
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(
+                new OptionsBuilder()
+                        .include(PartisjonsnummerBenchmark.class.getSimpleName())
+                        .build()
+        ).run();
+    }
+}
@@ -1,26 +1,46 @@
 package no.spk.tidsserie.batch.core.grunnlagsdata;
 
 import static no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer.partisjonsnummer;
+import static no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer.tilhørendePartisjonForMedlem;
+import static no.spk.tidsserie.batch.core.grunnlagsdata.Partisjonsnummer.tilhørendePartisjonsindeksForMedlem;
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar.antallPartisjonar;
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar.standardAntallPartisjonar;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.stream.IntStream;
 
+import no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar;
+
 import org.junit.jupiter.api.Test;
 
 class PartisjonsnummerTest {
     @Test
     void skal_handheve_at_index_ikkje_kan_vere_negativ() {
-        assertThatCode(() -> partisjonsnummer(-1)).isInstanceOf(AssertionError.class);
-        assertThatCode(() -> partisjonsnummer(0)).isInstanceOf(AssertionError.class);
+        assertThatCode(() -> partisjonsnummer(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatCode(() -> partisjonsnummer(0)).isInstanceOf(IllegalArgumentException.class);
         assertThatCode(() -> partisjonsnummer(1)).doesNotThrowAnyException();
     }
 
     @Test
     void skal_handheve_at_det_maksimalt_er_271_partisjonar() {
         assertThatCode(() -> partisjonsnummer(271)).doesNotThrowAnyException();
-        assertThatCode(() -> partisjonsnummer(272)).isInstanceOf(AssertionError.class);
-        assertThatCode(() -> partisjonsnummer(273)).isInstanceOf(AssertionError.class);
+        assertThatCode(() -> partisjonsnummer(272)).isInstanceOf(IllegalArgumentException.class);
+        assertThatCode(() -> partisjonsnummer(273)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void skal_avvise_partisjonsnummer_utanfor_antall_partisjonar() {
+        final AntallPartisjonar antall = antallPartisjonar(1024);
+        assertThatCode(() -> partisjonsnummer(0, antall))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("mellom 1 og 1024, var 0");
+        assertThatCode(() -> partisjonsnummer(1025, antall))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("mellom 1 og 1024, var 1025");
+        assertThatCode(() -> partisjonsnummer(1024, antall)).doesNotThrowAnyException();
     }
 
     @Test
@@ -58,4 +78,73 @@ class PartisjonsnummerTest {
         assertThat(partisjonsnummer(1)).hasToString("partisjon 1 av 271");
         assertThat(partisjonsnummer(271)).hasToString("partisjon 271 av 271");
     }
+
+    @Test
+    void skal_fordele_medlemmar_likt_som_før_med_standard_antall_partisjonar() {
+        assertThat(tilhørendePartisjonForMedlem("Adam")).isEqualTo(partisjonsnummer(70));
+        assertThat(tilhørendePartisjonForMedlem("Eva")).isEqualTo(partisjonsnummer(201));
+        assertThat(tilhørendePartisjonForMedlem("Adam", antallPartisjonar(271))).isEqualTo(partisjonsnummer(70));
+    }
+
+    @Test
+    void skal_produsere_alle_partisjonsnummer_for_konfigurert_antall_partisjonar() {
+        assertThat(Partisjonsnummer.stream(antallPartisjonar(1024)))
+                .hasSize(1024)
+                .startsWith(partisjonsnummer(1, antallPartisjonar(1024)))
+                .endsWith(partisjonsnummer(1024, antallPartisjonar(1024)));
+        assertThat(partisjonsnummer(1024, antallPartisjonar(1024))).hasToString("partisjon 1024 av 1024");
+        assertThat(partisjonsnummer(1, antallPartisjonar(1024))).isNotEqualTo(partisjonsnummer(1));
+    }
+
+    @Test
+    void skal_kun_flytte_medlemmar_til_ny_partisjon_når_antall_partisjonar_aukar() {
+        final int antallMedlemmar = 100_000;
+        int antallFlytta = 0;
+        for (int medlem = 0; medlem < antallMedlemmar; medlem++) {
+            final Partisjonsnummer før = tilhørendePartisjonForMedlem("medlem" + medlem, antallPartisjonar(1000));
+            final Partisjonsnummer etter = tilhørendePartisjonForMedlem("medlem" + medlem, antallPartisjonar(1001));
+            if (før.partisjonsnummer() != etter.partisjonsnummer()) {
+                assertThat(etter).isEqualTo(partisjonsnummer(1001, antallPartisjonar(1001)));
+                antallFlytta++;
+            }
+        }
+        assertThat(antallFlytta).isBetween(antallMedlemmar / 1001 / 2, antallMedlemmar / 1001 * 2);
+    }
+
+    @Test
+    void skal_fordele_medlemmar_jamt_på_konfigurert_antall_partisjonar() {
+        final int[] antallPrPartisjon = new int[64];
+        IntStream
+                .range(0, 64_000)
+                .mapToObj(medlem -> tilhørendePartisjonForMedlem("medlem" + medlem, antallPartisjonar(64)))
+                .forEach(partisjon -> antallPrPartisjon[(int) partisjon.index()]++);
+        assertThat(antallPrPartisjon).allSatisfy(antall -> assertThat(antall).isBetween(800, 1200));
+    }
+
+    @Test
+    void skal_fordele_medlemmar_likt_via_partisjonsindeks_som_via_utf8_kodane_medlemsidentifikator() {
+        for (final AntallPartisjonar antall : List.of(standardAntallPartisjonar(), antallPartisjonar(1024))) {
+            for (int medlem = 0; medlem < 10_000; medlem++) {
+                final String medlemsId = (medlem % 2 == 0 ? "æøå" : "1950010") + medlem;
+                final byte[] bytes = medlemsId.getBytes(StandardCharsets.UTF_8);
+                final long hash = MurmurHash.hash64(bytes, bytes.length);
+                final long forventa = antall.erStandard()
+                        ? Math.abs(hash) % antall.antall()
+                        : Partisjonsnummer.jumpConsistentHash(hash, antall.antall());
+
+                assertThat(tilhørendePartisjonsindeksForMedlem(medlemsId, antall))
+                        .as("partisjonsindeks for %s med %s", medlemsId, antall)
+                        .isEqualTo(forventa);
+                assertThat(tilhørendePartisjonForMedlem(medlemsId, antall).index()).isEqualTo(forventa);
+            }
+        }
+    }
+
+    @Test
+    void skal_gjenbruke_partisjonsnummer_for_samme_antall_partisjonar() {
+        assertThat(tilhørendePartisjonForMedlem("Adam")).isSameAs(partisjonsnummer(70));
+        assertThat(partisjonsnummer(1, antallPartisjonar(1024))).isSameAs(partisjonsnummer(1, antallPartisjonar(1024)));
+        assertThat(Partisjonsnummer.stream(antallPartisjonar(64)).toList())
+                .containsExactlyElementsOf(Partisjonsnummer.stream(antallPartisjonar(64)).toList());
+    }
 }
@@ -0,0 +1,142 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import no.spk.tidsserie.batch.core.grunnlagsdata.UgyldigUttrekkException;
+import no.spk.tidsserie.tidsperiode.GenerellTidsperiode;
+import no.spk.tidsserie.tidsperiode.Tidsperiode;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BinaerInputTest {
+    @TempDir
+    Path innkatalog;
+
+    @TempDir
+    Path cachekatalog;
+
+    @BeforeEach
+    void _before() throws IOException {
+        skriv("medlemsdata.csv", "# kommentar\n1;A;\n1;B;æøå\n\n2;A;\n2;B\n3;;\n");
+        skriv("referansedata1.csv", "10\n11\n");
+        skriv("referansedata2.csv", "12\n");
+        skriv(
+                BinaerKonverterer.MD5_CHECKSUMS_FILENAME,
+                "aaaa *medlemsdata.csv\nbbbb *referansedata1.csv\ncccc *referansedata2.csv\n"
+        );
+    }
+
+    @Test
+    void skal_lese_inn_samme_medlemsdata_som_csv_input() {
+        final List<List<String>> forventa;
+        try (final Stream<List<String>> medlemsdata = new CSVInput(innkatalog).medlemsdata()) {
+            forventa = medlemsdata.toList();
+        }
+
+        try (final Stream<List<String>> medlemsdata = BinaerInput.fraUttrekk(innkatalog, cachekatalog).medlemsdata()) {
+            assertThat(medlemsdata.toList())
+                    .hasSize(6)
+                    .containsExactlyElementsOf(forventa);
+        }
+    }
+
+    @Test
+    void skal_oversette_referansedata_via_oversetterane() {
+        final DatoOversetter datoar = new DatoOversetter();
+        final BinaerInput input = BinaerInput
+                .fraUttrekk(innkatalog, cachekatalog)
+                .addOversettere(datoar);
+
+        try (final Stream<Tidsperiode<?>> referansedata = input.referansedata()) {
+            assertThat(referansedata.map(Tidsperiode::fraOgMed).toList())
+                    .containsExactly(
+                            LocalDate.ofEpochDay(10),
+                            LocalDate.ofEpochDay(11),
+                            LocalDate.ofEpochDay(12)
+                    );
+        }
+        assertThat(input.antallOversettingar()).containsExactly(entry(datoar, 3L));
+    }
+
+    @Test
+    void skal_ikkje_konvertere_uttrekket_på_nytt_når_sjekksummane_er_uendra() throws IOException {
+        final Path første = new BinaerKonverterer(innkatalog, cachekatalog).konverterVedBehov();
+        final long sistEndra = Files.getLastModifiedTime(første.resolve(Binaerformat.MEDLEMSDATA)).toMillis();
+
+        skriv("medlemsdata.csv", "9;Z\n");
+
+        final Path andre = new BinaerKonverterer(innkatalog, cachekatalog).konverterVedBehov();
+        assertThat(andre).isEqualTo(første);
+        assertThat(Files.getLastModifiedTime(andre.resolve(Binaerformat.MEDLEMSDATA)).toMillis()).isEqualTo(sistEndra);
+        try (final Stream<Path> filer = Files.list(cachekatalog)) {
+            assertThat(filer).containsExactly(første);
+        }
+    }
+
+    @Test
+    void skal_konvertere_uttrekket_på_nytt_når_sjekksummane_endrar_seg() throws IOException {
+        final Path første = new BinaerKonverterer(innkatalog, cachekatalog).konverterVedBehov();
+
+        skriv("medlemsdata.csv", "9;Z\n");
+        skriv(
+                BinaerKonverterer.MD5_CHECKSUMS_FILENAME,
+                "dddd *medlemsdata.csv\nbbbb *referansedata1.csv\ncccc *referansedata2.csv\n"
+        );
+
+        final Path andre = new BinaerKonverterer(innkatalog, cachekatalog).konverterVedBehov();
+        assertThat(andre).isNotEqualTo(første);
+        try (final Stream<List<String>> medlemsdata = new BinaerInput(andre).medlemsdata()) {
+            assertThat(medlemsdata.toList()).containsExactly(List.of("9", "Z"));
+        }
+    }
+
+    @Test
+    void skal_ikkje_la_rekkefølga_i_sjekksumfila_påverke_nøkkelen() throws IOException {
+        final String nøkkel = new BinaerKonverterer(innkatalog, cachekatalog).nøkkel();
+
+        skriv(
+                BinaerKonverterer.MD5_CHECKSUMS_FILENAME,
+                "cccc *referansedata2.csv\n\naaaa *medlemsdata.csv\nbbbb *referansedata1.csv"
+        );
+
+        assertThat(new BinaerKonverterer(innkatalog, cachekatalog).nøkkel()).isEqualTo(nøkkel);
+    }
+
+    @Test
+    void skal_feile_dersom_uttrekket_manglar_sjekksumfil() throws IOException {
+        Files.delete(innkatalog.resolve(BinaerKonverterer.MD5_CHECKSUMS_FILENAME));
+
+        assertThatCode(() -> new BinaerKonverterer(innkatalog, cachekatalog).konverterVedBehov())
+                .isInstanceOf(UgyldigUttrekkException.class)
+                .hasMessageContaining(BinaerKonverterer.MD5_CHECKSUMS_FILENAME);
+    }
+
+    private void skriv(final String filnavn, final String innhold) throws IOException {
+        Files.writeString(innkatalog.resolve(filnavn), innhold, StandardCharsets.UTF_8);
+    }
+
+    private static class DatoOversetter implements CsvOversetter<Tidsperiode<?>> {
+        @Override
+        public boolean supports(final List<String> rad) {
+            return true;
+        }
+
+        @Override
+        public Tidsperiode<?> oversett(final List<String> rad) {
+            return new GenerellTidsperiode(LocalDate.ofEpochDay(Long.parseLong(rad.get(0))), Optional.empty());
+        }
+    }
+}
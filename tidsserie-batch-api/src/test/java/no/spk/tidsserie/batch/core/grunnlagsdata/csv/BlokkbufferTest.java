@@ -0,0 +1,81 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+class BlokkbufferTest {
+    @Test
+    void skal_kreve_minst_1_blokk() {
+        assertThatCode(
+                () -> new Blokkbuffer(0, 16)
+        )
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("var 0");
+    }
+
+    @Test
+    void skal_overføre_alle_bytes_frå_produsent_til_konsument() throws Exception {
+        final byte[] data = new byte[100_000];
+        new Random(1).nextBytes(data);
+
+        final Blokkbuffer buffer = new Blokkbuffer(2, 1024);
+        final CompletableFuture<Void> produsent = skrivAsynkront(buffer, new ByteArrayInputStream(data));
+
+        try (final InputStream input = buffer.input()) {
+            assertThat(input.readAllBytes()).isEqualTo(data);
+        }
+        produsent.get();
+    }
+
+    @Test
+    void skal_overføre_tom_kjelde() throws Exception {
+        final Blokkbuffer buffer = new Blokkbuffer(2, 1024);
+        final CompletableFuture<Void> produsent = skrivAsynkront(buffer, new ByteArrayInputStream(new byte[0]));
+
+        try (final InputStream input = buffer.input()) {
+            assertThat(input.read()).isEqualTo(-1);
+        }
+        produsent.get();
+    }
+
+    @Test
+    void skal_kaste_produsentens_feil_vidare_etter_at_fylte_blokker_er_lest() throws IOException {
+        final Blokkbuffer buffer = new Blokkbuffer(2, 4);
+        buffer.feil(new IOException("disken tok fyr"));
+
+        try (final InputStream input = buffer.input()) {
+            assertThatCode(input::read)
+                    .isInstanceOf(IOException.class)
+                    .hasMessage("disken tok fyr");
+        }
+    }
+
+    @Test
+    void skal_stoppe_produsenten_når_konsumenten_lukkar_straumen() throws Exception {
+        final Blokkbuffer buffer = new Blokkbuffer(2, 16);
+        final CompletableFuture<Void> produsent = skrivAsynkront(buffer, new ByteArrayInputStream(new byte[1_000_000]));
+
+        try (final InputStream input = buffer.input()) {
+            assertThat(input.read()).isEqualTo(0);
+        }
+        produsent.get();
+    }
+
+    private static CompletableFuture<Void> skrivAsynkront(final Blokkbuffer buffer, final InputStream kjelde) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                buffer.skrivFrå(kjelde);
+            } catch (final IOException | InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,169 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import no.spk.tidsserie.batch.core.grunnlagsdata.UgyldigUttrekkException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BlokkgzipCsvfilTest {
+    @TempDir
+    Path katalog;
+
+    @Test
+    void skal_lese_alle_linjer_frå_ein_del() throws IOException {
+        final Path fil = skriv("1;A;\r\n# kommentar\n\n2;blåbær;C\n3", 5);
+
+        assertThat(rader(new BlokkgzipCsvfil(fil).del(4)))
+                .containsExactly(
+                        List.of("1", "A", ""),
+                        List.of(""),
+                        List.of("2", "blåbær", "C"),
+                        List.of("3")
+                );
+    }
+
+    @Test
+    void skal_kun_ha_indeks_når_indeksfila_eksisterer() throws IOException {
+        final Path fil = skriv("1;A\n", 16);
+        assertThat(BlokkgzipCsvfil.harIndeks(fil)).isTrue();
+
+        Files.delete(fil.resolveSibling(fil.getFileName() + BlokkgzipCsvfil.INDEKSENDING));
+        assertThat(BlokkgzipCsvfil.harIndeks(fil)).isFalse();
+    }
+
+    @Test
+    void skal_ikkje_dele_opp_filer_som_er_mindre_enn_minste_delstorleik() throws IOException {
+        final Path fil = skriv("1;A\n2;A\n3;A\n4;A\n", 4);
+
+        assertThat(new BlokkgzipCsvfil(fil, 1024 * 1024).del(4)).hasSize(1);
+    }
+
+    @Test
+    void skal_dele_opp_fila_på_grenser_mellom_medlemmar() throws IOException {
+        final StringBuilder innhold = new StringBuilder();
+        IntStream.range(0, 1_000).forEach(medlem ->
+                IntStream.range(0, 1 + medlem % 7).forEach(rad -> innhold.append(medlem).append(';').append(rad).append('\n'))
+        );
+        final Path fil = skriv(innhold.toString(), 333);
+
+        final List<BlokkgzipCsvfil.Del> delar = new BlokkgzipCsvfil(fil, 1).del(8);
+        assertThat(delar).hasSize(8);
+
+        final List<String> medlemmarPrDel = new ArrayList<>();
+        for (final BlokkgzipCsvfil.Del del : delar) {
+            final List<List<String>> rader = rader(List.of(del));
+            medlemmarPrDel.add(rader.get(0).get(0));
+            medlemmarPrDel.add(rader.get(rader.size() - 1).get(0));
+        }
+        assertThat(medlemmarPrDel)
+                .as("første og siste medlem i kvar del, ingen medlemmar skal vere splitta over to delar")
+                .doesNotHaveDuplicates();
+
+        assertThat(rader(delar))
+                .as("alle linjer frå alle delar")
+                .hasSize(innhold.toString().split("\n").length)
+                .isEqualTo(rader(new BlokkgzipCsvfil(fil).del(1)));
+    }
+
+    @Test
+    void skal_dele_opp_referansedata_med_kun_éin_type_på_linjegrenser() throws IOException {
+        final StringBuilder innhold = new StringBuilder();
+        IntStream.range(0, 10_000).forEach(
+                linje -> innhold.append("ORGANISASJON;").append(linje).append(";2000.01.01;\n")
+        );
+        final Path fil = skriv(innhold.toString(), 4096);
+
+        assertThat(new BlokkgzipCsvfil(fil, 1).del(8))
+                .as("første kolonne endrar aldri verdi, så fila kan ikkje delast på grenser mellom medlemmar")
+                .hasSize(1);
+
+        final List<BlokkgzipCsvfil.Del> delar = new BlokkgzipCsvfil(fil, 1).del(8, Delingsgrense.LINJE);
+        assertThat(delar).hasSize(8);
+        assertThat(rader(delar))
+                .as("alle linjer frå alle delar")
+                .hasSize(10_000)
+                .isEqualTo(rader(new BlokkgzipCsvfil(fil).del(1)));
+    }
+
+    @Test
+    void skal_kunne_lesast_som_vanleg_gzip() throws IOException {
+        final String innhold = "1;A\n1;B\n2;C\n";
+        final Path fil = skriv(innhold, 3);
+
+        try (final GZIPInputStream input = new GZIPInputStream(Files.newInputStream(fil))) {
+            assertThat(new String(input.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(innhold);
+        }
+    }
+
+    @Test
+    void skal_feile_dersom_blokkindeksen_er_ugyldig() throws IOException {
+        final Path fil = skriv("1;A\n2;A\n", 4);
+        Files.write(fil.resolveSibling(fil.getFileName() + BlokkgzipCsvfil.INDEKSENDING), new byte[]{1, 0, 0});
+
+        assertThatCode(() -> new BlokkgzipCsvfil(fil).del(2))
+                .isInstanceOf(UgyldigUttrekkException.class)
+                .hasMessageContaining("er ugyldig");
+    }
+
+    private static List<List<String>> rader(final List<BlokkgzipCsvfil.Del> delar) {
+        final List<List<String>> rader = new ArrayList<>();
+        for (final BlokkgzipCsvfil.Del del : delar) {
+            try (final Stream<List<String>> straum = del.rader()) {
+                straum.forEach(rader::add);
+            }
+        }
+        return rader;
+    }
+
+    private Path skriv(final String innhold, final int blokkstorleik) throws IOException {
+        final Path fil = katalog.resolve("medlemsdata.csv.gz");
+        skrivBlokkgzip(fil, innhold.getBytes(StandardCharsets.UTF_8), blokkstorleik);
+        return fil;
+    }
+
+    /**
+     * Komprimerer <code>data</code> som sjølvstendige GZIP-blokker på <code>blokkstorleik</code> ukomprimerte
+     * bytes og skriv ein blokkindeks på samme format som <code>bgzip --index</code> ved sida av fila.
+     */
+    static void skrivBlokkgzip(final Path fil, final byte[] data, final int blokkstorleik) throws IOException {
+        final List<long[]> oppføringar = new ArrayList<>();
+        try (final OutputStream output = Files.newOutputStream(fil)) {
+            long komprimert = 0;
+            for (int start = 0; start < data.length; start += blokkstorleik) {
+                if (start > 0) {
+                    oppføringar.add(new long[]{komprimert, start});
+                }
+                final ByteArrayOutputStream blokk = new ByteArrayOutputStream();
+                try (final GZIPOutputStream gzip = new GZIPOutputStream(blokk)) {
+                    gzip.write(data, start, Math.min(blokkstorleik, data.length - start));
+                }
+                blokk.writeTo(output);
+                komprimert += blokk.size();
+            }
+        }
+        final ByteBuffer indeks = ByteBuffer
+                .allocate(Long.BYTES + oppføringar.size() * 2 * Long.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .putLong(oppføringar.size());
+        oppføringar.forEach(oppføring -> indeks.putLong(oppføring[0]).putLong(oppføring[1]));
+        Files.write(fil.resolveSibling(fil.getFileName() + BlokkgzipCsvfil.INDEKSENDING), indeks.array());
+    }
+}
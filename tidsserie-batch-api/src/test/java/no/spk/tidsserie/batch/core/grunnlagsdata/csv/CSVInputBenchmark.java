@@ -0,0 +1,114 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Samanliknar innlesing av medlemsdata via {@link CSVInput#medlemsdata()}, som dekodar og splittar kvar linje
+ * via {@link java.io.BufferedReader#lines()}, mot innlesing via {@link CsvTokenizer}.
+ * <br>
+ * Køyrast manuelt via {@link #main(String[])}, anbefalt med <code>-prof gc</code> for å samanlikne allokeringsraten.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CSVInputBenchmark {
+    @Param({ "100000" })
+    int antallMedlemmar;
+
+    private Path katalog;
+
+    private CSVInput input;
+
+    @Setup
+    public void setup() throws IOException {
+        katalog = Files.createTempDirectory("csvinput-benchmark");
+        try (final OutputStream output = new GZIPOutputStream(Files.newOutputStream(katalog.resolve("medlemsdata.csv.gz")))) {
+            for (int medlem = 0; medlem < antallMedlemmar; medlem++) {
+                for (int rad = 0; rad < 10; rad++) {
+                    output.write(
+                            (
+                                    "1950010" + medlem + ";0;2000.01.01;;12345678;" + rad + ";100;;;3010;;2;;;\n"
+                            ).getBytes(StandardCharsets.UTF_8)
+                    );
+                }
+            }
+        }
+        input = new CSVInput(katalog);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (final Stream<Path> filer = Files.walk(katalog)) {
+            filer.sorted(Comparator.reverseOrder()).forEach(CSVInputBenchmark::slett);
+        }
+    }
+
+    @Benchmark
+    public void bufferedReaderLines(final Blackhole blackhole) {
+        try (final Stream<List<String>> medlemsdata = input.medlemsdata()) {
+            medlemsdata.forEach(rad -> {
+                blackhole.consume(rad.get(0));
+                blackhole.consume(rad.get(5));
+            });
+        }
+    }
+
+    @Benchmark
+    public void csvTokenizer(final Blackhole blackhole) {
+        input.medlemsdata(rad -> {
+            blackhole.consume(rad.verdi(0));
+            blackhole.consume(rad.verdi(5));
+        });
+    }
+
+    @Benchmark
+    public void csvTokenizerMaterialisert(final Blackhole blackhole) {
+        input.medlemsdata(rad -> blackhole.consume(rad.somListe()));
+    }
+
+    private static void slett(final Path sti) {
+        try {
+            Files.delete(sti);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(
+                new OptionsBuilder()
+                        .include(CSVInputBenchmark.class.getSimpleName())
+                        .build()
+        ).run();
+    }
+}
@@ -3,6 +3,7 @@ package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
 import static java.util.stream.Stream.of;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.entry;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -10,12 +11,20 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.zip.GZIPOutputStream;
 
+import no.spk.tidsserie.tidsperiode.GenerellTidsperiode;
 import no.spk.tidsserie.tidsperiode.Tidsperiode;
 
 import org.assertj.core.api.AbstractBooleanAssert;
@@ -198,6 +207,356 @@ public class CSVInputTest {
                 .hasSize(2);
     }
 
+    @Test
+    void skal_kreve_minst_1_tråd_ved_parallell_innlesing_av_medlemsdata() {
+        assertThatCode(
+                () -> fixture.parallelliserInnlesingAvMedlemsdata(0)
+        )
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("var 0");
+    }
+
+    @Test
+    void skal_lese_inn_alle_partisjonerte_medlemsdatafiler_ved_parallell_innlesing() throws IOException {
+        assertDeletable(medlemsdata).isTrue();
+
+        skrivLinjer(newTemporaryFile("medlemsdata1-e9c7.csv.gz"), of("1;A", "1;B", "2;A"));
+        skrivLinjer(newTemporaryFile("medlemsdata2-a40c.csv.gz"), of("3;A", "4;A", "4;B"));
+        skrivLinjer(newTemporaryFileForMedlemsdata("medlemsdata3-b71d.csv"), of("5;A"));
+
+        fixture.parallelliserInnlesingAvMedlemsdata(3);
+        try (final Stream<List<String>> medlemsdata = fixture.medlemsdata()) {
+            softly.assertThat(
+                            medlemsdata.map(rad -> String.join(";", rad))
+                    )
+                    .as("medlemsdata frå alle medlemsdatafilene, lest inn parallelt")
+                    .containsExactlyInAnyOrder("1;A", "1;B", "2;A", "3;A", "4;A", "4;B", "5;A");
+        }
+    }
+
+    @Test
+    void skal_halde_medlemmets_rader_samla_ved_parallell_innlesing() throws IOException {
+        assertDeletable(medlemsdata).isTrue();
+
+        final int antallMedlemmar = 5_000;
+        for (int fil = 1; fil <= 4; fil++) {
+            final int filnummer = fil;
+            skrivLinjer(
+                    newTemporaryFile("medlemsdata" + fil + "-abcd.csv.gz"),
+                    IntStream
+                            .range(0, antallMedlemmar)
+                            .boxed()
+                            .flatMap(medlem -> of(filnummer + "-" + medlem + ";A", filnummer + "-" + medlem + ";B"))
+            );
+        }
+
+        fixture.parallelliserInnlesingAvMedlemsdata(4);
+        final List<String> medlemmar;
+        try (final Stream<List<String>> medlemsdata = fixture.medlemsdata()) {
+            medlemmar = medlemsdata.map(rad -> rad.get(0)).toList();
+        }
+
+        softly.assertThat(medlemmar).hasSize(4 * antallMedlemmar * 2);
+        softly.assertThat(
+                        IntStream
+                                .range(0, medlemmar.size())
+                                .filter(i -> i == 0 || !medlemmar.get(i).equals(medlemmar.get(i - 1)))
+                                .mapToObj(medlemmar::get)
+                )
+                .as("medlemmar der radene ikkje kjem etter kvarandre i straumen")
+                .doesNotHaveDuplicates();
+    }
+
+    /**
+     * Verifiserer at kjeldene til medlemsdatafilene blir lukka når straumen blir lukka før alle linjer er lest inn.
+     */
+    @Test
+    void skal_lukke_medlemsdatafiler_ved_parallell_innlesing_når_straumen_blir_lukka() throws InterruptedException {
+        final CountDownLatch lukka = new CountDownLatch(2);
+        final List<Supplier<Stream<List<String>>>> kjelder = List.of(
+                () -> IntStream.range(0, 1_000_000).mapToObj(medlem -> List.of("1-" + medlem)).onClose(lukka::countDown),
+                () -> IntStream.range(0, 1_000_000).mapToObj(medlem -> List.of("2-" + medlem)).onClose(lukka::countDown)
+        );
+
+        try (final Stream<List<String>> medlemsdata = new ParallellMedlemsdatainnlesing(kjelder, 2).medlemsdata()) {
+            assertThat(medlemsdata.limit(1).count()).isEqualTo(1);
+        }
+
+        assertThat(lukka.await(10, TimeUnit.SECONDS))
+                .as("vart alle kjeldene lukka etter at straumen vart lukka?")
+                .isTrue();
+    }
+
+    @Test
+    void skal_tokenisere_medlemsdata_likt_med_straumbasert_innlesing() throws IOException {
+        assertDeletable(medlemsdata).isTrue();
+
+        skrivLinjer(newTemporaryFile("medlemsdata1-e9c7.csv.gz"), of("# kommentar", "1;A;", "1;B;æøå", "2;A;"));
+        skrivLinjer(newTemporaryFileForMedlemsdata("medlemsdata2-a40c.csv"), of("3;;", "", "4;A;B;C"));
+
+        final List<List<String>> tokenisert = new ArrayList<>();
+        fixture.medlemsdata(rad -> tokenisert.add(rad.somListe()));
+
+        try (final Stream<List<String>> medlemsdata = fixture.medlemsdata()) {
+            softly.assertThat(tokenisert)
+                    .as("medlemsdata lest inn via tokenizeren")
+                    .containsExactlyElementsOf(medlemsdata.toList());
+        }
+        softly.assertThat(tokenisert).hasSize(6);
+    }
+
+    /**
+     * Verifiserer at medlemsdatafilene blir lukka etter at tokenizeren har lest inn alle radene.
+     */
+    @Test
+    void skal_lukke_medlemsdatafil_etter_tokenisering() throws IOException {
+        skrivLinjer(medlemsdata, of(DUMMYDATA, DUMMYDATA));
+
+        final List<String> medlemmar = new ArrayList<>();
+        fixture.medlemsdata(rad -> medlemmar.add(rad.verdi(0)));
+
+        assertThat(medlemmar).containsExactly("1", "1");
+        assertDeletable(this.medlemsdata).isTrue();
+    }
+
+    @Test
+    void skal_lese_inn_medlemsdata_i_samme_rekkefølge_ved_pipelina_innlesing() throws IOException {
+        assertDeletable(medlemsdata).isTrue();
+
+        for (int fil = 1; fil <= 3; fil++) {
+            final int filnummer = fil;
+            skrivLinjer(
+                    newTemporaryFile("medlemsdata" + fil + "-abcd.csv" + (fil % 2 == 0 ? "" : ".gz")),
+                    IntStream
+                            .range(0, 50_000)
+                            .mapToObj(medlem -> filnummer + "-" + medlem + ";A;" + medlem)
+            );
+        }
+
+        final List<List<String>> forventa;
+        try (final Stream<List<String>> medlemsdata = new CSVInput(baseDir.toPath()).medlemsdata()) {
+            forventa = medlemsdata.toList();
+        }
+
+        fixture.pipelinerInnlesing();
+        try (final Stream<List<String>> medlemsdata = fixture.medlemsdata()) {
+            softly.assertThat(medlemsdata.toList())
+                    .as("medlemsdata lest inn via pipelina innlesing")
+                    .hasSize(3 * 50_000)
+                    .containsExactlyElementsOf(forventa);
+        }
+
+        final List<List<String>> tokenisert = new ArrayList<>();
+        fixture.medlemsdata(rad -> tokenisert.add(rad.somListe()));
+        softly.assertThat(tokenisert)
+                .as("medlemsdata tokenisert via pipelina innlesing")
+                .containsExactlyElementsOf(forventa);
+    }
+
+    @Test
+    void skal_lese_inn_referansedata_ved_pipelina_innlesing() throws IOException {
+        fixture.addOversettere(new FakeOversetter()).pipelinerInnlesing();
+
+        skrivLinjer(newTemporaryFile("referansedata1.csv.gz"), of(DUMMYDATA, "# kommentar", DUMMYDATA));
+        skrivLinjer(newTemporaryFile("referansedata2.csv"), of(DUMMYDATA));
+
+        try (final Stream<Tidsperiode<?>> referansedata = fixture.referansedata()) {
+            assertThat(referansedata.count()).isEqualTo(3);
+        }
+    }
+
+    /**
+     * Verifiserer at alle filene blir lukka når straumen blir lukka før alle linjer er lest inn.
+     */
+    @Test
+    void skal_lukke_filer_ved_pipelina_innlesing_når_straumen_blir_lukka() throws IOException {
+        skrivLinjer(medlemsdata, of(DUMMYDATA, DUMMYDATA, DUMMYDATA));
+        final File medlemsdata2 = newTemporaryFile("medlemsdata2-abcd.csv");
+        skrivLinjer(medlemsdata2, of(DUMMYDATA));
+
+        fixture.pipelinerInnlesing();
+        try (final Stream<List<String>> medlemsdata = fixture.medlemsdata()) {
+            assertThat(medlemsdata.limit(1).count()).isEqualTo(1);
+        }
+
+        assertDeletable(this.medlemsdata).isTrue();
+        assertDeletable(medlemsdata2).isTrue();
+    }
+
+    @Test
+    void skal_kaste_feil_frå_dekomprimeringa_ved_pipelina_innlesing() throws IOException {
+        try (final OutputStream output = new FileOutputStream(medlemsdata)) {
+            output.write(new byte[]{ 31, -117, 8, 0, 1, 2, 3 });
+        }
+
+        fixture.pipelinerInnlesing();
+        try (final Stream<List<String>> medlemsdata = fixture.medlemsdata()) {
+            assertThatCode(medlemsdata::count)
+                    .isInstanceOf(UncheckedIOException.class);
+        }
+    }
+
+    @Test
+    void skal_telje_antall_oversatte_linjer_pr_oversetter() throws IOException {
+        final FakeOversetter alle = new FakeOversetter();
+        final DatoOversetter datoar = new DatoOversetter();
+        fixture.addOversettere(alle).addOversettere(datoar);
+
+        skrivLinjer(newTemporaryFile("referansedata1.csv.gz"), of("1", "2", "3"));
+
+        try (final Stream<Tidsperiode<?>> referansedata = fixture.referansedata()) {
+            assertThat(referansedata.count()).isEqualTo(6);
+        }
+
+        assertThat(fixture.antallOversettingar())
+                .containsExactly(
+                        entry(alle, 3L),
+                        entry(datoar, 3L)
+                );
+    }
+
+    @Test
+    void skal_lese_inn_ukomprimerte_filer_likt_ved_minnekarta_innlesing() throws IOException {
+        assertDeletable(medlemsdata).isTrue();
+
+        skrivLinjer(newTemporaryFile("medlemsdata1-e9c7.csv"), of("# kommentar", "1;A;", "1;B;æøå", "", "2;A;"));
+        skrivLinjer(newTemporaryFile("medlemsdata2-a40c.csv.gz"), of("3;;", "4;A;B;C"));
+
+        final List<List<String>> forventa;
+        try (final Stream<List<String>> medlemsdata = new CSVInput(baseDir.toPath()).medlemsdata()) {
+            forventa = medlemsdata.toList();
+        }
+
+        fixture.minnekartUkomprimerteFiler();
+        try (final Stream<List<String>> medlemsdata = fixture.medlemsdata()) {
+            softly.assertThat(medlemsdata.toList())
+                    .as("medlemsdata lest inn via minnekarta innlesing")
+                    .containsExactlyElementsOf(forventa);
+        }
+
+        final List<List<String>> tokenisert = new ArrayList<>();
+        fixture.medlemsdata(rad -> tokenisert.add(rad.somListe()));
+        softly.assertThat(tokenisert)
+                .as("medlemsdata tokenisert via minnekarta innlesing")
+                .containsExactlyElementsOf(forventa);
+
+        fixture.parallelliserInnlesingAvMedlemsdata(2);
+        try (final Stream<List<String>> medlemsdata = fixture.medlemsdata()) {
+            softly.assertThat(medlemsdata.toList())
+                    .as("medlemsdata lest inn parallelt via minnekarta innlesing")
+                    .containsExactlyInAnyOrderElementsOf(forventa);
+        }
+    }
+
+    @Test
+    void skal_lese_inn_blokkvis_komprimerte_filer_likt_ved_parallell_innlesing() throws IOException {
+        assertDeletable(medlemsdata).isTrue();
+
+        final StringBuilder innhold = new StringBuilder("# kommentar\n");
+        IntStream.range(0, 2_000).forEach(medlem ->
+                IntStream.range(0, 1 + medlem % 3).forEach(rad -> innhold.append(medlem).append(";A;").append(rad).append('\n'))
+        );
+        BlokkgzipCsvfilTest.skrivBlokkgzip(
+                baseDir.toPath().resolve("medlemsdata.csv.gz"),
+                innhold.toString().getBytes(StandardCharsets.UTF_8),
+                1_000
+        );
+
+        final List<List<String>> forventa;
+        try (final Stream<List<String>> medlemsdata = new CSVInput(baseDir.toPath()).medlemsdata()) {
+            forventa = medlemsdata.toList();
+        }
+        softly.assertThat(forventa).hasSize(4_000);
+
+        fixture.parallelliserInnlesingAvMedlemsdata(4);
+        try (final Stream<List<String>> medlemsdata = fixture.medlemsdata()) {
+            softly.assertThat(medlemsdata.toList())
+                    .as("medlemsdata lest inn parallelt frå blokkvis komprimert fil")
+                    .containsExactlyInAnyOrderElementsOf(forventa);
+        }
+        softly.assertThat(fixture.referansedataFiler())
+                .as("blokkindeksen skal ikkje bli lest inn som referansedata")
+                .isEmpty();
+    }
+
+    @Test
+    void skal_kreve_minst_1_tråd_ved_parallell_innlesing_av_referansedata() {
+        assertThatCode(
+                () -> fixture.parallelliserInnlesingAvReferansedata(0)
+        )
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("var 0");
+    }
+
+    @Test
+    void skal_bevare_rekkefølga_på_referansedata_ved_parallell_innlesing() throws IOException {
+        for (int fil = 1; fil <= 5; fil++) {
+            final int filnummer = fil;
+            skrivLinjer(
+                    newTemporaryFile("referansedata" + fil + ".csv.gz"),
+                    IntStream
+                            .range(0, 5_000)
+                            .mapToObj(dag -> Integer.toString(filnummer * 10_000 + dag))
+            );
+        }
+
+        final List<LocalDate> forventa;
+        try (final Stream<Tidsperiode<?>> referansedata = new CSVInput(baseDir.toPath())
+                .addOversettere(new DatoOversetter())
+                .referansedata()) {
+            forventa = referansedata.map(Tidsperiode::fraOgMed).toList();
+        }
+
+        fixture
+                .addOversettere(new DatoOversetter())
+                .parallelliserInnlesingAvReferansedata(3);
+        try (final Stream<Tidsperiode<?>> referansedata = fixture.referansedata()) {
+            softly.assertThat(referansedata.map(Tidsperiode::fraOgMed).toList())
+                    .as("referansedata lest inn parallelt")
+                    .hasSize(5 * 5_000)
+                    .containsExactlyElementsOf(forventa);
+        }
+        softly.assertThat(forventa)
+                .as("referansedata skal lesast inn sortert på filnavn")
+                .startsWith(LocalDate.ofEpochDay(10_000))
+                .endsWith(LocalDate.ofEpochDay(54_999));
+    }
+
+    @Test
+    void skal_kaste_feil_frå_oversettinga_ved_parallell_innlesing_av_referansedata() throws IOException {
+        skrivLinjer(newTemporaryFile("referansedata1.csv.gz"), of("1", "2"));
+        skrivLinjer(newTemporaryFile("referansedata2.csv.gz"), of("3", "ikkje-ein-dag"));
+
+        fixture
+                .addOversettere(new DatoOversetter())
+                .parallelliserInnlesingAvReferansedata(2);
+        try (final Stream<Tidsperiode<?>> referansedata = fixture.referansedata()) {
+            assertThatCode(referansedata::count)
+                    .isInstanceOf(NumberFormatException.class);
+        }
+    }
+
+    /**
+     * Verifiserer at referansedatafilene blir lukka når straumen blir lukka før alle linjer er lest inn.
+     */
+    @Test
+    void skal_lukke_referansefiler_ved_parallell_innlesing_når_straumen_blir_lukka() throws IOException {
+        final File referanse1 = newTemporaryFile("referansedata1.csv.gz");
+        final File referanse2 = newTemporaryFile("referansedata2.csv.gz");
+        skrivLinjer(referanse1, of(DUMMYDATA, DUMMYDATA));
+        skrivLinjer(referanse2, of(DUMMYDATA, DUMMYDATA));
+
+        fixture
+                .addOversettere(new FakeOversetter())
+                .parallelliserInnlesingAvReferansedata(2);
+        try (final Stream<Tidsperiode<?>> referansedata = fixture.referansedata()) {
+            assertThat(referansedata.limit(1).count()).isEqualTo(1);
+        }
+
+        assertDeletable(referanse1).isTrue();
+        assertDeletable(referanse2).isTrue();
+    }
+
     private File newTemporaryFile(final String filename) throws IOException {
         final File file = new File(baseDir, filename);
         assertThat(file.createNewFile()).as("was " + file + " successfully created?").isTrue();
@@ -212,6 +571,18 @@ public class CSVInputTest {
         return file;
     }
 
+    private static class DatoOversetter implements CsvOversetter<Tidsperiode<?>> {
+        @Override
+        public boolean supports(final List<String> rad) {
+            return true;
+        }
+
+        @Override
+        public Tidsperiode<?> oversett(final List<String> rad) {
+            return new GenerellTidsperiode(LocalDate.ofEpochDay(Long.parseLong(rad.get(0))), Optional.empty());
+        }
+    }
+
     private static AbstractBooleanAssert<?> assertDeletable(final File file) {
         return assertThat(file.delete())
                 .as("er " + file + " sletta?");
@@ -223,6 +594,15 @@ public class CSVInputTest {
         }
     }
 
+    /**
+     * Skriv kvar linje i UTF-8 med linjeskift etter, for testar som treng fleire linjer i samme fil.
+     */
+    private static void skrivLinjer(final File file, final Stream<String> lines) throws IOException {
+        try (final OutputStream output = open(file)) {
+            lines.forEach(line -> skriv(output, line + "\n"));
+        }
+    }
+
     private static OutputStream open(final File file) throws IOException {
         final FileOutputStream output = new FileOutputStream(file);
         if (file.getName().endsWith("gz")) {
@@ -239,6 +619,14 @@ public class CSVInputTest {
         }
     }
 
+    private static void skriv(final OutputStream output, final String line) {
+        try {
+            output.write(line.getBytes(StandardCharsets.UTF_8));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private static File newFolder(File root, String... subDirs) throws IOException {
         String subFolder = String.join("/", subDirs);
         File result = new File(root, subFolder);
@@ -0,0 +1,172 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import no.spk.tidsserie.batch.core.grunnlagsdata.CsvRad;
+
+import org.junit.jupiter.api.Test;
+
+class CsvTokenizerTest {
+    @Test
+    void skal_splitte_linjer_i_kolonner() throws IOException {
+        assertThat(
+                tokeniser("1;2;3\n4;5;6\n")
+        )
+                .containsExactly(
+                        List.of("1", "2", "3"),
+                        List.of("4", "5", "6")
+                );
+    }
+
+    @Test
+    void skal_ta_med_tomme_kolonner_på_slutten_av_rada() throws IOException {
+        assertThat(
+                tokeniser("1;;\n;\n\n")
+        )
+                .containsExactly(
+                        List.of("1", "", ""),
+                        List.of("", ""),
+                        List.of("")
+                );
+    }
+
+    @Test
+    void skal_hoppe_over_kommentarar() throws IOException {
+        assertThat(
+                tokeniser("# kommentar\n1;2\n#1;2\n3;4")
+        )
+                .containsExactly(
+                        List.of("1", "2"),
+                        List.of("3", "4")
+                );
+    }
+
+    @Test
+    void skal_støtte_linjeskift_med_vognretur() throws IOException {
+        assertThat(
+                tokeniser("1;2\r\n3;4\r\n")
+        )
+                .containsExactly(
+                        List.of("1", "2"),
+                        List.of("3", "4")
+                );
+    }
+
+    @Test
+    void skal_støtte_siste_linje_utan_linjeskift() throws IOException {
+        assertThat(
+                tokeniser("1;2\n3;4")
+        )
+                .containsExactly(
+                        List.of("1", "2"),
+                        List.of("3", "4")
+                );
+    }
+
+    @Test
+    void skal_støtte_linjer_som_er_lengre_enn_bufferen() throws IOException {
+        final String lang = "x".repeat(100);
+        assertThat(
+                tokeniser(lang + ";" + lang + "\nkort\n" + lang + ";æøå", 8)
+        )
+                .containsExactly(
+                        List.of(lang, lang),
+                        List.of("kort"),
+                        List.of(lang, "æøå")
+                );
+    }
+
+    @Test
+    void skal_dekode_kolonner_som_utf8() throws IOException {
+        assertThat(
+                tokeniser("blåbær;Ærlig;øl\n")
+        )
+                .containsExactly(
+                        List.of("blåbær", "Ærlig", "øl")
+                );
+    }
+
+    @Test
+    void skal_samanlikne_kolonner_utan_å_materialisere_dei() throws IOException {
+        try (final CsvTokenizer tokenizer = tokenizer("MEDLEM;blåbær;1\n", 1024)) {
+            assertThat(tokenizer.neste()).isTrue();
+
+            final CsvRad rad = tokenizer.rad();
+            assertThat(rad.erLik(0, "MEDLEM")).isTrue();
+            assertThat(rad.erLik(0, "MEDLEMMAR")).isFalse();
+            assertThat(rad.erLik(0, "medlem")).isFalse();
+            assertThat(rad.erLik(1, "blåbær")).isTrue();
+            assertThat(rad.erLik(1, "blabær")).isFalse();
+            assertThat(rad.erLik(1, "blåbæ")).isFalse();
+            assertThat(rad.erLik(2, "1")).isTrue();
+        }
+    }
+
+    @Test
+    void skal_feile_ved_oppslag_på_kolonne_som_ikkje_eksisterer() throws IOException {
+        try (final CsvTokenizer tokenizer = tokenizer("1;2\n", 1024)) {
+            assertThat(tokenizer.neste()).isTrue();
+
+            assertThatCode(() -> tokenizer.rad().verdi(2))
+                    .isInstanceOf(IndexOutOfBoundsException.class)
+                    .hasMessageContaining("kolonne 2");
+            assertThatCode(() -> tokenizer.rad().erLik(-1, "1"))
+                    .isInstanceOf(IndexOutOfBoundsException.class);
+        }
+    }
+
+    @Test
+    void skal_gjenbruke_radvisninga_for_alle_rader() throws IOException {
+        try (final CsvTokenizer tokenizer = tokenizer("1\n2\n", 1024)) {
+            assertThat(tokenizer.neste()).isTrue();
+            final CsvRad første = tokenizer.rad();
+            assertThat(tokenizer.neste()).isTrue();
+
+            assertThat(tokenizer.rad()).isSameAs(første);
+            assertThat(første.verdi(0)).isEqualTo("2");
+            assertThat(tokenizer.neste()).isFalse();
+        }
+    }
+
+    @Test
+    void skal_hente_ut_kolonnene_etter_medlemsidentifikatoren_som_rå_bytes() throws IOException {
+        try (final CsvTokenizer tokenizer = tokenizer("MEDLEM;blåbær;;1\r\nMEDLEM\n", 1024)) {
+            assertThat(tokenizer.neste()).isTrue();
+            assertThat(new String(tokenizer.rad().somBytes(1), StandardCharsets.UTF_8)).isEqualTo("blåbær;;1");
+            assertThat(tokenizer.rad().somBytes(0)).isEqualTo(CsvRad.rad(List.of("MEDLEM", "blåbær", "", "1")).somBytes(0));
+
+            assertThat(tokenizer.neste()).isTrue();
+            assertThat(tokenizer.rad().somBytes(1)).isEmpty();
+            assertThatCode(() -> tokenizer.rad().somBytes(2))
+                    .isInstanceOf(IndexOutOfBoundsException.class);
+        }
+    }
+
+    private static List<List<String>> tokeniser(final String innhold) throws IOException {
+        return tokeniser(innhold, 1024);
+    }
+
+    private static List<List<String>> tokeniser(final String innhold, final int bufferstorleik) throws IOException {
+        final List<List<String>> rader = new ArrayList<>();
+        try (final CsvTokenizer tokenizer = tokenizer(innhold, bufferstorleik)) {
+            while (tokenizer.neste()) {
+                rader.add(tokenizer.rad().somListe());
+            }
+        }
+        return rader;
+    }
+
+    private static CsvTokenizer tokenizer(final String innhold, final int bufferstorleik) {
+        return new CsvTokenizer(
+                new ByteArrayInputStream(innhold.getBytes(StandardCharsets.UTF_8)),
+                bufferstorleik
+        );
+    }
+}
@@ -0,0 +1,149 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MinnekartaCsvfilTest {
+    @TempDir
+    Path katalog;
+
+    @Test
+    void skal_lese_alle_linjer_frå_ein_del() throws IOException {
+        final Path fil = skriv("1;A;\r\n# kommentar\n\n2;blåbær;C\n3");
+
+        assertThat(rader(new MinnekartaCsvfil(fil).del(1)))
+                .containsExactly(
+                        List.of("1", "A", ""),
+                        List.of(""),
+                        List.of("2", "blåbær", "C"),
+                        List.of("3")
+                );
+    }
+
+    @Test
+    void skal_ikkje_returnere_delar_for_tom_fil() throws IOException {
+        assertThat(new MinnekartaCsvfil(skriv("")).del(4)).isEmpty();
+    }
+
+    @Test
+    void skal_ikkje_dele_opp_filer_som_er_mindre_enn_minste_delstorleik() throws IOException {
+        final Path fil = skriv("1;A\n2;A\n3;A\n4;A\n");
+
+        assertThat(new MinnekartaCsvfil(fil, 1024).del(4)).hasSize(1);
+    }
+
+    @Test
+    void skal_dele_opp_fila_på_grenser_mellom_medlemmar() throws IOException {
+        final StringBuilder innhold = new StringBuilder();
+        IntStream.range(0, 1_000).forEach(medlem ->
+                IntStream.range(0, 1 + medlem % 7).forEach(rad -> innhold.append(medlem).append(';').append(rad).append('\n'))
+        );
+        final Path fil = skriv(innhold.toString());
+
+        final List<MinnekartaCsvfil.Del> delar = new MinnekartaCsvfil(fil, 1).del(8);
+        assertThat(delar).hasSize(8);
+
+        final List<String> medlemmarPrDel = new ArrayList<>();
+        for (final MinnekartaCsvfil.Del del : delar) {
+            final List<List<String>> rader = rader(List.of(del));
+            medlemmarPrDel.add(rader.get(0).get(0));
+            medlemmarPrDel.add(rader.get(rader.size() - 1).get(0));
+        }
+        assertThat(medlemmarPrDel)
+                .as("første og siste medlem i kvar del, ingen medlemmar skal vere splitta over to delar")
+                .doesNotHaveDuplicates();
+
+        assertThat(rader(delar))
+                .as("alle linjer frå alle delar")
+                .hasSize(innhold.toString().split("\n").length)
+                .isEqualTo(rader(new MinnekartaCsvfil(fil).del(1)));
+    }
+
+    @Test
+    void skal_dele_opp_referansedata_med_kun_éin_type_på_linjegrenser() throws IOException {
+        final Path fil = skriv(referansedata(10_000));
+
+        assertThat(new MinnekartaCsvfil(fil, 1).del(8))
+                .as("første kolonne endrar aldri verdi, så fila kan ikkje delast på grenser mellom medlemmar")
+                .hasSize(1);
+
+        final List<MinnekartaCsvfil.Del> delar = new MinnekartaCsvfil(fil, 1).del(8, Delingsgrense.LINJE);
+        assertThat(delar).hasSize(8);
+        assertThat(rader(delar))
+                .as("alle linjer frå alle delar")
+                .hasSize(10_000)
+                .isEqualTo(rader(new MinnekartaCsvfil(fil).del(1)));
+    }
+
+    @Test
+    void skal_dele_opp_referansedata_med_kun_éin_type_som_er_større_enn_maksimal_delstorleik() throws IOException {
+        final Path fil = skriv(referansedata(10_000));
+
+        assertThatCode(() -> new MinnekartaCsvfil(fil, 1, 4096).del(1))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("eit medlem har fleire linjer enn det som får plass i ein del");
+
+        final List<MinnekartaCsvfil.Del> delar = new MinnekartaCsvfil(fil, 1, 4096).del(1, Delingsgrense.LINJE);
+        assertThat(delar).hasSizeGreaterThanOrEqualTo((int) (Files.size(fil) / 4096));
+        assertThat(rader(delar))
+                .as("alle linjer frå alle delar")
+                .hasSize(10_000)
+                .isEqualTo(rader(new MinnekartaCsvfil(fil).del(1)));
+    }
+
+    @Test
+    void skal_tokenisere_delen_med_gjenbrukbar_radvisning() throws IOException {
+        final Path fil = skriv("MEDLEM;blåbær\nMEDLEM;bringebær\n");
+
+        final List<String> verdiar = new ArrayList<>();
+        new MinnekartaCsvfil(fil).del(1).forEach(del -> del.tokeniser(rad -> {
+            assertThat(rad.erLik(0, "MEDLEM")).isTrue();
+            assertThat(rad.erLik(1, "blåbær")).isEqualTo(verdiar.isEmpty());
+            verdiar.add(rad.verdi(1));
+        }));
+
+        assertThat(verdiar).containsExactly("blåbær", "bringebær");
+    }
+
+    @Test
+    void skal_hente_ut_kolonnene_etter_medlemsidentifikatoren_som_rå_bytes() throws IOException {
+        final Path fil = skriv("MEDLEM;blåbær;;1\r\nMEDLEM\n");
+
+        final List<String> verdiar = new ArrayList<>();
+        new MinnekartaCsvfil(fil).del(1).forEach(del -> del.tokeniser(
+                rad -> verdiar.add(new String(rad.somBytes(1), StandardCharsets.UTF_8))
+        ));
+
+        assertThat(verdiar).containsExactly("blåbær;;1", "");
+    }
+
+    private static String referansedata(final int antallLinjer) {
+        final StringBuilder innhold = new StringBuilder();
+        IntStream.range(0, antallLinjer).forEach(
+                linje -> innhold.append("ORGANISASJON;").append(linje).append(";2000.01.01;\n")
+        );
+        return innhold.toString();
+    }
+
+    private Path skriv(final String innhold) throws IOException {
+        return Files.write(katalog.resolve("fil.csv"), innhold.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<List<String>> rader(final List<MinnekartaCsvfil.Del> delar) {
+        return delar
+                .stream()
+                .flatMap(MinnekartaCsvfil.Del::rader)
+                .toList();
+    }
+}
@@ -0,0 +1,124 @@
+package no.spk.tidsserie.batch.core.grunnlagsdata.csv;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+import no.spk.tidsserie.tidsperiode.GenerellTidsperiode;
+import no.spk.tidsserie.tidsperiode.Tidsperiode;
+
+import org.junit.jupiter.api.Test;
+
+class OversettartabellTest {
+    private final Map<CsvOversetter<?>, LongAdder> teljarar = new IdentityHashMap<>();
+
+    private final List<CsvOversetter<? extends Tidsperiode<?>>> oversettere = new ArrayList<>();
+
+    @Test
+    void skal_kun_spørje_oversetterar_med_linjas_typeindikator() {
+        final Oversettar avtale = leggTil(new Oversettar("AVTALE", 1));
+        final Oversettar lønn = leggTil(new Oversettar("LØNN", 2));
+
+        assertThat(oversett("AVTALE", "x")).containsExactly(dag(1));
+
+        assertThat(avtale.antallSpørsmål).isEqualTo(1);
+        assertThat(lønn.antallSpørsmål).isEqualTo(0);
+    }
+
+    @Test
+    void skal_spørje_oversetterar_utan_typeindikator_om_alle_linjer() {
+        final Oversettar avtale = leggTil(new Oversettar("AVTALE", 1));
+        final Oversettar udeklarert = leggTil(new Oversettar(null, 2));
+
+        assertThat(oversett("AVTALE", "x")).containsExactly(dag(1), dag(2));
+        assertThat(oversett("UKJENT", "x")).containsExactly(dag(2));
+
+        assertThat(avtale.antallSpørsmål).isEqualTo(1);
+        assertThat(udeklarert.antallSpørsmål).isEqualTo(2);
+    }
+
+    @Test
+    void skal_bevare_registreringsrekkefølga_mellom_oversetterane() {
+        leggTil(new Oversettar(null, 1));
+        leggTil(new Oversettar("AVTALE", 2));
+        leggTil(new Oversettar(null, 3));
+        leggTil(new Oversettar("AVTALE", 4));
+
+        assertThat(oversett("AVTALE")).containsExactly(dag(1), dag(2), dag(3), dag(4));
+    }
+
+    @Test
+    void skal_respektere_supports_for_oversetterar_med_typeindikator() {
+        final Oversettar avtale = leggTil(new Oversettar("AVTALE", 1));
+        avtale.støttar = false;
+
+        assertThat(oversett("AVTALE")).isEmpty();
+        assertThat(avtale.antallSpørsmål).isEqualTo(1);
+    }
+
+    @Test
+    void skal_telje_antall_oversatte_linjer_pr_oversetter() {
+        final Oversettar avtale = leggTil(new Oversettar("AVTALE", 1));
+        final Oversettar lønn = leggTil(new Oversettar("LØNN", 2));
+        lønn.støttar = false;
+
+        final Oversettartabell tabell = new Oversettartabell(oversettere, teljarar::get);
+        tabell.oversett(List.of("AVTALE")).toList();
+        tabell.oversett(List.of("AVTALE")).toList();
+        tabell.oversett(List.of("LØNN")).toList();
+
+        assertThat(teljarar.get(avtale).sum()).isEqualTo(2);
+        assertThat(teljarar.get(lønn).sum()).isEqualTo(0);
+    }
+
+    private Oversettar leggTil(final Oversettar oversetter) {
+        oversettere.add(oversetter);
+        teljarar.put(oversetter, new LongAdder());
+        return oversetter;
+    }
+
+    private List<LocalDate> oversett(final String... linje) {
+        return new Oversettartabell(oversettere, teljarar::get)
+                .oversett(List.of(linje))
+                .map(Tidsperiode::fraOgMed)
+                .toList();
+    }
+
+    private static LocalDate dag(final int dag) {
+        return LocalDate.ofEpochDay(dag);
+    }
+
+    private static class Oversettar implements CsvOversetter<Tidsperiode<?>> {
+        private final String typeindikator;
+        private final int dag;
+        private boolean støttar = true;
+        private int antallSpørsmål;
+
+        Oversettar(final String typeindikator, final int dag) {
+            this.typeindikator = typeindikator;
+            this.dag = dag;
+        }
+
+        @Override
+        public boolean supports(final List<String> rad) {
+            antallSpørsmål++;
+            return støttar && (typeindikator == null || typeindikator.equals(rad.get(0)));
+        }
+
+        @Override
+        public Tidsperiode<?> oversett(final List<String> rad) {
+            return new GenerellTidsperiode(dag(dag), Optional.empty());
+        }
+
+        @Override
+        public Optional<String> typeindikator() {
+            return Optional.ofNullable(typeindikator);
+        }
+    }
+}
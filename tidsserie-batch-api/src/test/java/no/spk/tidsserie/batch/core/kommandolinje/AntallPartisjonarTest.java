@@ -0,0 +1,31 @@
+package no.spk.tidsserie.batch.core.kommandolinje;
+
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar.antallPartisjonar;
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar.standardAntallPartisjonar;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import org.junit.jupiter.api.Test;
+
+class AntallPartisjonarTest {
+    @Test
+    void skal_bruke_271_partisjonar_som_standard() {
+        assertThat(standardAntallPartisjonar().antall()).isEqualTo(271);
+        assertThat(standardAntallPartisjonar().erStandard()).isTrue();
+        assertThat(antallPartisjonar(271)).isEqualTo(standardAntallPartisjonar());
+        assertThat(antallPartisjonar(272).erStandard()).isFalse();
+    }
+
+    @Test
+    void skal_kreve_minst_1_partisjon() {
+        assertThatCode(() -> antallPartisjonar(0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("var 0");
+        assertThatCode(() -> antallPartisjonar(1)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void skal_ha_menneskevennlig_toString() {
+        assertThat(antallPartisjonar(1024)).hasToString("antall partisjonar 1024");
+    }
+}
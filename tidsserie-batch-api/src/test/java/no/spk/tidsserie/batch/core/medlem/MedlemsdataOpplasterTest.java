@@ -0,0 +1,148 @@
+package no.spk.tidsserie.batch.core.medlem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import no.spk.tidsserie.batch.core.ServiceRegistryExtension;
+import no.spk.tidsserie.batch.core.grunnlagsdata.GrunnlagsdataRepository;
+import no.spk.tidsserie.tidsperiode.Tidsperiode;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class MedlemsdataOpplasterTest {
+    @RegisterExtension
+    public final ServiceRegistryExtension registry = new ServiceRegistryExtension();
+
+    private final List<List<String>> medlemsdata = new ArrayList<>();
+
+    private final BlokkUploader uploader = new BlokkUploader();
+
+    @BeforeEach
+    void _before() {
+        registry.registrer(GrunnlagsdataRepository.class, new Repository(medlemsdata));
+        registry.registrer(MedlemsdataBackend.class, new Backend(uploader));
+    }
+
+    @Test
+    void skal_ikkje_splitte_medlemmar_over_to_blokker_ved_overgangen_mellom_blokkene() {
+        for (int medlem = 0; medlem < 4_097; medlem++) {
+            medlemsdata.add(List.of("" + medlem, "Født", "2003"));
+            if (medlem == 4_095 || medlem == 4_096) {
+                medlemsdata.add(List.of("" + medlem, "Eksisterer i", "Tidslinje A"));
+                medlemsdata.add(List.of("" + medlem, "Eksisterer i", "Tidslinje B"));
+            }
+        }
+
+        new MedlemsdataOpplaster().lastOpp(registry.registry());
+
+        assertThat(uploader.blokker).hasSize(2);
+        assertThat(uploader.blokker.get(0)).hasSize(4_096);
+        assertThat(uploader.blokker.get(0).get(4_095))
+                .isEqualTo("4095=Født;2003\nEksisterer i;Tidslinje A\nEksisterer i;Tidslinje B");
+        assertThat(uploader.blokker.get(1))
+                .containsExactly("4096=Født;2003\nEksisterer i;Tidslinje A\nEksisterer i;Tidslinje B");
+    }
+
+    @Test
+    void skal_ikkje_overføre_nokon_blokker_når_det_ikkje_finst_medlemsdata() {
+        new MedlemsdataOpplaster().lastOpp(registry.registry());
+
+        assertThat(uploader.blokker).isEmpty();
+    }
+
+    @Test
+    void skal_feile_dersom_ei_rad_manglar_medlemsidentifikator() {
+        medlemsdata.add(List.of("Adam", "Født", "2003"));
+        medlemsdata.add(List.of(" ", "Født", "2004"));
+
+        assertThatCode(() -> new MedlemsdataOpplaster().lastOpp(registry.registry()))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(uploader.blokker).isEmpty();
+    }
+
+    @Test
+    void skal_kaste_feil_frå_uploaderen_vidare() {
+        medlemsdata.add(List.of("Adam", "Født", "2003"));
+        uploader.feil = new IllegalStateException("Opplastinga feila");
+
+        assertThatCode(() -> new MedlemsdataOpplaster().lastOpp(registry.registry()))
+                .isSameAs(uploader.feil);
+    }
+
+    private static class BlokkUploader implements MedlemsdataUploader {
+        private final List<List<String>> blokker = new ArrayList<>();
+
+        private RuntimeException feil;
+
+        @Override
+        public void append(final Medlemslinje linje) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void run() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void run(final Medlemsdatablokk blokk) {
+            if (feil != null) {
+                throw feil;
+            }
+            final List<String> medlemmar = new ArrayList<>();
+            for (int gruppe = 0; gruppe < blokk.antallMedlemmar(); gruppe++) {
+                medlemmar.add(blokk.medlem(gruppe) + "=" + new String(blokk.medlemsdata(gruppe), StandardCharsets.UTF_8));
+            }
+            blokker.add(medlemmar);
+        }
+    }
+
+    private static class Backend implements MedlemsdataBackend {
+        private final MedlemsdataUploader uploader;
+
+        Backend(final MedlemsdataUploader uploader) {
+            this.uploader = uploader;
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public MedlemsdataUploader uploader() {
+            return uploader;
+        }
+
+        @Override
+        public Map<String, Integer> lagTidsserie() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class Repository implements GrunnlagsdataRepository {
+        private final List<List<String>> medlemsdata;
+
+        Repository(final List<List<String>> medlemsdata) {
+            this.medlemsdata = medlemsdata;
+        }
+
+        @Override
+        public Stream<List<String>> medlemsdata() {
+            return medlemsdata.stream();
+        }
+
+        @Override
+        public Stream<Tidsperiode<?>> referansedata() {
+            return Stream.empty();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package no.spk.tidsserie.batch.core.medlem;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static no.spk.tidsserie.batch.core.medlem.Medlemsdatarader.rader;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class MedlemsdataraderTest {
+    @Test
+    void skal_splitte_medlemsdata_i_rader_og_kolonner() {
+        assertThat(rader("A;1\nB;2;æøå".getBytes(UTF_8)))
+                .containsExactly(
+                        asList("A", "1"),
+                        asList("B", "2", "æøå")
+                );
+    }
+
+    @Test
+    void skal_bevare_tomme_kolonner_og_rader_utan_kolonner() {
+        assertThat(rader("A;;\n\n;B".getBytes(UTF_8)))
+                .containsExactly(
+                        asList("A", "", ""),
+                        asList(""),
+                        asList("", "B")
+                );
+    }
+
+    @Test
+    void skal_dele_opp_likt_med_string_split() {
+        for (final String medlemsdata : asList("", "\n", "\n\n", "A\n", "A\n\n", "\nA", ";\n", "A;\n;", "A;B\n\nC;\n")) {
+            assertThat(rader(medlemsdata.getBytes(UTF_8)))
+                    .as("rader i '%s'", medlemsdata)
+                    .isEqualTo(
+                            Arrays
+                                    .stream(medlemsdata.split("\n"))
+                                    .map(rad -> asList(rad.split(";", -1)))
+                                    .toList()
+                    );
+        }
+    }
+
+    @Test
+    void skal_ikkje_tillate_endringar() {
+        final List<List<String>> rader = rader("A;1".getBytes(UTF_8));
+
+        assertThatCode(() -> rader.get(0).set(0, "B")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatCode(() -> rader.remove(0)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void skal_feile_ved_oppslag_utanfor_radene_og_kolonnene() {
+        final List<List<String>> rader = rader("A;1".getBytes(UTF_8));
+
+        assertThatCode(() -> rader.get(1)).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatCode(() -> rader.get(0).get(2)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+}
@@ -0,0 +1,95 @@
+package no.spk.tidsserie.batch.core.medlem;
+
+import static no.spk.tidsserie.batch.core.medlem.MedlemsId.medlemsId;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MedlemsdatasorteringTest {
+    @TempDir
+    Path logkatalog;
+
+    @Test
+    void skal_gruppere_radene_pr_medlem_utan_å_skrive_til_disk_når_alt_får_plass_i_minnet() throws IOException {
+        final List<String> resultat = new ArrayList<>();
+        try (final Medlemsdatasortering sortering = new Medlemsdatasortering(logkatalog, Long.MAX_VALUE)) {
+            leggTil(sortering, "Eva", "Født;2004");
+            leggTil(sortering, "Adam", "Født;2003");
+            leggTil(sortering, "Eva", "Død;2090");
+            leggTil(sortering, "Adam", "Død;2091");
+
+            sortering.flett((medlem, linje) -> resultat.add(medlem + ";" + new String(linje, StandardCharsets.UTF_8)));
+
+            assertThat(sortering.antallLøp()).isZero();
+            assertThat(filer()).isEmpty();
+        }
+
+        assertThat(resultat).containsExactly(
+                "Adam;Født;2003",
+                "Adam;Død;2091",
+                "Eva;Født;2004",
+                "Eva;Død;2090"
+        );
+    }
+
+    @Test
+    void skal_skrive_løp_til_disk_og_flette_dei_saman_igjen() throws IOException {
+        final List<String> forventa = new ArrayList<>();
+        final List<String> resultat = new ArrayList<>();
+        try (final Medlemsdatasortering sortering = new Medlemsdatasortering(logkatalog, 1024)) {
+            for (int rad = 0; rad < 10; rad++) {
+                for (int medlem = 99; medlem >= 0; medlem--) {
+                    leggTil(sortering, String.format("%03d", medlem), "rad " + rad);
+                }
+            }
+            for (int medlem = 0; medlem < 100; medlem++) {
+                for (int rad = 0; rad < 10; rad++) {
+                    forventa.add(String.format("%03d", medlem) + ";rad " + rad);
+                }
+            }
+
+            sortering.flett((medlem, linje) -> resultat.add(medlem + ";" + new String(linje, StandardCharsets.UTF_8)));
+
+            assertThat(sortering.antallLøp()).isGreaterThan(1);
+            assertThat(filer()).hasSize(1);
+        }
+
+        assertThat(resultat).containsExactlyElementsOf(forventa);
+        assertThat(filer())
+                .as("midlertidige filer skal vere sletta når sorteringa blir lukka")
+                .isEmpty();
+    }
+
+    @Test
+    void skal_gjenbruke_medlemsidentifikatoren_for_etterfølgjande_rader_for_samme_medlem() throws IOException {
+        final List<MedlemsId> medlemmar = new ArrayList<>();
+        try (final Medlemsdatasortering sortering = new Medlemsdatasortering(logkatalog, Long.MAX_VALUE)) {
+            leggTil(sortering, "Adam", "A");
+            leggTil(sortering, "Adam", "B");
+
+            sortering.flett((medlem, linje) -> medlemmar.add(medlem));
+        }
+
+        assertThat(medlemmar).hasSize(2);
+        assertThat(medlemmar.get(0)).isSameAs(medlemmar.get(1));
+    }
+
+    private List<Path> filer() throws IOException {
+        try (final Stream<Path> filer = Files.list(logkatalog)) {
+            return filer.toList();
+        }
+    }
+
+    private static void leggTil(final Medlemsdatasortering sortering, final String medlem, final String linje) {
+        sortering.leggTil(medlemsId(medlem), linje.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,32 @@
+package no.spk.tidsserie.batch.main.input;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.String.format;
+import static no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar.erGyldig;
+
+import picocli.CommandLine;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.ParameterException;
+
+public class AntallPartisjonarValidator {
+
+    public void validate(final String name, final String verdi, final CommandSpec spec) throws ParameterException {
+        if (!verdi.matches("-?[0-9]{1,9}")) {
+            throw new ParameterException(
+                    new CommandLine(spec),
+                    "'" + name + "': er ikke et gyldig tall (fant " + verdi + ")."
+            );
+        }
+
+        if (!erGyldig(parseInt(verdi))) {
+            throw new ParameterException(
+                    new CommandLine(spec),
+                    format(
+                            "'%s': må være større enn 0 (fant %s).",
+                            name,
+                            verdi
+                    )
+            );
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package no.spk.tidsserie.batch.main.input;
+
+import static java.util.stream.Collectors.joining;
+
+import java.util.stream.Stream;
+
+import no.spk.tidsserie.batch.core.kommandolinje.Lastbalansering;
+
+import picocli.CommandLine;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.ParameterException;
+
+/**
+ * {@link LastbalanseringValidator} verifiserer
+ * at den angitte koda tilhøyrer ei av lastbalanseringane som batchen støttar.
+ *
+ * @see Lastbalansering
+ */
+public class LastbalanseringValidator {
+
+    public void validate(final String name, final String value, final CommandSpec spec) throws ParameterException {
+        if (!Lastbalansering.parse(value).isPresent()) {
+            throw new ParameterException(
+                    new CommandLine(spec),
+                    "'" + name + "': lastbalansering '" + value + "' er ikkje støtta av tidsserie-batch.\n"
+                            + "\nFølgjande lastbalanseringar er støtta:\n"
+                            + Stream.of(Lastbalansering.values())
+                            .map(Lastbalansering::kode)
+                            .map(k -> "- " + k)
+                            .collect(joining("\n"))
+            );
+        }
+    }
+}
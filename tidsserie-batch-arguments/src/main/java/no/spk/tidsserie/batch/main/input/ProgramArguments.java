@@ -31,7 +31,9 @@ import no.spk.tidsserie.tidsperiode.underlag.Observasjonsperiode;
 import no.spk.tidsserie.batch.core.Tidsseriemodus;
 import no.spk.tidsserie.batch.core.UttrekksId;
 import no.spk.tidsserie.batch.core.kommandolinje.AldersgrenseForSlettingAvLogKatalogar;
+import no.spk.tidsserie.batch.core.kommandolinje.AntallPartisjonar;
 import no.spk.tidsserie.batch.core.kommandolinje.AntallProsessorar;
+import no.spk.tidsserie.batch.core.kommandolinje.Lastbalansering;
 import no.spk.tidsserie.batch.core.kommandolinje.TidsserieBatchArgumenter;
 import no.spk.tidsserie.tjenesteregister.ServiceRegistry;
 
@@ -52,6 +54,8 @@ public class ProgramArguments implements Arguments, TidsserieBatchArgumenter, Pr
     int fraAar = new StandardBatchperiode(now()).fraAar();
     int tilAar = new StandardBatchperiode(now()).tilAar();
     AntallProsessorar nodes = AntallProsessorar.standardAntallProsessorar();
+    AntallPartisjonar partisjonar = AntallPartisjonar.standardAntallPartisjonar();
+    Lastbalansering lastbalansering = Lastbalansering.standardLastbalansering();
     int antallNoderForPrinting;
     Modus modus;
     String kjoeretid = "0400";
@@ -139,6 +143,22 @@ public class ProgramArguments implements Arguments, TidsserieBatchArgumenter, Pr
         antallNoderForPrinting = Integer.parseInt(value);
     }
 
+    @Option(names = {"-partisjonar"},
+            description = "Antall partisjoner medlemmene skal fordeles på ved tidsserie-prosessering. Default er 271."
+    )
+    public void settPartisjonar(final String value) {
+        new AntallPartisjonarValidator().validate("partisjonar", value, spec);
+        partisjonar = AntallPartisjonar.antallPartisjonar(Integer.parseInt(value));
+    }
+
+    @Option(names = {"-lastbalansering"},
+            description = "Hvordan partisjonene skal fordeles på prosessorene, enten partisjonsnummer eller arbeidsmengde. Default er partisjonsnummer."
+    )
+    public void settLastbalansering(final String value) {
+        new LastbalanseringValidator().validate("lastbalansering", value, spec);
+        Lastbalansering.parse(value).ifPresent(l -> lastbalansering = l);
+    }
+
     @Option(names = {"-m"},
             description = "Modusen batchen skal bruke for oppbygging av og lagring av tidsserien.",
             required = true
@@ -258,6 +278,16 @@ public class ProgramArguments implements Arguments, TidsserieBatchArgumenter, Pr
         this.nodes = requireNonNull(antall, "antall er påkrevd, men var null");
     }
 
+    @Override
+    public AntallPartisjonar antallPartisjonar() {
+        return partisjonar;
+    }
+
+    @Override
+    public Lastbalansering lastbalansering() {
+        return lastbalansering;
+    }
+
     @Override
     public AldersgrenseForSlettingAvLogKatalogar slettegrense() {
         return aldersgrenseForSlettingAvLogKatalogar(slettLogEldreEnn);
@@ -307,6 +337,8 @@ public class ProgramArguments implements Arguments, TidsserieBatchArgumenter, Pr
                 String.format("fraAar: %d", fraAar),
                 String.format("tilAar: %d", tilAar),
                 String.format("n: %s", antallNoderForPrinting),
+                String.format("partisjonar: %d", partisjonar.antall()),
+                String.format("lastbalansering: %s", lastbalansering.kode()),
                 String.format("m: %s", modus != null ? modus.toString() : ""),
                 String.format("id: %s", uttrekk),
                 String.format("slettLog: %d", slettLogEldreEnn)
@@ -0,0 +1,61 @@
+package no.spk.tidsserie.batch.main.input;
+
+import java.util.stream.Stream;
+
+import org.assertj.core.api.AbstractThrowableAssert;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.InjectSoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.ParameterException;
+
+@ExtendWith(SoftAssertionsExtension.class)
+public class AntallPartisjonarValidatorTest {
+
+    @InjectSoftAssertions
+    private SoftAssertions softly;
+
+    private final AntallPartisjonarValidator validator = new AntallPartisjonarValidator();
+
+    @Test
+    void skal_godta_positive_heiltall() {
+        Stream.of("1", "271", "4096")
+                .forEach(
+                        verdi -> assertValideringsfeil(verdi).doesNotThrowAnyException()
+                );
+    }
+
+    @Test
+    void skal_feile_når_verdi_ikke_inneholder_en_integer() {
+        Stream.of("t", "1.2", "99999999999")
+                .forEach(
+                        verdi -> assertValideringsfeil(verdi)
+                                .isInstanceOf(ParameterException.class)
+                                .hasMessageContaining("'partisjonar': er ikke et gyldig tall (fant " + verdi + ")")
+                );
+    }
+
+    @Test
+    void skal_feile_når_verdi_ikke_er_større_enn_0() {
+        Stream.of("-1", "0")
+                .forEach(
+                        verdi -> assertValideringsfeil(verdi)
+                                .isInstanceOf(ParameterException.class)
+                                .hasMessageContaining("må være større enn 0")
+                                .hasMessageContaining(verdi)
+                );
+    }
+
+    private AbstractThrowableAssert<?, ? extends Throwable> assertValideringsfeil(final String verdi) {
+        return softly.assertThatCode(
+                () -> validator.validate("partisjonar", verdi, CommandSpec.create())
+        )
+                .as(
+                        "%s.validate(\"partisjonar\", \"%s\"",
+                        validator.getClass().getSimpleName(),
+                        verdi
+                );
+    }
+}
@@ -0,0 +1,52 @@
+package no.spk.tidsserie.batch.main.input;
+
+import java.util.stream.Stream;
+
+import org.assertj.core.api.AbstractThrowableAssert;
+import org.assertj.core.api.SoftAssertions;
+import org.assertj.core.api.junit.jupiter.InjectSoftAssertions;
+import org.assertj.core.api.junit.jupiter.SoftAssertionsExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.ParameterException;
+
+@ExtendWith(SoftAssertionsExtension.class)
+public class LastbalanseringValidatorTest {
+
+    @InjectSoftAssertions
+    private SoftAssertions softly;
+
+    private final LastbalanseringValidator validator = new LastbalanseringValidator();
+
+    @Test
+    void skal_godta_alle_kjente_lastbalanseringar_sine_koder() {
+        Stream.of("partisjonsnummer", "arbeidsmengde", "ARBEIDSMENGDE")
+                .forEach(
+                        verdi -> assertValideringsfeil(verdi).doesNotThrowAnyException()
+                );
+    }
+
+    @Test
+    void skal_avvise_ukjente_koder() {
+        Stream.of("", "lpt", "storleik")
+                .forEach(
+                        verdi -> assertValideringsfeil(verdi)
+                                .isInstanceOf(ParameterException.class)
+                                .hasMessageContaining("lastbalansering '" + verdi + "' er ikkje støtta av tidsserie-batch")
+                                .hasMessageContaining("- partisjonsnummer")
+                                .hasMessageContaining("- arbeidsmengde")
+                );
+    }
+
+    private AbstractThrowableAssert<?, ? extends Throwable> assertValideringsfeil(final String verdi) {
+        return softly.assertThatCode(
+                () -> validator.validate("lastbalansering", verdi, CommandSpec.create())
+        )
+                .as(
+                        "%s.validate(\"lastbalansering\", \"%s\"",
+                        validator.getClass().getSimpleName(),
+                        verdi
+                );
+    }
+}
@@ -68,6 +68,8 @@ public class ProgramArgumentsIT {
                 .contains("-fraAar: 2009")
                 .contains("-tilAar: 2018")
                 .contains("-n: 1")
+                .contains("-partisjonar: 271")
+                .contains("-lastbalansering: partisjonsnummer")
                 .contains("-m: min_modus")
                 .contains("-kjoeretid: 0401")
                 .contains("-sluttid: 23:59")